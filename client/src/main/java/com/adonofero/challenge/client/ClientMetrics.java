@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of how the lookups of a {@link PasswdClient} were answered.
+ *
+ * @author Alexander Donofero
+ */
+public class ClientMetrics {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    /**
+     * @return number of requests sent to the service
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of lookups answered from the near cache without a request
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return number of cached entities the service confirmed unchanged with a 304
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    /**
+     * @return number of lookups which waited for the identical request of another thread instead of sending their own
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return number of full lists brought up to date by applying the changes since their version
+     */
+    public long getDeltas() {
+        return deltas.get();
+    }
+
+    /**
+     * @return number of full lists retrieved again because the changes since their version were no longer available
+     */
+    public long getResyncs() {
+        return resyncs.get();
+    }
+
+    void requested() {
+        requests.incrementAndGet();
+    }
+
+    void cacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    void revalidated() {
+        revalidations.incrementAndGet();
+    }
+
+    void coalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    void deltaApplied() {
+        deltas.incrementAndGet();
+    }
+
+    void resynced() {
+        resyncs.incrementAndGet();
+    }
+}
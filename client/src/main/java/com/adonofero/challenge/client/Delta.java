@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import java.util.List;
+
+/**
+ * Net changes to users or groups since a version, as returned by the Passwd service for ?since={version}.
+ *
+ * @param <T> type of the entities
+ * @author Alexander Donofero
+ */
+public class Delta<T> {
+    private long fromVersion;
+    private long version;
+    private List<T> added;
+    private List<T> modified;
+    private List<T> removed;
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    public void setFromVersion(long fromVersion) {
+        this.fromVersion = fromVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<T> getAdded() {
+        return added;
+    }
+
+    public void setAdded(List<T> added) {
+        this.added = added;
+    }
+
+    public List<T> getModified() {
+        return modified;
+    }
+
+    public void setModified(List<T> modified) {
+        this.modified = modified;
+    }
+
+    public List<T> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<T> removed) {
+        this.removed = removed;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A group as returned by the Passwd service.
+ *
+ * @author Alexander Donofero
+ */
+public class Group {
+    private String name;
+    private int gid;
+    private String[] members;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getGid() {
+        return gid;
+    }
+
+    public void setGid(int gid) {
+        this.gid = gid;
+    }
+
+    public String[] getMembers() {
+        return members;
+    }
+
+    public void setMembers(String[] members) {
+        this.members = members;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Group group = (Group) o;
+        return gid == group.gid &&
+                Objects.equals(name, group.name) &&
+                Arrays.equals(members, group.members);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(name, gid);
+        result = 31 * result + Arrays.hashCode(members);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Group{" +
+                "name='" + name + '\'' +
+                ", gid=" + gid +
+                ", members=" + Arrays.toString(members) +
+                '}';
+    }
+}
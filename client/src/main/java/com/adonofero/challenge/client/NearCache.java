@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the entities a client looked up by id, evicting the least recently used first.
+ *
+ * @param <V> type of the entities
+ * @author Alexander Donofero
+ */
+final class NearCache<V> {
+
+    /**
+     * An entity, or its absence, along with its ETag and when the service last vouched for it.
+     */
+    static final class Entry<V> {
+        final V value;
+        final String tag;
+        final long validatedAt;
+
+        Entry(V value, String tag, long validatedAt) {
+            this.value = value;
+            this.tag = tag;
+            this.validatedAt = validatedAt;
+        }
+
+        boolean isFresh(long now, long freshnessMillis) {
+            return now - validatedAt < freshnessMillis;
+        }
+    }
+
+    private final Map<Integer, Entry<V>> entries;
+
+    NearCache(int maxEntries) {
+        this.entries = new LinkedHashMap<Integer, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized Entry<V> get(int id) {
+        return entries.get(id);
+    }
+
+    synchronized void put(int id, Entry<V> entry) {
+        entries.put(id, entry);
+    }
+
+    synchronized void invalidate(int id) {
+        entries.remove(id);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Client of the Passwd service keeping what it looked up close at hand.
+ * <p>
+ * DESIGN NOTE:
+ * Callers such as login hooks look the same few users up over and over, so lookups by id are answered from a near
+ * cache while the service vouched for them within the last freshness period. Past that, the cached entity is sent back
+ * to the service with its ETag, and a 304 renews it without transferring it again. Unknown ids are cached as well,
+ * since repeated lookups of them are just as common. Concurrent lookups of the same id wait for a single request
+ * instead of sending one each.
+ * <p>
+ * The full lists of users and groups are kept as replicas along with their version, and brought up to date with the
+ * changes since that version; only when the service no longer holds those changes is the full list retrieved again.
+ * Applying the changes also evicts the entities they touch from the near cache. Batches of lookups by id are spread
+ * over the connection pool, or answered from the replica when they are large enough for its upkeep to be cheaper
+ * than a request per id.
+ *
+ * @author Alexander Donofero
+ */
+public class PasswdClient implements Closeable {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;
+    public static final int DEFAULT_MAX_CACHED_ENTITIES = 10000;
+    public static final long DEFAULT_FRESHNESS_MILLIS = 5000;
+
+    /**
+     * Batches with more ids than this missing from the near cache are answered from the replica of the full list.
+     */
+    static final int BATCH_REPLICA_THRESHOLD = 256;
+
+    private static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+
+    private final String baseUrl;
+    private final long freshnessMillis;
+    private final CloseableHttpClient http;
+    private final ExecutorService executor;
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ClientMetrics metrics = new ClientMetrics();
+
+    private final NearCache<User> users;
+    private final NearCache<Group> groups;
+    private final Replica<User> allUsers;
+    private final Replica<Group> allGroups;
+    private final Map<String, CompletableFuture<NearCache.Entry<?>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param baseUrl URL of the service, e.g. http://localhost:8080
+     */
+    public PasswdClient(String baseUrl) {
+        this(baseUrl, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CACHED_ENTITIES, DEFAULT_FRESHNESS_MILLIS);
+    }
+
+    /**
+     * @param baseUrl           URL of the service, e.g. http://localhost:8080
+     * @param maxConnections    maximum number of connections kept open to the service
+     * @param maxCachedEntities maximum number of users, and of groups, in the near cache
+     * @param freshnessMillis   how long an entity or list is used before checking it with the service again
+     */
+    public PasswdClient(String baseUrl, int maxConnections, int maxCachedEntities, long freshnessMillis) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.freshnessMillis = freshnessMillis;
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(maxConnections);
+        connections.setDefaultMaxPerRoute(maxConnections);
+        this.http = HttpClients.custom().setConnectionManager(connections).build();
+        this.executor = Executors.newFixedThreadPool(maxConnections, task -> {
+            Thread thread = new Thread(task, "passwd-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.users = new NearCache<>(maxCachedEntities);
+        this.groups = new NearCache<>(maxCachedEntities);
+        this.allUsers = new Replica<>("/users", User.class, User::getName, User::getUid, users);
+        this.allGroups = new Replica<>("/groups", Group.class, Group::getName, Group::getGid, groups);
+    }
+
+    /**
+     * @param uid id of a user
+     * @return the user, or null if the service knows no user with the uid
+     * @throws IOException if the service cannot be reached or fails to answer
+     */
+    public User getUser(int uid) throws IOException {
+        return lookup(users, "/users/", uid, User.class);
+    }
+
+    /**
+     * @param gid id of a group
+     * @return the group, or null if the service knows no group with the gid
+     * @throws IOException if the service cannot be reached or fails to answer
+     */
+    public Group getGroup(int gid) throws IOException {
+        return lookup(groups, "/groups/", gid, Group.class);
+    }
+
+    /**
+     * Look several users up at once.
+     *
+     * @param uids ids of users
+     * @return users found, keyed by uid in the order of the ids
+     * @throws IOException if the service cannot be reached or fails to answer
+     */
+    public Map<Integer, User> getUsers(Collection<Integer> uids) throws IOException {
+        return batch(uids, users, allUsers, this::getUser);
+    }
+
+    /**
+     * Look several groups up at once.
+     *
+     * @param gids ids of groups
+     * @return groups found, keyed by gid in the order of the ids
+     * @throws IOException if the service cannot be reached or fails to answer
+     */
+    public Map<Integer, Group> getGroups(Collection<Integer> gids) throws IOException {
+        return batch(gids, groups, allGroups, this::getGroup);
+    }
+
+    /**
+     * @return every user, in the order of the users file as of the last full retrieval followed by users added since
+     * @throws IOException if the service cannot be reached or fails to answer
+     */
+    public List<User> getAllUsers() throws IOException {
+        return allUsers.get();
+    }
+
+    /**
+     * @return every group, in the order of the groups file as of the last full retrieval followed by groups added since
+     * @throws IOException if the service cannot be reached or fails to answer
+     */
+    public List<Group> getAllGroups() throws IOException {
+        return allGroups.get();
+    }
+
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        http.close();
+    }
+
+    private <V> V lookup(NearCache<V> cache, String path, int id, Class<V> type) throws IOException {
+        NearCache.Entry<V> cached = cache.get(id);
+        if (cached != null && cached.isFresh(System.currentTimeMillis(), freshnessMillis)) {
+            metrics.cacheHit();
+            return cached.value;
+        }
+        return coalesced(path + id, () -> fetch(cache, path + id, id, type, cached)).value;
+    }
+
+    /**
+     * Run a request unless the same request is already running, in which case wait for its result instead.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> NearCache.Entry<V> coalesced(String path, Request<NearCache.Entry<V>> request) throws IOException {
+        CompletableFuture<NearCache.Entry<?>> mine = new CompletableFuture<>();
+        CompletableFuture<NearCache.Entry<?>> running = inFlight.putIfAbsent(path, mine);
+        if (running != null) {
+            metrics.coalesced();
+            try {
+                return (NearCache.Entry<V>) running.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException(ex.getCause());
+            }
+        }
+        try {
+            NearCache.Entry<V> entry = request.send();
+            mine.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(path, mine);
+        }
+    }
+
+    private <V> NearCache.Entry<V> fetch(NearCache<V> cache, String path, int id, Class<V> type, NearCache.Entry<V> cached) throws IOException {
+        HttpGet get = new HttpGet(baseUrl + path);
+        if (cached != null && cached.tag != null) {
+            get.setHeader(HttpHeaders.IF_NONE_MATCH, cached.tag);
+        }
+        metrics.requested();
+        try (CloseableHttpResponse response = http.execute(get)) {
+            int status = response.getStatusLine().getStatusCode();
+            long now = System.currentTimeMillis();
+            NearCache.Entry<V> entry;
+            if (status == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                metrics.revalidated();
+                entry = new NearCache.Entry<>(cached.value, cached.tag, now);
+            } else if (status == HttpStatus.SC_OK) {
+                Header tag = response.getFirstHeader(HttpHeaders.ETAG);
+                entry = new NearCache.Entry<>(mapper.readValue(response.getEntity().getContent(), type), tag == null ? null : tag.getValue(), now);
+            } else if (status == HttpStatus.SC_NOT_FOUND) {
+                entry = new NearCache.Entry<>(null, null, now);
+            } else {
+                throw new PasswdClientException(status, path);
+            }
+            // Responses are read to the end so the connection goes back to the pool
+            EntityUtils.consume(response.getEntity());
+            cache.put(id, entry);
+            return entry;
+        }
+    }
+
+    private <V> Map<Integer, V> batch(Collection<Integer> ids, NearCache<V> cache, Replica<V> replica, Lookup<V> lookup) throws IOException {
+        long now = System.currentTimeMillis();
+        Map<Integer, V> found = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int id : ids) {
+            NearCache.Entry<V> cached = cache.get(id);
+            if (cached != null && cached.isFresh(now, freshnessMillis)) {
+                metrics.cacheHit();
+                found.put(id, cached.value);
+            } else {
+                found.put(id, null);
+                missing.add(id);
+            }
+        }
+        if (missing.size() > BATCH_REPLICA_THRESHOLD) {
+            Map<Integer, V> byId = replica.byId();
+            for (int id : missing) {
+                found.put(id, byId.get(id));
+            }
+        } else if (missing.size() == 1) {
+            found.put(missing.get(0), lookup.get(missing.get(0)));
+        } else {
+            List<Future<V>> pending = new ArrayList<>(missing.size());
+            for (int id : missing) {
+                pending.add(executor.submit(() -> lookup.get(id)));
+            }
+            for (int i = 0; i < missing.size(); i++) {
+                found.put(missing.get(i), await(pending.get(i)));
+            }
+        }
+        found.values().removeIf(value -> value == null);
+        return found;
+    }
+
+    private static <V> V await(Future<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the service", ex);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException(ex.getCause());
+        }
+    }
+
+    private interface Request<T> {
+        T send() throws IOException;
+    }
+
+    private interface Lookup<V> {
+        V get(int id) throws IOException;
+    }
+
+    /**
+     * Copy of the full list of users or groups, kept up to date with the changes since its version. Entities are
+     * matched by name, as the service does when computing the changes.
+     */
+    private final class Replica<T> {
+        private final String path;
+        private final JavaType listType;
+        private final JavaType deltaType;
+        private final Function<T, String> name;
+        private final ToIntFunction<T> id;
+        private final NearCache<T> cache;
+
+        private Map<String, T> byName;
+        private List<T> list;
+        private long version;
+        private long validatedAt;
+
+        Replica(String path, Class<T> type, Function<T, String> name, ToIntFunction<T> id, NearCache<T> cache) {
+            this.path = path;
+            this.listType = mapper.getTypeFactory().constructCollectionType(List.class, type);
+            this.deltaType = mapper.getTypeFactory().constructParametricType(Delta.class, type);
+            this.name = name;
+            this.id = id;
+            this.cache = cache;
+        }
+
+        /**
+         * Being synchronized, concurrent callers wait for a single request bringing the list up to date.
+         */
+        synchronized List<T> get() throws IOException {
+            long now = System.currentTimeMillis();
+            if (list != null && now - validatedAt < freshnessMillis) {
+                metrics.cacheHit();
+                return list;
+            }
+            if (list == null || !update()) {
+                retrieve();
+            }
+            validatedAt = now;
+            return list;
+        }
+
+        Map<Integer, T> byId() throws IOException {
+            List<T> entities = get();
+            Map<Integer, T> byId = new HashMap<>(entities.size() * 2);
+            for (T entity : entities) {
+                byId.putIfAbsent(id.applyAsInt(entity), entity);
+            }
+            return byId;
+        }
+
+        private void retrieve() throws IOException {
+            metrics.requested();
+            try (CloseableHttpResponse response = http.execute(new HttpGet(baseUrl + path))) {
+                int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK) {
+                    throw new PasswdClientException(status, path);
+                }
+                List<T> entities = mapper.readValue(response.getEntity().getContent(), listType);
+                EntityUtils.consume(response.getEntity());
+                byName = new LinkedHashMap<>(entities.size() * 2);
+                for (T entity : entities) {
+                    byName.putIfAbsent(name.apply(entity), entity);
+                }
+                list = Collections.unmodifiableList(entities);
+                version = Long.parseLong(response.getFirstHeader(SNAPSHOT_VERSION_HEADER).getValue());
+            }
+        }
+
+        /**
+         * @return false if the changes since the version of the list are no longer available
+         */
+        private boolean update() throws IOException {
+            metrics.requested();
+            try (CloseableHttpResponse response = http.execute(new HttpGet(baseUrl + path + "?since=" + version))) {
+                int status = response.getStatusLine().getStatusCode();
+                if (status == HttpStatus.SC_GONE) {
+                    EntityUtils.consume(response.getEntity());
+                    metrics.resynced();
+                    return false;
+                }
+                if (status != HttpStatus.SC_OK) {
+                    throw new PasswdClientException(status, path);
+                }
+                Delta<T> delta = mapper.readValue(response.getEntity().getContent(), deltaType);
+                EntityUtils.consume(response.getEntity());
+                if (delta.getVersion() != version) {
+                    apply(delta);
+                }
+                return true;
+            }
+        }
+
+        private void apply(Delta<T> delta) {
+            for (T entity : delta.getRemoved()) {
+                byName.remove(name.apply(entity));
+                cache.invalidate(id.applyAsInt(entity));
+            }
+            for (T entity : delta.getModified()) {
+                // Evict the entity as it was, since its id may be what changed
+                T previous = byName.put(name.apply(entity), entity);
+                if (previous != null) {
+                    cache.invalidate(id.applyAsInt(previous));
+                }
+                cache.invalidate(id.applyAsInt(entity));
+            }
+            for (T entity : delta.getAdded()) {
+                byName.put(name.apply(entity), entity);
+                cache.invalidate(id.applyAsInt(entity));
+            }
+            list = Collections.unmodifiableList(new ArrayList<>(byName.values()));
+            version = delta.getVersion();
+            metrics.deltaApplied();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when the Passwd service answers a request with an unexpected status, e.g. a 503 while it is
+ * overloaded.
+ *
+ * @author Alexander Donofero
+ */
+public class PasswdClientException extends IOException {
+
+    private final int status;
+
+    public PasswdClientException(int status, String path) {
+        super(String.format("Passwd service answered %s with status %d", path, status));
+        this.status = status;
+    }
+
+    /**
+     * @return HTTP status of the response
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Alexander Donofero
+ */
+public class PasswdClientTest {
+
+    private static final String ROOT = "{\"name\":\"root\",\"uid\":0,\"gid\":0,\"comment\":\"root\",\"home\":\"/root\",\"shell\":\"/bin/bash\"}";
+    private static final String DAEMON = "{\"name\":\"daemon\",\"uid\":1,\"gid\":1,\"comment\":\"daemon\",\"home\":\"/usr/sbin\",\"shell\":\"/usr/sbin/nologin\"}";
+    private static final String DAEMON_ZSH = "{\"name\":\"daemon\",\"uid\":1,\"gid\":1,\"comment\":\"daemon\",\"home\":\"/usr/sbin\",\"shell\":\"/bin/zsh\"}";
+
+    /**
+     * Responses of the stub service keyed by path and query.
+     */
+    private final Map<String, Response> responses = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+
+    private static final class Response {
+        final int status;
+        final String tag;
+        final Long version;
+        final String body;
+        final CountDownLatch release;
+
+        Response(int status, String tag, Long version, String body, CountDownLatch release) {
+            this.status = status;
+            this.tag = tag;
+            this.version = version;
+            this.body = body;
+            this.release = release;
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void passwdClient_WithStaleCachedUser_ShouldRevalidateWithETag() throws Exception {
+        // Arrange
+        responses.put("/users/0", new Response(200, "\"a\"", null, ROOT, null));
+        try (PasswdClient client = new PasswdClient(url(), 2, 100, 0)) {
+            User first = client.getUser(0);
+
+            // Act
+            User second = client.getUser(0);
+
+            // Assert
+            Assert.assertEquals(first, second);
+            Assert.assertEquals(2, client.getMetrics().getRequests());
+            Assert.assertEquals(1, client.getMetrics().getRevalidations());
+        }
+    }
+
+    @Test
+    public void passwdClient_WithFreshCachedUserAndUnknownUid_ShouldAnswerFromCache() throws Exception {
+        // Arrange
+        responses.put("/users/0", new Response(200, "\"a\"", null, ROOT, null));
+        try (PasswdClient client = new PasswdClient(url())) {
+            client.getUser(0);
+            client.getUser(9999);
+
+            // Act
+            User root = client.getUser(0);
+            User unknown = client.getUser(9999);
+
+            // Assert
+            Assert.assertEquals("root", root.getName());
+            Assert.assertNull(unknown);
+            Assert.assertEquals(2, requests.get());
+            Assert.assertEquals(2, client.getMetrics().getCacheHits());
+        }
+    }
+
+    @Test
+    public void passwdClient_WithConcurrentLookupsOfSameUid_ShouldSendOneRequest() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        responses.put("/users/1", new Response(200, "\"b\"", null, DAEMON, release));
+        int lookups = 4;
+        ExecutorService callers = Executors.newFixedThreadPool(lookups);
+        try (PasswdClient client = new PasswdClient(url())) {
+            // Act
+            List<Future<User>> found = new ArrayList<>();
+            for (int i = 0; i < lookups; i++) {
+                found.add(callers.submit(() -> client.getUser(1)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (client.getMetrics().getCoalesced() < lookups - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            // Assert
+            for (Future<User> user : found) {
+                Assert.assertEquals("daemon", user.get(5, TimeUnit.SECONDS).getName());
+            }
+            Assert.assertEquals(1, requests.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void passwdClient_WithAllUsers_ShouldApplyDeltasAndResyncWhenGone() throws Exception {
+        // Arrange
+        responses.put("/users", new Response(200, null, 5L, "[" + ROOT + "," + DAEMON + "]", null));
+        responses.put("/users?since=5", new Response(200, null, 6L,
+                "{\"fromVersion\":5,\"version\":6,\"added\":[],\"modified\":[" + DAEMON_ZSH + "],\"removed\":[" + ROOT + "]}", null));
+        responses.put("/users?since=6", new Response(410, null, 9L, "", null));
+        try (PasswdClient client = new PasswdClient(url(), 2, 100, 0)) {
+            client.getAllUsers();
+
+            // Act
+            List<User> updated = client.getAllUsers();
+            client.getAllUsers();
+
+            // Assert
+            Assert.assertEquals(1, updated.size());
+            Assert.assertEquals("/bin/zsh", updated.get(0).getShell());
+            Assert.assertEquals(1, client.getMetrics().getDeltas());
+            Assert.assertEquals(1, client.getMetrics().getResyncs());
+            Assert.assertEquals(4, requests.get());
+        }
+    }
+
+    @Test
+    public void passwdClient_WithBatchOfUids_ShouldReturnUsersFound() throws Exception {
+        // Arrange
+        responses.put("/users/0", new Response(200, "\"a\"", null, ROOT, null));
+        responses.put("/users/1", new Response(200, "\"b\"", null, DAEMON, null));
+        try (PasswdClient client = new PasswdClient(url())) {
+            // Act
+            Map<Integer, User> found = client.getUsers(Arrays.asList(1, 9999, 0));
+
+            // Assert
+            Assert.assertEquals(Arrays.asList(1, 0), new ArrayList<>(found.keySet()));
+            Assert.assertEquals("root", found.get(0).getName());
+        }
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String query = exchange.getRequestURI().getRawQuery();
+        Response response = responses.get(exchange.getRequestURI().getPath() + (query == null ? "" : "?" + query));
+        try {
+            if (response == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (response.release != null) {
+                response.release.await(5, TimeUnit.SECONDS);
+            }
+            if (response.version != null) {
+                exchange.getResponseHeaders().set("X-Snapshot-Version", String.valueOf(response.version));
+            }
+            if (response.tag != null) {
+                exchange.getResponseHeaders().set("ETag", response.tag);
+                if (response.tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
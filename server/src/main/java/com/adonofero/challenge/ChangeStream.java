@@ -0,0 +1,246 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.entity.ChangeSet;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Events stream of the {@link ChangeSet}s recorded by a {@link ChangeLog}, for one subscriber.
+ * <p>
+ * DESIGN NOTE:
+ * The change log hands change sets over while it is locked, so they are only queued here and written to the client
+ * from a shared executor. The queue is bounded: a client too slow to drain it is sent a resync event and disconnected
+ * rather than letting its backlog grow without limit. It reconnects from the version it resynchronized to.
+ * <p>
+ * Event ids carry the epoch of the directory along with the version, as versions start over when the service
+ * restarts. A client reconnecting with the id of another epoch is told to resync rather than sent the changes since
+ * an unrelated version.
+ * <p>
+ * Events are written through a {@link Sink}, so that the Spring Boot application and the lightweight server, each
+ * with its own connection to the client, share the queueing and resync logic.
+ *
+ * @author Alexander Donofero
+ */
+public class ChangeStream implements ChangeLog.Subscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStream.class);
+
+    static final String EVENT_CHANGE = "change";
+    static final String EVENT_RESYNC = "resync";
+
+    private final Sink sink;
+    private final ChangeLog changeLog;
+    private final long epoch;
+    private final Executor executor;
+    private final BlockingQueue<ChangeSet> queue;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long resyncVersion = -1;
+
+    /**
+     * @param emitter    connection to the client
+     * @param changeLog  change log the stream subscribes to
+     * @param epoch      epoch of the versions of the change log
+     * @param executor   executor writing to the clients
+     * @param bufferSize maximum number of change sets queued for the client
+     */
+    public ChangeStream(SseEmitter emitter, ChangeLog changeLog, long epoch, Executor executor, int bufferSize) {
+        this(new EmitterSink(emitter), changeLog, epoch, executor, bufferSize);
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+    }
+
+    /**
+     * @param sink       connection to the client; its owner calls {@link #close} once the client is gone
+     * @param changeLog  change log the stream subscribes to
+     * @param epoch      epoch of the versions of the change log
+     * @param executor   executor writing to the clients
+     * @param bufferSize maximum number of change sets queued for the client
+     */
+    public ChangeStream(Sink sink, ChangeLog changeLog, long epoch, Executor executor, int bufferSize) {
+        this.sink = sink;
+        this.changeLog = changeLog;
+        this.epoch = epoch;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    /**
+     * Subscribe to the change log and queue the change sets since a version.
+     *
+     * @param epoch   epoch the client holds the version in, or null if unknown to the client
+     * @param version version the client holds
+     */
+    public void start(Long epoch, long version) {
+        if (epoch != null && epoch != this.epoch) {
+            resync(changeLog.getLatestVersion());
+            return;
+        }
+        changeLog.subscribe(version, this);
+    }
+
+    /**
+     * Subscribe to the change log and queue the change sets since the last event a reconnecting client received.
+     *
+     * @param lastEventId id of the last event received
+     */
+    public void resume(String lastEventId) {
+        int separator = lastEventId.indexOf(':');
+        if (separator > 0) {
+            try {
+                start(Long.parseLong(lastEventId.substring(0, separator).trim()), Long.parseLong(lastEventId.substring(separator + 1).trim()));
+                return;
+            } catch (NumberFormatException ex) {
+                logger.debug("Malformed Last-Event-ID {}", lastEventId);
+            }
+        }
+        // Not an id handed out by this service, so the version the client holds is unknown
+        resync(changeLog.getLatestVersion());
+    }
+
+    /**
+     * @return id of the event leading to a version of an epoch
+     */
+    static String eventId(long epoch, long version) {
+        return epoch + ":" + version;
+    }
+
+    @Override
+    public boolean offer(ChangeSet changes) {
+        if (closed.get()) {
+            return false;
+        }
+        if (!queue.offer(changes)) {
+            logger.warn("Change stream fell more than {} versions behind, asking the client to resync", queue.size());
+            resync(changes.getVersion());
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    @Override
+    public void resync(long version) {
+        queue.clear();
+        resyncVersion = version;
+        drain();
+    }
+
+    private void drain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::send);
+        }
+    }
+
+    private void send() {
+        try {
+            ChangeSet changeSet;
+            while (!closed.get() && (changeSet = queue.poll()) != null) {
+                sink.send(eventId(epoch, changeSet.getVersion()), EVENT_CHANGE, changeSet);
+            }
+            long version = resyncVersion;
+            if (version >= 0 && !closed.get()) {
+                sink.send(eventId(epoch, version), EVENT_RESYNC, Collections.singletonMap("version", version));
+                sink.complete();
+                close();
+            }
+        } catch (IOException | IllegalStateException ex) {
+            logger.debug("Change stream closed by client: {}", ex.toString());
+            sink.completeWithError(ex);
+            close();
+        } finally {
+            draining.set(false);
+        }
+        // Change sets queued after the loop found the queue empty but before draining was reset
+        if (!closed.get() && (!queue.isEmpty() || resyncVersion >= 0)) {
+            drain();
+        }
+    }
+
+    /**
+     * Stop streaming, once the client is gone or the stream timed out.
+     */
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            changeLog.unsubscribe(this);
+            queue.clear();
+        }
+    }
+
+    /**
+     * Connection to the client the events of a stream are written to, by one thread at a time.
+     */
+    public interface Sink {
+
+        /**
+         * Write an event to the client.
+         *
+         * @param id   id of the event, sent back by a reconnecting client as Last-Event-ID
+         * @param name name of the event
+         * @param data payload of the event, written as JSON
+         * @throws IOException if the client is gone
+         */
+        void send(String id, String name, Object data) throws IOException;
+
+        /**
+         * End the response after the last event.
+         */
+        void complete();
+
+        /**
+         * End the response after a failure to write to the client.
+         *
+         * @param ex failure
+         */
+        void completeWithError(Throwable ex);
+    }
+
+    private static final class EmitterSink implements Sink {
+        private final SseEmitter emitter;
+
+        EmitterSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(String id, String name, Object data) throws IOException {
+            emitter.send(SseEmitter.event().id(id).name(name).data(data, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            emitter.completeWithError(ex);
+        }
+    }
+}
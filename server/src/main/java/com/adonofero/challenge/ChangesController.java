@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.entity.ChangeSet;
+import com.adonofero.challenge.exceptions.rest.ServiceOverloadedException;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * REST Controller for endpoints related to changes of the {@link com.adonofero.challenge.entity.User}s and
+ * {@link com.adonofero.challenge.entity.Group}s over time.
+ *
+ * @author Alexander Donofero
+ */
+@RestController
+public class ChangesController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangesController.class);
+
+    private final ChangeLog changeLog;
+    private final LocalFileDirectory directory;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final int retryAfterSeconds;
+
+    /**
+     * Writes change sets to the clients. Sized by demand, since every thread serves a subscriber which is bounded.
+     */
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "passwd-change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Default Constructor.
+     *
+     * @param changeLog         history of the changes to stream
+     * @param directory         directory whose epoch qualifies the versions of the changes
+     * @param bufferSize        maximum number of change sets queued per client
+     * @param maxSubscribers    maximum number of clients streaming at the same time
+     * @param timeoutMillis     time after which a stream is closed, letting the client reconnect
+     * @param retryAfterSeconds delay suggested to clients refused for exceeding the maximum number of clients
+     */
+    public ChangesController(ChangeLog changeLog, LocalFileDirectory directory, @Value("${passwd.changes.subscriber-buffer:256}") int bufferSize,
+                             @Value("${passwd.changes.max-subscribers:256}") int maxSubscribers,
+                             @Value("${passwd.changes.timeout-ms:1800000}") long timeoutMillis,
+                             @Value("${passwd.admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.changeLog = changeLog;
+        this.directory = directory;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Allow clients to stream the {@link ChangeSet}s of every new version of the users and groups as Server-Sent
+     * Events. Each 'change' event carries the epoch and the version it leads to as its id, e.g. 4242:17. A 'resync'
+     * event, after which the stream is closed, tells the client the changes it needs are no longer available, or
+     * belong to another epoch: it has to retrieve all users and groups again and reconnect from the version of the
+     * event.
+     *
+     * @param since       version the client holds; changes since then are replayed first. Defaults to the latest
+     *                    version, i.e. only changes from now on are streamed
+     * @param epoch       epoch the client holds the version in, as returned in the X-Snapshot-Epoch header
+     * @param lastEventId id of the last event received, sent by clients reconnecting; takes precedence over since
+     * @return stream of events
+     */
+    @RequestMapping(path = "/changes", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(name = "since", required = false) Long since,
+                                    @RequestParam(name = "epoch", required = false) Long epoch,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("BEGIN: Received GET request to stream changes since version {}", lastEventId != null ? lastEventId : since);
+        if (changeLog.getSubscriberCount() >= maxSubscribers) {
+            throw new ServiceOverloadedException(String.format("Already streaming changes to %d clients", maxSubscribers), retryAfterSeconds);
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        ChangeStream stream = new ChangeStream(emitter, changeLog, directory.getEpoch(), streamExecutor, bufferSize);
+        if (lastEventId != null) {
+            stream.resume(lastEventId);
+            logger.info("END: Streaming changes since event {}", lastEventId);
+        } else {
+            long version = since != null ? since : changeLog.getLatestVersion();
+            stream.start(epoch, version);
+            logger.info("END: Streaming changes since version {}", version);
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void close() {
+        streamExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.admission.Admission;
+import com.adonofero.challenge.admission.EndpointClass;
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.ResultPage;
+import com.adonofero.challenge.entity.Stats;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.rest.InvalidParametersException;
+import com.adonofero.challenge.exceptions.rest.MissingParametersException;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.groups.GroupsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+/**
+ * REST Controller for endpoints related to the retrieval of {@link User}s.
+ *
+ * @author Alexander Donofero
+ */
+@RestController
+public class GroupsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupsController.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 10000;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+
+    /**
+     * Service layer used to perform the logic needed to fulfill client requests.
+     */
+    private final GroupsService groupsService;
+
+    /**
+     * Default Constructor.
+     *
+     * @param groupsService Service layer used to perform the logic needed to fulfill client requests.
+     */
+    public GroupsController(GroupsService groupsService) {
+        this.groupsService = groupsService;
+    }
+
+    /**
+     * Allow clients to retrieve a current list of all groups, or the groups added, modified and removed since a version
+     * they hold. The version of the full list is returned in the X-Snapshot-Version header, and the epoch it belongs to,
+     * which changes when the service restarts, in the X-Snapshot-Epoch header. The list may be ordered by
+     * a field with sort, e.g. uid,desc, and cut short with limit. The full list is written from the JSON rendered
+     * with the snapshot when the service pre-renders groups.
+     *
+     * @param since version the client holds, if only the changes since are to be retrieved
+     * @param epoch epoch the client holds the version in; a version of another epoch requires a resync
+     * @param sort  field to order the list by, optionally followed by ",asc" or ",desc"
+     * @param limit maximum number of groups returned
+     * @return list of all groups, or the changes since the version
+     * @throws UpdateFailureException  if current list of all groups cannot be retrieved
+     * @throws ResyncRequiredException if the changes since the version are no longer available, or of another epoch
+     * @throws InvalidQueryException   if the sort is malformed or refers to an unknown field
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/groups", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getGroups(@RequestParam(name = "since", required = false) Long since, @RequestParam(name = "epoch", required = false) Long epoch,
+                                      @RequestParam(name = "sort", required = false) String sort,
+                                      @RequestParam(name = "limit", required = false) Integer limit)
+            throws UpdateFailureException, ResyncRequiredException, InvalidQueryException {
+        checkLimit(limit, "getGroups");
+        if (since != null) {
+            if (sort != null || limit != null) {
+                throw new InvalidParametersException("Parameter since cannot be combined with sort or limit on getGroups endpoint");
+            }
+            logger.info("BEGIN: Received GET request for groups changed since version {}", since);
+            Delta<Group> changes = groupsService.getGroupsSince(epoch, since);
+            logger.debug("GET request for groups changed since version {} found the following changes: {}", since, changes);
+            logger.info("END: GET request for groups changed since version {} resolved successfully", since);
+            return ResponseEntity.ok().header(UsersController.SNAPSHOT_VERSION_HEADER, String.valueOf(changes.getVersion()))
+                    .header(UsersController.SNAPSHOT_EPOCH_HEADER, String.valueOf(groupsService.getEpoch())).body(changes);
+        }
+        logger.info("BEGIN: Received GET request for all groups");
+        Versioned<?> retrievedGroups = sort == null && limit == null && groupsService.isPrerendered()
+                ? groupsService.getRenderedGroups() : groupsService.getVersionedGroups(sort, limit);
+        logger.debug("GET request for all groups found the following groups: {}", retrievedGroups);
+        logger.info("END: GET request for all groups resolved successfully");
+        return ResponseEntity.ok().header(UsersController.SNAPSHOT_VERSION_HEADER, String.valueOf(retrievedGroups.getVersion()))
+                .header(UsersController.SNAPSHOT_EPOCH_HEADER, String.valueOf(groupsService.getEpoch())).body(retrievedGroups.getValue());
+    }
+
+    /**
+     * Allow clients to retrieve {@link Group} based on gid. Clients revalidating with the ETag of the group in
+     * If-None-Match get a 304 Not Modified while it is unchanged. The group is written from the JSON rendered with the
+     * snapshot when the service pre-renders groups.
+     *
+     * @param gid     id of {@link Group}
+     * @param request request, checked for If-None-Match
+     * @return {@link Group} matching provided gid, or its rendered JSON, or null if the client's copy is current
+     * @throws UpdateFailureException  if the current list of groups cannot be retrieved
+     * @throws EntityNotFoundException if no group matches the provided uid
+     */
+    @Admission(EndpointClass.POINT)
+    @RequestMapping(path = "/groups/{gid}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Object getUserById(@PathVariable("gid") int gid, WebRequest request) throws UpdateFailureException, EntityNotFoundException {
+        logger.info("BEGIN: Received GET request for group with GID {}", gid);
+        Tagged<?> tagged = groupsService.isPrerendered() ? groupsService.getRenderedGroupByID(gid) : groupsService.getTaggedGroupByID(gid);
+        if (request.checkNotModified(tagged.getTag())) {
+            logger.info("END: Group with GID {} not modified", gid);
+            return null;
+        }
+        Object retrievedGroup = tagged.getValue();
+        logger.debug("Retrieved the following group when searching with GID {}: {}", gid, retrievedGroup);
+        logger.info("END: Successfully retrieved group with GID {}", gid);
+        return retrievedGroup;
+    }
+
+    /**
+     * Allow clients to retrieve the {@link User}s belonging to a group: users whose primary gid is the group's gid and
+     * users listed as members of the group. Results are paginated, the size of the full result is returned in the
+     * X-Total-Count header.
+     *
+     * @param gid    id of {@link Group}
+     * @param offset number of users to skip, defaults to 0
+     * @param limit  maximum number of users to return, defaults to {@value #DEFAULT_PAGE_SIZE}
+     * @return page of {@link User}s belonging to the group, in users file order
+     * @throws UpdateFailureException  if the current list of users or groups cannot be retrieved
+     * @throws EntityNotFoundException if neither a group nor a user has the provided gid
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/groups/{gid}/users", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<User>> getUsersOfGroup(@PathVariable("gid") int gid, @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                                      @RequestParam(name = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) throws UpdateFailureException, EntityNotFoundException {
+        logger.info("BEGIN: Received GET request for users of group with GID {}", gid);
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidParametersException(String.format("offset must be non-negative and limit between 1 and %d on getUsersOfGroup endpoint", MAX_PAGE_SIZE));
+        }
+        ResultPage<User> retrievedUsers = groupsService.getUsersOfGroup(gid, offset, limit);
+        logger.debug("Retrieved the following users of group with GID {}: {}", gid, retrievedUsers);
+        logger.info("END: Successfully retrieved {} of {} users of group with GID {}", retrievedUsers.getItems().size(), retrievedUsers.getTotal(), gid);
+        return ResponseEntity.ok().header(TOTAL_COUNT_HEADER, String.valueOf(retrievedUsers.getTotal())).body(retrievedUsers.getItems());
+    }
+
+    /**
+     * Allow clients to count the users belonging to each group without retrieving them. Counts are kept with each
+     * version of the directory.
+     *
+     * @return number of users belonging to each gid of the groups, from the largest to the smallest
+     * @throws UpdateFailureException if the current list of groups or users cannot be retrieved
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/groups/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Stats getGroupStats() throws UpdateFailureException {
+        logger.info("BEGIN: Received GET request for group stats");
+        Stats stats = groupsService.getGroupStats();
+        logger.debug("Computed the following group stats: {}", stats);
+        logger.info("END: Successfully retrieved stats of {} gids", stats.getTotal());
+        return stats;
+    }
+
+    /**
+     * Allow clients to retrieve {@link Group} based on name without going through the query endpoint.
+     *
+     * @param name name of {@link Group}
+     * @return {@link Group} matching provided name
+     * @throws UpdateFailureException  if the current list of groups cannot be retrieved
+     * @throws EntityNotFoundException if no group matches the provided name
+     */
+    @Admission(EndpointClass.POINT)
+    @RequestMapping(path = "/groups/by-name/{name:.+}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Group getGroupByName(@PathVariable("name") String name) throws UpdateFailureException, EntityNotFoundException {
+        logger.info("BEGIN: Received GET request for group with name {}", name);
+        Group retrievedGroup = groupsService.getGroupByName(name);
+        logger.debug("Retrieved the following group when searching with name {}: {}", name, retrievedGroup);
+        logger.info("END: Successfully retrieved group with name {}", name);
+        return retrievedGroup;
+    }
+
+    /**
+     * Allow clients to query for groups matching the input criteria.
+     * Excluding all parameters results in a 400 Bad Request. Passing multiple parameters is the equivalent
+     * of an "AND" query in that a {@link Group} must match ALL criteria in order to be returned. Alternatively, q takes
+     * a boolean expression such as {@code member = alice AND NOT name ^= sys}, which cannot be combined with the other
+     * parameters.
+     *
+     * @param name    name of group
+     * @param gid     id of group
+     * @param members list of members that a group must contain
+     * @param q       query expression
+     * @param sort    field to order the groups by, optionally followed by ",asc" or ",desc"
+     * @param limit   maximum number of groups returned
+     * @return list of {@link Group}s matching specified criteria
+     * @throws UpdateFailureException if the current list of groups cannot be retrieved
+     * @throws InvalidQueryException  if the query expression is malformed
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/groups/query", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Group> queryGroups(@RequestParam(name = "name", required = false) String name, @RequestParam(name = "gid", required = false) Integer gid,
+                                   @RequestParam(name = "member", required = false) List<String> members,
+                                   @RequestParam(name = "q", required = false) String q, @RequestParam(name = "sort", required = false) String sort,
+                                   @RequestParam(name = "limit", required = false) Integer limit) throws UpdateFailureException, InvalidQueryException {
+        logger.info("BEGIN: Received GET request for querying groups based on parameters");
+        checkLimit(limit, "queryGroups");
+        if (q != null) {
+            if (name != null || gid != null || members != null) {
+                throw new InvalidParametersException("Parameter q cannot be combined with other parameters on queryGroups endpoint");
+            }
+            List<Group> retrievedGroups = groupsService.queryGroups(q, sort, limit);
+            logger.debug("Found the following groups given query expression '{}': {}", q, retrievedGroups);
+            logger.info("END: GET request for groups query resolved successfully");
+            return retrievedGroups;
+        }
+        /**
+         * DESIGN NOTE: The challenge requirements didn't specify an explicit behavior for calling the query endpoint with no paramters.
+         *
+         * Given that an endpoint exists to retrieve all groups, I determined that calling the 'query' endpoint with no parameters
+         * should be considered a 'bad request' rather than returning all groups.
+         */
+        if (name == null && gid == null && members == null) {
+            throw new MissingParametersException("Minimum of 1 query parameter required on queryGroups endpoint");
+        }
+        List<Group> retrievedGroups = groupsService.queryGroups(name, gid, members, sort, limit);
+        logger.debug("Found the following groups given query criteria name='{}', gid='{}', member='{}': {}",
+                name, gid, members, retrievedGroups);
+        logger.info("END: GET request for groups query resolved successfully");
+        return retrievedGroups;
+    }
+
+    private static void checkLimit(Integer limit, String endpoint) {
+        if (limit != null && limit < 1) {
+            throw new InvalidParametersException(String.format("limit must be positive on %s endpoint", endpoint));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.admission.AdmissionInterceptor;
+import com.adonofero.challenge.admission.AdmissionLimiter;
+import com.adonofero.challenge.admission.EndpointClass;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.nss.NssServer;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.ParseMode;
+import com.adonofero.challenge.services.directory.PeerSnapshotSource;
+import com.adonofero.challenge.services.directory.RefreshMode;
+import com.adonofero.challenge.services.directory.RenderMode;
+import com.adonofero.challenge.services.directory.SnapshotPublisher;
+import com.adonofero.challenge.services.directory.StalePolicy;
+import com.adonofero.challenge.services.directory.StorageMode;
+import com.adonofero.challenge.services.groups.GroupsService;
+import com.adonofero.challenge.services.groups.LocalFileGroupsService;
+import com.adonofero.challenge.services.query.EntitySizes;
+import com.adonofero.challenge.services.query.QueryResultCache;
+import com.adonofero.challenge.services.users.LocalFileUsersService;
+import com.adonofero.challenge.services.users.UsersService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Configuration class for the Passwd as a service application.
+ *
+ * @author Alexander Donofero
+ */
+@Configuration
+public class PasswdConfig extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    Environment env;
+
+    private static final String PROP_KEY_USER_FILE_PATH = "passwd.users.filepath";
+    private static final String PROP_KEY_GROUPS_FILE_PATH = "passwd.groups.filepath";
+    private static final String PROP_KEY_STORAGE_MODE = "passwd.storage.mode";
+    private static final String PROP_KEY_PARSE_MODE = "passwd.parse.mode";
+    private static final String PROP_KEY_RENDER_MODE = "passwd.render.mode";
+    private static final String PROP_KEY_REFRESH_SERVE_STALE = "passwd.refresh.serve-stale";
+    private static final String PROP_KEY_REFRESH_MODE = "passwd.refresh.mode";
+    private static final String PROP_KEY_REFRESH_INTERVAL = "passwd.refresh.interval-ms";
+    private static final String PROP_KEY_REFRESH_MAX_STALENESS = "passwd.refresh.max-staleness-ms";
+    private static final String PROP_KEY_REFRESH_ON_STALE = "passwd.refresh.on-stale";
+    private static final String PROP_KEY_CHANGES_HISTORY_SIZE = "passwd.changes.history-size";
+    private static final String PROP_KEY_CHANGES_HISTORY_MAX_ENTITIES = "passwd.changes.history-max-entities";
+    private static final String PROP_KEY_ADMISSION_MAX_CONCURRENT = "passwd.admission.%s.max-concurrent";
+    private static final String PROP_KEY_ADMISSION_MAX_QUEUE = "passwd.admission.%s.max-queue-ms";
+    private static final String PROP_KEY_ADMISSION_RETRY_AFTER = "passwd.admission.retry-after-seconds";
+    private static final String PROP_KEY_NSS_PORT = "passwd.nss.port";
+    private static final String PROP_KEY_NSS_THREADS = "passwd.nss.threads";
+    private static final String PROP_KEY_PEER_URL = "passwd.peer.url";
+    private static final String PROP_KEY_PEER_TIMEOUT = "passwd.peer.timeout-ms";
+    private static final String PROP_KEY_QUERY_CACHE_MAX_ENTRIES = "passwd.query-cache.max-entries";
+    private static final String PROP_KEY_QUERY_CACHE_MAX_BYTES = "passwd.query-cache.max-bytes";
+
+    @Bean
+    public UsersService usersService() {
+        /**
+         * DESIGN NOTE:
+         * If for whatever reason I needed to extend this service to have multiple implementations of the UsersService,
+         * this is where I would put whatever logic is needed to select an implementation based on the deployed environment.
+         */
+        return new LocalFileUsersService(localFileDirectory(), changeLog(), userQueryResultCache());
+    }
+
+    @Bean
+    public GroupsService groupsService() {
+        /**
+         * DESIGN NOTE:
+         * If for whatever reason I needed to extend this service to have multiple implementations of the UsersService,
+         * this is where I would put whatever logic is needed to select an implementation based on the deployed environment.
+         */
+        return new LocalFileGroupsService(localFileDirectory(), changeLog(), groupQueryResultCache());
+    }
+
+    @Bean
+    public QueryResultCache<User> userQueryResultCache() {
+        return new QueryResultCache<>(env.getProperty(PROP_KEY_QUERY_CACHE_MAX_ENTRIES, Integer.class, 1024),
+                env.getProperty(PROP_KEY_QUERY_CACHE_MAX_BYTES, Long.class, 64L * 1024 * 1024), EntitySizes::of);
+    }
+
+    @Bean
+    public QueryResultCache<Group> groupQueryResultCache() {
+        return new QueryResultCache<>(env.getProperty(PROP_KEY_QUERY_CACHE_MAX_ENTRIES, Integer.class, 1024),
+                env.getProperty(PROP_KEY_QUERY_CACHE_MAX_BYTES, Long.class, 64L * 1024 * 1024), EntitySizes::of);
+    }
+
+    @Bean
+    public LocalFileDirectory localFileDirectory() {
+        LocalFileDirectory directory = new LocalFileDirectory(env.getRequiredProperty(PROP_KEY_USER_FILE_PATH, File.class),
+                env.getRequiredProperty(PROP_KEY_GROUPS_FILE_PATH, File.class), storageMode(),
+                env.getProperty(PROP_KEY_REFRESH_SERVE_STALE, Boolean.class, false),
+                ParseMode.fromProperty(env.getProperty(PROP_KEY_PARSE_MODE, ParseMode.FAIL.name())),
+                RenderMode.fromProperty(env.getProperty(PROP_KEY_RENDER_MODE, RenderMode.JACKSON.name())));
+        String peerUrl = env.getProperty(PROP_KEY_PEER_URL, "");
+        if (!peerUrl.isEmpty()) {
+            directory.follow(new PeerSnapshotSource(peerUrl, env.getProperty(PROP_KEY_PEER_TIMEOUT, Integer.class, 5000)),
+                    env.getProperty(PROP_KEY_REFRESH_INTERVAL, Long.class, 1000L),
+                    env.getProperty(PROP_KEY_REFRESH_MAX_STALENESS, Long.class, 30000L),
+                    StalePolicy.fromProperty(env.getProperty(PROP_KEY_REFRESH_ON_STALE, StalePolicy.SYNC.name())));
+        } else if (RefreshMode.fromProperty(env.getProperty(PROP_KEY_REFRESH_MODE, RefreshMode.ON_REQUEST.name())) == RefreshMode.SCHEDULED) {
+            directory.scheduleRefresh(env.getProperty(PROP_KEY_REFRESH_INTERVAL, Long.class, 1000L),
+                    env.getProperty(PROP_KEY_REFRESH_MAX_STALENESS, Long.class, 30000L),
+                    StalePolicy.fromProperty(env.getProperty(PROP_KEY_REFRESH_ON_STALE, StalePolicy.SYNC.name())));
+        }
+        return directory;
+    }
+
+    @Bean
+    public ChangeLog changeLog() {
+        ChangeLog changeLog = new ChangeLog(env.getProperty(PROP_KEY_CHANGES_HISTORY_SIZE, Integer.class, 128),
+                env.getProperty(PROP_KEY_CHANGES_HISTORY_MAX_ENTITIES, Integer.class, 100000));
+        localFileDirectory().addListener(changeLog);
+        return changeLog;
+    }
+
+    @Bean
+    public SnapshotPublisher snapshotPublisher() {
+        return new SnapshotPublisher(localFileDirectory());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnExpression("${passwd.nss.port:-1} >= 0")
+    public NssServer nssServer() {
+        return new NssServer(usersService(), groupsService(), env.getRequiredProperty(PROP_KEY_NSS_PORT, Integer.class),
+                env.getProperty(PROP_KEY_NSS_THREADS, Integer.class, 4));
+    }
+
+    @Bean
+    public AdmissionInterceptor admissionInterceptor() {
+        /**
+         * DESIGN NOTE:
+         * Point lookups get a large budget and bulk requests a small one, so a burst of full dumps and queries is shed
+         * long before it can occupy the threads the lookups made by PAM on every login depend on.
+         */
+        Map<EndpointClass, AdmissionLimiter> limiters = new EnumMap<>(EndpointClass.class);
+        limiters.put(EndpointClass.POINT, admissionLimiter(EndpointClass.POINT, 256, 100));
+        limiters.put(EndpointClass.BULK, admissionLimiter(EndpointClass.BULK, 8, 100));
+        return new AdmissionInterceptor(limiters, env.getProperty(PROP_KEY_ADMISSION_RETRY_AFTER, Integer.class, 1));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new RenderedJsonHttpMessageConverter());
+    }
+
+    @Bean
+    public PasswdHealthIndicator passwdHealthIndicator() {
+        return new PasswdHealthIndicator(localFileDirectory());
+    }
+
+    @Bean
+    public PasswdPublicMetrics passwdPublicMetrics() {
+        return new PasswdPublicMetrics(localFileDirectory(), admissionInterceptor(), userQueryResultCache(), groupQueryResultCache());
+    }
+
+    private AdmissionLimiter admissionLimiter(EndpointClass endpointClass, int defaultMaxConcurrent, long defaultMaxQueueMillis) {
+        String key = endpointClass.name().toLowerCase(Locale.ROOT);
+        return new AdmissionLimiter(env.getProperty(String.format(PROP_KEY_ADMISSION_MAX_CONCURRENT, key), Integer.class, defaultMaxConcurrent),
+                env.getProperty(String.format(PROP_KEY_ADMISSION_MAX_QUEUE, key), Long.class, defaultMaxQueueMillis));
+    }
+
+    private StorageMode storageMode() {
+        return StorageMode.fromProperty(env.getProperty(PROP_KEY_STORAGE_MODE, StorageMode.OBJECT.name()));
+    }
+}
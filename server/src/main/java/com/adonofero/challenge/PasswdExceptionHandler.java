@@ -15,7 +15,12 @@
  */
 package com.adonofero.challenge;
 
+import com.adonofero.challenge.exceptions.rest.InvalidParametersException;
+import com.adonofero.challenge.exceptions.rest.ServiceOverloadedException;
 import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.StaleDataException;
 import com.adonofero.challenge.exceptions.service.UpdateFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -38,6 +43,36 @@ public class PasswdExceptionHandler extends ResponseEntityExceptionHandler {
         return handleExceptionInternal(ex, "Requested user was not found.", new HttpHeaders(), HttpStatus.NOT_FOUND, request);
     }
 
+    @ExceptionHandler(value = InvalidParametersException.class)
+    public ResponseEntity<Object> resolveInvalidParametersException(InvalidParametersException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(value = InvalidQueryException.class)
+    public ResponseEntity<Object> resolveInvalidQueryException(InvalidQueryException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(value = ServiceOverloadedException.class)
+    public ResponseEntity<Object> resolveServiceOverloadedException(ServiceOverloadedException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return handleExceptionInternal(ex, "Service is overloaded. Please retry later.", headers, HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
+    @ExceptionHandler(value = ResyncRequiredException.class)
+    public ResponseEntity<Object> resolveResyncRequiredException(ResyncRequiredException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(UsersController.SNAPSHOT_VERSION_HEADER, String.valueOf(ex.getVersion()));
+        headers.set(UsersController.SNAPSHOT_EPOCH_HEADER, String.valueOf(ex.getEpoch()));
+        return handleExceptionInternal(ex, "Changes since the requested version are no longer available. Please retrieve the full list again.", headers, HttpStatus.GONE, request);
+    }
+
+    @ExceptionHandler(value = StaleDataException.class)
+    public ResponseEntity<Object> resolveStaleDataException(StaleDataException ex, WebRequest request) {
+        return handleExceptionInternal(ex, "System data is temporarily unavailable. Please retry later.", new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
     @ExceptionHandler(value = UpdateFailureException.class)
     public ResponseEntity<Object> resolveUpdateFailureException(UpdateFailureException ex, WebRequest request) {
         return handleExceptionInternal(ex, "Internal error retrieving system data. Please contact system administrator.", new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR, request);
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.ParseMode;
+import com.adonofero.challenge.services.directory.ParseReport;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * Reports through the actuator /health endpoint whether the latest versions of the users and groups files were
+ * accepted, and which malformed lines were dropped from them.
+ * <p>
+ * The service is reported down only while requests fail because of a rejected file, i.e. in {@link ParseMode#FAIL}.
+ * In the other modes the last good or the cleaned up version of the file is being served.
+ *
+ * @author Alexander Donofero
+ */
+public class PasswdHealthIndicator extends AbstractHealthIndicator {
+
+    private final LocalFileDirectory directory;
+
+    public PasswdHealthIndicator(LocalFileDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        UpdateFailureException usersRejection = directory.getUsersRejection();
+        UpdateFailureException groupsRejection = directory.getGroupsRejection();
+        boolean failing = directory.getParseMode() == ParseMode.FAIL && (usersRejection != null || groupsRejection != null);
+        if (failing) {
+            builder.down();
+        } else {
+            builder.up();
+        }
+        builder.withDetail("parseMode", directory.getParseMode());
+        addFileDetails(builder, "users", directory.getUsersParseReport(), usersRejection);
+        addFileDetails(builder, "groups", directory.getGroupsParseReport(), groupsRejection);
+    }
+
+    private static void addFileDetails(Health.Builder builder, String file, ParseReport report, UpdateFailureException rejection) {
+        builder.withDetail(file + ".malformedLines", report.getMalformedLines());
+        builder.withDetail(file + ".malformedLineNumbers", report.getMalformedLineNumbers());
+        if (rejection != null) {
+            builder.withDetail(file + ".rejection", rejection.getMessage());
+        }
+    }
+}
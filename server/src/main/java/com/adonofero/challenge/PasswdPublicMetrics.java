@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.admission.AdmissionInterceptor;
+import com.adonofero.challenge.admission.AdmissionLimiter;
+import com.adonofero.challenge.admission.EndpointClass;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.DirectoryMetrics;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.query.QueryResultCache;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the counters of the Passwd as a service application through the actuator /metrics endpoint.
+ *
+ * @author Alexander Donofero
+ */
+public class PasswdPublicMetrics implements PublicMetrics {
+
+    private final LocalFileDirectory directory;
+    private final AdmissionInterceptor admission;
+    private final QueryResultCache<User> userResultCache;
+    private final QueryResultCache<Group> groupResultCache;
+
+    public PasswdPublicMetrics(LocalFileDirectory directory, AdmissionInterceptor admission, QueryResultCache<User> userResultCache,
+                               QueryResultCache<Group> groupResultCache) {
+        this.directory = directory;
+        this.admission = admission;
+        this.userResultCache = userResultCache;
+        this.groupResultCache = groupResultCache;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        DirectoryMetrics directoryMetrics = directory.getMetrics();
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("passwd.directory.rebuilds", directoryMetrics.getRebuilds()));
+        metrics.add(new Metric<>("passwd.directory.rebuilds.failed", directoryMetrics.getFailedRebuilds()));
+        metrics.add(new Metric<>("passwd.directory.rebuilds.coalesced", directoryMetrics.getCoalescedRebuilds()));
+        metrics.add(new Metric<>("passwd.directory.snapshots.stale-served", directoryMetrics.getStaleSnapshotsServed()));
+        metrics.add(new Metric<>("passwd.directory.staleness-exceeded", directoryMetrics.getStalenessExceeded()));
+        metrics.add(new Metric<>("passwd.directory.rejected-versions", directoryMetrics.getRejectedVersions()));
+        metrics.add(new Metric<>("passwd.directory.users.malformed-lines", directory.getUsersParseReport().getMalformedLines()));
+        metrics.add(new Metric<>("passwd.directory.groups.malformed-lines", directory.getGroupsParseReport().getMalformedLines()));
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdmissionLimiter limiter = admission.getLimiter(endpointClass);
+            String prefix = "passwd.admission." + endpointClass.name().toLowerCase(Locale.ROOT);
+            metrics.add(new Metric<>(prefix + ".admitted", limiter.getAdmitted()));
+            metrics.add(new Metric<>(prefix + ".shed", limiter.getShed()));
+            metrics.add(new Metric<>(prefix + ".in-flight", limiter.getInFlight()));
+            metrics.add(new Metric<>(prefix + ".queue-time.total-ms", TimeUnit.NANOSECONDS.toMillis(limiter.getQueueNanos())));
+            metrics.add(new Metric<>(prefix + ".queue-time.max-ms", TimeUnit.NANOSECONDS.toMillis(limiter.getMaxQueueNanos())));
+        }
+        addQueryCacheMetrics(metrics, "passwd.query-cache.users", userResultCache);
+        addQueryCacheMetrics(metrics, "passwd.query-cache.groups", groupResultCache);
+        return metrics;
+    }
+
+    private static void addQueryCacheMetrics(List<Metric<?>> metrics, String prefix, QueryResultCache<?> cache) {
+        metrics.add(new Metric<>(prefix + ".hits", cache.getHits()));
+        metrics.add(new Metric<>(prefix + ".misses", cache.getMisses()));
+        metrics.add(new Metric<>(prefix + ".evictions", cache.getEvictions()));
+        metrics.add(new Metric<>(prefix + ".entries", cache.getEntries()));
+        metrics.add(new Metric<>(prefix + ".bytes", cache.getBytes()));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.admission.Admission;
+import com.adonofero.challenge.admission.EndpointClass;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.directory.SnapshotCodec;
+import com.adonofero.challenge.services.directory.SnapshotPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * REST Controller serving the snapshots of the users and groups to other instances of the service following this one.
+ *
+ * @author Alexander Donofero
+ */
+@RestController
+public class SnapshotController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotController.class);
+
+    /**
+     * Encodes the snapshots served.
+     */
+    private final SnapshotPublisher snapshotPublisher;
+
+    /**
+     * Default Constructor.
+     *
+     * @param snapshotPublisher Encodes the snapshots served.
+     */
+    public SnapshotController(SnapshotPublisher snapshotPublisher) {
+        this.snapshotPublisher = snapshotPublisher;
+    }
+
+    /**
+     * Allow followers to retrieve the current snapshot as a checksummed binary frame. A follower sending the epoch and
+     * version of the last frame it loaded is only sent the users or groups changed since, or a 304 if neither did.
+     * The frame is written straight to the response as it is assembled, rather than returned as one array.
+     *
+     * @param epoch    epoch of the last frame the follower loaded
+     * @param since    version of the last frame the follower loaded
+     * @param response response the frame carrying the users and groups changed since the version, or all of them, is
+     *                 written to
+     * @throws UpdateFailureException if the current users or groups cannot be retrieved
+     * @throws IOException            if the frame cannot be written to the follower
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/snapshot", method = RequestMethod.GET, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void getSnapshot(@RequestParam(name = "epoch", required = false) Long epoch,
+                            @RequestParam(name = "since", required = false) Long since,
+                            HttpServletResponse response) throws UpdateFailureException, IOException {
+        logger.info("BEGIN: Received GET request for the snapshot since version {}", since);
+        SnapshotCodec.EncodedFrame frame = snapshotPublisher.publish(epoch, since);
+        if (frame == null) {
+            logger.info("END: Snapshot has not changed since version {}", since);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(frame.getLength());
+        frame.writeTo(response.getOutputStream());
+        logger.info("END: Wrote snapshot frame of {} bytes", frame.getLength());
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.admission.Admission;
+import com.adonofero.challenge.admission.EndpointClass;
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.Stats;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.rest.InvalidParametersException;
+import com.adonofero.challenge.exceptions.rest.MissingParametersException;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.users.UsersService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * REST Controller for endpoints related to the retrieval of {@link User}s.
+ *
+ * @author Alexander Donofero
+ */
+@RestController
+public class UsersController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsersController.class);
+
+    static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+    static final String SNAPSHOT_EPOCH_HEADER = "X-Snapshot-Epoch";
+
+    private static final List<String> USER_STATS_GROUP_BY = Arrays.asList("shell", "gid", "home");
+
+    /**
+     * Service layer used to perform the logic needed to fulfill client requests.
+     */
+    private final UsersService usersService;
+
+    /**
+     * Default Constructor.
+     *
+     * @param usersService Service layer used to perform the logic needed to fulfill client requests.
+     */
+    public UsersController(UsersService usersService) {
+        this.usersService = usersService;
+    }
+
+    /**
+     * Allow clients to retrieve a current list of all users, or the users added, modified and removed since a version
+     * they hold. The version of the full list is returned in the X-Snapshot-Version header, and the epoch it belongs to,
+     * which changes when the service restarts, in the X-Snapshot-Epoch header. The list may be ordered by
+     * a field with sort, e.g. uid,desc, and cut short with limit. The full list is written from the JSON rendered
+     * with the snapshot when the service pre-renders users.
+     *
+     * @param since version the client holds, if only the changes since are to be retrieved
+     * @param epoch epoch the client holds the version in; a version of another epoch requires a resync
+     * @param sort  field to order the list by, optionally followed by ",asc" or ",desc"
+     * @param limit maximum number of users returned
+     * @return list of all users, or the changes since the version
+     * @throws UpdateFailureException  if current list of all users cannot be retrieved
+     * @throws ResyncRequiredException if the changes since the version are no longer available, or of another epoch
+     * @throws InvalidQueryException   if the sort is malformed or refers to an unknown field
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/users", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getUsers(@RequestParam(name = "since", required = false) Long since, @RequestParam(name = "epoch", required = false) Long epoch,
+                                      @RequestParam(name = "sort", required = false) String sort,
+                                      @RequestParam(name = "limit", required = false) Integer limit)
+            throws UpdateFailureException, ResyncRequiredException, InvalidQueryException {
+        checkLimit(limit, "getUsers");
+        if (since != null) {
+            if (sort != null || limit != null) {
+                throw new InvalidParametersException("Parameter since cannot be combined with sort or limit on getUsers endpoint");
+            }
+            logger.info("BEGIN: Received GET request for users changed since version {}", since);
+            Delta<User> changes = usersService.getUsersSince(epoch, since);
+            logger.debug("GET request for users changed since version {} found the following changes: {}", since, changes);
+            logger.info("END: GET request for users changed since version {} resolved successfully", since);
+            return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, String.valueOf(changes.getVersion()))
+                    .header(SNAPSHOT_EPOCH_HEADER, String.valueOf(usersService.getEpoch())).body(changes);
+        }
+        logger.info("BEGIN: Received GET request for all users");
+        Versioned<?> retrievedUsers = sort == null && limit == null && usersService.isPrerendered()
+                ? usersService.getRenderedUsers() : usersService.getVersionedUsers(sort, limit);
+        logger.debug("GET request for all users found the following users: {}", retrievedUsers);
+        logger.info("END: GET request for all users resolved successfully");
+        return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, String.valueOf(retrievedUsers.getVersion()))
+                .header(SNAPSHOT_EPOCH_HEADER, String.valueOf(usersService.getEpoch())).body(retrievedUsers.getValue());
+    }
+
+    /**
+     * Allow clients to query for users matching the input criteria.
+     * Excluding all parameters results in a 400 Bad Request. Passing multiple parameters is the equivalent
+     * of an "AND" query in that a {@link User} must match ALL criteria in order to be returned. Alternatively, q takes
+     * a boolean expression such as {@code shell = /bin/bash AND (uid >= 1000 OR name ^= svc-)}, which cannot be
+     * combined with the other parameters.
+     *
+     * @param name    name of {@link User}
+     * @param uid     id of {@link User}
+     * @param gid     group id of {@link User}
+     * @param comment comment field for {@link User}
+     * @param home    home directory of {@link User}
+     * @param shell   shell for {@link User}
+     * @param q       query expression
+     * @param sort    field to order the users by, optionally followed by ",asc" or ",desc"
+     * @param limit   maximum number of users returned
+     * @return List of {@link User}s matching all specified criteria
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     * @throws InvalidQueryException  if the query expression is malformed
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/users/query", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<User> queryUsers(@RequestParam(name = "name", required = false) String name, @RequestParam(name = "uid", required = false) Integer uid,
+                                 @RequestParam(name = "gid", required = false) Integer gid, @RequestParam(name = "comment", required = false) String comment,
+                                 @RequestParam(name = "home", required = false) String home, @RequestParam(name = "shell", required = false) String shell,
+                                 @RequestParam(name = "q", required = false) String q, @RequestParam(name = "sort", required = false) String sort,
+                                 @RequestParam(name = "limit", required = false) Integer limit) throws UpdateFailureException, InvalidQueryException {
+        logger.info("BEGIN: Received GET request for querying user based on parameters");
+        checkLimit(limit, "queryUsers");
+        if (q != null) {
+            if (name != null || uid != null || gid != null || comment != null || home != null || shell != null) {
+                throw new InvalidParametersException("Parameter q cannot be combined with other parameters on queryUsers endpoint");
+            }
+            List<User> retrievedUsers = usersService.queryUsers(q, sort, limit);
+            logger.debug("Found the following users given query expression '{}': {}", q, retrievedUsers);
+            logger.info("END: GET request for user query resolved successfully");
+            return retrievedUsers;
+        }
+        /**
+         * DESIGN NOTE: The challenge requirements didn't specify an explicit behavior for calling the query endpoint with no paramters.
+         *
+         * Given that an endpoint exists to retrieve all users, I determined that calling the 'query' endpoint with no parameters
+         * should be considered a 'bad request' rather than returning all users.
+         */
+        if (name == null && uid == null && gid == null && comment == null && home == null && shell == null) {
+            throw new MissingParametersException("Minimum of 1 query parameter required on queryUsers endpoint");
+        }
+        List<User> retrievedUsers = usersService.queryUsers(name, uid, gid, comment, home, shell, sort, limit);
+        logger.debug("Found the following users given query criteria name='{}', uid='{}', gid='{}', comment='{}', home='{}', shell='{}': {}",
+                name, uid, gid, comment, home, shell, retrievedUsers);
+        logger.info("END: GET request for user query resolved successfully");
+        return retrievedUsers;
+    }
+
+    /**
+     * Allow clients to count users per shell, primary gid or directory holding their home directory without
+     * retrieving them. Counts are kept with each version of the directory.
+     *
+     * @param groupBy shell, gid or home
+     * @return number of users per value, from the most to the least common value
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     */
+    @Admission(EndpointClass.BULK)
+    @RequestMapping(path = "/users/stats", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Stats getUserStats(@RequestParam(name = "groupBy", required = false) String groupBy) throws UpdateFailureException {
+        logger.info("BEGIN: Received GET request for user stats grouped by {}", groupBy);
+        if (groupBy == null) {
+            throw new MissingParametersException("Parameter groupBy required on getUserStats endpoint");
+        }
+        if (!USER_STATS_GROUP_BY.contains(groupBy)) {
+            throw new InvalidParametersException("groupBy must be one of shell, gid or home on getUserStats endpoint");
+        }
+        Stats stats = usersService.getUserStats(groupBy);
+        logger.debug("Computed the following user stats grouped by {}: {}", groupBy, stats);
+        logger.info("END: Successfully retrieved {} buckets of user stats grouped by {}", stats.getCounts().size(), groupBy);
+        return stats;
+    }
+
+    /**
+     * Allow clients to retrieve {@link User} based on uid. Clients revalidating with the ETag of the user in
+     * If-None-Match get a 304 Not Modified while it is unchanged. The user is written from the JSON rendered with the
+     * snapshot when the service pre-renders users.
+     *
+     * @param uid     id of {@link User}
+     * @param request request, checked for If-None-Match
+     * @return {@link User} matching provided uid, or its rendered JSON, or null if the client's copy is current
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws EntityNotFoundException if no user matches the provided uid
+     */
+    @Admission(EndpointClass.POINT)
+    @RequestMapping(path = "/users/{uid}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Object getUserById(@PathVariable("uid") int uid, WebRequest request) throws UpdateFailureException, EntityNotFoundException {
+        logger.info("BEGIN: Received GET request for user with UID {}", uid);
+        Tagged<?> tagged = usersService.isPrerendered() ? usersService.getRenderedUserById(uid) : usersService.getTaggedUserById(uid);
+        if (request.checkNotModified(tagged.getTag())) {
+            logger.info("END: User with UID {} not modified", uid);
+            return null;
+        }
+        Object retrievedUser = tagged.getValue();
+        logger.debug("Retrieved the following user when seaching with UID {}: {}", uid, retrievedUser);
+        logger.info("END: Successfully retrieved user with UID {}", uid);
+        return retrievedUser;
+    }
+
+    /**
+     * Allow clients to retrieve {@link User} based on name without going through the query endpoint.
+     *
+     * @param name name of {@link User}
+     * @return {@link User} matching provided name
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws EntityNotFoundException if no user matches the provided name
+     */
+    @Admission(EndpointClass.POINT)
+    @RequestMapping(path = "/users/by-name/{name:.+}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public User getUserByName(@PathVariable("name") String name) throws UpdateFailureException, EntityNotFoundException {
+        logger.info("BEGIN: Received GET request for user with name {}", name);
+        User retrievedUser = usersService.getUserByName(name);
+        logger.debug("Retrieved the following user when searching with name {}: {}", name, retrievedUser);
+        logger.info("END: Successfully retrieved user with name {}", name);
+        return retrievedUser;
+    }
+
+    /**
+     * Allow clients to retrieve {@link Group}s containing a user with specified uid
+     *
+     * @param uid id of user to find group membership of
+     * @return {@link Group}s that have user with specified uid as a member
+     * @throws UpdateFailureException  if the current list of groups cannot be retrieved
+     * @throws EntityNotFoundException if there is no user matching specified uid
+     */
+    @Admission(EndpointClass.POINT)
+    @RequestMapping(path = "/users/{uid}/groups", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Group> getGroupsOfUser(@PathVariable("uid") int uid) throws UpdateFailureException, EntityNotFoundException {
+        logger.info("BEGIN: Received GET request to retrieve groups containing user with uid of {}", uid);
+        List<Group> retrievedGroups = usersService.getGroupsOfUser(uid);
+        logger.debug("Retrieved the following groups with searching for groups of user with uid of {}: {}", uid, retrievedGroups);
+        logger.info("END: Successfully retrieved groups for user with uid of {}", uid);
+        return retrievedGroups;
+    }
+
+    private static void checkLimit(Integer limit, String endpoint) {
+        if (limit != null && limit < 1) {
+            throw new InvalidParametersException(String.format("limit must be positive on %s endpoint", endpoint));
+        }
+    }
+}
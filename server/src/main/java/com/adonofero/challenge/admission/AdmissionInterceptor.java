@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.admission;
+
+import com.adonofero.challenge.exceptions.rest.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies the {@link AdmissionLimiter} of the {@link EndpointClass} a handler is annotated with before the handler
+ * runs. Shed requests are answered by a {@link ServiceOverloadedException}; admitted requests report their queue time
+ * in a Server-Timing header.
+ *
+ * @author Alexander Donofero
+ */
+public class AdmissionInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionInterceptor.class);
+
+    private static final String ATTRIBUTE_LIMITER = AdmissionInterceptor.class.getName() + ".limiter";
+
+    private final Map<EndpointClass, AdmissionLimiter> limiters;
+    private final int retryAfterSeconds;
+
+    /**
+     * @param limiters          budget of every {@link EndpointClass}
+     * @param retryAfterSeconds delay suggested to shed clients before retrying
+     */
+    public AdmissionInterceptor(Map<EndpointClass, AdmissionLimiter> limiters, int retryAfterSeconds) {
+        this.limiters = new EnumMap<>(limiters);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @param endpointClass class of endpoints
+     * @return budget of the class
+     */
+    public AdmissionLimiter getLimiter(EndpointClass endpointClass) {
+        return limiters.get(endpointClass);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Admission admission = ((HandlerMethod) handler).getMethodAnnotation(Admission.class);
+        if (admission == null) {
+            return true;
+        }
+        AdmissionLimiter limiter = limiters.get(admission.value());
+        long queueNanos = limiter.tryAcquire();
+        if (queueNanos == AdmissionLimiter.SHED) {
+            logger.warn("Shed {} request {} {}: concurrency limit reached", admission.value(), request.getMethod(), request.getRequestURI());
+            throw new ServiceOverloadedException(String.format("Too many concurrent %s requests", admission.value()), retryAfterSeconds);
+        }
+        request.setAttribute(ATTRIBUTE_LIMITER, limiter);
+        response.setHeader("Server-Timing", String.format(Locale.ROOT, "queue;dur=%.3f", queueNanos / 1_000_000.0));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdmissionLimiter limiter = (AdmissionLimiter) request.getAttribute(ATTRIBUTE_LIMITER);
+        if (limiter != null) {
+            request.removeAttribute(ATTRIBUTE_LIMITER);
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency budget of one {@link EndpointClass}.
+ * <p>
+ * DESIGN NOTE:
+ * A request waits at most the configured queue time for one of the permits to free up and is shed otherwise. The
+ * wait is kept short on purpose: a request queued for long has usually been given up on by its client already, and
+ * the waiting thread is better handed back to the container so other classes of requests keep flowing.
+ *
+ * @author Alexander Donofero
+ */
+public class AdmissionLimiter {
+
+    /**
+     * Returned by {@link #tryAcquire()} when the request is shed.
+     */
+    public static final long SHED = -1;
+
+    private final int maxConcurrent;
+    private final long maxQueueNanos;
+    private final Semaphore permits;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxObservedQueueNanos = new AtomicLong();
+
+    /**
+     * @param maxConcurrent  maximum number of requests of the class handled at the same time
+     * @param maxQueueMillis maximum time a request waits for a permit before being shed
+     */
+    public AdmissionLimiter(int maxConcurrent, long maxQueueMillis) {
+        if (maxConcurrent < 0 || maxQueueMillis < 0) {
+            throw new IllegalArgumentException(String.format("Admission limits must not be negative. Found max concurrent %d and max queue time %d ms",
+                    maxConcurrent, maxQueueMillis));
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMillis);
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Wait for a permit for at most the configured queue time. Every admitted request must {@link #release()} its
+     * permit once handled.
+     *
+     * @return time spent waiting for the permit in nanoseconds, or {@link #SHED} if no permit became available
+     */
+    public long tryAcquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            // The untimed attempt barges ahead of queued requests, which only matters when the budget is contended
+            acquired = permits.tryAcquire() || permits.tryAcquire(maxQueueNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            shed.incrementAndGet();
+            return SHED;
+        }
+        long waited = System.nanoTime() - start;
+        admitted.incrementAndGet();
+        queueNanos.addAndGet(waited);
+        maxObservedQueueNanos.accumulateAndGet(waited, Math::max);
+        return waited;
+    }
+
+    /**
+     * Hand back the permit of an admitted request.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return number of requests admitted
+     */
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    /**
+     * @return number of requests shed
+     */
+    public long getShed() {
+        return shed.get();
+    }
+
+    /**
+     * @return number of admitted requests currently being handled
+     */
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return total time admitted requests spent waiting for a permit in nanoseconds
+     */
+    public long getQueueNanos() {
+        return queueNanos.get();
+    }
+
+    /**
+     * @return longest time an admitted request spent waiting for a permit in nanoseconds
+     */
+    public long getMaxQueueNanos() {
+        return maxObservedQueueNanos.get();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.admission;
+
+/**
+ * Classes of endpoints given separate concurrency budgets, so that expensive requests cannot starve cheap ones.
+ *
+ * @author Alexander Donofero
+ */
+public enum EndpointClass {
+    /**
+     * Lookups of a single entity by key, or of the small set of entities related to one. Cheap and latency sensitive,
+     * e.g. the lookups made by PAM on every login.
+     */
+    POINT,
+    /**
+     * Full listings, queries and pages of entities. Their cost grows with the size of the directory.
+     */
+    BULK
+}
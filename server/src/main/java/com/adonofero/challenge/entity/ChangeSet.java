@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+/**
+ * Changes to the users and groups between a version of the directory and the version published right after it.
+ *
+ * @author Alexander Donofero
+ */
+public class ChangeSet {
+    private final long fromVersion;
+    private final long version;
+    private final EntityChanges<User> users;
+    private final EntityChanges<Group> groups;
+
+    public ChangeSet(long fromVersion, long version, EntityChanges<User> users, EntityChanges<Group> groups) {
+        this.fromVersion = fromVersion;
+        this.version = version;
+        this.users = users;
+        this.groups = groups;
+    }
+
+    /**
+     * @return version the changes apply to
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * @return version the changes lead to
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public EntityChanges<User> getUsers() {
+        return users;
+    }
+
+    public EntityChanges<Group> getGroups() {
+        return groups;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "fromVersion=" + fromVersion +
+                ", version=" + version +
+                ", users=" + users +
+                ", groups=" + groups +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+import java.util.List;
+
+/**
+ * Net changes to one kind of entity between a version of the directory a client holds and a later version. An entity
+ * changed several times in between appears once, as of the later version, and an entity added then removed in between
+ * does not appear at all.
+ *
+ * @param <T> type of the entities
+ * @author Alexander Donofero
+ */
+public class Delta<T> extends EntityChanges<T> {
+    private final long fromVersion;
+    private final long version;
+
+    public Delta(long fromVersion, long version, List<T> added, List<T> modified, List<T> removed) {
+        super(added, modified, removed);
+        this.fromVersion = fromVersion;
+        this.version = version;
+    }
+
+    /**
+     * @return version the changes apply to
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * @return version the changes lead to, to be passed as the next since parameter
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "Delta{" +
+                "fromVersion=" + fromVersion +
+                ", version=" + version +
+                ", added=" + getAdded() +
+                ", modified=" + getModified() +
+                ", removed=" + getRemoved() +
+                '}';
+    }
+}
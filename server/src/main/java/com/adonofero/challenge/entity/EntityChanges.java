@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+import java.util.List;
+
+/**
+ * Entities added, modified and removed between two versions of the directory. Entities are matched by name.
+ *
+ * @param <T> type of the entities
+ * @author Alexander Donofero
+ */
+public class EntityChanges<T> {
+    private final List<T> added;
+    private final List<T> modified;
+    private final List<T> removed;
+
+    public EntityChanges(List<T> added, List<T> modified, List<T> removed) {
+        this.added = added;
+        this.modified = modified;
+        this.removed = removed;
+    }
+
+    /**
+     * @return entities whose name is new, as of the later version
+     */
+    public List<T> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return entities whose name existed but whose fields changed, as of the later version
+     */
+    public List<T> getModified() {
+        return modified;
+    }
+
+    /**
+     * @return entities whose name no longer exists, as of the earlier version
+     */
+    public List<T> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return number of entities added, modified and removed
+     */
+    public int size() {
+        return added.size() + modified.size() + removed.size();
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChanges{" +
+                "added=" + added +
+                ", modified=" + modified +
+                ", removed=" + removed +
+                '}';
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON of a user or group, or of a list of them, rendered ahead of the request and written to the client as is.
+ * <p>
+ * DESIGN NOTE:
+ * A rendered list is a view of the records of a whole snapshot, which are held separated by commas, so writing it only
+ * takes the brackets around a single copy of those bytes. Nothing is allocated per record when writing either.
+ *
+ * @author Alexander Donofero
+ */
+public final class RenderedJson {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final boolean array;
+
+    /**
+     * @param bytes  buffer holding the rendered JSON
+     * @param offset start of the JSON in the buffer
+     * @param length number of bytes of the JSON in the buffer
+     * @param array  whether the bytes are comma separated records to be written as a JSON array
+     */
+    public RenderedJson(byte[] bytes, int offset, int length, boolean array) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.array = array;
+    }
+
+    /**
+     * @return number of bytes written by {@link #writeTo}
+     */
+    public int getLength() {
+        return array ? length + 2 : length;
+    }
+
+    /**
+     * Write the JSON, UTF-8 encoded, to a stream.
+     *
+     * @param out stream to write to, left open
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (array) {
+            out.write('[');
+        }
+        out.write(bytes, offset, length);
+        if (array) {
+            out.write(']');
+        }
+    }
+
+    @Override
+    public String toString() {
+        String json = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        return array ? "[" + json + "]" : json;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+import java.util.List;
+
+/**
+ * A page of a larger result along with the size of the full result.
+ *
+ * @param <T> type of the items in the page
+ * @author Alexander Donofero
+ */
+public class ResultPage<T> {
+    private final List<T> items;
+    private final int total;
+
+    public ResultPage(List<T> items, int total) {
+        this.items = items;
+        this.total = total;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultPage{" +
+                "items=" + items +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+import java.util.Map;
+
+/**
+ * Counts per bucket, e.g. the number of users per shell or the number of users belonging to each group, as of a
+ * version of the directory.
+ *
+ * @author Alexander Donofero
+ */
+public class Stats {
+    private final long version;
+    private final String groupBy;
+    private final int total;
+    private final Map<String, Integer> counts;
+
+    public Stats(long version, String groupBy, int total, Map<String, Integer> counts) {
+        this.version = version;
+        this.groupBy = groupBy;
+        this.total = total;
+        this.counts = counts;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return what the buckets are, e.g. shell or gid
+     */
+    public String getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * @return number of entities counted: users for user stats, which is also the sum of the counts, and distinct gids
+     * for group stats, whose counts can add up to more as a user belongs to every group listing them
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return count of each bucket, from the largest to the smallest bucket
+     */
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "Stats{" +
+                "version=" + version +
+                ", groupBy='" + groupBy + '\'' +
+                ", total=" + total +
+                ", counts=" + counts +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+/**
+ * An entity along with its ETag, read from the same version of the directory.
+ *
+ * @param <T> type of the entity
+ * @author Alexander Donofero
+ */
+public class Tagged<T> {
+    private final String tag;
+    private final T value;
+
+    public Tagged(String tag, T value) {
+        this.tag = tag;
+        this.value = value;
+    }
+
+    /**
+     * @return quoted ETag of the entity
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Tagged{" +
+                "tag=" + tag +
+                ", value=" + value +
+                '}';
+    }
+}
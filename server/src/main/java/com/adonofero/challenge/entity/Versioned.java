@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.entity;
+
+/**
+ * A result along with the version of the directory it was read from.
+ *
+ * @param <T> type of the result
+ * @author Alexander Donofero
+ */
+public class Versioned<T> {
+    private final long version;
+    private final T value;
+
+    public Versioned(long version, T value) {
+        this.version = version;
+        this.value = value;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Versioned{" +
+                "version=" + version +
+                ", value=" + value +
+                '}';
+    }
+}
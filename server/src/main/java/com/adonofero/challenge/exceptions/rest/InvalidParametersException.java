@@ -13,21 +13,21 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.adonofero.challenge.exceptions.service;
+package com.adonofero.challenge.exceptions.rest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Exception to be thrown when a client requests information for an entity that cannot be found.
+ * Exception to be thrown when a request carries parameters whose values cannot be used to fulfill the request.
  *
  * @author Alexander Donofero
  */
-public class EntityNotFoundException extends Exception {
+public class InvalidParametersException extends RuntimeException {
 
-    private static final Logger logger = LoggerFactory.getLogger(EntityNotFoundException.class);
+    private static final Logger logger = LoggerFactory.getLogger(InvalidParametersException.class);
 
-    public EntityNotFoundException(String message) {
+    public InvalidParametersException(String message) {
         super(message);
         logger.error(message);
     }
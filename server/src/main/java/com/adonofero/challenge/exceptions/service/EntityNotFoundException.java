@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.exceptions.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exception to be thrown when a client requests information for an entity that cannot be found.
+ * <p>
+ * DESIGN NOTE:
+ * Lookups of unknown ids are routine, e.g. scanners walking the uid space, and the exception is always turned into a
+ * 404 by the caller. It therefore captures no stack trace and only formats its message when asked for it.
+ *
+ * @author Alexander Donofero
+ */
+public class EntityNotFoundException extends Exception {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityNotFoundException.class);
+
+    private final String entity;
+    private final String key;
+    private final Object value;
+
+    /**
+     * @param entity kind of entity looked up, e.g. "user"
+     * @param key    field the entity was looked up by, e.g. "uid"
+     * @param value  value looked up
+     */
+    public EntityNotFoundException(String entity, String key, Object value) {
+        super(null, null, false, false);
+        this.entity = entity;
+        this.key = key;
+        this.value = value;
+        // Guarded so that a miss neither boxes nor allocates the varargs array while debug logging is off
+        if (logger.isDebugEnabled()) {
+            logger.debug("Could not find {} with {} {}", entity, key, value);
+        }
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("Could not find %s with %s %s", entity, key, value);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.exceptions.service;
+
+/**
+ * Exception to be thrown when a query expression cannot be parsed, or refers to fields or operators the queried
+ * entity does not support.
+ *
+ * @author Alexander Donofero
+ */
+public class InvalidQueryException extends Exception {
+
+    /**
+     * @param message description of the problem, meant to be returned to the client
+     */
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.exceptions.service;
+
+/**
+ * Exception to be thrown when a client asks for the changes since a version of the directory which are no longer
+ * available, either because they were evicted from the bounded history or because the version is unknown, e.g. it was
+ * handed out in another epoch, before a restart. The client has to retrieve the full list again.
+ *
+ * @author Alexander Donofero
+ */
+public class ResyncRequiredException extends Exception {
+
+    private final long epoch;
+    private final long version;
+
+    /**
+     * @param since   version the client asked for the changes since
+     * @param epoch   current epoch
+     * @param version current version, which a full retrieval will return at least
+     */
+    public ResyncRequiredException(long since, long epoch, long version) {
+        super(String.format("Changes since version %d are no longer available. Current version is %d in epoch %d", since, version, epoch));
+        this.epoch = epoch;
+        this.version = version;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
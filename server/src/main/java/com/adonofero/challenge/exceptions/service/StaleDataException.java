@@ -0,0 +1,29 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.exceptions.service;
+
+/**
+ * Exception to be thrown when the data held by a service has not been validated against its source for longer than
+ * the configured maximum staleness and the service is configured to refuse serving it.
+ *
+ * @author Alexander Donofero
+ */
+public class StaleDataException extends UpdateFailureException {
+
+    public StaleDataException(String message) {
+        super(message);
+    }
+}
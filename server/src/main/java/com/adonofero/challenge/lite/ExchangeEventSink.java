@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.lite;
+
+import com.adonofero.challenge.ChangeStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-Sent Events response of the lightweight server, written in the same format as Spring's SseEmitter.
+ * <p>
+ * The exchange outlives the handler which opened it: it is written by the executor of the change streams and closed
+ * once the stream completes, fails or times out.
+ *
+ * @author Alexander Donofero
+ */
+final class ExchangeEventSink implements ChangeStream.Sink {
+
+    static final String EVENT_STREAM_CONTENT_TYPE = "text/event-stream;charset=UTF-8";
+
+    private final HttpExchange exchange;
+    private final ObjectMapper mapper;
+    private final OutputStream out;
+
+    private ScheduledFuture<?> timeout;
+    private boolean closed;
+
+    /**
+     * Start a chunked response to the exchange.
+     *
+     * @param exchange exchange to stream the events to
+     * @param mapper   mapper writing the payloads of the events
+     * @throws IOException if the headers cannot be sent
+     */
+    ExchangeEventSink(HttpExchange exchange, ObjectMapper mapper) throws IOException {
+        this.exchange = exchange;
+        this.mapper = mapper;
+        exchange.getResponseHeaders().set("Content-Type", EVENT_STREAM_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        this.out = exchange.getResponseBody();
+    }
+
+    /**
+     * Complete the response after a delay, letting the client reconnect, as the timeout of an SseEmitter does.
+     *
+     * @param scheduler     scheduler of the timeout
+     * @param timeoutMillis time after which the response is completed
+     * @param onTimeout     called before the response is completed
+     */
+    synchronized void expireAfter(ScheduledExecutorService scheduler, long timeoutMillis, Runnable onTimeout) {
+        timeout = scheduler.schedule(() -> {
+            onTimeout.run();
+            complete();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void send(String id, String name, Object data) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Event stream already completed");
+        }
+        String event = "id:" + id + "\nevent:" + name + "\ndata:" + mapper.writeValueAsString(data) + "\n\n";
+        out.write(event.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Override
+    public synchronized void complete() {
+        if (!closed) {
+            closed = true;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+        complete();
+    }
+}
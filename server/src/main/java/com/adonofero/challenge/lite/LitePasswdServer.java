@@ -0,0 +1,689 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.lite;
+
+import com.adonofero.challenge.ChangeStream;
+import com.adonofero.challenge.admission.AdmissionLimiter;
+import com.adonofero.challenge.admission.EndpointClass;
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.RenderedJson;
+import com.adonofero.challenge.entity.ResultPage;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.rest.InvalidParametersException;
+import com.adonofero.challenge.exceptions.rest.MissingParametersException;
+import com.adonofero.challenge.exceptions.rest.ServiceOverloadedException;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.StaleDataException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.nss.NssServer;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.ParseMode;
+import com.adonofero.challenge.services.directory.PeerSnapshotSource;
+import com.adonofero.challenge.services.directory.RefreshMode;
+import com.adonofero.challenge.services.directory.RenderMode;
+import com.adonofero.challenge.services.directory.SnapshotCodec;
+import com.adonofero.challenge.services.directory.SnapshotPublisher;
+import com.adonofero.challenge.services.directory.StalePolicy;
+import com.adonofero.challenge.services.directory.StorageMode;
+import com.adonofero.challenge.services.groups.GroupsService;
+import com.adonofero.challenge.services.groups.LocalFileGroupsService;
+import com.adonofero.challenge.services.query.EntitySizes;
+import com.adonofero.challenge.services.query.QueryResultCache;
+import com.adonofero.challenge.services.users.LocalFileUsersService;
+import com.adonofero.challenge.services.users.UsersService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Entry point serving the same endpoints and JSON as the Spring Boot application from the HTTP server built into the
+ * JDK.
+ * <p>
+ * DESIGN NOTE:
+ * The services hold all of the logic, so serving them only takes routing, parameter parsing and the mapping of
+ * exceptions to status codes. Skipping the Spring context cuts the startup time and the memory footprint of the
+ * service several times over, which matters when it runs as a sidecar on every host. The Spring Boot application
+ * remains the default; this entry point gives up its actuator endpoints for that footprint.
+ * <p>
+ * The /changes event streams keep their exchange open after the handler returns, so a subscriber does not hold one of
+ * the request threads; its events are written from a separate executor, as in
+ * {@link com.adonofero.challenge.ChangesController}.
+ * <p>
+ * Settings use the same keys as the Spring Boot application and are read from --key=value arguments, then system
+ * properties, then the defaults of the Spring Boot application.
+ *
+ * @author Alexander Donofero
+ */
+public class LitePasswdServer {
+
+    static {
+        // Without Spring Boot to configure it, logback would log at debug level
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "lite-logback.xml");
+        }
+        // The JDK server writes headers and body separately; with Nagle's algorithm the body of a response on a kept
+        // alive connection then waits for the delayed acknowledgement of the headers, about 40 ms on Linux
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LitePasswdServer.class);
+
+    /**
+     * Same paging bounds and header as {@link com.adonofero.challenge.GroupsController}.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 10000;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+    private static final String SNAPSHOT_EPOCH_HEADER = "X-Snapshot-Epoch";
+    private static final List<String> USER_STATS_GROUP_BY = Arrays.asList("shell", "gid", "home");
+
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+    private static final String TEXT_CONTENT_TYPE = "text/plain;charset=UTF-8";
+    private static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
+    /**
+     * Returned by {@link #dispatch} when the client's copy of the entity is current.
+     */
+    private static final Object NOT_MODIFIED = new Object();
+
+    private final Properties settings;
+    private final LocalFileDirectory directory;
+    private final ChangeLog changeLog;
+    private final SnapshotPublisher snapshotPublisher;
+    private final UsersService usersService;
+    private final GroupsService groupsService;
+    private final Map<EndpointClass, AdmissionLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final int retryAfterSeconds;
+    private final int subscriberBuffer;
+    private final int maxSubscribers;
+    private final long subscriberTimeoutMillis;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Writes change sets to the subscribers, sized by demand as in {@link com.adonofero.challenge.ChangesController}.
+     */
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "passwd-change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService streamTimeouts = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "passwd-change-stream-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private NssServer nssServer;
+
+    /**
+     * @param settings settings keyed as in the Spring Boot application
+     */
+    public LitePasswdServer(Properties settings) {
+        this.settings = settings;
+        this.directory = new LocalFileDirectory(new File(settings.getProperty("passwd.users.filepath")), new File(settings.getProperty("passwd.groups.filepath")),
+                StorageMode.fromProperty(settings.getProperty("passwd.storage.mode")), Boolean.parseBoolean(settings.getProperty("passwd.refresh.serve-stale")),
+                ParseMode.fromProperty(settings.getProperty("passwd.parse.mode")), RenderMode.fromProperty(settings.getProperty("passwd.render.mode")));
+        String peerUrl = settings.getProperty("passwd.peer.url");
+        if (!peerUrl.isEmpty()) {
+            directory.follow(new PeerSnapshotSource(peerUrl, Integer.parseInt(settings.getProperty("passwd.peer.timeout-ms"))),
+                    Long.parseLong(settings.getProperty("passwd.refresh.interval-ms")),
+                    Long.parseLong(settings.getProperty("passwd.refresh.max-staleness-ms")),
+                    StalePolicy.fromProperty(settings.getProperty("passwd.refresh.on-stale")));
+        } else if (RefreshMode.fromProperty(settings.getProperty("passwd.refresh.mode")) == RefreshMode.SCHEDULED) {
+            directory.scheduleRefresh(Long.parseLong(settings.getProperty("passwd.refresh.interval-ms")),
+                    Long.parseLong(settings.getProperty("passwd.refresh.max-staleness-ms")),
+                    StalePolicy.fromProperty(settings.getProperty("passwd.refresh.on-stale")));
+        }
+        this.changeLog = new ChangeLog(Integer.parseInt(settings.getProperty("passwd.changes.history-size")),
+                Integer.parseInt(settings.getProperty("passwd.changes.history-max-entities")));
+        directory.addListener(changeLog);
+        this.snapshotPublisher = new SnapshotPublisher(directory);
+        int queryCacheEntries = Integer.parseInt(settings.getProperty("passwd.query-cache.max-entries"));
+        long queryCacheBytes = Long.parseLong(settings.getProperty("passwd.query-cache.max-bytes"));
+        this.usersService = new LocalFileUsersService(directory, changeLog, new QueryResultCache<>(queryCacheEntries, queryCacheBytes, EntitySizes::of));
+        this.groupsService = new LocalFileGroupsService(directory, changeLog, new QueryResultCache<>(queryCacheEntries, queryCacheBytes, EntitySizes::of));
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String key = "passwd.admission." + endpointClass.name().toLowerCase(Locale.ROOT);
+            limiters.put(endpointClass, new AdmissionLimiter(Integer.parseInt(settings.getProperty(key + ".max-concurrent")),
+                    Long.parseLong(settings.getProperty(key + ".max-queue-ms"))));
+        }
+        this.retryAfterSeconds = Integer.parseInt(settings.getProperty("passwd.admission.retry-after-seconds"));
+        this.subscriberBuffer = Integer.parseInt(settings.getProperty("passwd.changes.subscriber-buffer"));
+        this.maxSubscribers = Integer.parseInt(settings.getProperty("passwd.changes.max-subscribers"));
+        this.subscriberTimeoutMillis = Long.parseLong(settings.getProperty("passwd.changes.timeout-ms"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        LitePasswdServer server = new LitePasswdServer(settings(args));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+
+    /**
+     * Resolve the settings of the server.
+     *
+     * @param args --key=value arguments, taking precedence over system properties
+     * @return settings with a value for every key the server reads
+     */
+    public static Properties settings(String... args) {
+        Properties defaults = new Properties();
+        defaults.setProperty("server.port", "8080");
+        defaults.setProperty("passwd.users.filepath", "/etc/passwd");
+        defaults.setProperty("passwd.groups.filepath", "/etc/group");
+        defaults.setProperty("passwd.storage.mode", "object");
+        defaults.setProperty("passwd.parse.mode", "fail");
+        defaults.setProperty("passwd.render.mode", "jackson");
+        defaults.setProperty("passwd.refresh.serve-stale", "false");
+        defaults.setProperty("passwd.refresh.mode", "on-request");
+        defaults.setProperty("passwd.refresh.interval-ms", "1000");
+        defaults.setProperty("passwd.refresh.max-staleness-ms", "30000");
+        defaults.setProperty("passwd.refresh.on-stale", "sync");
+        defaults.setProperty("passwd.changes.history-size", "128");
+        defaults.setProperty("passwd.changes.history-max-entities", "100000");
+        defaults.setProperty("passwd.changes.subscriber-buffer", "256");
+        defaults.setProperty("passwd.changes.max-subscribers", "256");
+        defaults.setProperty("passwd.changes.timeout-ms", "1800000");
+        defaults.setProperty("passwd.admission.point.max-concurrent", "256");
+        defaults.setProperty("passwd.admission.point.max-queue-ms", "100");
+        defaults.setProperty("passwd.admission.bulk.max-concurrent", "8");
+        defaults.setProperty("passwd.admission.bulk.max-queue-ms", "100");
+        defaults.setProperty("passwd.admission.retry-after-seconds", "1");
+        defaults.setProperty("passwd.query-cache.max-entries", "1024");
+        defaults.setProperty("passwd.query-cache.max-bytes", "67108864");
+        defaults.setProperty("passwd.nss.port", "-1");
+        defaults.setProperty("passwd.nss.threads", "4");
+        defaults.setProperty("passwd.peer.url", "");
+        defaults.setProperty("passwd.peer.timeout-ms", "5000");
+        defaults.setProperty("passwd.lite.threads", "32");
+        Properties settings = new Properties(defaults);
+        for (String key : defaults.stringPropertyNames()) {
+            String value = System.getProperty(key);
+            if (value != null) {
+                settings.setProperty(key, value);
+            }
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format("Expected argument in the form --key=value. Found \"%s\"", arg));
+            }
+            settings.setProperty(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return settings;
+    }
+
+    /**
+     * Bind the configured port and start serving requests.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(Integer.parseInt(settings.getProperty("server.port"))), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(Integer.parseInt(settings.getProperty("passwd.lite.threads")));
+        server.setExecutor(executor);
+        server.start();
+        int nssPort = Integer.parseInt(settings.getProperty("passwd.nss.port"));
+        if (nssPort >= 0) {
+            nssServer = new NssServer(usersService, groupsService, nssPort, Integer.parseInt(settings.getProperty("passwd.nss.threads")));
+            nssServer.start();
+        }
+        logger.info("Started lite Passwd service on port {} in {} ms", getPort(),
+                System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    /**
+     * Stop serving requests.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        streamExecutor.shutdownNow();
+        streamTimeouts.shutdownNow();
+        if (nssServer != null) {
+            nssServer.stop();
+        }
+        directory.close();
+        changeLog.close();
+    }
+
+    /**
+     * @return port the server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return port the NSS protocol listener is bound to, or -1 if it is disabled
+     */
+    public int getNssPort() {
+        return nssServer == null ? -1 : nssServer.getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean streaming = false;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, TEXT_CONTENT_TYPE, new byte[0]);
+                return;
+            }
+            String[] segments = segments(exchange.getRequestURI().getPath());
+            Map<String, List<String>> params = params(exchange.getRequestURI().getRawQuery());
+            if (segments.length == 1 && segments[0].equals("changes")) {
+                // Like the controller, the stream is not subject to admission control: it is bounded by its own limit
+                streamChanges(exchange, params);
+                streaming = true;
+                return;
+            }
+            EndpointClass endpointClass = classify(segments);
+            if (endpointClass == null) {
+                send(exchange, 404, TEXT_CONTENT_TYPE, new byte[0]);
+                return;
+            }
+            AdmissionLimiter limiter = limiters.get(endpointClass);
+            long queueNanos = limiter.tryAcquire();
+            if (queueNanos == AdmissionLimiter.SHED) {
+                throw new ServiceOverloadedException(String.format("Too many concurrent %s requests", endpointClass), retryAfterSeconds);
+            }
+            try {
+                exchange.getResponseHeaders().set("Server-Timing", String.format(Locale.ROOT, "queue;dur=%.3f", queueNanos / 1_000_000.0));
+                Object body = dispatch(exchange, segments, params);
+                if (body == NOT_MODIFIED) {
+                    send(exchange, 304, JSON_CONTENT_TYPE, new byte[0]);
+                } else if (body instanceof SnapshotCodec.EncodedFrame) {
+                    send(exchange, (SnapshotCodec.EncodedFrame) body);
+                } else if (body instanceof RenderedJson) {
+                    send(exchange, (RenderedJson) body);
+                } else {
+                    send(exchange, 200, JSON_CONTENT_TYPE, mapper.writeValueAsBytes(body));
+                }
+            } finally {
+                limiter.release();
+            }
+        } catch (Exception ex) {
+            sendError(exchange, ex);
+        } finally {
+            if (!streaming) {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Stream the change sets of every new version, as {@link com.adonofero.challenge.ChangesController} does.
+     */
+    private void streamChanges(HttpExchange exchange, Map<String, List<String>> params) throws IOException {
+        if (changeLog.getSubscriberCount() >= maxSubscribers) {
+            throw new ServiceOverloadedException(String.format("Already streaming changes to %d clients", maxSubscribers), retryAfterSeconds);
+        }
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        Long epoch = epoch(params);
+        Long since = version(params);
+        ExchangeEventSink sink = new ExchangeEventSink(exchange, mapper);
+        ChangeStream stream = new ChangeStream(sink, changeLog, directory.getEpoch(), streamExecutor, subscriberBuffer);
+        sink.expireAfter(streamTimeouts, subscriberTimeoutMillis, stream::close);
+        if (lastEventId != null) {
+            stream.resume(lastEventId);
+        } else {
+            stream.start(epoch, since != null ? since : changeLog.getLatestVersion());
+        }
+    }
+
+    /**
+     * @return class of the endpoint addressed by the path, or null if no endpoint has the path
+     */
+    private EndpointClass classify(String[] segments) {
+        if (segments.length == 1 && segments[0].equals("snapshot")) {
+            return EndpointClass.BULK;
+        }
+        if (segments.length == 0 || !(segments[0].equals("users") || segments[0].equals("groups"))) {
+            return null;
+        }
+        boolean users = segments[0].equals("users");
+        switch (segments.length) {
+            case 1:
+                return EndpointClass.BULK;
+            case 2:
+                if (segments[1].equals("by-name")) {
+                    // Lookups by name are only mapped with a name, as /users/by-name/{name} in Spring
+                    return null;
+                }
+                return segments[1].equals("query") || segments[1].equals("stats") ? EndpointClass.BULK : EndpointClass.POINT;
+            case 3:
+                if (segments[1].equals("by-name")) {
+                    return EndpointClass.POINT;
+                }
+                if (users && segments[2].equals("groups")) {
+                    return EndpointClass.POINT;
+                }
+                if (!users && segments[2].equals("users")) {
+                    return EndpointClass.BULK;
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private Object dispatch(HttpExchange exchange, String[] segments, Map<String, List<String>> params) throws Exception {
+        if (segments[0].equals("snapshot")) {
+            SnapshotCodec.EncodedFrame frame = snapshotPublisher.publish(epoch(params), version(params));
+            return frame == null ? NOT_MODIFIED : frame;
+        }
+        if (segments[0].equals("users")) {
+            if (segments.length == 1) {
+                String sort = single(params, "sort");
+                Integer limit = limit(params, "getUsers");
+                Long since = version(params);
+                if (since != null) {
+                    if (sort != null || limit != null) {
+                        throw new InvalidParametersException("Parameter since cannot be combined with sort or limit on getUsers endpoint");
+                    }
+                    Delta<User> changes = usersService.getUsersSince(epoch(params), since);
+                    setSnapshotHeaders(exchange, usersService.getEpoch(), changes.getVersion());
+                    return changes;
+                }
+                Versioned<?> users = sort == null && limit == null && usersService.isPrerendered()
+                        ? usersService.getRenderedUsers() : usersService.getVersionedUsers(sort, limit);
+                setSnapshotHeaders(exchange, usersService.getEpoch(), users.getVersion());
+                return users.getValue();
+            }
+            if (segments.length == 2 && segments[1].equals("query")) {
+                String sort = single(params, "sort");
+                Integer limit = limit(params, "queryUsers");
+                String q = single(params, "q");
+                String name = single(params, "name");
+                Integer uid = integer(params, "uid");
+                Integer gid = integer(params, "gid");
+                String comment = single(params, "comment");
+                String home = single(params, "home");
+                String shell = single(params, "shell");
+                if (q != null) {
+                    if (name != null || uid != null || gid != null || comment != null || home != null || shell != null) {
+                        throw new InvalidParametersException("Parameter q cannot be combined with other parameters on queryUsers endpoint");
+                    }
+                    return usersService.queryUsers(q, sort, limit);
+                }
+                if (name == null && uid == null && gid == null && comment == null && home == null && shell == null) {
+                    throw new MissingParametersException("Minimum of 1 query parameter required on queryUsers endpoint");
+                }
+                return usersService.queryUsers(name, uid, gid, comment, home, shell, sort, limit);
+            }
+            if (segments.length == 2 && segments[1].equals("stats")) {
+                String groupBy = single(params, "groupBy");
+                if (groupBy == null) {
+                    throw new MissingParametersException("Parameter groupBy required on getUserStats endpoint");
+                }
+                if (!USER_STATS_GROUP_BY.contains(groupBy)) {
+                    throw new InvalidParametersException("groupBy must be one of shell, gid or home on getUserStats endpoint");
+                }
+                return usersService.getUserStats(groupBy);
+            }
+            if (segments.length == 3 && segments[1].equals("by-name")) {
+                return usersService.getUserByName(segments[2]);
+            }
+            int uid = Integer.parseInt(segments[1]);
+            if (segments.length == 3) {
+                return usersService.getGroupsOfUser(uid);
+            }
+            return current(exchange, usersService.isPrerendered() ? usersService.getRenderedUserById(uid) : usersService.getTaggedUserById(uid));
+        }
+        if (segments.length == 1) {
+            String sort = single(params, "sort");
+            Integer limit = limit(params, "getGroups");
+            Long since = version(params);
+            if (since != null) {
+                if (sort != null || limit != null) {
+                    throw new InvalidParametersException("Parameter since cannot be combined with sort or limit on getGroups endpoint");
+                }
+                Delta<Group> changes = groupsService.getGroupsSince(epoch(params), since);
+                setSnapshotHeaders(exchange, groupsService.getEpoch(), changes.getVersion());
+                return changes;
+            }
+            Versioned<?> groups = sort == null && limit == null && groupsService.isPrerendered()
+                    ? groupsService.getRenderedGroups() : groupsService.getVersionedGroups(sort, limit);
+            setSnapshotHeaders(exchange, groupsService.getEpoch(), groups.getVersion());
+            return groups.getValue();
+        }
+        if (segments.length == 2 && segments[1].equals("query")) {
+            String sort = single(params, "sort");
+            Integer limit = limit(params, "queryGroups");
+            String q = single(params, "q");
+            String name = single(params, "name");
+            Integer gid = integer(params, "gid");
+            List<String> members = params.get("member");
+            if (q != null) {
+                if (name != null || gid != null || members != null) {
+                    throw new InvalidParametersException("Parameter q cannot be combined with other parameters on queryGroups endpoint");
+                }
+                return groupsService.queryGroups(q, sort, limit);
+            }
+            if (name == null && gid == null && members == null) {
+                throw new MissingParametersException("Minimum of 1 query parameter required on queryGroups endpoint");
+            }
+            return groupsService.queryGroups(name, gid, members, sort, limit);
+        }
+        if (segments.length == 2 && segments[1].equals("stats")) {
+            return groupsService.getGroupStats();
+        }
+        if (segments.length == 3 && segments[1].equals("by-name")) {
+            return groupsService.getGroupByName(segments[2]);
+        }
+        int gid = Integer.parseInt(segments[1]);
+        if (segments.length == 2) {
+            return current(exchange, groupsService.isPrerendered() ? groupsService.getRenderedGroupByID(gid) : groupsService.getTaggedGroupByID(gid));
+        }
+        Integer offset = integer(params, "offset");
+        Integer limit = integer(params, "limit");
+        offset = offset == null ? 0 : offset;
+        limit = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidParametersException(String.format("offset must be non-negative and limit between 1 and %d on getUsersOfGroup endpoint", MAX_PAGE_SIZE));
+        }
+        ResultPage<User> page = groupsService.getUsersOfGroup(gid, offset, limit);
+        exchange.getResponseHeaders().set(TOTAL_COUNT_HEADER, String.valueOf(page.getTotal()));
+        return page.getItems();
+    }
+
+    private static void setSnapshotHeaders(HttpExchange exchange, long epoch, long version) {
+        exchange.getResponseHeaders().set(SNAPSHOT_VERSION_HEADER, String.valueOf(version));
+        exchange.getResponseHeaders().set(SNAPSHOT_EPOCH_HEADER, String.valueOf(epoch));
+    }
+
+    /**
+     * Tag the response with the ETag of an entity, as Spring's {@code WebRequest.checkNotModified} does.
+     *
+     * @return the entity, or {@link #NOT_MODIFIED} if If-None-Match lists its ETag
+     */
+    private static Object current(HttpExchange exchange, Tagged<?> tagged) {
+        exchange.getResponseHeaders().set("ETag", tagged.getTag());
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(tagged.getTag()) || tag.equals("W/" + tagged.getTag())) {
+                    return NOT_MODIFIED;
+                }
+            }
+        }
+        return tagged.getValue();
+    }
+
+    /**
+     * Answer a failed request with the same status codes and messages as
+     * {@link com.adonofero.challenge.PasswdExceptionHandler}.
+     */
+    private void sendError(HttpExchange exchange, Exception ex) throws IOException {
+        int status;
+        String message;
+        if (ex instanceof EntityNotFoundException) {
+            status = 404;
+            message = "Requested user was not found.";
+        } else if (ex instanceof InvalidParametersException) {
+            status = 400;
+            message = ex.getMessage();
+        } else if (ex instanceof InvalidQueryException) {
+            status = 400;
+            message = ex.getMessage();
+        } else if (ex instanceof NumberFormatException) {
+            // Spring answers path variables and parameters which cannot be converted with a 400 as well
+            status = 400;
+            message = ex.getMessage();
+        } else if (ex instanceof ServiceOverloadedException) {
+            status = 503;
+            message = "Service is overloaded. Please retry later.";
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(((ServiceOverloadedException) ex).getRetryAfterSeconds()));
+        } else if (ex instanceof ResyncRequiredException) {
+            status = 410;
+            message = "Changes since the requested version are no longer available. Please retrieve the full list again.";
+            setSnapshotHeaders(exchange, ((ResyncRequiredException) ex).getEpoch(), ((ResyncRequiredException) ex).getVersion());
+        } else if (ex instanceof StaleDataException) {
+            status = 503;
+            message = "System data is temporarily unavailable. Please retry later.";
+        } else if (ex instanceof UpdateFailureException) {
+            status = 500;
+            message = "Internal error retrieving system data. Please contact system administrator.";
+        } else {
+            logger.error("Unexpected failure handling {}", exchange.getRequestURI(), ex);
+            status = 500;
+            message = "Unknown error has occurred. Please contact system administrator.";
+        }
+        send(exchange, status, TEXT_CONTENT_TYPE, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Answer with a snapshot frame, streamed to the client as it is assembled.
+     */
+    private static void send(HttpExchange exchange, SnapshotCodec.EncodedFrame frame) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", BINARY_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, frame.getLength());
+        try (OutputStream out = exchange.getResponseBody()) {
+            frame.writeTo(out);
+        }
+    }
+
+    /**
+     * Answer with JSON rendered ahead of the request, written to the client without copying it first.
+     */
+    private static void send(HttpExchange exchange, RenderedJson body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.getLength());
+        try (OutputStream out = exchange.getResponseBody()) {
+            body.writeTo(out);
+        }
+    }
+
+    private static String[] segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * Parse a query string the way Spring binds request parameters: repeated keys and comma separated values both
+     * add to the list of values of a key.
+     */
+    private static Map<String, List<String>> params(String rawQuery) throws UnsupportedEncodingException {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<String>> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), "UTF-8");
+            String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+            params.computeIfAbsent(key, k -> new ArrayList<>()).addAll(Arrays.asList(value.split(",")));
+        }
+        return params;
+    }
+
+    private static String single(Map<String, List<String>> params, String key) {
+        List<String> values = params.get(key);
+        return values == null ? null : String.join(",", values);
+    }
+
+    private static Long version(Map<String, List<String>> params) {
+        String value = single(params, "since");
+        return value == null ? null : Long.valueOf(value.trim());
+    }
+
+    private static Long epoch(Map<String, List<String>> params) {
+        String value = single(params, "epoch");
+        return value == null ? null : Long.valueOf(value.trim());
+    }
+
+    private static Integer limit(Map<String, List<String>> params, String endpoint) {
+        Integer limit = integer(params, "limit");
+        if (limit != null && limit < 1) {
+            throw new InvalidParametersException(String.format("limit must be positive on %s endpoint", endpoint));
+        }
+        return limit;
+    }
+
+    private static Integer integer(Map<String, List<String>> params, String key) {
+        String value = single(params, key);
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+}
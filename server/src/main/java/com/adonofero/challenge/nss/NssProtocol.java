@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.nss;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary protocol of the {@link NssServer}, modelled on the lookups an NSS module makes.
+ * <p>
+ * Every message is a frame made of a 4 byte big-endian length, counting the bytes after it, followed by:
+ * <pre>
+ * request:  int32 request id | uint8 operation | operand
+ * response: int32 request id | uint8 status    | result, if the status is {@link #STATUS_OK}
+ * </pre>
+ * Operands are an int32 for {@link #GETPWUID} and {@link #GETGRGID}, and the name in UTF-8, taking up the rest of the
+ * frame, for {@link #GETPWNAM}, {@link #GETGRNAM} and {@link #GETGROUPLIST}. Results are encoded as follows, strings
+ * being an int32 length followed by that many bytes of UTF-8:
+ * <pre>
+ * passwd:    string name | int32 uid | int32 gid | string gecos | string dir | string shell
+ * group:     string name | int32 gid | int32 member count | string member...
+ * grouplist: int32 gid count | int32 gid...
+ * </pre>
+ * Clients may send any number of requests before reading the responses. Responses come back in request order, and
+ * carry the id of their request.
+ *
+ * @author Alexander Donofero
+ */
+public final class NssProtocol {
+
+    public static final byte GETPWUID = 1;
+    public static final byte GETPWNAM = 2;
+    public static final byte GETGRGID = 3;
+    public static final byte GETGRNAM = 4;
+    /**
+     * Gids of the groups of a user: its primary gid first, then the gids of the groups listing it as a member.
+     */
+    public static final byte GETGROUPLIST = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_NOT_FOUND = 1;
+    /**
+     * The request could not be decoded, e.g. an unknown operation.
+     */
+    public static final byte STATUS_BAD_REQUEST = 2;
+    /**
+     * System data cannot be served right now, e.g. it exceeded its maximum staleness; the client may retry.
+     */
+    public static final byte STATUS_UNAVAILABLE = 3;
+    /**
+     * System data cannot be read.
+     */
+    public static final byte STATUS_ERROR = 4;
+
+    /**
+     * Size of the length prefix of a frame.
+     */
+    public static final int LENGTH_SIZE = 4;
+
+    /**
+     * Size of the request id and operation or status heading every frame.
+     */
+    public static final int HEADER_SIZE = 5;
+
+    /**
+     * Largest request frame accepted, length prefix excluded. Names are far shorter on any system.
+     */
+    public static final int MAX_REQUEST_LENGTH = 4096;
+
+    private NssProtocol() {
+    }
+
+    /**
+     * Append a passwd result to a buffer in write mode.
+     *
+     * @return the buffer, or a larger copy of it if the result did not fit
+     */
+    static ByteBuffer put(ByteBuffer buffer, User user) {
+        buffer = putString(buffer, user.getName());
+        buffer = ensureRemaining(buffer, 2 * Integer.BYTES);
+        buffer.putInt(user.getUid());
+        buffer.putInt(user.getGid());
+        buffer = putString(buffer, user.getComment());
+        buffer = putString(buffer, user.getHome());
+        return putString(buffer, user.getShell());
+    }
+
+    /**
+     * Append a group result to a buffer in write mode.
+     *
+     * @return the buffer, or a larger copy of it if the result did not fit
+     */
+    static ByteBuffer put(ByteBuffer buffer, Group group) {
+        buffer = putString(buffer, group.getName());
+        buffer = ensureRemaining(buffer, 2 * Integer.BYTES);
+        buffer.putInt(group.getGid());
+        buffer.putInt(group.getMembers().length);
+        for (String member : group.getMembers()) {
+            buffer = putString(buffer, member);
+        }
+        return buffer;
+    }
+
+    /**
+     * Append a grouplist result to a buffer in write mode.
+     *
+     * @return the buffer, or a larger copy of it if the result did not fit
+     */
+    static ByteBuffer put(ByteBuffer buffer, int[] gids) {
+        buffer = ensureRemaining(buffer, (gids.length + 1) * Integer.BYTES);
+        buffer.putInt(gids.length);
+        for (int gid : gids) {
+            buffer.putInt(gid);
+        }
+        return buffer;
+    }
+
+    /**
+     * @param buffer    buffer in write mode
+     * @param remaining number of bytes about to be written
+     * @return the buffer, or a copy of it with room for at least the bytes about to be written
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer buffer, int remaining) {
+        if (buffer.remaining() >= remaining) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + remaining));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    /**
+     * @param buffer buffer positioned at a passwd result
+     * @return the user decoded
+     * @throws BufferUnderflowException if the buffer holds less than a passwd result
+     */
+    public static User getUser(ByteBuffer buffer) {
+        User user = new User();
+        user.setName(getString(buffer));
+        user.setUid(buffer.getInt());
+        user.setGid(buffer.getInt());
+        user.setComment(getString(buffer));
+        user.setHome(getString(buffer));
+        user.setShell(getString(buffer));
+        return user;
+    }
+
+    /**
+     * @param buffer buffer positioned at a group result
+     * @return the group decoded
+     * @throws BufferUnderflowException if the buffer holds less than a group result
+     */
+    public static Group getGroup(ByteBuffer buffer) {
+        Group group = new Group();
+        group.setName(getString(buffer));
+        group.setGid(buffer.getInt());
+        String[] members = new String[count(buffer)];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = getString(buffer);
+        }
+        group.setMembers(members);
+        return group;
+    }
+
+    /**
+     * @param buffer buffer positioned at a grouplist result
+     * @return the gids decoded
+     * @throws BufferUnderflowException if the buffer holds less than a grouplist result
+     */
+    public static int[] getGroupList(ByteBuffer buffer) {
+        int[] gids = new int[count(buffer)];
+        for (int i = 0; i < gids.length; i++) {
+            gids[i] = buffer.getInt();
+        }
+        return gids;
+    }
+
+    /**
+     * Read a count of items, each taking at least 4 bytes, rejecting counts the buffer cannot hold.
+     */
+    private static int count(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / Integer.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = ensureRemaining(buffer, Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length);
+        return buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.nss;
+
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.StaleDataException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.groups.GroupsService;
+import com.adonofero.challenge.services.users.UsersService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Listener answering the lookups of NSS modules over the binary {@link NssProtocol}, next to the REST endpoints.
+ * <p>
+ * DESIGN NOTE:
+ * Lookups made on every login or file listing are tiny, so per request the cost of HTTP, i.e. parsing headers and
+ * rendering JSON, dwarfs that of the lookup itself. Here a request is a few bytes decoded in place and a response is
+ * written straight into the buffer of the connection. A single selector thread does the socket I/O of every
+ * connection and hands the complete requests it reads to a small pool of workers. Lookups are usually answered from
+ * the in-memory snapshot in microseconds, but with on-request refresh a lookup may first check the files and reparse
+ * them: on the selector thread that would stall every connection for the length of a reload, on a worker it only
+ * delays the requests waiting for it. Requests pipelined by a client are answered by one worker in one pass over its
+ * input buffer, and their responses leave in as few writes as the socket allows.
+ * <p>
+ * The listener applies no admission control of its own: a connection is not read while a worker answers its requests,
+ * so it never occupies more than one worker, and a client sending faster than it reads stops being read once its
+ * pending responses exceed {@link #MAX_PENDING_OUTPUT}.
+ *
+ * @author Alexander Donofero
+ */
+public class NssServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NssServer.class);
+
+    private static final int INITIAL_OUTPUT_SIZE = 4096;
+    private static final int MAX_PENDING_OUTPUT = 1 << 20;
+    private static final int DEFAULT_THREADS = 4;
+
+    private final UsersService usersService;
+    private final GroupsService groupsService;
+    private final int port;
+    private final int threads;
+    private final Queue<Connection> answered = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ExecutorService workers;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param usersService  service answering the passwd and group list lookups
+     * @param groupsService service answering the group lookups
+     * @param port          port to listen on, 0 for any free port
+     */
+    public NssServer(UsersService usersService, GroupsService groupsService, int port) {
+        this(usersService, groupsService, port, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param usersService  service answering the passwd and group list lookups
+     * @param groupsService service answering the group lookups
+     * @param port          port to listen on, 0 for any free port
+     * @param threads       number of workers answering the requests
+     */
+    public NssServer(UsersService usersService, GroupsService groupsService, int port, int threads) {
+        this.usersService = usersService;
+        this.groupsService = groupsService;
+        this.port = port;
+        this.threads = threads;
+    }
+
+    /**
+     * Bind the port and start serving requests.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread worker = new Thread(task, "passwd-nss-worker");
+            worker.setDaemon(true);
+            return worker;
+        });
+        running = true;
+        thread = new Thread(this::run, "passwd-nss");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Started NSS protocol listener on port {} with {} workers", getPort(), threads);
+    }
+
+    /**
+     * Stop serving requests and close every connection.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * @return port the listener is bound to
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = answered.poll()) != null) {
+                    connection.resume();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                    } else if (key.isValid()) {
+                        serve(key);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("NSS protocol listener failed", ex);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            close(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private void serve(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            }
+            // While a worker answers its requests, the output buffer of the connection belongs to the worker
+            if (key.isValid() && key.isWritable() && !connection.busy) {
+                connection.write();
+            }
+        } catch (IOException ex) {
+            // Broken connections and clients violating the framing are dropped alike
+            logger.debug("Closing NSS protocol connection from {}: {}", connection.channel.socket().getRemoteSocketAddress(), ex.getMessage());
+            close(key);
+        } catch (RuntimeException ex) {
+            logger.error("Closing NSS protocol connection from {}", connection.channel.socket().getRemoteSocketAddress(), ex);
+            close(key);
+        }
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        close(key.channel());
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ex) {
+            logger.debug("Failed to close {}", closeable, ex);
+        }
+    }
+
+    /**
+     * Buffers of a client connection. Both are kept in write mode between calls, and are only touched by the worker
+     * answering the requests of the connection while it is busy, by the selector thread otherwise.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(NssProtocol.LENGTH_SIZE + NssProtocol.MAX_REQUEST_LENGTH);
+        private ByteBuffer out = ByteBuffer.allocate(INITIAL_OUTPUT_SIZE);
+        private boolean busy;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                throw new IOException("Connection closed by client");
+            }
+            if (!hasCompleteFrame()) {
+                return;
+            }
+            // Stop reading and writing until a worker has answered the requests received
+            busy = true;
+            key.interestOps(0);
+            try {
+                workers.execute(this::answerAll);
+            } catch (RejectedExecutionException ex) {
+                throw new IOException("Listener stopping", ex);
+            }
+        }
+
+        /**
+         * Validate the length of every frame received.
+         *
+         * @return whether at least one frame was received in full
+         */
+        private boolean hasCompleteFrame() throws IOException {
+            boolean complete = false;
+            int position = 0;
+            while (in.position() - position >= NssProtocol.LENGTH_SIZE) {
+                int length = in.getInt(position);
+                if (length < NssProtocol.HEADER_SIZE || length > NssProtocol.MAX_REQUEST_LENGTH) {
+                    throw new IOException(String.format("Invalid request length %d", length));
+                }
+                if (in.position() - position < NssProtocol.LENGTH_SIZE + length) {
+                    break;
+                }
+                complete = true;
+                position += NssProtocol.LENGTH_SIZE + length;
+            }
+            return complete;
+        }
+
+        /**
+         * Answer every complete frame received, on a worker; a partial one stays in the buffer until the rest arrives.
+         */
+        private void answerAll() {
+            try {
+                in.flip();
+                while (in.remaining() >= NssProtocol.LENGTH_SIZE && in.remaining() >= NssProtocol.LENGTH_SIZE + in.getInt(in.position())) {
+                    int length = in.getInt(in.position());
+                    int start = in.position() + NssProtocol.LENGTH_SIZE;
+                    answer(in.getInt(start), in.get(start + Integer.BYTES), start + NssProtocol.HEADER_SIZE, length - NssProtocol.HEADER_SIZE);
+                    in.position(start + length);
+                }
+            } finally {
+                in.compact();
+                answered.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Hand the connection back to the selector thread once its requests are answered.
+         */
+        void resume() {
+            busy = false;
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                write();
+            } catch (IOException ex) {
+                logger.debug("Closing NSS protocol connection from {}: {}", channel.socket().getRemoteSocketAddress(), ex.getMessage());
+                close(key);
+            }
+        }
+
+        void write() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() == 0 && out.capacity() > MAX_PENDING_OUTPUT) {
+                // Let go of the buffer grown by an unusually large response
+                out = ByteBuffer.allocate(INITIAL_OUTPUT_SIZE);
+            }
+            int pending = out.position();
+            key.interestOps(pending == 0 ? SelectionKey.OP_READ
+                    : pending > MAX_PENDING_OUTPUT ? SelectionKey.OP_WRITE : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Append the response to a request to the output buffer.
+         */
+        private void answer(int requestId, byte operation, int offset, int length) {
+            out = NssProtocol.ensureRemaining(out, NssProtocol.LENGTH_SIZE + NssProtocol.HEADER_SIZE);
+            int frame = out.position();
+            out.putInt(0).putInt(requestId);
+            int statusAt = out.position();
+            out.put(NssProtocol.STATUS_OK);
+            byte status;
+            try {
+                status = execute(operation, offset, length);
+            } catch (EntityNotFoundException ex) {
+                status = NssProtocol.STATUS_NOT_FOUND;
+            } catch (StaleDataException ex) {
+                status = NssProtocol.STATUS_UNAVAILABLE;
+            } catch (UpdateFailureException ex) {
+                status = NssProtocol.STATUS_ERROR;
+            } catch (RuntimeException ex) {
+                // A failed lookup must not take down the connection, let alone the listener
+                logger.error("Failed to answer NSS protocol request {} with operation {}", requestId, operation, ex);
+                status = NssProtocol.STATUS_ERROR;
+            }
+            if (status != NssProtocol.STATUS_OK) {
+                out.position(statusAt + 1);
+            }
+            out.put(statusAt, status);
+            out.putInt(frame, out.position() - frame - NssProtocol.LENGTH_SIZE);
+        }
+
+        private byte execute(byte operation, int offset, int length) throws UpdateFailureException, EntityNotFoundException {
+            switch (operation) {
+                case NssProtocol.GETPWUID:
+                    if (length != Integer.BYTES) {
+                        return NssProtocol.STATUS_BAD_REQUEST;
+                    }
+                    out = NssProtocol.put(out, usersService.getUserById(in.getInt(offset)));
+                    return NssProtocol.STATUS_OK;
+                case NssProtocol.GETPWNAM:
+                    out = NssProtocol.put(out, usersService.getUserByName(name(offset, length)));
+                    return NssProtocol.STATUS_OK;
+                case NssProtocol.GETGRGID:
+                    if (length != Integer.BYTES) {
+                        return NssProtocol.STATUS_BAD_REQUEST;
+                    }
+                    out = NssProtocol.put(out, groupsService.getGroupByID(in.getInt(offset)));
+                    return NssProtocol.STATUS_OK;
+                case NssProtocol.GETGRNAM:
+                    out = NssProtocol.put(out, groupsService.getGroupByName(name(offset, length)));
+                    return NssProtocol.STATUS_OK;
+                case NssProtocol.GETGROUPLIST:
+                    out = NssProtocol.put(out, usersService.getGroupListByName(name(offset, length)));
+                    return NssProtocol.STATUS_OK;
+                default:
+                    return NssProtocol.STATUS_BAD_REQUEST;
+            }
+        }
+
+        private String name(int offset, int length) {
+            return new String(in.array(), offset, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.changes;
+
+import com.adonofero.challenge.entity.ChangeSet;
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.EntityChanges;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.DirectorySnapshot;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.SnapshotListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Bounded history of the {@link ChangeSet}s between consecutive snapshots of a {@link LocalFileDirectory}, along with
+ * the subscribers notified of each new one.
+ * <p>
+ * DESIGN NOTE:
+ * Diffing two versions of the directory touches every entity of both, so it runs on a thread of its own rather than
+ * on the thread which published the snapshot, which may be serving a request. Change sets are still recorded in
+ * version order since that thread handles one publication at a time.
+ * <p>
+ * The history is bounded both in change sets and in entities across them, the latter so that a single rewrite of a
+ * large file cannot pin a copy of the whole directory. Clients asking for changes since a version which has been
+ * evicted, or which precedes the first snapshot holding the users or the groups, have to resynchronize in full.
+ *
+ * @author Alexander Donofero
+ */
+public class ChangeLog implements SnapshotListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLog.class);
+
+    /**
+     * Receiver of the change sets recorded after it subscribed.
+     */
+    public interface Subscriber {
+
+        /**
+         * Hand over a change set. Called while the change log is locked, so it must not block.
+         *
+         * @param changes changes leading to the latest version
+         * @return false if the subscriber cannot keep up and is to be unsubscribed
+         */
+        boolean offer(ChangeSet changes);
+
+        /**
+         * Notify the subscriber that the changes since the last version it received are no longer available. It is
+         * unsubscribed afterwards.
+         *
+         * @param version latest version
+         */
+        void resync(long version);
+    }
+
+    private final int maxChangeSets;
+    private final int maxEntities;
+
+    private final Deque<ChangeSet> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private int entities;
+
+    /**
+     * Changes since any version from oldestVersion to latestVersion are available.
+     */
+    private long oldestVersion;
+    private long latestVersion;
+
+    private final ExecutorService differ = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "passwd-change-log");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param maxChangeSets maximum number of change sets kept
+     * @param maxEntities   maximum number of entities kept across all change sets
+     */
+    public ChangeLog(int maxChangeSets, int maxEntities) {
+        this.maxChangeSets = maxChangeSets;
+        this.maxEntities = maxEntities;
+    }
+
+    @Override
+    public void published(DirectorySnapshot previous, DirectorySnapshot next) {
+        differ.execute(() -> record(previous, next));
+    }
+
+    /**
+     * @return version of the latest snapshot recorded
+     */
+    public synchronized long getLatestVersion() {
+        return latestVersion;
+    }
+
+    /**
+     * @param version version a client holds
+     * @return change sets leading from the version to the latest version, in version order, or null if they are no
+     * longer available and the client has to resynchronize in full
+     */
+    public synchronized List<ChangeSet> changesSince(long version) {
+        if (version < oldestVersion || version > latestVersion) {
+            return null;
+        }
+        List<ChangeSet> changes = new ArrayList<>();
+        for (ChangeSet changeSet : history) {
+            if (changeSet.getVersion() > version) {
+                changes.add(changeSet);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Merge the changes to one kind of entity since a version into their net effect.
+     *
+     * @param version  version a client holds, at most the latest version published
+     * @param entities selects the changes to the kind of entity from a change set
+     * @param name     name the entities are matched by
+     * @param <T>      type of the entities
+     * @return net changes leading from the version to the latest version recorded, or null if they are no longer
+     * available and the client has to resynchronize in full
+     */
+    public synchronized <T> Delta<T> deltaSince(long version, Function<ChangeSet, EntityChanges<T>> entities, Function<T, String> name) {
+        if (version > latestVersion) {
+            // The version was published but is not diffed yet, so there is nothing to report so far
+            return new Delta<>(version, version, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+        List<ChangeSet> changes = changesSince(version);
+        if (changes == null) {
+            return null;
+        }
+        return merge(version, latestVersion, changes, entities, name);
+    }
+
+    /**
+     * Hand the change sets since a version to a subscriber, then subscribe it to the change sets recorded from now on.
+     * Both happen atomically, so the subscriber receives every change set once and in version order. If the changes
+     * since the version are no longer available, the subscriber is told to resync instead and not subscribed.
+     *
+     * @param version    version the subscriber holds
+     * @param subscriber receiver of the change sets
+     */
+    public synchronized void subscribe(long version, Subscriber subscriber) {
+        List<ChangeSet> replay = changesSince(version);
+        if (replay == null) {
+            subscriber.resync(latestVersion);
+            return;
+        }
+        for (ChangeSet changeSet : replay) {
+            if (!subscriber.offer(changeSet)) {
+                return;
+            }
+        }
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * @param subscriber receiver to stop handing change sets to
+     */
+    public synchronized void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * @return number of current subscribers
+     */
+    public synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Stop recording change sets.
+     */
+    public void close() {
+        differ.shutdownNow();
+    }
+
+    private void record(DirectorySnapshot previous, DirectorySnapshot next) {
+        if ((previous.getUsers() == null && next.getUsers() != null) || (previous.getGroups() == null && next.getGroups() != null)) {
+            // Nothing to diff against; the history starts over from this version
+            reset(next.getVersion());
+            return;
+        }
+        // A store never read, e.g. the groups of a client only asking for users, has no changes either
+        EntityChanges<User> users = previous.getUsers() == next.getUsers() ? none()
+                : diff(previous.getUsers().getAllUsers(), next.getUsers().getAllUsers(), User::getName);
+        EntityChanges<Group> groups = previous.getGroups() == next.getGroups() ? none()
+                : diff(previous.getGroups().getAllGroups(), next.getGroups().getAllGroups(), Group::getName);
+        append(new ChangeSet(previous.getVersion(), next.getVersion(), users, groups));
+    }
+
+    private synchronized void reset(long version) {
+        history.clear();
+        entities = 0;
+        oldestVersion = version;
+        latestVersion = version;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.resync(version);
+        }
+        subscribers.clear();
+        logger.debug("Change log restarted at version {}", version);
+    }
+
+    private synchronized void append(ChangeSet changeSet) {
+        history.addLast(changeSet);
+        entities += size(changeSet);
+        latestVersion = changeSet.getVersion();
+        while (history.size() > maxChangeSets || (entities > maxEntities && !history.isEmpty())) {
+            ChangeSet evicted = history.removeFirst();
+            entities -= size(evicted);
+            oldestVersion = evicted.getVersion();
+        }
+        subscribers.removeIf(subscriber -> !subscriber.offer(changeSet));
+        logger.debug("Recorded {} user and {} group changes leading to version {}", changeSet.getUsers().size(),
+                changeSet.getGroups().size(), changeSet.getVersion());
+    }
+
+    private static int size(ChangeSet changeSet) {
+        return changeSet.getUsers().size() + changeSet.getGroups().size();
+    }
+
+    private static <T> EntityChanges<T> none() {
+        return new EntityChanges<>(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+
+    private static <T> Delta<T> merge(long fromVersion, long version, List<ChangeSet> changes,
+                                      Function<ChangeSet, EntityChanges<T>> entities, Function<T, String> name) {
+        Map<String, Change<T>> merged = new LinkedHashMap<>();
+        for (ChangeSet changeSet : changes) {
+            EntityChanges<T> changed = entities.apply(changeSet);
+            for (T entity : changed.getAdded()) {
+                // An entity removed earlier and added back existed at the version the client holds
+                Change<T> earlier = merged.get(name.apply(entity));
+                merged.put(name.apply(entity), new Change<>(earlier != null && earlier.kind == Change.REMOVED ? Change.MODIFIED : Change.ADDED, entity));
+            }
+            for (T entity : changed.getModified()) {
+                Change<T> earlier = merged.get(name.apply(entity));
+                merged.put(name.apply(entity), new Change<>(earlier != null && earlier.kind == Change.ADDED ? Change.ADDED : Change.MODIFIED, entity));
+            }
+            for (T entity : changed.getRemoved()) {
+                Change<T> earlier = merged.get(name.apply(entity));
+                if (earlier != null && earlier.kind == Change.ADDED) {
+                    merged.remove(name.apply(entity));
+                } else {
+                    merged.put(name.apply(entity), new Change<>(Change.REMOVED, entity));
+                }
+            }
+        }
+        List<T> added = new ArrayList<>();
+        List<T> modified = new ArrayList<>();
+        List<T> removed = new ArrayList<>();
+        for (Change<T> change : merged.values()) {
+            (change.kind == Change.ADDED ? added : change.kind == Change.MODIFIED ? modified : removed).add(change.entity);
+        }
+        return new Delta<>(fromVersion, version, added, modified, removed);
+    }
+
+    /**
+     * Net change to an entity while merging change sets.
+     */
+    private static final class Change<T> {
+        static final int ADDED = 0;
+        static final int MODIFIED = 1;
+        static final int REMOVED = 2;
+
+        final int kind;
+        final T entity;
+
+        Change(int kind, T entity) {
+            this.kind = kind;
+            this.entity = entity;
+        }
+    }
+
+    /**
+     * Match entities of two versions by name. Only the first entity of a name is considered, as for lookups by name.
+     */
+    private static <T> EntityChanges<T> diff(List<T> before, List<T> after, Function<T, String> name) {
+        Map<String, T> remaining = new LinkedHashMap<>(before.size() * 2);
+        for (T entity : before) {
+            remaining.putIfAbsent(name.apply(entity), entity);
+        }
+        List<T> added = new ArrayList<>();
+        List<T> modified = new ArrayList<>();
+        Set<String> seen = new HashSet<>(after.size() * 2);
+        for (T entity : after) {
+            String key = name.apply(entity);
+            if (!seen.add(key)) {
+                continue;
+            }
+            T old = remaining.remove(key);
+            if (old == null) {
+                added.add(entity);
+            } else if (!Objects.equals(old, entity)) {
+                modified.add(entity);
+            }
+        }
+        return new EntityChanges<>(added, modified, new ArrayList<>(remaining.values()));
+    }
+}
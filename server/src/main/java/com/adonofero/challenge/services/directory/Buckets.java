@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Number of entities sharing each value of a field, counted once when a snapshot is built so that reading them costs
+ * the number of distinct values rather than the number of entities.
+ *
+ * @author Alexander Donofero
+ */
+public final class Buckets {
+
+    private final int total;
+    private final Map<String, Integer> counts;
+
+    private Buckets(int total, Map<String, Integer> counts) {
+        this.total = total;
+        this.counts = counts;
+    }
+
+    /**
+     * @return sum of the counts
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return number of entities per value, from the most to the least common value, values equally common in
+     * lexicographic order
+     */
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Accumulates the counts of each value.
+     */
+    static final class Counter {
+
+        private final Map<String, int[]> counts = new HashMap<>();
+        private int total;
+
+        void add(String value, int count) {
+            total += count;
+            int[] sum = counts.get(value);
+            if (sum == null) {
+                counts.put(value, new int[]{count});
+            } else {
+                sum[0] += count;
+            }
+        }
+
+        Buckets build() {
+            List<Map.Entry<String, int[]>> entries = new ArrayList<>(counts.entrySet());
+            entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0] ? Integer.compare(b.getValue()[0], a.getValue()[0]) : a.getKey().compareTo(b.getKey()));
+            Map<String, Integer> ordered = new LinkedHashMap<>(entries.size() * 2);
+            for (Map.Entry<String, int[]> entry : entries) {
+                ordered.put(entry.getKey(), entry.getValue()[0]);
+            }
+            return new Buckets(total, Collections.unmodifiableMap(ordered));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing how a {@link LocalFileDirectory} keeps its snapshot up to date.
+ *
+ * @author Alexander Donofero
+ */
+public class DirectoryMetrics {
+
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong failedRebuilds = new AtomicLong();
+    private final AtomicLong coalescedRebuilds = new AtomicLong();
+    private final AtomicLong staleSnapshotsServed = new AtomicLong();
+    private final AtomicLong stalenessExceeded = new AtomicLong();
+    private final AtomicLong rejectedVersions = new AtomicLong();
+
+    /**
+     * @return number of snapshots built and published
+     */
+    public long getRebuilds() {
+        return rebuilds.get();
+    }
+
+    /**
+     * @return number of rebuilds which failed, leaving the previous snapshot in place
+     */
+    public long getFailedRebuilds() {
+        return failedRebuilds.get();
+    }
+
+    /**
+     * @return number of requests which found a rebuild of the files they needed already running and joined it
+     *         instead of starting their own
+     */
+    public long getCoalescedRebuilds() {
+        return coalescedRebuilds.get();
+    }
+
+    /**
+     * @return number of coalesced requests served the previous snapshot instead of waiting for the rebuild
+     */
+    public long getStaleSnapshotsServed() {
+        return staleSnapshotsServed.get();
+    }
+
+    /**
+     * @return number of requests which found the snapshot older than the maximum staleness of the scheduled refresh
+     */
+    public long getStalenessExceeded() {
+        return stalenessExceeded.get();
+    }
+
+    /**
+     * @return number of versions of the users and groups files rejected because they failed to parse
+     */
+    public long getRejectedVersions() {
+        return rejectedVersions.get();
+    }
+
+    void rebuilt() {
+        rebuilds.incrementAndGet();
+    }
+
+    void rebuildFailed() {
+        failedRebuilds.incrementAndGet();
+    }
+
+    void rebuildCoalesced() {
+        coalescedRebuilds.incrementAndGet();
+    }
+
+    void staleSnapshotServed() {
+        staleSnapshotsServed.incrementAndGet();
+    }
+
+    void stalenessExceeded() {
+        stalenessExceeded.incrementAndGet();
+    }
+
+    void versionRejected() {
+        rejectedVersions.incrementAndGet();
+    }
+}
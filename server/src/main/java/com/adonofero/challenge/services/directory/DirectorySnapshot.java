@@ -0,0 +1,349 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.ResultPage;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.users.UserStore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, consistent view of the users and groups on the system along with the precomputed join between them.
+ * <p>
+ * A snapshot is only ever replaced as a whole, so everything read through one instance comes from the same versions
+ * of the users and groups files.
+ * <p>
+ * DESIGN NOTE:
+ * The tags, id filters and counts derived from each store are computed in a single pass over it. A reload replacing
+ * only one of the files carries over those of the other store, except for the sizes of the groups, which depend on
+ * the users as well and are recounted from the join in a pass over the groups. The JSON of each entity is rendered in
+ * the same pass when the directory is configured with {@link RenderMode#PRERENDERED}.
+ * <p>
+ * The pass reads single fields and tags through the stores rather than materializing each entity, so an off-heap
+ * store computes them in place, and the tags are then held in direct memory next to the store. Only the counts, which
+ * grow with the number of distinct values rather than of entities, and the id filters stay on the heap.
+ *
+ * @author Alexander Donofero
+ */
+public class DirectorySnapshot {
+
+    /**
+     * Snapshot published before either file has been read.
+     */
+    static final DirectorySnapshot EMPTY = new DirectorySnapshot(null, null, null, null, null, false, false);
+
+    private final long version;
+    private final long usersVersion;
+    private final long groupsVersion;
+    private final FileFingerprint usersFingerprint;
+    private final UserStore users;
+    private final FileFingerprint groupsFingerprint;
+    private final GroupStore groups;
+    private final MembershipIndex memberships;
+    private final GroupMembersIndex groupMembers;
+    private final IdFilter uids;
+    private final IdFilter gids;
+    private final LongBuffer userTags;
+    private final LongBuffer groupTags;
+    private final Buckets usersByShell;
+    private final Buckets usersByGid;
+    private final Buckets usersByHome;
+    private final Buckets groupSizes;
+    private final JsonRecords userJson;
+    private final JsonRecords groupJson;
+
+    /**
+     * @param previous  snapshot replaced by this one, or null for the first snapshot
+     * @param prerender whether the JSON of every user and group is rendered with the snapshot
+     */
+    DirectorySnapshot(DirectorySnapshot previous, FileFingerprint usersFingerprint, UserStore users, FileFingerprint groupsFingerprint, GroupStore groups,
+                      boolean offHeap, boolean prerender) {
+        this.version = previous == null ? 0 : previous.version + 1;
+        this.usersVersion = previous != null && previous.users == users ? previous.usersVersion : version;
+        this.groupsVersion = previous != null && previous.groups == groups ? previous.groupsVersion : version;
+        this.usersFingerprint = usersFingerprint;
+        this.users = users;
+        this.groupsFingerprint = groupsFingerprint;
+        this.groups = groups;
+        this.memberships = users == null || groups == null ? null : MembershipIndex.build(users, groups, offHeap);
+        this.groupMembers = users == null || groups == null ? null : GroupMembersIndex.build(users, groups, offHeap);
+        if (previous != null && previous.users == users) {
+            this.userTags = previous.userTags;
+            this.uids = previous.uids;
+            this.usersByShell = previous.usersByShell;
+            this.usersByGid = previous.usersByGid;
+            this.usersByHome = previous.usersByHome;
+            this.userJson = previous.userJson;
+        } else {
+            this.userTags = allocateTags(users == null ? 0 : users.size(), offHeap);
+            Buckets.Counter shells = new Buckets.Counter();
+            Buckets.Counter primaryGids = new Buckets.Counter();
+            Buckets.Counter homes = new Buckets.Counter();
+            JsonRecords.Writer userWriter = users == null || !prerender ? null : new JsonRecords.Writer(users.size());
+            this.uids = users == null ? IdFilter.EMPTY : indexUsers(users, userTags, shells, primaryGids, homes, userWriter);
+            this.usersByShell = shells.build();
+            this.usersByGid = primaryGids.build();
+            this.usersByHome = homes.build();
+            this.userJson = userWriter == null ? null : userWriter.build();
+        }
+        this.groupTags = allocateTags(groups == null ? 0 : groups.size(), offHeap);
+        Buckets.Counter sizes = new Buckets.Counter();
+        JsonRecords.Writer groupWriter = groups == null || !prerender ? null : new JsonRecords.Writer(groups.size());
+        this.gids = groups == null ? IdFilter.EMPTY : indexGroups(groups, groupTags, groupMembers, sizes, groupWriter);
+        this.groupSizes = sizes.build();
+        this.groupJson = groupWriter == null ? null : groupWriter.build();
+    }
+
+    /**
+     * Compute the tag of every user, build the uid filter, count the users per shell, primary gid and parent of
+     * their home directory and, when given a writer, render their JSON in a single pass over the users.
+     */
+    private static IdFilter indexUsers(UserStore users, LongBuffer tags, Buckets.Counter shells, Buckets.Counter primaryGids, Buckets.Counter homes,
+                                       JsonRecords.Writer json) {
+        int[] uids = new int[users.size()];
+        for (int row = 0; row < uids.length; row++) {
+            uids[row] = users.getUid(row);
+            tags.put(row, users.getTag(row));
+            shells.add(users.getShell(row), 1);
+            primaryGids.add(Integer.toString(users.getGid(row)), 1);
+            homes.add(parentOf(users.getHome(row)), 1);
+            if (json != null) {
+                json.add(users.getUser(row));
+            }
+        }
+        return IdFilter.of(uids);
+    }
+
+    /**
+     * Compute the tag of every group, build the gid filter, count the users belonging to each group when joined with
+     * the users and render their JSON when given a writer, in a single pass over the groups.
+     */
+    private static IdFilter indexGroups(GroupStore groups, LongBuffer tags, GroupMembersIndex groupMembers, Buckets.Counter sizes,
+                                        JsonRecords.Writer json) {
+        int[] gids = new int[groups.size()];
+        for (int row = 0; row < gids.length; row++) {
+            int gid = groups.getGid(row);
+            gids[row] = gid;
+            tags.put(row, groups.getTag(row));
+            // Groups sharing a gid share their users, so only the first of them is counted
+            if (groupMembers != null && groups.findRowByGid(gid) == row) {
+                sizes.add(Integer.toString(gid), groupMembers.count(gid));
+            }
+            if (json != null) {
+                json.add(groups.getGroup(row));
+            }
+        }
+        return IdFilter.of(gids);
+    }
+
+    private static LongBuffer allocateTags(int capacity, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer() : LongBuffer.allocate(capacity);
+    }
+
+    /**
+     * @return directory holding a home directory, e.g. /home for /home/alice, as home directories themselves are
+     * mostly unique
+     */
+    private static String parentOf(String home) {
+        int slash = home.lastIndexOf('/');
+        return slash > 0 ? home.substring(0, slash) : slash == 0 ? "/" : home;
+    }
+
+    /**
+     * @return version of this snapshot, increasing by one each time a new snapshot is published
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return version of the snapshot which introduced the users of this snapshot
+     */
+    public long getUsersVersion() {
+        return usersVersion;
+    }
+
+    /**
+     * @return version of the snapshot which introduced the groups of this snapshot
+     */
+    public long getGroupsVersion() {
+        return groupsVersion;
+    }
+
+    FileFingerprint getUsersFingerprint() {
+        return usersFingerprint;
+    }
+
+    FileFingerprint getGroupsFingerprint() {
+        return groupsFingerprint;
+    }
+
+    /**
+     * @param needUsers  whether users are required
+     * @param needGroups whether groups are required
+     * @return whether this snapshot holds everything required
+     */
+    boolean holds(boolean needUsers, boolean needGroups) {
+        return (!needUsers || users != null) && (!needGroups || groups != null);
+    }
+
+    /**
+     * @return users of this snapshot
+     */
+    public UserStore getUsers() {
+        return users;
+    }
+
+    /**
+     * @return groups of this snapshot
+     */
+    public GroupStore getGroups() {
+        return groups;
+    }
+
+    /**
+     * Check a uid against a filter built with the snapshot, so that lookups of unknown uids are answered without
+     * searching the users.
+     *
+     * @param uid id of a user
+     * @return false if no user of this snapshot has the uid, true if one may have it
+     */
+    public boolean mightHaveUid(int uid) {
+        return uids.mightContain(uid);
+    }
+
+    /**
+     * Check a gid against a filter built with the snapshot, so that lookups of unknown gids are answered without
+     * searching the groups.
+     *
+     * @param gid id of a group
+     * @return false if no group of this snapshot has the gid, true if one may have it
+     */
+    public boolean mightHaveGroupGid(int gid) {
+        return gids.mightContain(gid);
+    }
+
+    /**
+     * @param row row of a user in {@link #getUsers()}
+     * @return ETag of the user, changing whenever any of its fields does
+     */
+    public String getUserTag(int row) {
+        return EntityTags.format(userTags.get(row));
+    }
+
+    /**
+     * @param row row of a group in {@link #getGroups()}
+     * @return ETag of the group, changing whenever any of its fields does
+     */
+    public String getGroupTag(int row) {
+        return EntityTags.format(groupTags.get(row));
+    }
+
+    /**
+     * @return JSON of every user rendered with the snapshot, by row of {@link #getUsers()}, or null unless the
+     * directory renders with {@link RenderMode#PRERENDERED}
+     */
+    public JsonRecords getUserJson() {
+        return userJson;
+    }
+
+    /**
+     * @return JSON of every group rendered with the snapshot, by row of {@link #getGroups()}, or null unless the
+     * directory renders with {@link RenderMode#PRERENDERED}
+     */
+    public JsonRecords getGroupJson() {
+        return groupJson;
+    }
+
+    /**
+     * @return number of users per shell
+     */
+    public Buckets getUsersByShell() {
+        return usersByShell;
+    }
+
+    /**
+     * @return number of users per primary gid
+     */
+    public Buckets getUsersByGid() {
+        return usersByGid;
+    }
+
+    /**
+     * @return number of users per directory holding their home directory, e.g. /home for /home/alice
+     */
+    public Buckets getUsersByHome() {
+        return usersByHome;
+    }
+
+    /**
+     * @return number of users belonging to each gid of the groups, counted once per gid as {@link #getUsersOfGroup}
+     * does; empty unless the snapshot holds both users and groups
+     */
+    public Buckets getGroupSizes() {
+        return groupSizes;
+    }
+
+    /**
+     * Retrieve the groups listing a user as a member from the precomputed join.
+     *
+     * @param userRow row of the user in {@link #getUsers()}
+     * @return {@link Group}s listing the user as a member, in groups file order
+     */
+    public List<Group> getGroupsOfUser(int userRow) {
+        // Users sharing a name were joined through the first of them
+        int nameRow = users.findRowByName(users.getUser(userRow).getName());
+        int[] groupRows = memberships.groupRowsOf(nameRow);
+        List<Group> groupsOfUser = new ArrayList<>(groupRows.length);
+        for (int groupRow : groupRows) {
+            groupsOfUser.add(groups.getGroup(groupRow));
+        }
+        return groupsOfUser;
+    }
+
+    /**
+     * @param gid id of a group
+     * @return whether any user or group of this snapshot has the gid
+     */
+    public boolean hasGid(int gid) {
+        return groupMembers.contains(gid);
+    }
+
+    /**
+     * Retrieve a page of the users belonging to a gid from the precomputed join: users whose primary gid it is and
+     * users listed as members of a group with that gid.
+     *
+     * @param gid    id of a group
+     * @param offset number of users to skip
+     * @param limit  maximum number of users to return
+     * @return page of {@link User}s belonging to the gid, in users file order
+     */
+    public ResultPage<User> getUsersOfGroup(int gid, int offset, int limit) {
+        int[] userRows = groupMembers.userRowsOf(gid, offset, limit);
+        List<User> usersOfGroup = new ArrayList<>(userRows.length);
+        for (int userRow : userRows) {
+            usersOfGroup.add(users.getUser(userRow));
+        }
+        return new ResultPage<>(usersOfGroup, groupMembers.count(gid));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+
+/**
+ * Entity tags of users and groups, hashed from every field rendered to clients.
+ * <p>
+ * DESIGN NOTE:
+ * Tags only depend on the content of an entity, not on the version of the snapshot, so a user left untouched by a
+ * rewrite of the users file keeps its tag and clients revalidating it keep getting a 304. They are 64-bit FNV-1a
+ * hashes, which are cheap enough to compute for every entity whenever a snapshot is built and collide too rarely to
+ * matter for a cache validator.
+ * <p>
+ * Off-heap stores hash their strings straight from the UTF-8 held in the arena, decoding it to the same chars a
+ * materialized entity would hold, so a tag never depends on how the entity is stored.
+ *
+ * @author Alexander Donofero
+ */
+public final class EntityTags {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Separates fields, so that moving characters from one field to the next changes the tag.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    private EntityTags() {
+    }
+
+    public static long of(User user) {
+        long hash = start();
+        hash = mix(hash, user.getName());
+        hash = mix(hash, user.getUid());
+        hash = mix(hash, user.getGid());
+        hash = mix(hash, user.getComment());
+        hash = mix(hash, user.getHome());
+        return mix(hash, user.getShell());
+    }
+
+    public static long of(Group group) {
+        long hash = start();
+        hash = mix(hash, group.getName());
+        hash = mix(hash, group.getGid());
+        for (String member : group.getMembers()) {
+            hash = mix(hash, member);
+        }
+        return hash;
+    }
+
+    /**
+     * @param tag tag of an entity
+     * @return the tag as a strong ETag header value
+     */
+    static String format(long tag) {
+        return "\"" + Long.toHexString(tag) + "\"";
+    }
+
+    /**
+     * @return hash of an entity before any of its fields has been mixed in
+     */
+    public static long start() {
+        return FNV_OFFSET_BASIS;
+    }
+
+    /**
+     * Mix a string field into the hash of an entity.
+     */
+    public static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return (hash ^ SEPARATOR) * FNV_PRIME;
+    }
+
+    /**
+     * Mix a string field stored in an {@link OffHeapArena} into the hash of an entity, as {@link #mix(long, String)}
+     * would once the string is decoded.
+     */
+    public static long mix(long hash, OffHeapArena arena, long address) {
+        long next = address + 4;
+        long end = next + arena.getInt(address);
+        while (next < end) {
+            int b = arena.getByte(next++);
+            int codePoint;
+            if (b >= 0) {
+                codePoint = b;
+            } else if ((b & 0xe0) == 0xc0) {
+                codePoint = (b & 0x1f) << 6 | arena.getByte(next++) & 0x3f;
+            } else if ((b & 0xf0) == 0xe0) {
+                codePoint = (b & 0x0f) << 12 | (arena.getByte(next++) & 0x3f) << 6 | arena.getByte(next++) & 0x3f;
+            } else {
+                codePoint = (b & 0x07) << 18 | (arena.getByte(next++) & 0x3f) << 12 | (arena.getByte(next++) & 0x3f) << 6 | arena.getByte(next++) & 0x3f;
+            }
+            // Strings are encoded from Java strings, so the bytes are well-formed and supplementary code points were a
+            // surrogate pair
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                hash = (hash ^ Character.highSurrogate(codePoint)) * FNV_PRIME;
+                hash = (hash ^ Character.lowSurrogate(codePoint)) * FNV_PRIME;
+            } else {
+                hash = (hash ^ codePoint) * FNV_PRIME;
+            }
+        }
+        return (hash ^ SEPARATOR) * FNV_PRIME;
+    }
+
+    /**
+     * Mix an int field into the hash of an entity.
+     */
+    public static long mix(long hash, int value) {
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
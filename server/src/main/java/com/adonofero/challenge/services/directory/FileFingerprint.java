@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Cheap identity of a version of a file, taken from its metadata rather than its content.
+ * <p>
+ * DESIGN NOTE:
+ * The modification time alone is not enough as tools (and our tests) commonly copy a file while preserving its
+ * timestamp. The status change time (ctime) is updated by every write and cannot be set by user space, so it is
+ * included whenever the platform exposes it alongside the size and the file key (device and inode on UNIX).
+ *
+ * @author Alexander Donofero
+ */
+public final class FileFingerprint {
+
+    private final long size;
+    private final long lastModified;
+    private final Object changeTime;
+    private final Object fileKey;
+
+    private FileFingerprint(long size, long lastModified, Object changeTime, Object fileKey) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.changeTime = changeTime;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Take the fingerprint of the current version of a file.
+     *
+     * @param file file to fingerprint
+     * @return fingerprint of the file
+     * @throws IOException if the attributes of the file cannot be read
+     */
+    public static FileFingerprint of(File file) throws IOException {
+        Path path = file.toPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Object changeTime;
+        try {
+            changeTime = Files.getAttribute(path, "unix:ctime");
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            changeTime = null;
+        }
+        return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), changeTime, attributes.fileKey());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileFingerprint that = (FileFingerprint) o;
+        return size == that.size &&
+                lastModified == that.lastModified &&
+                Objects.equals(changeTime, that.changeTime) &&
+                Objects.equals(fileKey, that.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, changeTime, fileKey);
+    }
+
+    @Override
+    public String toString() {
+        return "FileFingerprint{" +
+                "size=" + size +
+                ", lastModified=" + lastModified +
+                ", changeTime=" + changeTime +
+                ", fileKey=" + fileKey +
+                '}';
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.users.UserStore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Precomputed join from each gid to every user belonging to it: users whose primary gid it is, and users named as
+ * members of a group with that gid.
+ * <p>
+ * Stored in compressed sparse row form over the sorted distinct gids: the user rows of the i-th gid are found at
+ * positions [offsets[i], offsets[i + 1]) of a single array of user rows, deduplicated and in users file order.
+ * All arrays are held in direct memory when the snapshot is stored off-heap.
+ *
+ * @author Alexander Donofero
+ */
+public class GroupMembersIndex {
+
+    private final IntBuffer gids;
+    private final IntBuffer offsets;
+    private final IntBuffer userRows;
+
+    private GroupMembersIndex(IntBuffer gids, IntBuffer offsets, IntBuffer userRows) {
+        this.gids = gids;
+        this.offsets = offsets;
+        this.userRows = userRows;
+    }
+
+    /**
+     * Join users and groups on gid.
+     *
+     * @param users   users of the snapshot
+     * @param groups  groups of the snapshot
+     * @param offHeap whether the index should be held in direct memory
+     * @return index from gids to user rows
+     */
+    public static GroupMembersIndex build(UserStore users, GroupStore groups, boolean offHeap) {
+        // Collect (gid, user row) pairs packed into longs so a single sort groups them by gid and orders rows within a gid
+        LongArrayBuilder pairs = new LongArrayBuilder();
+        for (int userRow = 0; userRow < users.size(); userRow++) {
+            pairs.add(pack(users.getUser(userRow).getGid(), userRow));
+        }
+        for (int groupRow = 0; groupRow < groups.size(); groupRow++) {
+            Group group = groups.getGroup(groupRow);
+            int gid = group.getGid();
+            // Groups without users still have an (empty) entry
+            pairs.add(pack(gid, -1));
+            for (String member : group.getMembers()) {
+                int userRow = users.findRowByName(member);
+                if (userRow != UserStore.NO_ROW) {
+                    pairs.add(pack(gid, userRow));
+                }
+            }
+        }
+        long[] sortedPairs = pairs.toArray();
+        Arrays.sort(sortedPairs);
+        IntArrayBuilder distinctGids = new IntArrayBuilder();
+        IntArrayBuilder rowOffsets = new IntArrayBuilder();
+        IntArrayBuilder rows = new IntArrayBuilder();
+        for (int i = 0; i < sortedPairs.length; i++) {
+            int gid = (int) (sortedPairs[i] >> 32);
+            int userRow = (int) sortedPairs[i];
+            if (i == 0 || gid != (int) (sortedPairs[i - 1] >> 32)) {
+                distinctGids.add(gid);
+                rowOffsets.add(rows.size());
+            }
+            if (userRow >= 0 && (i == 0 || sortedPairs[i] != sortedPairs[i - 1])) {
+                rows.add(userRow);
+            }
+        }
+        rowOffsets.add(rows.size());
+        return new GroupMembersIndex(copy(distinctGids, offHeap), copy(rowOffsets, offHeap), copy(rows, offHeap));
+    }
+
+    /**
+     * @param gid id of a group
+     * @return whether any user or group has the gid
+     */
+    public boolean contains(int gid) {
+        return indexOf(gid) >= 0;
+    }
+
+    /**
+     * @param gid id of a group
+     * @return number of users belonging to the gid
+     */
+    public int count(int gid) {
+        int index = indexOf(gid);
+        return index < 0 ? 0 : offsets.get(index + 1) - offsets.get(index);
+    }
+
+    /**
+     * Retrieve a page of the users belonging to a gid.
+     *
+     * @param gid    id of a group
+     * @param offset number of users to skip
+     * @param limit  maximum number of users to return
+     * @return rows of the users belonging to the gid, in users file order
+     */
+    public int[] userRowsOf(int gid, int offset, int limit) {
+        int index = indexOf(gid);
+        if (index < 0) {
+            return new int[0];
+        }
+        int from = (int) Math.min((long) offsets.get(index) + offset, offsets.get(index + 1));
+        int to = (int) Math.min((long) from + limit, offsets.get(index + 1));
+        int[] page = new int[to - from];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = userRows.get(from + i);
+        }
+        return page;
+    }
+
+    private int indexOf(int gid) {
+        int low = 0;
+        int high = gids.capacity() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midGid = gids.get(mid);
+            if (midGid < gid) {
+                low = mid + 1;
+            } else if (midGid > gid) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static long pack(int gid, int userRow) {
+        return ((long) gid << 32) | (userRow & 0xFFFFFFFFL);
+    }
+
+    private static IntBuffer copy(IntArrayBuilder values, boolean offHeap) {
+        IntBuffer buffer = offHeap ? ByteBuffer.allocateDirect(values.size() * 4).order(ByteOrder.nativeOrder()).asIntBuffer() : IntBuffer.allocate(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            buffer.put(i, values.get(i));
+        }
+        return buffer;
+    }
+}
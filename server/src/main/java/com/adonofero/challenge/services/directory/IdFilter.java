@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+/**
+ * Set of ids answering whether an id might be present, used to turn away lookups of unknown ids before they reach
+ * the indexes of a store.
+ * <p>
+ * DESIGN NOTE:
+ * Ids on most systems are clustered in a few ranges, so when the ids span a range of at most 64 ids per id present, a
+ * bitmap over that range answers exactly in a handful of bytes per id. Otherwise, e.g. a few local users next to ids
+ * handed out by a directory service in the millions, a bloom filter of 16 bits and 3 probes per id keeps the space
+ * bounded at the cost of letting through about one in two hundred unknown ids, which the store then turns away.
+ *
+ * @author Alexander Donofero
+ */
+final class IdFilter {
+
+    private static final long BITS_PER_ID_DENSE = 64;
+    private static final int BITS_PER_ID_BLOOM = 16;
+    private static final int BLOOM_PROBES = 3;
+
+    /**
+     * Filter rejecting every id.
+     */
+    static final IdFilter EMPTY = new IdFilter(false, 0, 0, new long[1]);
+
+    private final boolean dense;
+    private final int min;
+    private final int mask;
+    private final long[] bits;
+
+    private IdFilter(boolean dense, int min, int mask, long[] bits) {
+        this.dense = dense;
+        this.min = min;
+        this.mask = mask;
+        this.bits = bits;
+    }
+
+    /**
+     * @param ids ids present, in any order and possibly repeated
+     * @return filter answering {@link #mightContain(int)} for the ids
+     */
+    static IdFilter of(int[] ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int id : ids) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        long range = (long) max - min + 1;
+        if (range <= Math.max(BITS_PER_ID_DENSE * ids.length, 1 << 16)) {
+            long[] bits = new long[(int) ((range + 63) >>> 6)];
+            for (int id : ids) {
+                int offset = id - min;
+                bits[offset >>> 6] |= 1L << offset;
+            }
+            return new IdFilter(true, min, 0, bits);
+        }
+        // Power of two size so probes are masked rather than divided
+        int size = Integer.highestOneBit(Math.max(64, ids.length * BITS_PER_ID_BLOOM - 1)) << 1;
+        long[] bits = new long[size >>> 6];
+        for (int id : ids) {
+            long hash = mix(id);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int probe = 0; probe < BLOOM_PROBES; probe++) {
+                int bit = (h1 + probe * h2) & (size - 1);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new IdFilter(false, 0, size - 1, bits);
+    }
+
+    /**
+     * @param id id to check
+     * @return false if the id is certainly absent, true if it may be present
+     */
+    boolean mightContain(int id) {
+        if (dense) {
+            long offset = (long) id - min;
+            return offset >= 0 && offset < ((long) bits.length << 6) && (bits[(int) (offset >>> 6)] & (1L << offset)) != 0;
+        }
+        if (mask == 0) {
+            return false;
+        }
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int probe = 0; probe < BLOOM_PROBES; probe++) {
+            int bit = (h1 + probe * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading consecutive ids over the whole 64 bits.
+     */
+    private static long mix(int id) {
+        long hash = id;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
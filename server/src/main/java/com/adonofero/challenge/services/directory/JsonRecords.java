@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.RenderedJson;
+import com.adonofero.challenge.entity.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JSON of every user or group of a store, rendered once when a snapshot is built.
+ * <p>
+ * DESIGN NOTE:
+ * Records are rendered byte for byte as Jackson serializes the entities: fields in declaration order, no whitespace,
+ * the same escapes, including those of surrogates, and UTF-8 output. They are held back to back in a single buffer,
+ * separated by commas, so that a lookup is a slice of the buffer and the full list is the whole buffer between
+ * brackets. Records are rendered by hand rather than with an ObjectMapper as a rebuild renders every entity, not only
+ * the few a request touches.
+ *
+ * @author Alexander Donofero
+ */
+public final class JsonRecords {
+
+    /**
+     * Escape of each ASCII character: 0 when written as is, the character following the backslash for the short
+     * escapes, or -1 for a unicode escape.
+     */
+    private static final int[] ESCAPES = new int[128];
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        Arrays.fill(ESCAPES, 0, 32, -1);
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private final byte[] bytes;
+    private final int[] ends;
+
+    private JsonRecords(byte[] bytes, int[] ends) {
+        this.bytes = bytes;
+        this.ends = ends;
+    }
+
+    /**
+     * @return number of records
+     */
+    public int size() {
+        return ends.length;
+    }
+
+    /**
+     * @param row row of the entity in its store
+     * @return JSON of the entity
+     */
+    public RenderedJson get(int row) {
+        int start = row == 0 ? 0 : ends[row - 1] + 1;
+        return new RenderedJson(bytes, start, ends[row] - start, false);
+    }
+
+    /**
+     * @return JSON array of every entity, in store order
+     */
+    public RenderedJson getAll() {
+        return new RenderedJson(bytes, 0, bytes.length, true);
+    }
+
+    /**
+     * Renders the entities of a store in row order.
+     */
+    static final class Writer {
+        private byte[] buffer;
+        private int position;
+        private final int[] ends;
+        private int rows;
+
+        /**
+         * @param size number of entities to be rendered
+         */
+        Writer(int size) {
+            // Users typically render to about 110 bytes, so most users files are rendered without growing the buffer
+            this.buffer = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16L, size * 128L))];
+            this.ends = new int[size];
+        }
+
+        void add(User user) {
+            separate();
+            ascii("{\"name\":");
+            string(user.getName());
+            ascii(",\"uid\":");
+            number(user.getUid());
+            ascii(",\"gid\":");
+            number(user.getGid());
+            ascii(",\"comment\":");
+            string(user.getComment());
+            ascii(",\"home\":");
+            string(user.getHome());
+            ascii(",\"shell\":");
+            string(user.getShell());
+            put('}');
+            ends[rows++] = position;
+        }
+
+        void add(Group group) {
+            separate();
+            ascii("{\"name\":");
+            string(group.getName());
+            ascii(",\"gid\":");
+            number(group.getGid());
+            ascii(",\"members\":");
+            String[] members = group.getMembers();
+            if (members == null) {
+                ascii("null");
+            } else {
+                put('[');
+                for (int i = 0; i < members.length; i++) {
+                    if (i > 0) {
+                        put(',');
+                    }
+                    string(members[i]);
+                }
+                put(']');
+            }
+            put('}');
+            ends[rows++] = position;
+        }
+
+        JsonRecords build() {
+            return new JsonRecords(Arrays.copyOf(buffer, position), ends);
+        }
+
+        private void separate() {
+            if (rows > 0) {
+                put(',');
+            }
+        }
+
+        private void string(String value) {
+            if (value == null) {
+                ascii("null");
+                return;
+            }
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    int escape = ESCAPES[c];
+                    if (escape == 0) {
+                        put(c);
+                    } else if (escape > 0) {
+                        put('\\');
+                        put(escape);
+                    } else {
+                        unicodeEscape(c);
+                    }
+                } else if (c < 0x800) {
+                    put(0xc0 | (c >> 6));
+                    put(0x80 | (c & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Jackson escapes surrogates, whether paired or not, rather than encoding the code point
+                    unicodeEscape(c);
+                } else {
+                    put(0xe0 | (c >> 12));
+                    put(0x80 | ((c >> 6) & 0x3f));
+                    put(0x80 | (c & 0x3f));
+                }
+            }
+            put('"');
+        }
+
+        private void unicodeEscape(char c) {
+            ascii("\\u");
+            put(HEX_DIGITS[c >> 12]);
+            put(HEX_DIGITS[(c >> 8) & 0xf]);
+            put(HEX_DIGITS[(c >> 4) & 0xf]);
+            put(HEX_DIGITS[c & 0xf]);
+        }
+
+        private void number(int value) {
+            ascii(Integer.toString(value));
+        }
+
+        private void ascii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                put(value.charAt(i));
+            }
+        }
+
+        private void put(int b) {
+            if (position == buffer.length) {
+                if (buffer.length == Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Rendered records exceed the maximum size of a buffer");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L));
+            }
+            buffer[position++] = (byte) b;
+        }
+    }
+}
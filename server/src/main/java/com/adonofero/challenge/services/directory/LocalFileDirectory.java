@@ -0,0 +1,772 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.exceptions.service.StaleDataException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.users.UserStore;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Source of {@link DirectorySnapshot}s read from a local users file and a local groups file.
+ * <p>
+ * DESIGN NOTE:
+ * Each file is parsed into a store which is kept until the {@link FileFingerprint} of the file changes. Every request
+ * still checks the file metadata, so edits are picked up on the next request while unchanged files are served
+ * without being read again. When either file changes, a new snapshot holding both stores and their join is built and
+ * published atomically.
+ * <p>
+ * Rebuilds are single-flight: at most one runs at a time, and requests finding a rebuild of the file versions they
+ * observed already running join it instead of parsing the same files again. Those requests either wait for its result
+ * or, when configured to serve stale data, are answered from the previous snapshot straight away. Without this, every
+ * request arriving while a large file is being parsed would start its own parse of it.
+ * <p>
+ * In {@link RefreshMode#SCHEDULED} the files are checked by a background thread instead, keeping both the file
+ * metadata checks and the rebuilds off the request path. Requests are served the last good snapshot until it has not
+ * been validated against the files for longer than the maximum staleness; the {@link StalePolicy} then decides whether
+ * they check the files themselves or are refused.
+ * <p>
+ * A version of a file which fails to parse is remembered by its fingerprint and never parsed again, so a bad write
+ * costs one parse rather than one per request until it is fixed. The {@link ParseMode} decides whether requests then
+ * fail, keep being served the last version which parsed, or whether malformed lines are dropped instead.
+ * <p>
+ * The users and groups files fail independently: a missing or malformed groups file does not prevent users from
+ * being served and vice versa. Only requests that need both, such as the groups of a user, require both files.
+ * <p>
+ * A directory can {@link #follow} another instance of the service instead of reading local files. Snapshots are then
+ * loaded from the binary frames of its {@link SnapshotPublisher}, with the same background thread, staleness bound
+ * and {@link StalePolicy} as {@link RefreshMode#SCHEDULED}, and published to the listeners like any other snapshot.
+ *
+ * @author Alexander Donofero
+ */
+public class LocalFileDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileDirectory.class);
+
+    private final File usersFile;
+    private final File groupsFile;
+    private final StorageMode storageMode;
+    private final RenderMode renderMode;
+
+    private final boolean serveStale;
+    private final ParseMode parseMode;
+
+    /**
+     * Identifies this instance to followers and to clients asking for changes, as versions start over with every
+     * instance and are only meaningful within one epoch.
+     */
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+
+    private final AtomicReference<DirectorySnapshot> snapshot = new AtomicReference<>(DirectorySnapshot.EMPTY);
+    private final AtomicReference<Rebuild> inFlight = new AtomicReference<>();
+    private final DirectoryMetrics metrics = new DirectoryMetrics();
+    private final List<SnapshotListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Background refresh, only set in {@link RefreshMode#SCHEDULED}.
+     */
+    private volatile ScheduledExecutorService scheduler;
+    private long maxStalenessNanos;
+    private StalePolicy stalePolicy;
+
+    /**
+     * Instance followed instead of the local files, only set by {@link #follow}.
+     */
+    private volatile PeerSnapshotSource peer;
+    private final Object pullLock = new Object();
+    private volatile long pulls;
+
+    /**
+     * {@link System#nanoTime()} at which each file was last found to match the published snapshot.
+     */
+    private volatile long usersValidatedAt;
+    private volatile long groupsValidatedAt;
+
+    /**
+     * Malformed lines dropped from the versions of the files in the published snapshot.
+     */
+    private volatile ParseReport usersReport = ParseReport.CLEAN;
+    private volatile ParseReport groupsReport = ParseReport.CLEAN;
+
+    /**
+     * Last version of each file which failed to parse, until a later version parses.
+     */
+    private volatile Rejection usersRejection;
+    private volatile Rejection groupsRejection;
+
+    /**
+     * Delimiter for fields in the 'user file' and 'group file'.
+     * <p>
+     * Currently I can expect ':' to be the delimiter for any 'user file'. If I am required to support additional
+     * delimiters in the future, I can make this configurable.
+     */
+    private final String fieldDelimiter = ":";
+
+    /**
+     * @param usersFile   local file holding the users in /etc/passwd format
+     * @param groupsFile  local file holding the groups in /etc/group format
+     * @param storageMode storage engine used to hold each parsed version of the files
+     */
+    public LocalFileDirectory(File usersFile, File groupsFile, StorageMode storageMode) {
+        this(usersFile, groupsFile, storageMode, false, ParseMode.FAIL);
+    }
+
+    /**
+     * @param usersFile   local file holding the users in /etc/passwd format
+     * @param groupsFile  local file holding the groups in /etc/group format
+     * @param storageMode storage engine used to hold each parsed version of the files
+     * @param serveStale  whether requests arriving while a rebuild is running are served the previous snapshot
+     *                    instead of waiting for the rebuild, whenever the previous snapshot holds what they need
+     * @param parseMode   how versions of the files containing malformed lines are handled
+     */
+    public LocalFileDirectory(File usersFile, File groupsFile, StorageMode storageMode, boolean serveStale, ParseMode parseMode) {
+        this(usersFile, groupsFile, storageMode, serveStale, parseMode, RenderMode.JACKSON);
+    }
+
+    /**
+     * @param usersFile   local file holding the users in /etc/passwd format
+     * @param groupsFile  local file holding the groups in /etc/group format
+     * @param storageMode storage engine used to hold each parsed version of the files
+     * @param serveStale  whether requests arriving while a rebuild is running are served the previous snapshot
+     *                    instead of waiting for the rebuild, whenever the previous snapshot holds what they need
+     * @param parseMode   how versions of the files containing malformed lines are handled
+     * @param renderMode  whether the JSON of every user and group is rendered with each snapshot
+     */
+    public LocalFileDirectory(File usersFile, File groupsFile, StorageMode storageMode, boolean serveStale, ParseMode parseMode, RenderMode renderMode) {
+        this.usersFile = usersFile;
+        this.groupsFile = groupsFile;
+        this.storageMode = storageMode;
+        this.serveStale = serveStale;
+        this.parseMode = parseMode;
+        this.renderMode = renderMode;
+    }
+
+    /**
+     * @return how users and groups are rendered to JSON
+     */
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * @return counters describing how the snapshot has been kept up to date
+     */
+    public DirectoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param listener callback notified of every snapshot published from now on
+     */
+    public void addListener(SnapshotListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return random identifier of this instance, qualifying the versions of its snapshots
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return how versions of the files containing malformed lines are handled
+     */
+    public ParseMode getParseMode() {
+        return parseMode;
+    }
+
+    /**
+     * @return malformed lines dropped from the version of the users file being served
+     */
+    public ParseReport getUsersParseReport() {
+        return usersReport;
+    }
+
+    /**
+     * @return malformed lines dropped from the version of the groups file being served
+     */
+    public ParseReport getGroupsParseReport() {
+        return groupsReport;
+    }
+
+    /**
+     * @return reason the latest version of the users file was rejected, or null if it was accepted
+     */
+    public UpdateFailureException getUsersRejection() {
+        Rejection rejection = usersRejection;
+        return rejection == null ? null : rejection.cause;
+    }
+
+    /**
+     * @return reason the latest version of the groups file was rejected, or null if it was accepted
+     */
+    public UpdateFailureException getGroupsRejection() {
+        Rejection rejection = groupsRejection;
+        return rejection == null ? null : rejection.cause;
+    }
+
+    /**
+     * @return snapshot holding the current users
+     * @throws UpdateFailureException if the current users cannot be retrieved
+     */
+    public DirectorySnapshot getUsersSnapshot() throws UpdateFailureException {
+        return read(true, false);
+    }
+
+    /**
+     * @return snapshot holding the current groups
+     * @throws UpdateFailureException if the current groups cannot be retrieved
+     */
+    public DirectorySnapshot getGroupsSnapshot() throws UpdateFailureException {
+        return read(false, true);
+    }
+
+    /**
+     * @return snapshot holding the current users, the current groups and the join between them
+     * @throws UpdateFailureException if the current users or groups cannot be retrieved
+     */
+    public DirectorySnapshot getSnapshot() throws UpdateFailureException {
+        return read(true, true);
+    }
+
+    /**
+     * Switch to {@link RefreshMode#SCHEDULED}: check the files from a background thread at a fixed interval and serve
+     * requests from the last good snapshot until it exceeds the maximum staleness.
+     *
+     * @param intervalMillis     delay between the end of one background check and the start of the next
+     * @param maxStalenessMillis longest time since the files were last checked for which the snapshot is served as is
+     * @param stalePolicy        what requests do once the snapshot is older than the maximum staleness
+     */
+    public synchronized void scheduleRefresh(long intervalMillis, long maxStalenessMillis, StalePolicy stalePolicy) {
+        schedule(intervalMillis, maxStalenessMillis, stalePolicy);
+        logger.info("Scheduled refresh of local files every {} ms with a maximum staleness of {} ms", intervalMillis, maxStalenessMillis);
+    }
+
+    /**
+     * Follow another instance of the service: load its snapshots from a background thread at a fixed interval instead
+     * of reading the local files, and serve requests from the last snapshot loaded until it exceeds the maximum
+     * staleness.
+     *
+     * @param peer               source of the snapshots of the instance followed
+     * @param intervalMillis     delay between the end of one request to the peer and the start of the next
+     * @param maxStalenessMillis longest time since the peer was last reached for which the snapshot is served as is
+     * @param stalePolicy        what requests do once the snapshot is older than the maximum staleness
+     */
+    public synchronized void follow(PeerSnapshotSource peer, long intervalMillis, long maxStalenessMillis, StalePolicy stalePolicy) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Background refresh of the local files is already scheduled");
+        }
+        this.peer = peer;
+        schedule(intervalMillis, maxStalenessMillis, stalePolicy);
+        logger.info("Following snapshots of {} every {} ms with a maximum staleness of {} ms", peer.getBaseUrl(), intervalMillis, maxStalenessMillis);
+    }
+
+    private void schedule(long intervalMillis, long maxStalenessMillis, StalePolicy stalePolicy) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Background refresh of the local files is already scheduled");
+        }
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        this.stalePolicy = stalePolicy;
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "passwd-directory-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::revalidate, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        // Published last so requests observing the scheduler also observe its settings
+        this.scheduler = executor;
+    }
+
+    /**
+     * Stop the background refresh, if any.
+     */
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private DirectorySnapshot read(boolean needUsers, boolean needGroups) throws UpdateFailureException {
+        if (scheduler == null) {
+            return sync(needUsers, needGroups);
+        }
+        DirectorySnapshot current = snapshot.get();
+        if (!current.holds(needUsers, needGroups)) {
+            // Nothing to serve yet, e.g. a request arriving before the first background check completed
+            return sync(needUsers, needGroups);
+        }
+        long now = System.nanoTime();
+        long staleness = Math.max(needUsers ? now - usersValidatedAt : 0, needGroups ? now - groupsValidatedAt : 0);
+        if (staleness <= maxStalenessNanos) {
+            return current;
+        }
+        metrics.stalenessExceeded();
+        if (stalePolicy == StalePolicy.SYNC) {
+            return sync(needUsers, needGroups);
+        }
+        String message = String.format("Local files were last validated %d ms ago, exceeding the maximum staleness of %d ms",
+                TimeUnit.NANOSECONDS.toMillis(staleness), TimeUnit.NANOSECONDS.toMillis(maxStalenessNanos));
+        throw new StaleDataException(message);
+    }
+
+    private void revalidate() {
+        PeerSnapshotSource source = peer;
+        if (source != null) {
+            try {
+                pull(source, false, false);
+            } catch (UpdateFailureException | RuntimeException ex) {
+                logger.warn("Scheduled pull of the snapshot of {} failed, serving the last snapshot loaded: {}", source.getBaseUrl(), ex.toString());
+            }
+            return;
+        }
+        // Each file is checked on its own so a broken users file does not hold back new groups and vice versa
+        try {
+            refresh(true, false);
+        } catch (UpdateFailureException | RuntimeException ex) {
+            logger.warn("Scheduled refresh of local user file failed, serving the last good users: {}", ex.toString());
+        }
+        try {
+            refresh(false, true);
+        } catch (UpdateFailureException | RuntimeException ex) {
+            logger.warn("Scheduled refresh of local groups file failed, serving the last good groups: {}", ex.toString());
+        }
+    }
+
+    private DirectorySnapshot sync(boolean needUsers, boolean needGroups) throws UpdateFailureException {
+        PeerSnapshotSource source = peer;
+        return source == null ? refresh(needUsers, needGroups) : pull(source, needUsers, needGroups);
+    }
+
+    /**
+     * Load the changes of the instance followed. Pulls are serialized, and a request finding that another pull
+     * completed while it waited for its turn is served that pull's result rather than asking the peer again.
+     */
+    private DirectorySnapshot pull(PeerSnapshotSource source, boolean needUsers, boolean needGroups) throws UpdateFailureException {
+        long pullsSeen = pulls;
+        synchronized (pullLock) {
+            DirectorySnapshot current = snapshot.get();
+            if (pulls != pullsSeen && current.holds(needUsers, needGroups)) {
+                metrics.rebuildCoalesced();
+                return current;
+            }
+            long checkedAt = System.nanoTime();
+            SnapshotCodec.Frame frame;
+            try {
+                frame = source.fetch(current, storageMode);
+            } catch (UpdateFailureException | RuntimeException ex) {
+                metrics.rebuildFailed();
+                throw ex;
+            }
+            if (frame != null) {
+                UserStore users = frame.getUsers() != null ? frame.getUsers() : current.getUsers();
+                GroupStore groups = frame.getGroups() != null ? frame.getGroups() : current.getGroups();
+                DirectorySnapshot next = new DirectorySnapshot(current, null, users, null, groups, storageMode == StorageMode.OFF_HEAP,
+                        renderMode == RenderMode.PRERENDERED);
+                // Only the thread holding the pull lock publishes, and rebuilds from the local files never run
+                snapshot.set(next);
+                source.loaded(frame);
+                metrics.rebuilt();
+                notifyListeners(current, next);
+                logger.debug("Loaded version {} of the snapshot of {} as version {}", frame.getVersion(), source.getBaseUrl(), next.getVersion());
+                current = next;
+            }
+            usersValidatedAt = checkedAt;
+            groupsValidatedAt = checkedAt;
+            pulls++;
+            return current;
+        }
+    }
+
+    private DirectorySnapshot refresh(boolean refreshUsers, boolean refreshGroups) throws UpdateFailureException {
+        while (true) {
+            long checkedAt = System.nanoTime();
+            // Read the rebuild first: a finished rebuild has always published its snapshot before completing
+            Rebuild running = inFlight.get();
+            DirectorySnapshot current = snapshot.get();
+            FileFingerprint usersFingerprint = refreshUsers ? fingerprint(usersFile, "user") : current.getUsersFingerprint();
+            FileFingerprint groupsFingerprint = refreshGroups ? fingerprint(groupsFile, "groups") : current.getGroupsFingerprint();
+            boolean usersChanged = usersChanged(current, refreshUsers, usersFingerprint);
+            boolean groupsChanged = groupsChanged(current, refreshGroups, groupsFingerprint);
+            FileFingerprint usersRequired = refreshUsers ? usersFingerprint : null;
+            FileFingerprint groupsRequired = refreshGroups ? groupsFingerprint : null;
+            if (!usersChanged && !groupsChanged) {
+                validated(current, usersRequired, groupsRequired, checkedAt);
+                return current;
+            }
+            if (running != null && !running.result.isDone()) {
+                if (running.covers(usersRequired, groupsRequired)) {
+                    metrics.rebuildCoalesced();
+                    if (serveStale && current.holds(refreshUsers, refreshGroups)) {
+                        metrics.staleSnapshotServed();
+                        return current;
+                    }
+                    DirectorySnapshot next = await(running);
+                    validated(next, usersRequired, groupsRequired, checkedAt);
+                    return next;
+                }
+                // Another version of the files is being loaded; start over once it has been published
+                awaitQuietly(running);
+                continue;
+            }
+            Rebuild rebuild = new Rebuild(usersFingerprint, groupsFingerprint);
+            if (inFlight.compareAndSet(running, rebuild)) {
+                DirectorySnapshot next = rebuild(rebuild, refreshUsers, refreshGroups);
+                validated(next, usersRequired, groupsRequired, checkedAt);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Record that the files observed by a request match the snapshot it is served. Files held back by a rejection do
+     * not match, so a scheduled refresh still reports them as stale.
+     */
+    private void validated(DirectorySnapshot served, FileFingerprint usersObserved, FileFingerprint groupsObserved, long checkedAt) {
+        if (usersObserved != null && usersObserved.equals(served.getUsersFingerprint())) {
+            usersValidatedAt = checkedAt;
+        }
+        if (groupsObserved != null && groupsObserved.equals(served.getGroupsFingerprint())) {
+            groupsValidatedAt = checkedAt;
+        }
+    }
+
+    private boolean usersChanged(DirectorySnapshot current, boolean refreshUsers, FileFingerprint usersFingerprint) throws UpdateFailureException {
+        return refreshUsers && !usersFingerprint.equals(current.getUsersFingerprint()) && !rejected(usersRejection, usersFingerprint, current.getUsers());
+    }
+
+    private boolean groupsChanged(DirectorySnapshot current, boolean refreshGroups, FileFingerprint groupsFingerprint) throws UpdateFailureException {
+        return refreshGroups && !groupsFingerprint.equals(current.getGroupsFingerprint()) && !rejected(groupsRejection, groupsFingerprint, current.getGroups());
+    }
+
+    /**
+     * Check a changed file against the version of it last rejected, so that a rejected version is never parsed again.
+     *
+     * @param rejection   last rejected version of the file, if any
+     * @param fingerprint version of the file observed
+     * @param lastGood    store parsed from the last accepted version of the file, if any
+     * @return true if the observed version was rejected and the last accepted version is to be served instead
+     * @throws UpdateFailureException if the observed version was rejected and there is nothing to serve instead
+     */
+    private boolean rejected(Rejection rejection, FileFingerprint fingerprint, Object lastGood) throws UpdateFailureException {
+        if (rejection == null || !rejection.fingerprint.equals(fingerprint)) {
+            return false;
+        }
+        if (parseMode == ParseMode.STRICT && lastGood != null) {
+            return true;
+        }
+        throw rejection.cause;
+    }
+
+    private DirectorySnapshot rebuild(Rebuild rebuild, boolean refreshUsers, boolean refreshGroups) throws UpdateFailureException {
+        try {
+            // The rebuild replaced in flight may have published after the caller read the snapshot, so the files are
+            // compared again with the snapshot published now, which nothing else can replace until this one completes
+            DirectorySnapshot current = snapshot.get();
+            boolean usersChanged = usersChanged(current, refreshUsers, rebuild.usersFingerprint);
+            boolean groupsChanged = groupsChanged(current, refreshGroups, rebuild.groupsFingerprint);
+            UserStore users = current.getUsers();
+            FileFingerprint usersFingerprint = current.getUsersFingerprint();
+            ParseReport nextUsersReport = usersReport;
+            if (usersChanged) {
+                ParseReport report = new ParseReport();
+                try {
+                    users = parseUsers(report);
+                    usersFingerprint = rebuild.usersFingerprint;
+                    nextUsersReport = report;
+                    usersRejection = null;
+                } catch (UpdateFailureException ex) {
+                    usersRejection = new Rejection(rebuild.usersFingerprint, ex);
+                    holdBack("user", users, ex);
+                }
+            }
+            GroupStore groups = current.getGroups();
+            FileFingerprint groupsFingerprint = current.getGroupsFingerprint();
+            ParseReport nextGroupsReport = groupsReport;
+            if (groupsChanged) {
+                ParseReport report = new ParseReport();
+                try {
+                    groups = parseGroups(report);
+                    groupsFingerprint = rebuild.groupsFingerprint;
+                    nextGroupsReport = report;
+                    groupsRejection = null;
+                } catch (UpdateFailureException ex) {
+                    groupsRejection = new Rejection(rebuild.groupsFingerprint, ex);
+                    holdBack("groups", groups, ex);
+                }
+            }
+            DirectorySnapshot next = current;
+            if (users != current.getUsers() || groups != current.getGroups()) {
+                next = new DirectorySnapshot(current, usersFingerprint, users, groupsFingerprint, groups,
+                        storageMode == StorageMode.OFF_HEAP, renderMode == RenderMode.PRERENDERED);
+                // Only the thread owning the in-flight rebuild publishes, so nothing can have replaced current meanwhile
+                snapshot.set(next);
+                usersReport = nextUsersReport;
+                groupsReport = nextGroupsReport;
+                metrics.rebuilt();
+                notifyListeners(current, next);
+            }
+            rebuild.result.complete(next);
+            return next;
+        } catch (Throwable ex) {
+            metrics.rebuildFailed();
+            // Requests waiting on this rebuild fail the same way as the request which ran it
+            rebuild.result.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private void notifyListeners(DirectorySnapshot previous, DirectorySnapshot next) {
+        for (SnapshotListener listener : listeners) {
+            try {
+                listener.published(previous, next);
+            } catch (RuntimeException ex) {
+                logger.error("Snapshot listener {} failed on version {}", listener, next.getVersion(), ex);
+            }
+        }
+    }
+
+    private void holdBack(String description, Object lastGood, UpdateFailureException ex) throws UpdateFailureException {
+        metrics.versionRejected();
+        if (parseMode != ParseMode.STRICT || lastGood == null) {
+            throw ex;
+        }
+        logger.warn("Rejected new version of local {} file, serving the last good version until it changes: {}", description, ex.getMessage());
+    }
+
+    private DirectorySnapshot await(Rebuild rebuild) throws UpdateFailureException {
+        try {
+            return rebuild.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UpdateFailureException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof UpdateFailureException) {
+                throw (UpdateFailureException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UpdateFailureException(cause);
+        }
+    }
+
+    private void awaitQuietly(Rebuild rebuild) throws UpdateFailureException {
+        try {
+            rebuild.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UpdateFailureException(ex);
+        } catch (ExecutionException ex) {
+            // The rebuild was for other versions of the files; the caller will load its own
+        }
+    }
+
+    private FileFingerprint fingerprint(File file, String description) throws UpdateFailureException {
+        // Initial sanity checks
+        if (!file.exists()) {
+            String message = String.format("Local %s file at %s does not exist", description, file.getAbsolutePath());
+            throw new UpdateFailureException(message);
+        }
+        if (!file.canRead()) {
+            String message = String.format("Cannot read local %s file at %s", description, file.getAbsolutePath());
+            throw new UpdateFailureException(message);
+        }
+        try {
+            return FileFingerprint.of(file);
+        } catch (IOException ex) {
+            throw new UpdateFailureException(ex);
+        }
+    }
+
+    /**
+     * Private helper method to retrieve the current system users from the configured location
+     *
+     * @return All users currently on the system
+     */
+    private UserStore parseUsers(ParseReport report) throws UpdateFailureException {
+        // Attempt to perform update
+        List<String> userLines;
+        try {
+            userLines = FileUtils.readLines(usersFile, Charset.defaultCharset());
+        } catch (IOException ex) {
+            throw new UpdateFailureException(ex);
+        }
+        UserStore.Builder users = storageMode.newUserStoreBuilder();
+        int lineNumber = 0;
+        for (String userLine : userLines) {
+            lineNumber++;
+            String[] splitLine = userLine.split(fieldDelimiter);
+            /**
+             * Users file is expected to contain 7 fields in this order:
+             * user name
+             * encrypted password
+             * uid
+             * gid
+             * comment (sometimes referred to as GECOS in UNIX documentation)
+             * user home directory
+             * login shell
+             */
+            if (splitLine.length != 7) {
+                String message = String.format("User file at %s is malformed. Expected user line to be have 7 fields delimited by %s. Found %d fields in line %d \"%s\"",
+                        usersFile.getAbsolutePath(), fieldDelimiter, splitLine.length, lineNumber, userLine);
+                malformed(report, lineNumber, message);
+                continue;
+            }
+            int uid;
+            int gid;
+            try {
+                uid = Integer.parseInt(splitLine[2]);
+                gid = Integer.parseInt(splitLine[3]);
+            } catch (NumberFormatException ex) {
+                String message = String.format("User file at %s is malformed. Expected numeric uid and gid. Found line %d \"%s\"",
+                        usersFile.getAbsolutePath(), lineNumber, userLine);
+                malformed(report, lineNumber, message);
+                continue;
+            }
+            users.add(splitLine[0], uid, gid, splitLine[4], splitLine[5], splitLine[6]);
+            logger.trace("Retrieved user information from user file line {}", userLine);
+        }
+        UserStore currentUsers = users.build();
+        if (report.getMalformedLines() > 0) {
+            logger.warn("Dropped {} malformed lines from local user file at {}, first at lines {}", report.getMalformedLines(),
+                    usersFile.getAbsolutePath(), Arrays.toString(report.getMalformedLineNumbers()));
+        }
+        logger.debug("Retrieval of current users found {} users using {} storage", currentUsers.size(), storageMode);
+        return currentUsers;
+    }
+
+    /**
+     * Private helper method to retrieve the current system groups from the configured location
+     *
+     * @return All groups currently on the system
+     */
+    private GroupStore parseGroups(ParseReport report) throws UpdateFailureException {
+        // Attempt to perform update
+        List<String> groupLines;
+        try {
+            groupLines = FileUtils.readLines(groupsFile, Charset.defaultCharset());
+        } catch (IOException ex) {
+            throw new UpdateFailureException(ex);
+        }
+        GroupStore.Builder groups = storageMode.newGroupStoreBuilder();
+        int lineNumber = 0;
+        for (String groupLine : groupLines) {
+            lineNumber++;
+            String[] splitLine = groupLine.split(fieldDelimiter, -1);
+            /**
+             * Group file is expected to contain 4 fields in this order:
+             * group name
+             * password
+             * group id (gid)
+             * group list (list of user names who are members of group, comma delimited)
+             */
+            if (splitLine.length != 4) {
+                String message = String.format("Groups file at %s is malformed. Expected group line to be have 4 fields delimited by %s. Found %d fields in line %d \"%s\"",
+                        groupsFile.getAbsolutePath(), fieldDelimiter, splitLine.length, lineNumber, groupLine);
+                malformed(report, lineNumber, message);
+                continue;
+            }
+            int gid;
+            try {
+                gid = Integer.parseInt(splitLine[2]);
+            } catch (NumberFormatException ex) {
+                String message = String.format("Groups file at %s is malformed. Expected numeric gid. Found line %d \"%s\"",
+                        groupsFile.getAbsolutePath(), lineNumber, groupLine);
+                malformed(report, lineNumber, message);
+                continue;
+            }
+            String members = splitLine[3];
+            groups.add(splitLine[0], gid, members.equals("") ? new String[]{} : members.split(","));
+            logger.trace("Retrieved group information from group file line {}", groupLine);
+        }
+        GroupStore currentGroups = groups.build();
+        if (report.getMalformedLines() > 0) {
+            logger.warn("Dropped {} malformed lines from local groups file at {}, first at lines {}", report.getMalformedLines(),
+                    groupsFile.getAbsolutePath(), Arrays.toString(report.getMalformedLineNumbers()));
+        }
+        logger.debug("Retrieval of current groups found {} groups using {} storage", currentGroups.size(), storageMode);
+        return currentGroups;
+    }
+
+    private void malformed(ParseReport report, int lineNumber, String message) throws UpdateFailureException {
+        if (parseMode != ParseMode.TOLERANT) {
+            throw new UpdateFailureException(message);
+        }
+        logger.debug(message);
+        report.malformed(lineNumber);
+    }
+
+    /**
+     * Rebuild of the snapshot for given versions of the files, shared by every request which needs those versions.
+     */
+    private static final class Rebuild {
+
+        private final FileFingerprint usersFingerprint;
+        private final FileFingerprint groupsFingerprint;
+        private final CompletableFuture<DirectorySnapshot> result = new CompletableFuture<>();
+
+        private Rebuild(FileFingerprint usersFingerprint, FileFingerprint groupsFingerprint) {
+            this.usersFingerprint = usersFingerprint;
+            this.groupsFingerprint = groupsFingerprint;
+        }
+
+        /**
+         * @param usersFingerprint  version of the users file required, or null if users are not required
+         * @param groupsFingerprint version of the groups file required, or null if groups are not required
+         * @return whether the snapshot built by this rebuild holds the required versions
+         */
+        private boolean covers(FileFingerprint usersFingerprint, FileFingerprint groupsFingerprint) {
+            return (usersFingerprint == null || usersFingerprint.equals(this.usersFingerprint))
+                    && (groupsFingerprint == null || groupsFingerprint.equals(this.groupsFingerprint));
+        }
+    }
+
+    /**
+     * Version of a file which failed to parse.
+     */
+    private static final class Rejection {
+
+        private final FileFingerprint fingerprint;
+        private final UpdateFailureException cause;
+
+        private Rejection(FileFingerprint fingerprint, UpdateFailureException cause) {
+            this.fingerprint = fingerprint;
+            this.cause = cause;
+        }
+    }
+}
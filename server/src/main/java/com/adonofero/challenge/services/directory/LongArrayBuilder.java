@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of primitive longs used to assemble packed index entries without boxing.
+ *
+ * @author Alexander Donofero
+ */
+public class LongArrayBuilder {
+
+    private long[] values;
+    private int size;
+
+    public LongArrayBuilder() {
+        this(16);
+    }
+
+    public LongArrayBuilder(int initialCapacity) {
+        this.values = new long[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return array trimmed to the values added so far
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
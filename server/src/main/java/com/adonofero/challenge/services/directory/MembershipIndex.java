@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.users.UserStore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Precomputed join from each user to the groups listing that user's name as a member.
+ * <p>
+ * Stored in compressed sparse row form: the group rows of user row r are found at positions
+ * [offsets[r], offsets[r + 1]) of a single array of group rows, in groups file order. Both arrays are held in
+ * direct memory when the snapshot is stored off-heap.
+ *
+ * @author Alexander Donofero
+ */
+public class MembershipIndex {
+
+    private final IntBuffer offsets;
+    private final IntBuffer groupRows;
+
+    private MembershipIndex(IntBuffer offsets, IntBuffer groupRows) {
+        this.offsets = offsets;
+        this.groupRows = groupRows;
+    }
+
+    /**
+     * Join users and groups on user name.
+     *
+     * @param users   users of the snapshot
+     * @param groups  groups of the snapshot
+     * @param offHeap whether the index should be held in direct memory
+     * @return index from user rows to group rows
+     */
+    public static MembershipIndex build(UserStore users, GroupStore groups, boolean offHeap) {
+        IntArrayBuilder pairUsers = new IntArrayBuilder();
+        IntArrayBuilder pairGroups = new IntArrayBuilder();
+        int[] counts = new int[users.size() + 1];
+        // Last group each user was joined to, so a member listed twice in a group is only joined once
+        int[] lastGroupRows = new int[users.size()];
+        Arrays.fill(lastGroupRows, GroupStore.NO_ROW);
+        for (int groupRow = 0; groupRow < groups.size(); groupRow++) {
+            for (String member : groups.getGroup(groupRow).getMembers()) {
+                int userRow = users.findRowByName(member);
+                if (userRow != UserStore.NO_ROW && lastGroupRows[userRow] != groupRow) {
+                    lastGroupRows[userRow] = groupRow;
+                    pairUsers.add(userRow);
+                    pairGroups.add(groupRow);
+                    counts[userRow + 1]++;
+                }
+            }
+        }
+        IntBuffer offsets = allocate(counts.length, offHeap);
+        int total = 0;
+        for (int userRow = 0; userRow < counts.length; userRow++) {
+            total += counts[userRow];
+            offsets.put(userRow, total);
+        }
+        // Fill each user's range in groups file order, tracking the next free position per user
+        int[] next = new int[users.size()];
+        for (int userRow = 0; userRow < next.length; userRow++) {
+            next[userRow] = offsets.get(userRow);
+        }
+        IntBuffer groupRows = allocate(total, offHeap);
+        for (int pair = 0; pair < pairUsers.size(); pair++) {
+            groupRows.put(next[pairUsers.get(pair)]++, pairGroups.get(pair));
+        }
+        return new MembershipIndex(offsets, groupRows);
+    }
+
+    /**
+     * @param userRow row of a user
+     * @return rows of the groups listing the user as a member, in groups file order
+     */
+    public int[] groupRowsOf(int userRow) {
+        int from = offsets.get(userRow);
+        int[] rows = new int[offsets.get(userRow + 1) - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = groupRows.get(from + i);
+        }
+        return rows;
+    }
+
+    private static IntBuffer allocate(int capacity, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer() : IntBuffer.allocate(capacity);
+    }
+}
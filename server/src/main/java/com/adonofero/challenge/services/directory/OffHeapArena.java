@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only region of direct memory holding packed records outside of the Java heap.
+ * <p>
+ * Memory is handed out from a list of direct {@link ByteBuffer} segments. Segments start small and double in size so
+ * tiny directories stay tiny while tens of millions of records never need a single buffer larger than 2GB.
+ * A record never spans two segments and is addressed by a long packing the segment index in the upper 32 bits and the
+ * offset inside that segment in the lower 32 bits.
+ * <p>
+ * Strings are stored as a 4 byte length followed by their UTF-8 bytes. They can be compared and hashed in place so
+ * that lookups do not need to decode them onto the heap.
+ * <p>
+ * An arena is written by a single thread while building a snapshot. Reads only use absolute accessors and are safe
+ * from any number of threads once the snapshot has been published.
+ *
+ * @author Alexander Donofero
+ */
+public class OffHeapArena {
+
+    private static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+    private long capacity;
+
+    /**
+     * Reserve room for a record.
+     *
+     * @param length size of the record in bytes
+     * @return address of the record
+     */
+    public long allocate(int length) {
+        if (current == null || current.remaining() < length) {
+            int size = current == null ? INITIAL_SEGMENT_SIZE : Math.min(current.capacity() * 2, MAX_SEGMENT_SIZE);
+            current = ByteBuffer.allocateDirect(Math.max(size, length)).order(ByteOrder.nativeOrder());
+            segments.add(current);
+            capacity += current.capacity();
+        }
+        int offset = current.position();
+        current.position(offset + length);
+        return ((long) (segments.size() - 1) << 32) | offset;
+    }
+
+    /**
+     * @return number of bytes of direct memory reserved by this arena
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    public byte getByte(long address) {
+        return segment(address).get(offset(address));
+    }
+
+    public int getInt(long address) {
+        return segment(address).getInt(offset(address));
+    }
+
+    public void putInt(long address, int value) {
+        segment(address).putInt(offset(address), value);
+    }
+
+    /**
+     * Write a string encoded with {@link #encode(String)}.
+     *
+     * @return address immediately following the string
+     */
+    public long putString(long address, byte[] encoded) {
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        segment.putInt(offset, encoded.length);
+        for (int i = 0; i < encoded.length; i++) {
+            segment.put(offset + 4 + i, encoded[i]);
+        }
+        return address + encodedSize(encoded);
+    }
+
+    /**
+     * @return address immediately following the string stored at the provided address
+     */
+    public long skipString(long address) {
+        return address + 4 + getInt(address);
+    }
+
+    /**
+     * Decode the string stored at an address onto the heap.
+     */
+    public String getString(long address) {
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        byte[] bytes = new byte[segment.getInt(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = segment.get(offset + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare the string stored at an address with an encoded string without decoding it.
+     */
+    public boolean stringEquals(long address, byte[] encoded) {
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        if (segment.getInt(offset) != encoded.length) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (segment.get(offset + 4 + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hash the string stored at an address. Matches {@link #hash(byte[])} of the same encoded string.
+     */
+    public int stringHash(long address) {
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        int length = segment.getInt(offset);
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + segment.get(offset + 4 + i);
+        }
+        return hash;
+    }
+
+    public static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static int encodedSize(byte[] encoded) {
+        return 4 + encoded.length;
+    }
+
+    public static int hash(byte[] encoded) {
+        int hash = 1;
+        for (byte b : encoded) {
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    private ByteBuffer segment(long address) {
+        return segments.get((int) (address >>> 32));
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Open addressing hash index from an int key to the rows holding that key, stored in direct memory.
+ * <p>
+ * Each slot packs the key in its upper 32 bits and (row + 1) in its lower 32 bits, 0 marking a free slot. Keys may
+ * repeat (many users share a gid) and every row stored under a key is found along the same probe sequence.
+ * Keys that are hashes rather than values (such as name hashes) may collide, so callers verify candidate rows.
+ * As slots are never freed, the rows stored under a key are visited in the order they were added, which is file
+ * order when rows are added in sequence.
+ * <p>
+ * The index is sized once for the number of rows of a snapshot and never resized.
+ *
+ * @author Alexander Donofero
+ */
+public class OffHeapHashIndex {
+
+    private final LongBuffer slots;
+    private final int mask;
+
+    /**
+     * @param entries number of rows that will be added to the index
+     */
+    public OffHeapHashIndex(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1;
+        this.slots = ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        this.mask = capacity - 1;
+    }
+
+    public void put(int key, int row) {
+        int slot = mix(key) & mask;
+        while (slots.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.put(slot, ((long) key << 32) | (row + 1L));
+    }
+
+    /**
+     * Find the first row stored under a key that passes verification.
+     *
+     * @param key    key to look up
+     * @param verify check applied to each candidate row
+     * @return first verified row, or -1 if there is none
+     */
+    public int findFirst(int key, IntPredicate verify) {
+        for (int slot = mix(key) & mask; slots.get(slot) != 0; slot = (slot + 1) & mask) {
+            long entry = slots.get(slot);
+            if ((int) (entry >>> 32) == key && verify.test((int) entry - 1)) {
+                return (int) entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Visit every row stored under a key.
+     */
+    public void forEach(int key, IntConsumer action) {
+        for (int slot = mix(key) & mask; slots.get(slot) != 0; slot = (slot + 1) & mask) {
+            long entry = slots.get(slot);
+            if ((int) (entry >>> 32) == key) {
+                action.accept((int) entry - 1);
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes of direct memory reserved by this index
+     */
+    public long capacity() {
+        return slots.capacity() * 8L;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
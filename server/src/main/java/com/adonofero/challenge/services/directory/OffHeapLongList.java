@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Growable list of primitive longs held in direct memory, used to map rows to record addresses in an
+ * {@link OffHeapArena}.
+ *
+ * @author Alexander Donofero
+ */
+public class OffHeapLongList {
+
+    private LongBuffer values = allocate(1024);
+    private int size;
+
+    public void add(long value) {
+        if (size == values.capacity()) {
+            LongBuffer grown = allocate(values.capacity() * 2);
+            values.position(0);
+            grown.put(values);
+            values = grown;
+        }
+        values.put(size++, value);
+    }
+
+    public long get(int index) {
+        return values.get(index);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes of direct memory reserved by this list
+     */
+    public long capacity() {
+        return values.capacity() * 8L;
+    }
+
+    private static LongBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Locale;
+
+/**
+ * How a {@link LocalFileDirectory} handles a version of a file containing malformed lines.
+ * <p>
+ * In every mode a rejected version is remembered by its {@link FileFingerprint}, so it is only parsed once however
+ * many requests arrive before the file is fixed.
+ *
+ * @author Alexander Donofero
+ */
+public enum ParseMode {
+    /**
+     * Reject the version; requests needing the file fail until it changes. The default.
+     */
+    FAIL,
+    /**
+     * Reject the version but keep serving the last version which parsed, if there is one.
+     */
+    STRICT,
+    /**
+     * Drop malformed lines and serve the remaining ones, recording the dropped lines in a {@link ParseReport}.
+     */
+    TOLERANT;
+
+    /**
+     * Resolve a parse mode from its configured value, ignoring case.
+     *
+     * @param value configured value, e.g. "strict" or "tolerant"
+     * @return matching {@link ParseMode}
+     * @throws IllegalArgumentException if the value does not name a parse mode
+     */
+    public static ParseMode fromProperty(String value) {
+        return ParseMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Arrays;
+
+/**
+ * Malformed lines dropped while parsing a version of a file in {@link ParseMode#TOLERANT}.
+ *
+ * @author Alexander Donofero
+ */
+public class ParseReport {
+
+    /**
+     * Report of a version with no malformed lines.
+     */
+    public static final ParseReport CLEAN = new ParseReport();
+
+    /**
+     * Line numbers kept per version. A file which is malformed throughout is counted in full but not listed in full.
+     */
+    static final int MAX_LINE_NUMBERS = 100;
+
+    private int malformedLines;
+    private int[] lineNumbers = new int[0];
+
+    void malformed(int lineNumber) {
+        if (malformedLines < MAX_LINE_NUMBERS) {
+            lineNumbers = Arrays.copyOf(lineNumbers, malformedLines + 1);
+            lineNumbers[malformedLines] = lineNumber;
+        }
+        malformedLines++;
+    }
+
+    /**
+     * @return number of malformed lines dropped
+     */
+    public int getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * @return 1-based numbers of the first {@value #MAX_LINE_NUMBERS} malformed lines dropped
+     */
+    public int[] getMalformedLineNumbers() {
+        return lineNumbers.clone();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Retrieves {@link SnapshotCodec} frames from the {@link SnapshotPublisher} of another instance of the service, for a
+ * {@link LocalFileDirectory} following it instead of reading local files.
+ * <p>
+ * DESIGN NOTE:
+ * Only the epoch and version of the last frame loaded are kept here. They are only advanced once the directory has
+ * published the frame, so a frame which fails to load is requested again in full rather than built upon.
+ *
+ * @author Alexander Donofero
+ */
+public class PeerSnapshotSource {
+
+    private final String baseUrl;
+    private final int timeoutMillis;
+
+    private long epoch;
+    private long version = -1;
+
+    /**
+     * @param baseUrl       base URL of the publishing instance, e.g. "http://passwd-primary:8080"
+     * @param timeoutMillis connect and read timeout of each request
+     */
+    public PeerSnapshotSource(String baseUrl, int timeoutMillis) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return base URL of the publishing instance
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @param current     snapshot currently published by the follower
+     * @param storageMode storage engine to hold the stores received
+     * @return frame carrying the stores changed since the last frame loaded, or null if nothing changed
+     * @throws UpdateFailureException if the publisher cannot be reached or answers with an invalid frame
+     */
+    synchronized SnapshotCodec.Frame fetch(DirectorySnapshot current, StorageMode storageMode) throws UpdateFailureException {
+        boolean incremental = version >= 0 && current.holds(true, true);
+        String url = baseUrl + "/snapshot" + (incremental ? "?epoch=" + epoch + "&since=" + version : "");
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty("Accept", "application/octet-stream");
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new UpdateFailureException(String.format("Peer at %s answered %d to a snapshot request", baseUrl, status));
+            }
+            long length = connection.getContentLengthLong();
+            if (length < 0) {
+                throw new UpdateFailureException(String.format("Peer at %s answered a snapshot request without a Content-Length", baseUrl));
+            }
+            // Decoded as it arrives, so the follower never holds the frame itself besides the stores built from it
+            SnapshotCodec.Frame frame;
+            try (InputStream in = connection.getInputStream()) {
+                frame = SnapshotCodec.decode(in, length, storageMode);
+            }
+            if (!incremental && (frame.getUsers() == null || frame.getGroups() == null)) {
+                throw new UpdateFailureException(String.format("Peer at %s answered a full snapshot request with a partial frame", baseUrl));
+            }
+            return frame;
+        } catch (IOException ex) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            throw new UpdateFailureException(ex);
+        } catch (UpdateFailureException ex) {
+            connection.disconnect();
+            throw ex;
+        }
+    }
+
+    /**
+     * Record that a frame has been published by the follower, so the next request only asks for later changes.
+     */
+    synchronized void loaded(SnapshotCodec.Frame frame) {
+        epoch = frame.getEpoch();
+        version = frame.getVersion();
+    }
+}
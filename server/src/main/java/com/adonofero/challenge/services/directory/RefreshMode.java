@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Locale;
+
+/**
+ * Ways of keeping the snapshot of a {@link LocalFileDirectory} in line with the files it is read from.
+ *
+ * @author Alexander Donofero
+ */
+public enum RefreshMode {
+    /**
+     * Every request checks the files and reloads them when they changed. The default.
+     */
+    ON_REQUEST,
+    /**
+     * A background task checks the files at a fixed interval and reloads them off the request path. Requests are
+     * served from the last good snapshot until it exceeds the maximum staleness.
+     */
+    SCHEDULED;
+
+    /**
+     * Resolve a refresh mode from its configured value, ignoring case and accepting '-' in place of '_'.
+     *
+     * @param value configured value, e.g. "on-request" or "scheduled"
+     * @return matching {@link RefreshMode}
+     * @throws IllegalArgumentException if the value does not name a refresh mode
+     */
+    public static RefreshMode fromProperty(String value) {
+        return RefreshMode.valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
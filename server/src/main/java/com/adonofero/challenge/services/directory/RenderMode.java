@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Locale;
+
+/**
+ * How users and groups are rendered to JSON for the point lookups and the full lists.
+ *
+ * @author Alexander Donofero
+ */
+public enum RenderMode {
+    /**
+     * Every response is serialized from the entities when it is written. The default.
+     */
+    JACKSON,
+    /**
+     * The JSON of every user and group is rendered once when a snapshot is built and responses copy those bytes to
+     * the client. Costs the size of the rendered records in heap on top of the stores, in exchange for serving lookups
+     * and full lists without serializing or allocating per record.
+     */
+    PRERENDERED;
+
+    /**
+     * Resolve a render mode from its configured value, ignoring case and accepting '-' in place of '_'.
+     *
+     * @param value configured value, e.g. "jackson" or "prerendered"
+     * @return matching {@link RenderMode}
+     * @throws IllegalArgumentException if the value does not name a render mode
+     */
+    public static RenderMode fromProperty(String value) {
+        return RenderMode.valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
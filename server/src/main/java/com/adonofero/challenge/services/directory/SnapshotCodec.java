@@ -0,0 +1,582 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.users.UserStore;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary encoding of the stores of a {@link DirectorySnapshot}, exchanged between a {@link SnapshotPublisher}
+ * and the {@link PeerSnapshotSource} of a follower.
+ * <p>
+ * DESIGN NOTE:
+ * A frame holds a header, the users and groups sections it carries and a CRC32 of everything before it:
+ * <pre>
+ * int32  magic "PWSN"
+ * int8   format version
+ * int64  epoch of the publisher
+ * int64  version of the snapshot on the publisher
+ * int8   sections carried: {@link #USERS} | {@link #GROUPS}
+ * users section, if carried:  count, shells, then per user name, uid, gid, comment, home, index of the shell
+ * groups section, if carried: count, then per group name, gid, member count, members
+ * int32  CRC32
+ * </pre>
+ * Counts, ids and string lengths are variable length integers and strings are UTF-8, so most fields take one or two
+ * bytes. Shells are written once, since a directory only ever has a handful of distinct ones. Loading a frame goes
+ * straight from these fields to the store builders, without splitting lines or parsing numbers from text.
+ * <p>
+ * Frames are streamed: sections are held in chunks of {@link #CHUNK_SIZE} bytes and written one after the other with
+ * the CRC computed as they go, and a frame is decoded from the stream it arrives on. Neither end ever holds a frame in
+ * a single array, so its size is not capped by the length of one, and the follower holds only the stores it builds.
+ * The checksum is verified once the last section is read, before the stores are handed out.
+ *
+ * @author Alexander Donofero
+ */
+public final class SnapshotCodec {
+
+    /**
+     * Section flag of a frame carrying the users.
+     */
+    public static final int USERS = 1;
+
+    /**
+     * Section flag of a frame carrying the groups.
+     */
+    public static final int GROUPS = 2;
+
+    private static final int MAGIC = 0x5057534E;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 1;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * @param users users to encode
+     * @return users section of a frame
+     */
+    public static Section encodeUsers(UserStore users) {
+        Map<String, Integer> shells = new HashMap<>();
+        Output shellTable = new Output();
+        Output records = new Output();
+        for (int row = 0; row < users.size(); row++) {
+            User user = users.getUser(row);
+            Integer shell = shells.get(user.getShell());
+            if (shell == null) {
+                shell = shells.size();
+                shells.put(user.getShell(), shell);
+                shellTable.putString(user.getShell());
+            }
+            records.putString(user.getName());
+            records.putSignedVarint(user.getUid());
+            records.putSignedVarint(user.getGid());
+            records.putString(user.getComment());
+            records.putString(user.getHome());
+            records.putVarint(shell);
+        }
+        Output section = new Output();
+        section.putVarint(users.size());
+        section.putVarint(shells.size());
+        section.put(shellTable);
+        section.put(records);
+        return section.toSection();
+    }
+
+    /**
+     * @param groups groups to encode
+     * @return groups section of a frame
+     */
+    public static Section encodeGroups(GroupStore groups) {
+        Output section = new Output();
+        section.putVarint(groups.size());
+        for (int row = 0; row < groups.size(); row++) {
+            Group group = groups.getGroup(row);
+            section.putString(group.getName());
+            section.putSignedVarint(group.getGid());
+            section.putVarint(group.getMembers().length);
+            for (String member : group.getMembers()) {
+                section.putString(member);
+            }
+        }
+        return section.toSection();
+    }
+
+    /**
+     * @param epoch         epoch of the publisher
+     * @param version       version of the snapshot on the publisher
+     * @param usersSection  users section, or null if the frame does not carry the users
+     * @param groupsSection groups section, or null if the frame does not carry the groups
+     * @return frame ready to be written
+     */
+    public static EncodedFrame encode(long epoch, long version, Section usersSection, Section groupsSection) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.put(FORMAT_VERSION);
+        header.putLong(epoch);
+        header.putLong(version);
+        header.put((byte) ((usersSection == null ? 0 : USERS) | (groupsSection == null ? 0 : GROUPS)));
+        return new EncodedFrame(header.array(), usersSection, groupsSection);
+    }
+
+    /**
+     * Verify and load a frame into new stores, as it is read from a stream.
+     *
+     * @param in          stream the frame is read from, left open
+     * @param length      length of the frame in bytes
+     * @param storageMode storage engine to hold the stores carried by the frame
+     * @return decoded frame
+     * @throws UpdateFailureException if the frame is truncated, corrupt or of an unknown format
+     * @throws IOException            if the stream fails
+     */
+    public static Frame decode(InputStream in, long length, StorageMode storageMode) throws UpdateFailureException, IOException {
+        if (length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new UpdateFailureException(String.format("Snapshot frame of %d bytes is truncated", length));
+        }
+        Input frame = new Input(in, length - CHECKSUM_SIZE);
+        try {
+            if (frame.getInt() != MAGIC) {
+                throw new UpdateFailureException("Snapshot frame does not start with the expected magic number");
+            }
+            byte format = frame.get();
+            if (format != FORMAT_VERSION) {
+                throw new UpdateFailureException(String.format("Snapshot frame has unsupported format version %d", format));
+            }
+            long epoch = frame.getLong();
+            long version = frame.getLong();
+            int sections = frame.get();
+            UserStore users = (sections & USERS) == 0 ? null : decodeUsers(frame, storageMode.newUserStoreBuilder());
+            GroupStore groups = (sections & GROUPS) == 0 ? null : decodeGroups(frame, storageMode.newGroupStoreBuilder());
+            long trailing = frame.remaining();
+            if (!frame.verify()) {
+                throw new UpdateFailureException("Snapshot frame failed its checksum");
+            }
+            if (trailing != 0) {
+                throw new UpdateFailureException(String.format("Snapshot frame has %d unexpected trailing bytes", trailing));
+            }
+            return new Frame(epoch, version, users, groups);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            // Corruption is the likelier cause, and the checksum tells it apart from a frame encoded wrongly
+            if (!verify(frame, length)) {
+                throw new UpdateFailureException("Snapshot frame failed its checksum");
+            }
+            throw new UpdateFailureException("Snapshot frame is malformed: " + ex);
+        } catch (EOFException ex) {
+            throw new UpdateFailureException(String.format("Snapshot frame of %d bytes is truncated", length));
+        }
+    }
+
+    private static boolean verify(Input frame, long length) throws UpdateFailureException, IOException {
+        try {
+            return frame.verify();
+        } catch (EOFException ex) {
+            throw new UpdateFailureException(String.format("Snapshot frame of %d bytes is truncated", length));
+        }
+    }
+
+    private static UserStore decodeUsers(Input in, UserStore.Builder users) throws IOException {
+        int count = getCount(in);
+        String[] shells = new String[getCount(in)];
+        for (int i = 0; i < shells.length; i++) {
+            shells[i] = getString(in);
+        }
+        for (int i = 0; i < count; i++) {
+            String name = getString(in);
+            int uid = getSignedVarint(in);
+            int gid = getSignedVarint(in);
+            String comment = getString(in);
+            String home = getString(in);
+            users.add(name, uid, gid, comment, home, shells[in.getVarint()]);
+        }
+        return users.build();
+    }
+
+    private static GroupStore decodeGroups(Input in, GroupStore.Builder groups) throws IOException {
+        int count = getCount(in);
+        for (int i = 0; i < count; i++) {
+            String name = getString(in);
+            int gid = getSignedVarint(in);
+            String[] members = new String[getCount(in)];
+            for (int j = 0; j < members.length; j++) {
+                members[j] = getString(in);
+            }
+            groups.add(name, gid, members);
+        }
+        return groups.build();
+    }
+
+    /**
+     * Read a count, which cannot exceed the bytes left since every counted item takes at least one byte.
+     */
+    private static int getCount(Input in) throws IOException {
+        int count = in.getVarint();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException(String.format("count %d exceeds the %d bytes left", count, in.remaining()));
+        }
+        return count;
+    }
+
+    private static String getString(Input in) throws IOException {
+        int length = in.getVarint();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException(String.format("string of %d bytes exceeds the %d bytes left", length, in.remaining()));
+        }
+        return in.getString(length);
+    }
+
+    private static int getSignedVarint(Input in) throws IOException {
+        int value = in.getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Encoded section of a frame, in chunks.
+     */
+    public static final class Section {
+
+        private final List<byte[]> chunks;
+        private final long length;
+
+        private Section(List<byte[]> chunks, long length) {
+            this.chunks = chunks;
+            this.length = length;
+        }
+
+        /**
+         * @return length of the section in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * Frame assembled from its header and sections, written out without being copied into one array.
+     */
+    public static final class EncodedFrame {
+
+        private final byte[] header;
+        private final Section users;
+        private final Section groups;
+
+        private EncodedFrame(byte[] header, Section users, Section groups) {
+            this.header = header;
+            this.users = users;
+            this.groups = groups;
+        }
+
+        /**
+         * @return length of the frame in bytes, checksum included
+         */
+        public long getLength() {
+            return header.length + (users == null ? 0 : users.length) + (groups == null ? 0 : groups.length) + CHECKSUM_SIZE;
+        }
+
+        /**
+         * Write the frame, followed by the CRC32 of the bytes written.
+         *
+         * @param out stream to write to, left open
+         * @throws IOException if the stream fails
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            CRC32 crc = new CRC32();
+            write(out, crc, header);
+            for (Section section : new Section[]{users, groups}) {
+                if (section != null) {
+                    for (byte[] chunk : section.chunks) {
+                        write(out, crc, chunk);
+                    }
+                }
+            }
+            out.write(ByteBuffer.allocate(CHECKSUM_SIZE).putInt((int) crc.getValue()).array());
+        }
+
+        private static void write(OutputStream out, CRC32 crc, byte[] bytes) throws IOException {
+            crc.update(bytes, 0, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Growable output of a section, kept as a list of chunks so that growing never copies what was written.
+     */
+    private static final class Output {
+
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] chunk = new byte[16];
+        private int position;
+        private long size;
+
+        private void put(Output other) {
+            seal();
+            other.seal();
+            chunks.addAll(other.chunks);
+            size += other.size;
+        }
+
+        private void putString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(utf8.length);
+            for (int offset = 0; offset < utf8.length; ) {
+                if (position == chunk.length) {
+                    grow();
+                }
+                int length = Math.min(utf8.length - offset, chunk.length - position);
+                System.arraycopy(utf8, offset, chunk, position, length);
+                position += length;
+                offset += length;
+            }
+            size += utf8.length;
+        }
+
+        private void putSignedVarint(int value) {
+            putVarint((value << 1) ^ (value >> 31));
+        }
+
+        private void putVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                putByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            putByte(value);
+        }
+
+        private void putByte(int value) {
+            if (position == chunk.length) {
+                grow();
+            }
+            chunk[position++] = (byte) value;
+            size++;
+        }
+
+        /**
+         * Double the current chunk while it is small, then start a new one once it is full.
+         */
+        private void grow() {
+            if (chunk.length < CHUNK_SIZE) {
+                chunk = Arrays.copyOf(chunk, Math.min(chunk.length * 2, CHUNK_SIZE));
+            } else {
+                chunks.add(chunk);
+                chunk = new byte[CHUNK_SIZE];
+                position = 0;
+            }
+        }
+
+        /**
+         * Close the current chunk, so that the next byte starts a new one.
+         */
+        private void seal() {
+            if (position > 0) {
+                chunks.add(position == chunk.length ? chunk : Arrays.copyOf(chunk, position));
+                chunk = new byte[16];
+                position = 0;
+            }
+        }
+
+        private Section toSection() {
+            seal();
+            return new Section(chunks, size);
+        }
+    }
+
+    /**
+     * Buffered input of a frame, updating the CRC with the bytes consumed a block at a time.
+     */
+    private static final class Input {
+
+        private final InputStream in;
+        private final long length;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Offset in the frame of the first byte of the buffer.
+         */
+        private long offset;
+        private int position;
+        private int limit;
+
+        /**
+         * Bytes of the buffer before this index are already part of the CRC.
+         */
+        private int checked;
+
+        /**
+         * @param in     stream the frame is read from
+         * @param length length of the frame, checksum excluded
+         */
+        private Input(InputStream in, long length) {
+            this.in = in;
+            this.length = length;
+        }
+
+        /**
+         * @return bytes left before the checksum, negative if the sections ran into it
+         */
+        private long remaining() {
+            return length - offset - position;
+        }
+
+        private byte get() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            return buffer[position++];
+        }
+
+        private int getInt() throws IOException {
+            int value = 0;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                value = (value << 8) | (get() & 0xFF);
+            }
+            return value;
+        }
+
+        private long getLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (get() & 0xFF);
+            }
+            return value;
+        }
+
+        private int getVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("variable length integer exceeds 5 bytes");
+        }
+
+        private String getString(int length) throws IOException {
+            if (limit - position >= length) {
+                String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            // Rare case of a string split across two reads
+            byte[] utf8 = new byte[length];
+            for (int copied = 0; copied < length; ) {
+                if (position == limit) {
+                    fill();
+                }
+                int count = Math.min(length - copied, limit - position);
+                System.arraycopy(buffer, position, utf8, copied, count);
+                position += count;
+                copied += count;
+            }
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Skip to the checksum, if the sections did not run into it, and compare it with the CRC of the bytes before.
+         *
+         * @return whether the checksum matches
+         */
+        private boolean verify() throws IOException {
+            long skip = remaining();
+            if (skip < 0) {
+                return false;
+            }
+            for (; skip > 0; skip--) {
+                get();
+            }
+            crc.update(buffer, checked, position - checked);
+            checked = position;
+            return (int) crc.getValue() == getInt();
+        }
+
+        private void fill() throws IOException {
+            crc.update(buffer, checked, limit - checked);
+            offset += limit;
+            position = 0;
+            checked = 0;
+            limit = 0;
+            int read = in.read(buffer);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            limit = read;
+        }
+    }
+
+    /**
+     * Decoded frame.
+     */
+    public static final class Frame {
+
+        private final long epoch;
+        private final long version;
+        private final UserStore users;
+        private final GroupStore groups;
+
+        private Frame(long epoch, long version, UserStore users, GroupStore groups) {
+            this.epoch = epoch;
+            this.version = version;
+            this.users = users;
+            this.groups = groups;
+        }
+
+        /**
+         * @return epoch of the publisher
+         */
+        public long getEpoch() {
+            return epoch;
+        }
+
+        /**
+         * @return version of the snapshot on the publisher
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return users carried by the frame, or null if they did not change since the version the follower holds
+         */
+        public UserStore getUsers() {
+            return users;
+        }
+
+        /**
+         * @return groups carried by the frame, or null if they did not change since the version the follower holds
+         */
+        public GroupStore getGroups() {
+            return groups;
+        }
+    }
+}
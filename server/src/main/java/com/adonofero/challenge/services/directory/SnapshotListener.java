@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+/**
+ * Callback notified each time a {@link LocalFileDirectory} publishes a new snapshot.
+ *
+ * @author Alexander Donofero
+ */
+public interface SnapshotListener {
+
+    /**
+     * Called on the thread which built the new snapshot, right after publishing it. Implementations should hand any
+     * expensive work off to another thread, as requests may be waiting for the rebuild to complete.
+     *
+     * @param previous snapshot replaced
+     * @param next     snapshot published
+     */
+    void published(DirectorySnapshot previous, DirectorySnapshot next);
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Serves the snapshots of a {@link LocalFileDirectory} to followers as {@link SnapshotCodec} frames.
+ * <p>
+ * DESIGN NOTE:
+ * A follower sends the epoch and version of the last frame it loaded, and is only sent the stores which changed
+ * since: nothing at all when it is current, and only the groups when only the groups file was edited. The epoch is
+ * drawn at random by each directory, so versions from before a restart of the publisher are never mistaken for
+ * versions after it.
+ * <p>
+ * Each section is encoded once per store and shared by every follower, so a fleet of followers polling the
+ * publisher costs one encoding per change rather than one per poll. Frames are only assembled as they are written
+ * to a follower, so the sections are the only copy of the stores the publisher holds.
+ *
+ * @author Alexander Donofero
+ */
+public class SnapshotPublisher {
+
+    private final LocalFileDirectory directory;
+    private final AtomicReference<Section> users = new AtomicReference<>();
+    private final AtomicReference<Section> groups = new AtomicReference<>();
+
+    /**
+     * @param directory directory whose snapshots are published
+     */
+    public SnapshotPublisher(LocalFileDirectory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param epoch epoch of the frame the follower last loaded, or null if it holds none
+     * @param since version of the frame the follower last loaded, or null if it holds none
+     * @return frame carrying the stores changed since that version, or null if the follower is current
+     * @throws UpdateFailureException if the current users or groups cannot be retrieved
+     */
+    public SnapshotCodec.EncodedFrame publish(Long epoch, Long since) throws UpdateFailureException {
+        DirectorySnapshot snapshot = directory.getSnapshot();
+        boolean incremental = epoch != null && since != null && epoch == directory.getEpoch() && since <= snapshot.getVersion();
+        if (incremental && since == snapshot.getVersion()) {
+            return null;
+        }
+        SnapshotCodec.Section usersSection = incremental && snapshot.getUsersVersion() <= since ? null
+                : section(users, snapshot.getUsers(), () -> SnapshotCodec.encodeUsers(snapshot.getUsers()));
+        SnapshotCodec.Section groupsSection = incremental && snapshot.getGroupsVersion() <= since ? null
+                : section(groups, snapshot.getGroups(), () -> SnapshotCodec.encodeGroups(snapshot.getGroups()));
+        return SnapshotCodec.encode(directory.getEpoch(), snapshot.getVersion(), usersSection, groupsSection);
+    }
+
+    private static SnapshotCodec.Section section(AtomicReference<Section> cache, Object store, Supplier<SnapshotCodec.Section> encoder) {
+        Section cached = cache.get();
+        if (cached != null && cached.store == store) {
+            return cached.encoded;
+        }
+        // Concurrent misses may both encode; either result is correct and the section is only replaced on a change
+        Section section = new Section(store, encoder.get());
+        cache.set(section);
+        return section.encoded;
+    }
+
+    /**
+     * Encoded section of a store.
+     */
+    private static final class Section {
+
+        private final Object store;
+        private final SnapshotCodec.Section encoded;
+
+        private Section(Object store, SnapshotCodec.Section encoded) {
+            this.store = store;
+            this.encoded = encoded;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Locale;
+
+/**
+ * What a request does when it finds the snapshot of a scheduled {@link LocalFileDirectory} older than the maximum
+ * staleness, which happens when the background refresh keeps failing or falls behind.
+ *
+ * @author Alexander Donofero
+ */
+public enum StalePolicy {
+    /**
+     * Check and reload the files on the request path, as in {@link RefreshMode#ON_REQUEST}. The default.
+     */
+    SYNC,
+    /**
+     * Fail the request with a {@link com.adonofero.challenge.exceptions.service.StaleDataException}.
+     */
+    ERROR;
+
+    /**
+     * Resolve a stale policy from its configured value, ignoring case.
+     *
+     * @param value configured value, e.g. "sync" or "error"
+     * @return matching {@link StalePolicy}
+     * @throws IllegalArgumentException if the value does not name a stale policy
+     */
+    public static StalePolicy fromProperty(String value) {
+        return StalePolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
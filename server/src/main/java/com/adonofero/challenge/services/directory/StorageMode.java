@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.services.groups.ColumnarGroupStore;
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.groups.OffHeapGroupStore;
+import com.adonofero.challenge.services.users.ColumnarUserStore;
+import com.adonofero.challenge.services.users.ObjectUserStore;
+import com.adonofero.challenge.services.users.OffHeapUserStore;
+import com.adonofero.challenge.services.users.UserStore;
+
+import java.util.Locale;
+
+/**
+ * Storage engines available for holding a parsed snapshot of the system files in memory.
+ *
+ * @author Alexander Donofero
+ */
+public enum StorageMode {
+    /**
+     * One POJO per user. Simplest layout and the default. Groups are held in the same layout as {@link #COLUMNAR}.
+     */
+    OBJECT,
+    /**
+     * Primitive, dictionary coded columns. Records are only materialized for rows that appear in a response.
+     */
+    COLUMNAR,
+    /**
+     * Packed records and indexes held in direct memory. Heap usage stays flat regardless of the directory size.
+     */
+    OFF_HEAP;
+
+    /**
+     * Resolve a storage mode from its configured value, ignoring case and accepting '-' in place of '_'.
+     *
+     * @param value configured value, e.g. "columnar" or "off-heap"
+     * @return matching {@link StorageMode}
+     * @throws IllegalArgumentException if the value does not name a storage mode
+     */
+    public static StorageMode fromProperty(String value) {
+        return StorageMode.valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return builder of a {@link UserStore} held by this storage engine
+     */
+    UserStore.Builder newUserStoreBuilder() {
+        switch (this) {
+            case COLUMNAR:
+                return ColumnarUserStore.builder();
+            case OFF_HEAP:
+                return OffHeapUserStore.builder();
+            case OBJECT:
+            default:
+                return ObjectUserStore.builder();
+        }
+    }
+
+    /**
+     * @return builder of a {@link GroupStore} held by this storage engine
+     */
+    GroupStore.Builder newGroupStoreBuilder() {
+        switch (this) {
+            case OFF_HEAP:
+                return OffHeapGroupStore.builder();
+            case OBJECT:
+            case COLUMNAR:
+            default:
+                return ColumnarGroupStore.builder();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary of the distinct string values seen while parsing a single snapshot of the system files.
+ * <p>
+ * Every distinct value is stored exactly once and is assigned a dense id in order of first appearance, so records
+ * can refer to a value either by the shared {@link String} instance or by its id.
+ * <p>
+ * DESIGN NOTE:
+ * Fields such as the login shell or the comment repeat heavily across an /etc/passwd file (thousands of users share
+ * /usr/sbin/nologin). Keeping one instance per distinct value instead of one per line keeps the retained heap
+ * proportional to the number of distinct values rather than the number of users.
+ * A dictionary is populated by a single parsing thread and is only read once the snapshot has been built.
+ *
+ * @author Alexander Donofero
+ */
+public class StringDictionary {
+
+    /**
+     * Id returned by {@link #lookup(String)} for values that are not part of the dictionary.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * Open addressing hash table holding (id + 1) of each value, 0 marking a free slot.
+     * Kept as a primitive array so the index costs a few bytes per value instead of a map entry and a boxed id.
+     */
+    private int[] table = new int[16];
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * Retrieve the id of a value, adding the value to the dictionary if it has not been seen before.
+     *
+     * @param value value to encode
+     * @return id of the value
+     */
+    public int idOf(String value) {
+        int slot = slotOf(value);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Retrieve the id of a value without adding it to the dictionary.
+     *
+     * @param value value to look up
+     * @return id of the value or {@link #NOT_FOUND} if the value is not part of the dictionary
+     */
+    public int lookup(String value) {
+        return table[slotOf(value)] - 1;
+    }
+
+    /**
+     * Retrieve the value associated with an id.
+     *
+     * @param id id previously returned by {@link #idOf(String)}
+     * @return value associated with the id
+     */
+    public String get(int id) {
+        return values[id];
+    }
+
+    /**
+     * Retrieve the canonical instance of a value, adding the value to the dictionary if it has not been seen before.
+     *
+     * @param value value to deduplicate
+     * @return shared instance equal to the provided value
+     */
+    public String intern(String value) {
+        return get(idOf(value));
+    }
+
+    /**
+     * @return number of distinct values in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return slot holding the value, or the free slot where it would be inserted
+     */
+    private int slotOf(String value) {
+        int mask = table.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        while (table[slot] != 0 && !values[table[slot] - 1].equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] rehashed = new int[table.length * 2];
+        int mask = rehashed.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(values[id].hashCode()) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = id + 1;
+        }
+        table = rehashed;
+    }
+
+    /**
+     * Spread the bits of {@link String#hashCode()} so that linear probing copes with clustered hashes.
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
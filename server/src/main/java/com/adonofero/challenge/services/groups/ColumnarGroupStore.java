@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.groups;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.services.directory.IntArrayBuilder;
+import com.adonofero.challenge.services.directory.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link GroupStore} that keeps group names and memberships as ids into a shared name table.
+ * <p>
+ * Each distinct user or group name is stored once in a {@link StringDictionary}. A group holds its members as an
+ * int[] of name ids in file order, used to rebuild the {@link Group} for a response, and as a sorted int[] used for
+ * membership checks. Most groups list their members in id order already, in which case both share the same array.
+ * <p>
+ * Membership checks resolve the requested names to ids once and then binary search or merge the sorted member ids
+ * rather than comparing strings.
+ *
+ * @author Alexander Donofero
+ */
+public class ColumnarGroupStore implements GroupStore {
+
+    private final StringDictionary names;
+    private final int[] gids;
+    private final int[] groupNames;
+    private final int[][] members;
+    private final int[][] sortedMembers;
+    /**
+     * First row holding each group name, indexed by name id. Ids that are not used as a group name map to {@link #NO_ROW}.
+     */
+    private final int[] rowsByNameId;
+
+    private ColumnarGroupStore(StringDictionary names, int[] gids, int[] groupNames, int[][] members, int[][] sortedMembers) {
+        this.names = names;
+        this.gids = gids;
+        this.groupNames = groupNames;
+        this.members = members;
+        this.sortedMembers = sortedMembers;
+        this.rowsByNameId = new int[names.size()];
+        Arrays.fill(rowsByNameId, NO_ROW);
+        for (int row = groupNames.length - 1; row >= 0; row--) {
+            rowsByNameId[groupNames[row]] = row;
+        }
+    }
+
+    /**
+     * @return builder for a {@link ColumnarGroupStore}
+     */
+    public static Builder builder() {
+        return new Builder() {
+            private final StringDictionary names = new StringDictionary();
+            private final IntArrayBuilder gids = new IntArrayBuilder();
+            private final IntArrayBuilder groupNames = new IntArrayBuilder();
+            private final List<int[]> members = new ArrayList<>();
+            private final List<int[]> sortedMembers = new ArrayList<>();
+
+            @Override
+            public void add(String name, int gid, String[] memberNames) {
+                gids.add(gid);
+                groupNames.add(names.idOf(name));
+                int[] memberIds = new int[memberNames.length];
+                for (int i = 0; i < memberNames.length; i++) {
+                    memberIds[i] = names.idOf(memberNames[i]);
+                }
+                members.add(memberIds);
+                sortedMembers.add(sorted(memberIds));
+            }
+
+            @Override
+            public GroupStore build() {
+                return new ColumnarGroupStore(names, gids.toArray(), groupNames.toArray(),
+                        members.toArray(new int[0][]), sortedMembers.toArray(new int[0][]));
+            }
+        };
+    }
+
+    /**
+     * @return the provided ids if they are already sorted, otherwise a sorted copy
+     */
+    private static int[] sorted(int[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1] > ids[i]) {
+                int[] sortedIds = ids.clone();
+                Arrays.sort(sortedIds);
+                return sortedIds;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public int size() {
+        return gids.length;
+    }
+
+    @Override
+    public Group getGroup(int row) {
+        Group group = new Group();
+        group.setName(names.get(groupNames[row]));
+        group.setGid(gids[row]);
+        String[] memberNames = new String[members[row].length];
+        for (int i = 0; i < memberNames.length; i++) {
+            memberNames[i] = names.get(members[row][i]);
+        }
+        group.setMembers(memberNames);
+        return group;
+    }
+
+    @Override
+    public List<Group> getAllGroups() {
+        List<Group> groups = new ArrayList<>(size());
+        for (int row = 0; row < size(); row++) {
+            groups.add(getGroup(row));
+        }
+        return groups;
+    }
+
+    @Override
+    public int findRowByGid(int gid) {
+        for (int row = 0; row < gids.length; row++) {
+            if (gids[row] == gid) {
+                return row;
+            }
+        }
+        return NO_ROW;
+    }
+
+    @Override
+    public int findRowByName(String name) {
+        int nameId = names.lookup(name);
+        return nameId == StringDictionary.NOT_FOUND ? NO_ROW : rowsByNameId[nameId];
+    }
+
+    @Override
+    public List<Group> getGroupsOfUser(String user) {
+        List<Group> matchedGroups = new ArrayList<>();
+        int userId = names.lookup(user);
+        if (userId == StringDictionary.NOT_FOUND) {
+            return matchedGroups;
+        }
+        for (int row = 0; row < gids.length; row++) {
+            if (Arrays.binarySearch(sortedMembers[row], userId) >= 0) {
+                matchedGroups.add(getGroup(row));
+            }
+        }
+        return matchedGroups;
+    }
+
+    @Override
+    public List<Group> queryGroups(String name, Integer gid, List<String> members) {
+        List<Group> matchedGroups = new ArrayList<>();
+        int nameId = name == null ? StringDictionary.NOT_FOUND : names.lookup(name);
+        if (name != null && nameId == StringDictionary.NOT_FOUND) {
+            return matchedGroups;
+        }
+        int[] requiredMembers = null;
+        if (members != null) {
+            requiredMembers = new int[members.size()];
+            for (int i = 0; i < requiredMembers.length; i++) {
+                requiredMembers[i] = names.lookup(members.get(i));
+                // A name that is not part of the snapshot cannot be a member of any group
+                if (requiredMembers[i] == StringDictionary.NOT_FOUND) {
+                    return matchedGroups;
+                }
+            }
+            requiredMembers = Arrays.stream(requiredMembers).sorted().distinct().toArray();
+        }
+        int gidValue = gid == null ? 0 : gid;
+        for (int row = 0; row < gids.length; row++) {
+            if ((name == null || groupNames[row] == nameId)
+                    && (gid == null || gids[row] == gidValue)
+                    && (requiredMembers == null || containsAll(sortedMembers[row], requiredMembers))) {
+                matchedGroups.add(getGroup(row));
+            }
+        }
+        return matchedGroups;
+    }
+
+    /**
+     * Merge two sorted id arrays to check that every required id is present.
+     */
+    private static boolean containsAll(int[] sortedIds, int[] requiredIds) {
+        if (requiredIds.length > sortedIds.length) {
+            return false;
+        }
+        int i = 0;
+        for (int required : requiredIds) {
+            while (i < sortedIds.length && sortedIds[i] < required) {
+                i++;
+            }
+            if (i == sortedIds.length || sortedIds[i] != required) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.groups;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.services.query.QueryEngine;
+import com.adonofero.challenge.services.query.QueryField;
+
+import java.util.Arrays;
+
+/**
+ * {@link QueryEngine} over the fields of the {@link Group}s in a {@link GroupStore}. A 'member' clause matches groups
+ * listing any member equal to, or starting with, its value. All fields are indexed.
+ *
+ * @author Alexander Donofero
+ */
+public class GroupQueryEngine extends QueryEngine<Group, GroupStore> {
+
+    /**
+     * @param cacheSize maximum number of parsed expressions kept
+     */
+    public GroupQueryEngine(int cacheSize) {
+        super(Arrays.asList(
+                QueryField.text("name", Group::getName, true),
+                QueryField.number("gid", Group::getGid, true),
+                QueryField.texts("member", Group::getMembers, true)), cacheSize);
+    }
+
+    @Override
+    protected int size(GroupStore store) {
+        return store.size();
+    }
+
+    @Override
+    protected Group get(GroupStore store, int row) {
+        return store.getGroup(row);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.groups;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.services.directory.EntityTags;
+
+import java.util.List;
+
+/**
+ * Storage engine holding a single parsed snapshot of the {@link Group}s on the system.
+ * <p>
+ * Rows are addressed by their position in the groups file. A store is immutable once built and may be read by any
+ * number of threads.
+ *
+ * @author Alexander Donofero
+ */
+public interface GroupStore {
+
+    /**
+     * Row returned by lookups that do not match any {@link Group}.
+     */
+    int NO_ROW = -1;
+
+    /**
+     * @return number of {@link Group}s in the store
+     */
+    int size();
+
+    /**
+     * Materialize the {@link Group} stored at a row.
+     *
+     * @param row row of the {@link Group}
+     * @return {@link Group} stored at the row
+     */
+    Group getGroup(int row);
+
+    /**
+     * @param row row of a {@link Group}
+     * @return gid of the {@link Group} stored at the row
+     */
+    default int getGid(int row) {
+        return getGroup(row).getGid();
+    }
+
+    /**
+     * @param row row of a {@link Group}
+     * @return {@link EntityTags entity tag} of the {@link Group} stored at the row
+     */
+    default long getTag(int row) {
+        return EntityTags.of(getGroup(row));
+    }
+
+    /**
+     * Materialize every {@link Group} in file order.
+     *
+     * @return list of all {@link Group}s
+     */
+    List<Group> getAllGroups();
+
+    /**
+     * Find the first row holding a {@link Group} with the provided gid.
+     *
+     * @param gid id of {@link Group}
+     * @return matching row or {@link #NO_ROW}
+     */
+    int findRowByGid(int gid);
+
+    /**
+     * Find the first row holding a {@link Group} with the provided name.
+     *
+     * @param name name of {@link Group}
+     * @return matching row or {@link #NO_ROW}
+     */
+    int findRowByName(String name);
+
+    /**
+     * Retrieve every {@link Group} listing the provided user as a member. See {@link GroupsService#getGroupsOfUser}.
+     *
+     * @param user name of user
+     * @return list of {@link Group}s containing the user
+     */
+    List<Group> getGroupsOfUser(String user);
+
+    /**
+     * Query for {@link Group}s matching all non-null criteria. See {@link GroupsService#queryGroups}.
+     *
+     * @return list of {@link Group}s matching all specified criteria
+     */
+    List<Group> queryGroups(String name, Integer gid, List<String> members);
+
+    /**
+     * Incrementally assembles a {@link GroupStore} from the lines of a groups file.
+     */
+    interface Builder {
+
+        /**
+         * Append a {@link Group} to the store being built.
+         */
+        void add(String name, int gid, String[] members);
+
+        /**
+         * @return immutable store holding every {@link Group} added so far
+         */
+        GroupStore build();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.groups;
+
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.RenderedJson;
+import com.adonofero.challenge.entity.ResultPage;
+import com.adonofero.challenge.entity.Stats;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+
+import java.util.List;
+
+/**
+ * Interface for the Service level for {@link Group}s
+ *
+ * @author Alexander Donofero
+ */
+public interface GroupsService {
+
+    /**
+     * Retrieves the current list of {@link Group}s.
+     *
+     * @return current list of {@link Group}s
+     * @throws UpdateFailureException if the current list of {@link Group}s cannot be retrieved
+     */
+    List<Group> getAllGroups() throws UpdateFailureException;
+
+    /**
+     * Retrieves the current list of {@link Group}s along with the version of the directory it was read from.
+     *
+     * @param sort  field to order the {@link Group}s by, optionally followed by ",asc" or ",desc", or null for groups
+     *              file order
+     * @param limit maximum number of {@link Group}s returned, or null for all of them
+     * @return current list of {@link Group}s and its version
+     * @throws UpdateFailureException if the current list of groups cannot be retrieved
+     * @throws InvalidQueryException  if the sort is malformed or refers to an unknown field
+     */
+    Versioned<List<Group>> getVersionedGroups(String sort, Integer limit) throws UpdateFailureException, InvalidQueryException;
+
+    /**
+     * @return whether the JSON of the {@link Group}s is rendered ahead of requests and available through
+     * {@link #getRenderedGroups()} and {@link #getRenderedGroupByID(int)}
+     */
+    boolean isPrerendered();
+
+    /**
+     * Retrieves the JSON of the current list of {@link Group}s, rendered when the groups were loaded, along with the
+     * version of the directory it was read from.
+     *
+     * @return JSON array of the current {@link Group}s, in groups file order, and its version
+     * @throws UpdateFailureException if the current list of groups cannot be retrieved
+     * @throws IllegalStateException  unless {@link #isPrerendered()}
+     */
+    Versioned<RenderedJson> getRenderedGroups() throws UpdateFailureException;
+
+    /**
+     * @return epoch of the versions handed out, drawn anew by every instance of the service: versions are only
+     * comparable within one epoch
+     */
+    long getEpoch();
+
+    /**
+     * Retrieves the {@link Group}s added, modified and removed since a version of the directory.
+     *
+     * @param epoch   epoch the client holds the version in, or null if unknown to the client
+     * @param version version the client holds
+     * @return net changes since the version
+     * @throws UpdateFailureException  if the current list of groups cannot be retrieved
+     * @throws ResyncRequiredException if the changes since the version are no longer available, or the version is of
+     *                                 another epoch
+     */
+    Delta<Group> getGroupsSince(Long epoch, long version) throws UpdateFailureException, ResyncRequiredException;
+
+    /**
+     * Retrieves all groups associated with the given uid.
+     *
+     * @param user name of user to find groups associated with
+     * @return list of {@link Group}s associated with provided uid
+     * @throws UpdateFailureException if the current list of {@link Group}s cannot be retrieved
+     */
+    List<Group> getGroupsOfUser(String user) throws UpdateFailureException;
+
+    /**
+     * Retrieve {@link Group} based on gid.
+     *
+     * @param gid id of group to retrieve
+     * @return {@link Group} associated with provided gid
+     * @throws UpdateFailureException  if the current list of {@link Group}s cannot be retrieved
+     * @throws EntityNotFoundException if no {@link Group} matches the provided uid
+     */
+    Group getGroupByID(int gid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve {@link Group} based on gid, along with its ETag.
+     *
+     * @param gid id of {@link Group}
+     * @return {@link Group} matching provided gid and its ETag
+     * @throws UpdateFailureException  if the current list of groups cannot be retrieved
+     * @throws EntityNotFoundException if no group matches the provided gid
+     */
+    Tagged<Group> getTaggedGroupByID(int gid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve the JSON of a {@link Group} based on gid, rendered when the groups were loaded, along with its ETag.
+     *
+     * @param gid id of {@link Group}
+     * @return JSON of the {@link Group} matching provided gid and its ETag
+     * @throws UpdateFailureException  if the current list of groups cannot be retrieved
+     * @throws EntityNotFoundException if no group matches the provided gid
+     * @throws IllegalStateException   unless {@link #isPrerendered()}
+     */
+    Tagged<RenderedJson> getRenderedGroupByID(int gid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve {@link Group} based on name.
+     *
+     * @param name name of group to retrieve
+     * @return first {@link Group} matching provided name
+     * @throws UpdateFailureException  if the current list of {@link Group}s cannot be retrieved
+     * @throws EntityNotFoundException if no {@link Group} matches the provided name
+     */
+    Group getGroupByName(String name) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve a page of the {@link User}s belonging to a gid: users whose primary gid it is and users listed as
+     * members of a {@link Group} with that gid.
+     *
+     * @param gid    id of group
+     * @param offset number of users to skip
+     * @param limit  maximum number of users to return
+     * @return page of {@link User}s belonging to the gid, in users file order
+     * @throws UpdateFailureException  if the current list of {@link Group}s or {@link User}s cannot be retrieved
+     * @throws EntityNotFoundException if neither a {@link Group} nor a {@link User} has the provided gid
+     */
+    ResultPage<User> getUsersOfGroup(int gid, int offset, int limit) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Count the {@link User}s belonging to each current {@link Group}, as {@link #getUsersOfGroup} does. Counts are kept
+     * with each version of the directory, so this costs the number of groups rather than the number of users.
+     *
+     * @return number of {@link User}s belonging to each gid of the {@link Group}s, from the largest to the smallest,
+     * with the number of distinct gids as the total
+     * @throws UpdateFailureException if the current list of {@link Group}s or {@link User}s cannot be retrieved
+     */
+    Stats getGroupStats() throws UpdateFailureException;
+
+    /**
+     * Query for {@link Group}s matching the input criteria. Pass 'null' for parameters to exclude them from the query.
+     * Excluding all parameters results in all current {@link Group}s being returned. Passing multiple parameters is the equivalent
+     * of an "AND" query in that a {@link Group} must match ALL criteria in order to be returned.
+     *
+     * @param name    name of group
+     * @param gid     id of group
+     * @param members subset of group members that must be present
+     * @param sort    field to order the {@link Group}s by, optionally followed by ",asc" or ",desc", or null for groups
+     *                file order
+     * @param limit   maximum number of {@link Group}s returned, or null for all of them
+     * @return
+     * @throws UpdateFailureException
+     * @throws InvalidQueryException if the sort is malformed or refers to an unknown field
+     */
+    List<Group> queryGroups(String name, Integer gid, List<String> members, String sort, Integer limit) throws UpdateFailureException, InvalidQueryException;
+
+    /**
+     * Query for {@link Group}s matching a boolean expression over their fields, e.g.
+     * {@code member = alice AND NOT name ^= sys}.
+     *
+     * @param expression query expression combining clauses on name, gid and member
+     * @param sort       field to order the {@link Group}s by, optionally followed by ",asc" or ",desc", or null for
+     *                   groups file order
+     * @param limit      maximum number of {@link Group}s returned, or null for all of them
+     * @return list of {@link Group}s matching the expression
+     * @throws UpdateFailureException if the current list of {@link Group}s cannot be retrieved
+     * @throws InvalidQueryException  if the expression or the sort is malformed or refers to unknown fields
+     */
+    List<Group> queryGroups(String expression, String sort, Integer limit) throws UpdateFailureException, InvalidQueryException;
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.groups;
+
+import com.adonofero.challenge.entity.ChangeSet;
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.RenderedJson;
+import com.adonofero.challenge.entity.ResultPage;
+import com.adonofero.challenge.entity.Stats;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.DirectorySnapshot;
+import com.adonofero.challenge.services.directory.JsonRecords;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.RenderMode;
+import com.adonofero.challenge.services.query.QueryResultCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Implementation of {@link GroupsService} that retrieves {@link Group}s from a local file.
+ * <p>
+ * DESIGN NOTE:
+ * Reading and caching the groups file is delegated to a {@link LocalFileDirectory} shared with the users service, so
+ * that requests spanning users and groups are answered from one consistent {@link DirectorySnapshot}. Changes since a
+ * version are answered from the history of the {@link ChangeLog} listening to that directory. Query results are
+ * cached under the version of the groups they were read from.
+ *
+ * @author Alexander Donofero
+ */
+public class LocalFileGroupsService implements GroupsService {
+
+    private final LocalFileDirectory directory;
+    private final ChangeLog changeLog;
+    private final GroupQueryEngine queryEngine = new GroupQueryEngine(1024);
+    private final QueryResultCache<Group> resultCache;
+
+    /**
+     * @param resultCache cache of the results of queries, keyed by their normalized parameters and the version of the
+     *                    groups
+     */
+    public LocalFileGroupsService(LocalFileDirectory directory, ChangeLog changeLog, QueryResultCache<Group> resultCache) {
+        this.directory = directory;
+        this.changeLog = changeLog;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public List<Group> getAllGroups() throws UpdateFailureException {
+        return getCurrentGroups().getAllGroups();
+    }
+
+    @Override
+    public Versioned<List<Group>> getVersionedGroups(String sort, Integer limit) throws UpdateFailureException, InvalidQueryException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        if (sort == null && limit == null) {
+            return new Versioned<>(snapshot.getVersion(), snapshot.getGroups().getAllGroups());
+        }
+        return new Versioned<>(snapshot.getVersion(), queryEngine.query(null, snapshot.getGroups(), sort, limit));
+    }
+
+    @Override
+    public boolean isPrerendered() {
+        return directory.getRenderMode() == RenderMode.PRERENDERED;
+    }
+
+    @Override
+    public Versioned<RenderedJson> getRenderedGroups() throws UpdateFailureException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        return new Versioned<>(snapshot.getVersion(), renderedGroups(snapshot).getAll());
+    }
+
+    @Override
+    public long getEpoch() {
+        return directory.getEpoch();
+    }
+
+    @Override
+    public Delta<Group> getGroupsSince(Long epoch, long version) throws UpdateFailureException, ResyncRequiredException {
+        long current = directory.getGroupsSnapshot().getVersion();
+        // A version of another epoch was handed out by an earlier instance, and says nothing about this one's history
+        boolean known = (epoch == null || epoch == directory.getEpoch()) && version <= current;
+        Delta<Group> delta = known ? changeLog.deltaSince(version, ChangeSet::getGroups, Group::getName) : null;
+        if (delta == null) {
+            throw new ResyncRequiredException(version, directory.getEpoch(), current);
+        }
+        return delta;
+    }
+
+    @Override
+    public List<Group> getGroupsOfUser(String user) throws UpdateFailureException {
+        return getCurrentGroups().getGroupsOfUser(user);
+    }
+
+    @Override
+    public Group getGroupByID(int gid) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        return snapshot.getGroups().getGroup(findRowByGid(snapshot, gid));
+    }
+
+    @Override
+    public Tagged<Group> getTaggedGroupByID(int gid) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        int row = findRowByGid(snapshot, gid);
+        return new Tagged<>(snapshot.getGroupTag(row), snapshot.getGroups().getGroup(row));
+    }
+
+    @Override
+    public Tagged<RenderedJson> getRenderedGroupByID(int gid) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        int row = findRowByGid(snapshot, gid);
+        return new Tagged<>(snapshot.getGroupTag(row), renderedGroups(snapshot).get(row));
+    }
+
+    @Override
+    public Group getGroupByName(String name) throws UpdateFailureException, EntityNotFoundException {
+        GroupStore groups = getCurrentGroups();
+        int row = groups.findRowByName(name);
+        if (row != GroupStore.NO_ROW) {
+            return groups.getGroup(row);
+        }
+        throw new EntityNotFoundException("group", "name", name);
+    }
+
+    @Override
+    public ResultPage<User> getUsersOfGroup(int gid, int offset, int limit) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getSnapshot();
+        if (!snapshot.hasGid(gid)) {
+            throw new EntityNotFoundException("group", "gid", gid);
+        }
+        return snapshot.getUsersOfGroup(gid, offset, limit);
+    }
+
+    @Override
+    public Stats getGroupStats() throws UpdateFailureException {
+        DirectorySnapshot snapshot = directory.getSnapshot();
+        Map<String, Integer> counts = snapshot.getGroupSizes().getCounts();
+        return new Stats(snapshot.getVersion(), "gid", counts.size(), counts);
+    }
+
+    @Override
+    public List<Group> queryGroups(String name, Integer gid, List<String> members, String sort, Integer limit) throws UpdateFailureException, InvalidQueryException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        List<Object> parts = new ArrayList<>(Arrays.asList("fields", name, gid));
+        if (members != null) {
+            // Members are a set to match, so their order and repetitions do not change the results
+            Set<String> sorted = new TreeSet<>(members);
+            parts.add(sorted.size());
+            parts.addAll(sorted);
+        }
+        parts.add(sort == null ? null : queryEngine.normalizeSort(sort));
+        parts.add(limit);
+        String key = QueryResultCache.key(snapshot.getGroupsVersion(), parts.toArray());
+        List<Group> groups = resultCache.get(key);
+        if (groups == null) {
+            if (sort == null) {
+                groups = queryEngine.limit(snapshot.getGroups().queryGroups(name, gid, members), limit);
+            } else {
+                // Planned as an expression, so that the order is read from the index of the sort field
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("name", name);
+                values.put("gid", gid);
+                values.put("member", members);
+                groups = queryEngine.match(values, snapshot.getGroups(), sort, limit);
+            }
+            groups = resultCache.put(key, groups);
+        }
+        return groups;
+    }
+
+    @Override
+    public List<Group> queryGroups(String expression, String sort, Integer limit) throws UpdateFailureException, InvalidQueryException {
+        DirectorySnapshot snapshot = directory.getGroupsSnapshot();
+        String key = QueryResultCache.key(snapshot.getGroupsVersion(), "expression", queryEngine.normalize(expression),
+                sort == null ? null : queryEngine.normalizeSort(sort), limit);
+        List<Group> groups = resultCache.get(key);
+        if (groups == null) {
+            groups = resultCache.put(key, queryEngine.query(expression, snapshot.getGroups(), sort, limit));
+        }
+        return groups;
+    }
+
+    /**
+     * Private helper method to retrieve the current system {@link Group}s from the configured location
+     *
+     * @return All groups currently on the system
+     */
+    private GroupStore getCurrentGroups() throws UpdateFailureException {
+        return directory.getGroupsSnapshot().getGroups();
+    }
+
+    private static JsonRecords renderedGroups(DirectorySnapshot snapshot) {
+        JsonRecords rendered = snapshot.getGroupJson();
+        if (rendered == null) {
+            throw new IllegalStateException("Groups are only rendered ahead of requests in prerendered render mode");
+        }
+        return rendered;
+    }
+
+    private int findRowByGid(DirectorySnapshot snapshot, int gid) throws EntityNotFoundException {
+        // Unknown gids are turned away by the filter of the snapshot without searching the groups
+        int row = snapshot.mightHaveGroupGid(gid) ? snapshot.getGroups().findRowByGid(gid) : GroupStore.NO_ROW;
+        if (row == GroupStore.NO_ROW) {
+            throw new EntityNotFoundException("group", "gid", gid);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.groups;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.services.directory.EntityTags;
+import com.adonofero.challenge.services.directory.IntArrayBuilder;
+import com.adonofero.challenge.services.directory.OffHeapArena;
+import com.adonofero.challenge.services.directory.OffHeapHashIndex;
+import com.adonofero.challenge.services.directory.OffHeapLongList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link GroupStore} that keeps the {@link Group}s and their indexes in direct memory so the heap footprint does not
+ * grow with the size of the directory.
+ * <p>
+ * Each group is packed into an {@link OffHeapArena} as gid, name, member count and member names. Row to record
+ * addresses and the gid and name indexes live in direct memory as well. {@link Group} objects are only decoded for
+ * rows that end up in a response; gids and entity tags are read from the arena in place.
+ *
+ * @author Alexander Donofero
+ */
+public class OffHeapGroupStore implements GroupStore {
+
+    private static final int GID_OFFSET = 0;
+    private static final int MEMBER_COUNT_OFFSET = 4;
+    private static final int NAME_OFFSET = 8;
+
+    private final OffHeapArena arena;
+    private final OffHeapLongList addresses;
+    private final OffHeapHashIndex gidIndex;
+    private final OffHeapHashIndex nameIndex;
+
+    private OffHeapGroupStore(OffHeapArena arena, OffHeapLongList addresses) {
+        this.arena = arena;
+        this.addresses = addresses;
+        this.gidIndex = new OffHeapHashIndex(addresses.size());
+        this.nameIndex = new OffHeapHashIndex(addresses.size());
+        for (int row = 0; row < addresses.size(); row++) {
+            long address = addresses.get(row);
+            gidIndex.put(arena.getInt(address + GID_OFFSET), row);
+            nameIndex.put(arena.stringHash(address + NAME_OFFSET), row);
+        }
+    }
+
+    /**
+     * @return builder for an {@link OffHeapGroupStore}
+     */
+    public static Builder builder() {
+        return new Builder() {
+            private final OffHeapArena arena = new OffHeapArena();
+            private final OffHeapLongList addresses = new OffHeapLongList();
+
+            @Override
+            public void add(String name, int gid, String[] members) {
+                byte[] encodedName = OffHeapArena.encode(name);
+                byte[][] encodedMembers = new byte[members.length][];
+                int length = NAME_OFFSET + OffHeapArena.encodedSize(encodedName);
+                for (int i = 0; i < members.length; i++) {
+                    encodedMembers[i] = OffHeapArena.encode(members[i]);
+                    length += OffHeapArena.encodedSize(encodedMembers[i]);
+                }
+                long address = arena.allocate(length);
+                arena.putInt(address + GID_OFFSET, gid);
+                arena.putInt(address + MEMBER_COUNT_OFFSET, members.length);
+                long next = arena.putString(address + NAME_OFFSET, encodedName);
+                for (byte[] encodedMember : encodedMembers) {
+                    next = arena.putString(next, encodedMember);
+                }
+                addresses.add(address);
+            }
+
+            @Override
+            public GroupStore build() {
+                return new OffHeapGroupStore(arena, addresses);
+            }
+        };
+    }
+
+    /**
+     * @return number of bytes of direct memory held by this store
+     */
+    public long offHeapBytes() {
+        return arena.capacity() + addresses.capacity() + gidIndex.capacity() + nameIndex.capacity();
+    }
+
+    @Override
+    public int size() {
+        return addresses.size();
+    }
+
+    @Override
+    public Group getGroup(int row) {
+        long address = addresses.get(row);
+        Group group = new Group();
+        group.setGid(arena.getInt(address + GID_OFFSET));
+        long next = address + NAME_OFFSET;
+        group.setName(arena.getString(next));
+        String[] members = new String[arena.getInt(address + MEMBER_COUNT_OFFSET)];
+        for (int i = 0; i < members.length; i++) {
+            next = arena.skipString(next);
+            members[i] = arena.getString(next);
+        }
+        group.setMembers(members);
+        return group;
+    }
+
+    @Override
+    public int getGid(int row) {
+        return arena.getInt(addresses.get(row) + GID_OFFSET);
+    }
+
+    @Override
+    public long getTag(int row) {
+        long address = addresses.get(row);
+        long next = address + NAME_OFFSET;
+        long tag = EntityTags.mix(EntityTags.start(), arena, next);
+        tag = EntityTags.mix(tag, arena.getInt(address + GID_OFFSET));
+        int memberCount = arena.getInt(address + MEMBER_COUNT_OFFSET);
+        for (int i = 0; i < memberCount; i++) {
+            next = arena.skipString(next);
+            tag = EntityTags.mix(tag, arena, next);
+        }
+        return tag;
+    }
+
+    @Override
+    public List<Group> getAllGroups() {
+        List<Group> groups = new ArrayList<>(size());
+        for (int row = 0; row < size(); row++) {
+            groups.add(getGroup(row));
+        }
+        return groups;
+    }
+
+    @Override
+    public int findRowByGid(int gid) {
+        return gidIndex.findFirst(gid, row -> true);
+    }
+
+    @Override
+    public int findRowByName(String name) {
+        byte[] encodedName = OffHeapArena.encode(name);
+        return nameIndex.findFirst(OffHeapArena.hash(encodedName), row -> arena.stringEquals(addresses.get(row) + NAME_OFFSET, encodedName));
+    }
+
+    @Override
+    public List<Group> getGroupsOfUser(String user) {
+        byte[] encodedUser = OffHeapArena.encode(user);
+        List<Group> matchedGroups = new ArrayList<>();
+        for (int row = 0; row < size(); row++) {
+            if (hasMember(addresses.get(row), encodedUser)) {
+                matchedGroups.add(getGroup(row));
+            }
+        }
+        return matchedGroups;
+    }
+
+    @Override
+    public List<Group> queryGroups(String name, Integer gid, List<String> members) {
+        byte[] encodedName = name == null ? null : OffHeapArena.encode(name);
+        // Use the most selective index available to produce candidate rows, falling back to a scan of every row
+        IntArrayBuilder candidates = new IntArrayBuilder();
+        if (gid != null) {
+            gidIndex.forEach(gid, candidates::add);
+        } else if (name != null) {
+            nameIndex.forEach(OffHeapArena.hash(encodedName), candidates::add);
+        } else {
+            for (int row = 0; row < size(); row++) {
+                candidates.add(row);
+            }
+        }
+        List<byte[]> encodedMembers = new ArrayList<>();
+        if (members != null) {
+            for (String member : members) {
+                encodedMembers.add(OffHeapArena.encode(member));
+            }
+        }
+        List<Group> matchedGroups = new ArrayList<>();
+        for (int row : candidates.toArray()) {
+            long address = addresses.get(row);
+            if ((gid != null && arena.getInt(address + GID_OFFSET) != gid) || (name != null && !arena.stringEquals(address + NAME_OFFSET, encodedName))) {
+                continue;
+            }
+            boolean hasAllMembers = true;
+            for (byte[] encodedMember : encodedMembers) {
+                if (!hasMember(address, encodedMember)) {
+                    hasAllMembers = false;
+                    break;
+                }
+            }
+            if (hasAllMembers) {
+                matchedGroups.add(getGroup(row));
+            }
+        }
+        return matchedGroups;
+    }
+
+    private boolean hasMember(long address, byte[] encodedMember) {
+        int memberCount = arena.getInt(address + MEMBER_COUNT_OFFSET);
+        long next = arena.skipString(address + NAME_OFFSET);
+        for (int i = 0; i < memberCount; i++) {
+            if (arena.stringEquals(next, encodedMember)) {
+                return true;
+            }
+            next = arena.skipString(next);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+
+/**
+ * Estimated heap footprint of users and groups, used to bound the bytes pinned by a {@link QueryResultCache}.
+ * <p>
+ * DESIGN NOTE:
+ * Estimates assume a 64-bit JVM with compressed references and count every string as if it were not shared, which
+ * overstates entities whose strings come from the dictionary of a columnar store. Overstating only makes the cache
+ * evict earlier.
+ *
+ * @author Alexander Donofero
+ */
+public final class EntitySizes {
+
+    private static final long OBJECT_HEADER = 16;
+    private static final long REFERENCE = 4;
+
+    private EntitySizes() {
+    }
+
+    public static long of(User user) {
+        return OBJECT_HEADER + 4 * REFERENCE + 2 * Integer.BYTES
+                + of(user.getName()) + of(user.getComment()) + of(user.getHome()) + of(user.getShell());
+    }
+
+    public static long of(Group group) {
+        long bytes = OBJECT_HEADER + 2 * REFERENCE + Integer.BYTES + of(group.getName());
+        String[] members = group.getMembers();
+        bytes += OBJECT_HEADER + REFERENCE * members.length;
+        for (String member : members) {
+            bytes += of(member);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return bytes of a string and of its array of characters
+     */
+    private static long of(String value) {
+        return value == null ? 0 : 24 + OBJECT_HEADER + 2L * value.length();
+    }
+}
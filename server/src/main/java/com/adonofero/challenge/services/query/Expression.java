@@ -0,0 +1,372 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Parsed query expression, evaluated as a tree of predicates over entities.
+ * <p>
+ * Besides matching entities, each node estimates how many rows its indexes would yield and produces those rows, so
+ * that the planner can look up the selective parts of an expression and only verify the rest on the candidates.
+ *
+ * @param <T> entity matched by the expression
+ * @author Alexander Donofero
+ */
+abstract class Expression<T> implements Predicate<T> {
+
+    /**
+     * Estimate of an expression which cannot be answered from indexes.
+     */
+    static final long SCAN = Long.MAX_VALUE;
+
+    /**
+     * @param indexes indexes of the store queried
+     * @return number of candidate rows the indexes yield for this expression, or {@link #SCAN}
+     */
+    abstract long estimate(Indexes<T> indexes);
+
+    /**
+     * Only called on expressions with a finite {@link #estimate}.
+     *
+     * @param indexes indexes of the store queried
+     * @return rows which may match, in any order and possibly repeated, including every row which does match
+     */
+    abstract int[] candidates(Indexes<T> indexes);
+
+    /**
+     * Build the conjunction of operands, flattening nested conjunctions and merging ranges on the same field into
+     * one, so that "uid >= 1000 AND uid < 2000" is looked up as a single range.
+     */
+    static <T> Expression<T> and(List<Expression<T>> operands) {
+        List<Expression<T>> flattened = new ArrayList<>();
+        Map<QueryField<T>, Range<T>> ranges = new LinkedHashMap<>();
+        for (Expression<T> operand : operands) {
+            for (Expression<T> each : operand instanceof And ? ((And<T>) operand).operands : Collections.singletonList(operand)) {
+                if (each instanceof Range) {
+                    Range<T> range = (Range<T>) each;
+                    Range<T> merged = ranges.get(range.field);
+                    ranges.put(range.field, merged == null ? range
+                            : new Range<>(range.field, Math.max(merged.min, range.min), Math.min(merged.max, range.max)));
+                } else {
+                    flattened.add(each);
+                }
+            }
+        }
+        flattened.addAll(0, ranges.values());
+        return flattened.size() == 1 ? flattened.get(0) : new And<>(flattened);
+    }
+
+    static final class And<T> extends Expression<T> {
+
+        private final List<Expression<T>> operands;
+
+        private And(List<Expression<T>> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            for (Expression<T> operand : operands) {
+                if (!operand.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            long estimate = SCAN;
+            for (Expression<T> operand : operands) {
+                estimate = Math.min(estimate, operand.estimate(indexes));
+            }
+            return estimate;
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            // Only the most selective operand is looked up; the others are verified on its candidates
+            Expression<T> selective = operands.get(0);
+            long best = SCAN;
+            for (Expression<T> operand : operands) {
+                long estimate = operand.estimate(indexes);
+                if (estimate < best) {
+                    best = estimate;
+                    selective = operand;
+                }
+            }
+            return selective.candidates(indexes);
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " AND ");
+        }
+    }
+
+    static final class Or<T> extends Expression<T> {
+
+        private final List<Expression<T>> operands;
+
+        Or(List<Expression<T>> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            for (Expression<T> operand : operands) {
+                if (operand.test(entity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            long estimate = 0;
+            for (Expression<T> operand : operands) {
+                long each = operand.estimate(indexes);
+                if (each == SCAN) {
+                    return SCAN;
+                }
+                estimate += each;
+            }
+            return estimate;
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            List<int[]> parts = new ArrayList<>(operands.size());
+            int total = 0;
+            for (Expression<T> operand : operands) {
+                int[] part = operand.candidates(indexes);
+                parts.add(part);
+                total += part.length;
+            }
+            int[] candidates = new int[total];
+            int offset = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, candidates, offset, part.length);
+                offset += part.length;
+            }
+            return candidates;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " OR ");
+        }
+    }
+
+    static final class Not<T> extends Expression<T> {
+
+        private final Expression<T> operand;
+
+        Not(Expression<T> operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            return !operand.test(entity);
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            return SCAN;
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            throw new UnsupportedOperationException("Negations are answered by scanning");
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + operand;
+        }
+    }
+
+    static final class Equals<T> extends Expression<T> {
+
+        private final QueryField<T> field;
+        private final String value;
+
+        Equals(QueryField<T> field, String value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            return field.equalTo(entity, value);
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            SortedIndex index = indexes.sorted(field);
+            return index == null ? SCAN : index.upperBound(value) - index.lowerBound(value);
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            SortedIndex index = indexes.sorted(field);
+            return index.rows(index.lowerBound(value), index.upperBound(value));
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + " = " + quote(value);
+        }
+    }
+
+    static final class Prefix<T> extends Expression<T> {
+
+        private final QueryField<T> field;
+        private final String prefix;
+
+        Prefix(QueryField<T> field, String prefix) {
+            this.field = field;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            return field.startsWith(entity, prefix);
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            SortedIndex index = indexes.sorted(field);
+            return index == null ? SCAN : index.prefixEnd(prefix) - index.lowerBound(prefix);
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            SortedIndex index = indexes.sorted(field);
+            return index.rows(index.lowerBound(prefix), index.prefixEnd(prefix));
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + " ^= " + quote(prefix);
+        }
+    }
+
+    /**
+     * Case insensitive substring, looked up through the trigrams of the field when it is at least three characters.
+     */
+    static final class Contains<T> extends Expression<T> {
+
+        private final QueryField<T> field;
+        private final String text;
+
+        Contains(QueryField<T> field, String text) {
+            this.field = field;
+            this.text = text.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean test(T entity) {
+            return field.contains(entity, text);
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            TrigramIndex index = text.length() < 3 ? null : indexes.trigrams(field);
+            return index == null ? SCAN : index.estimate(text);
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            return indexes.trigrams(field).candidates(text);
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + " ~= " + quote(text);
+        }
+    }
+
+    /**
+     * Numeric range, inclusive at both ends. {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} leave an end open.
+     */
+    static final class Range<T> extends Expression<T> {
+
+        private final QueryField<T> field;
+        private final long min;
+        private final long max;
+
+        Range(QueryField<T> field, long min, long max) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            int value = field.number(entity);
+            return value >= min && value <= max;
+        }
+
+        @Override
+        long estimate(Indexes<T> indexes) {
+            SortedIndex index = indexes.sorted(field);
+            return index == null ? SCAN : Math.max(0, index.upperBound(max) - index.lowerBound(min));
+        }
+
+        @Override
+        int[] candidates(Indexes<T> indexes) {
+            SortedIndex index = indexes.sorted(field);
+            int from = index.lowerBound(min);
+            return index.rows(from, Math.max(from, index.upperBound(max)));
+        }
+
+        @Override
+        public String toString() {
+            if (min == max) {
+                return field.getName() + " = " + min;
+            }
+            if (min == Long.MIN_VALUE) {
+                return field.getName() + " <= " + max;
+            }
+            if (max == Long.MAX_VALUE) {
+                return field.getName() + " >= " + min;
+            }
+            return "(" + field.getName() + " >= " + min + " AND " + field.getName() + " <= " + max + ")";
+        }
+    }
+
+    private static String join(List<? extends Expression<?>> operands, String separator) {
+        StringBuilder joined = new StringBuilder("(");
+        for (int i = 0; i < operands.size(); i++) {
+            joined.append(i == 0 ? "" : separator).append(operands.get(i));
+        }
+        return joined.append(')').toString();
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+/**
+ * Indexes of the fields of one store available to the planner.
+ *
+ * @param <T> entity held by the store
+ * @author Alexander Donofero
+ */
+interface Indexes<T> {
+
+    /**
+     * @return index of the values of the field, or null if the field has none
+     */
+    SortedIndex sorted(QueryField<T> field);
+
+    /**
+     * @return index of the trigrams of the values of the field, or null if the field has none
+     */
+    TrigramIndex trigrams(QueryField<T> field);
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers query expressions over the rows of a store.
+ * <p>
+ * DESIGN NOTE:
+ * Expressions are parsed once into a tree of predicates and kept in a bounded LRU cache keyed by their text, since
+ * clients send the same few expressions over and over. Each execution is then planned against the store: the planner
+ * estimates how many rows the indexes of the expression's fields yield, looks up the most selective operand of each
+ * conjunction, and verifies the whole expression on those candidates only. Expressions without a selective indexed
+ * operand, e.g. negations or a prefix matching most names, are answered with a scan instead.
+ * <p>
+ * Indexes are built per store the first time an expression needs them and dropped along with the store when a new
+ * snapshot replaces it, so deployments which never query a field never pay for its index.
+ * <p>
+ * Results ordered by an indexed field are read in the order of its index, stopping as soon as enough rows have
+ * matched, unless the expression is selective enough to be looked up. Other orders, and orders of looked up
+ * candidates, keep the first rows in a bounded heap, so no request ever sorts the whole store. For that reason
+ * ordering by a field without an index requires a limit.
+ *
+ * @param <T> entity queried
+ * @param <S> store holding the entities
+ * @author Alexander Donofero
+ */
+public abstract class QueryEngine<T, S> {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryEngine.class);
+
+    /**
+     * Candidates beyond this fraction of the rows cost more to look up and verify than a scan.
+     */
+    private static final int SCAN_FRACTION = 4;
+
+    private final Map<String, QueryField<T>> fields = new LinkedHashMap<>();
+    private final List<String> sortable = new ArrayList<>();
+    private final Map<String, Expression<T>> expressions;
+    /**
+     * Indexes of every store still referenced, weakly keyed so they are dropped along with the store. Requests still
+     * reading a store replaced by a reload therefore keep using its indexes instead of replacing those of the newer store.
+     */
+    private final Map<S, StoreIndexes> indexes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param fields    fields expressions may refer to
+     * @param cacheSize maximum number of parsed expressions kept
+     */
+    protected QueryEngine(List<QueryField<T>> fields, int cacheSize) {
+        for (QueryField<T> field : fields) {
+            this.fields.put(field.getName().toLowerCase(Locale.ROOT), field);
+            if (!field.isMultiValued()) {
+                sortable.add(field.getName());
+            }
+        }
+        this.expressions = Collections.synchronizedMap(new LinkedHashMap<String, Expression<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression<T>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * @return number of rows of the store
+     */
+    protected abstract int size(S store);
+
+    /**
+     * @return entity stored at a row of the store
+     */
+    protected abstract T get(S store, int row);
+
+    /**
+     * @param expression query expression, see {@link QueryParser} for the syntax
+     * @param store      store to query
+     * @return entities matching the expression, in row order
+     * @throws InvalidQueryException if the expression is malformed or refers to unknown fields
+     */
+    public List<T> query(String expression, S store) throws InvalidQueryException {
+        return query(expression, store, null, null);
+    }
+
+    /**
+     * @param expression query expression, see {@link QueryParser} for the syntax, or null to match every entity
+     * @param store      store to query
+     * @param sort       field to order the entities by, optionally followed by ",asc" or ",desc", or null for row order
+     * @param limit      maximum number of entities returned, or null for all of them; required when sorting on a field
+     *                   without an index
+     * @return entities matching the expression, in the order requested
+     * @throws InvalidQueryException if the expression or the sort is malformed or refers to unknown fields
+     */
+    public List<T> query(String expression, S store, String sort, Integer limit) throws InvalidQueryException {
+        return execute(expression == null ? null : parse(expression), store, sort, limit);
+    }
+
+    /**
+     * Answer a query on the attributes of the entities, such as the parameters of /users/query, with the same plans as
+     * an expression, so that ordering the matches reads the index of the sort field rather than sorting all of them.
+     *
+     * @param values values the fields must be equal to, keyed by field name; null values are ignored and every element
+     *               of a collection must match, as the members of a group do
+     * @param store  store to query
+     * @param sort   field to order the entities by, optionally followed by ",asc" or ",desc", or null for row order
+     * @param limit  maximum number of entities returned, or null for all of them; required when sorting on a field
+     *               without an index
+     * @return entities matching every value, in the order requested
+     * @throws InvalidQueryException if the sort is malformed or refers to an unknown field
+     */
+    public List<T> match(Map<String, ?> values, S store, String sort, Integer limit) throws InvalidQueryException {
+        List<Expression<T>> operands = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            QueryField<T> field = fields.get(entry.getKey().toLowerCase(Locale.ROOT));
+            if (field == null) {
+                throw new IllegalArgumentException("Cannot query unknown field " + entry.getKey());
+            }
+            if (entry.getValue() instanceof Collection) {
+                for (Object value : (Collection<?>) entry.getValue()) {
+                    operands.add(equalTo(field, value));
+                }
+            } else if (entry.getValue() != null) {
+                operands.add(equalTo(field, entry.getValue()));
+            }
+        }
+        return execute(operands.isEmpty() ? null : Expression.and(operands), store, sort, limit);
+    }
+
+    private static <T> Expression<T> equalTo(QueryField<T> field, Object value) {
+        if (field.isNumeric()) {
+            long number = ((Number) value).longValue();
+            return new Expression.Range<>(field, number, number);
+        }
+        return new Expression.Equals<>(field, (String) value);
+    }
+
+    private List<T> execute(Expression<T> parsed, S store, String sort, Integer limit) throws InvalidQueryException {
+        Order<T> order = sort == null ? null : order(sort, limit);
+        StoreIndexes storeIndexes = indexes(store);
+        int size = size(store);
+        int max = limit == null ? Integer.MAX_VALUE : limit;
+        int[] rows = null;
+        if (parsed != null && parsed.estimate(storeIndexes) <= size / SCAN_FRACTION) {
+            rows = parsed.candidates(storeIndexes);
+            Arrays.sort(rows);
+            logger.debug("Planned {} as an index lookup of {} candidate rows", parsed, rows.length);
+        } else if (order != null && order.field.isIndexed()) {
+            // The index of the sort field yields rows in order, so the scan stops as soon as the limit is reached
+            SortedIndex index = storeIndexes.sorted(order.field);
+            logger.debug("Planned {} as a scan of up to {} rows in {} order", parsed == null ? "a listing" : parsed, size, order);
+            List<T> matched = new ArrayList<>();
+            for (int i = 0; i < index.size() && matched.size() < max; i++) {
+                T entity = get(store, index.rowAt(order.descending ? index.size() - 1 - i : i));
+                if (parsed == null || parsed.test(entity)) {
+                    matched.add(entity);
+                }
+            }
+            return matched;
+        } else if (parsed != null) {
+            logger.debug("Planned {} as a scan of {} rows", parsed, size);
+        }
+        int count = rows == null ? size : rows.length;
+        TopK<T> top = order == null ? null : new TopK<>(order.field::compare, order.descending, Math.min(max, count));
+        List<T> matched = new ArrayList<>();
+        for (int i = 0; i < count && (top != null || matched.size() < max); i++) {
+            if (rows != null && i > 0 && rows[i] == rows[i - 1]) {
+                continue;
+            }
+            int row = rows == null ? i : rows[i];
+            T entity = get(store, row);
+            if (parsed == null || parsed.test(entity)) {
+                if (top != null) {
+                    top.offer(entity, row);
+                } else {
+                    matched.add(entity);
+                }
+            }
+        }
+        return top == null ? matched : top.toList();
+    }
+
+    /**
+     * Cut short entities already retrieved, e.g. the results of a query on the attributes of a store. Ordered results
+     * are planned with {@link #match} instead, so that they are never sorted as a whole.
+     *
+     * @param entities entities, in row order
+     * @param limit    maximum number of entities returned, or null for all of them
+     * @return the first entities
+     */
+    public List<T> limit(List<T> entities, Integer limit) {
+        return limit == null || limit >= entities.size() ? entities : new ArrayList<>(entities.subList(0, limit));
+    }
+
+    /**
+     * @param sort field to order entities by, optionally followed by ",asc" or ",desc"
+     * @return the sort in a canonical form
+     * @throws InvalidQueryException if the sort is malformed or refers to an unknown field
+     */
+    public String normalizeSort(String sort) throws InvalidQueryException {
+        return order(sort, 0).toString();
+    }
+
+    /**
+     * @param expression query expression, see {@link QueryParser} for the syntax
+     * @return the expression in a canonical form, the same for expressions differing only in spacing, quoting, the
+     * case of keywords and field names, or the nesting of conjunctions
+     * @throws InvalidQueryException if the expression is malformed or refers to unknown fields
+     */
+    public String normalize(String expression) throws InvalidQueryException {
+        return parse(expression).toString();
+    }
+
+    private Expression<T> parse(String expression) throws InvalidQueryException {
+        Expression<T> parsed = expressions.get(expression);
+        if (parsed == null) {
+            parsed = QueryParser.parse(expression, fields);
+            expressions.put(expression, parsed);
+        }
+        return parsed;
+    }
+
+    private Order<T> order(String sort, Integer limit) throws InvalidQueryException {
+        int comma = sort.indexOf(',');
+        String name = (comma < 0 ? sort : sort.substring(0, comma)).trim();
+        String direction = comma < 0 ? "asc" : sort.substring(comma + 1).trim().toLowerCase(Locale.ROOT);
+        QueryField<T> field = fields.get(name.toLowerCase(Locale.ROOT));
+        if (field == null || field.isMultiValued()) {
+            throw new InvalidQueryException(String.format("Cannot sort on '%s'. Expected one of %s", name, String.join(", ", sortable)));
+        }
+        if (!direction.equals("asc") && !direction.equals("desc")) {
+            throw new InvalidQueryException(String.format("Expected asc or desc as the sort direction. Found '%s'", direction));
+        }
+        if (!field.isIndexed() && limit == null) {
+            // Without an index the whole result would have to be sorted on every request
+            throw new InvalidQueryException(String.format("Sorting on field '%s' requires a limit", field.getName()));
+        }
+        return new Order<>(field, direction.equals("desc"));
+    }
+
+    private StoreIndexes indexes(S store) {
+        return indexes.computeIfAbsent(store, StoreIndexes::new);
+    }
+
+    /**
+     * Field to order entities by and direction.
+     */
+    private static final class Order<T> {
+
+        private final QueryField<T> field;
+        private final boolean descending;
+
+        private Order(QueryField<T> field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        @Override
+        public String toString() {
+            return field.getName() + (descending ? ",desc" : ",asc");
+        }
+    }
+
+    /**
+     * Indexes of one store, each built on first use.
+     */
+    private final class StoreIndexes implements Indexes<T> {
+
+        /**
+         * Weak so that the entry of the store in {@link #indexes} can be collected. Indexes are only built while a
+         * query holds the store, so it is never cleared when read.
+         */
+        private final WeakReference<S> store;
+        private final Map<QueryField<T>, SortedIndex> sorted = new ConcurrentHashMap<>();
+        private final Map<QueryField<T>, TrigramIndex> trigrams = new ConcurrentHashMap<>();
+
+        private StoreIndexes(S store) {
+            this.store = new WeakReference<>(store);
+        }
+
+        @Override
+        public TrigramIndex trigrams(QueryField<T> field) {
+            if (!field.isTrigramIndexed()) {
+                return null;
+            }
+            return trigrams.computeIfAbsent(field, key -> {
+                long start = System.nanoTime();
+                S held = store.get();
+                TrigramIndex index = key.trigrams(size(held), row -> QueryEngine.this.get(held, row));
+                logger.debug("Built trigram index of {} in {} us", key.getName(), (System.nanoTime() - start) / 1000);
+                return index;
+            });
+        }
+
+        @Override
+        public SortedIndex sorted(QueryField<T> field) {
+            if (!field.isIndexed()) {
+                return null;
+            }
+            return sorted.computeIfAbsent(field, key -> {
+                long start = System.nanoTime();
+                S held = store.get();
+                SortedIndex index = key.index(size(held), row -> QueryEngine.this.get(held, row));
+                logger.debug("Built index of {} over {} rows in {} us", key.getName(), index.size(), (System.nanoTime() - start) / 1000);
+                return index;
+            });
+        }
+    }
+}
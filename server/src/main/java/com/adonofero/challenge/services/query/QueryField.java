@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Field of an entity which query expressions may refer to.
+ *
+ * @param <T> entity holding the field
+ * @author Alexander Donofero
+ */
+public final class QueryField<T> {
+
+    private final String name;
+    private final boolean indexed;
+    private final boolean trigramIndexed;
+    private final ToIntFunction<T> number;
+    private final Function<T, String> text;
+    private final Function<T, String[]> texts;
+
+    private QueryField(String name, boolean indexed, boolean trigramIndexed, ToIntFunction<T> number, Function<T, String> text,
+                       Function<T, String[]> texts) {
+        this.name = name;
+        this.indexed = indexed;
+        this.trigramIndexed = trigramIndexed;
+        this.number = number;
+        this.text = text;
+        this.texts = texts;
+    }
+
+    /**
+     * @param name    name of the field in expressions
+     * @param getter  value of the field
+     * @param indexed whether lookups on the field may be answered from an index instead of a scan
+     * @return numeric field, supporting equality and ranges
+     */
+    public static <T> QueryField<T> number(String name, ToIntFunction<T> getter, boolean indexed) {
+        return new QueryField<>(name, indexed, false, getter, null, null);
+    }
+
+    /**
+     * @param name    name of the field in expressions
+     * @param getter  value of the field
+     * @param indexed whether lookups on the field may be answered from an index instead of a scan
+     * @return text field, supporting equality, prefixes and substrings
+     */
+    public static <T> QueryField<T> text(String name, Function<T, String> getter, boolean indexed) {
+        return text(name, getter, indexed, false);
+    }
+
+    /**
+     * @param name           name of the field in expressions
+     * @param getter         value of the field
+     * @param indexed        whether lookups on the field may be answered from an index instead of a scan
+     * @param trigramIndexed whether substring searches on the field may be answered from an index of its trigrams
+     * @return text field, supporting equality, prefixes and substrings
+     */
+    public static <T> QueryField<T> text(String name, Function<T, String> getter, boolean indexed, boolean trigramIndexed) {
+        return new QueryField<>(name, indexed, trigramIndexed, null, getter, null);
+    }
+
+    /**
+     * @param name    name of the field in expressions
+     * @param getter  values of the field
+     * @param indexed whether lookups on the field may be answered from an index instead of a scan
+     * @return multi-valued text field, matching an entity when any of its values matches
+     */
+    public static <T> QueryField<T> texts(String name, Function<T, String[]> getter, boolean indexed) {
+        return new QueryField<>(name, indexed, false, null, null, getter);
+    }
+
+    /**
+     * @return name of the field in expressions
+     */
+    public String getName() {
+        return name;
+    }
+
+    boolean isIndexed() {
+        return indexed;
+    }
+
+    boolean isTrigramIndexed() {
+        return trigramIndexed;
+    }
+
+    boolean isMultiValued() {
+        return texts != null;
+    }
+
+    boolean isNumeric() {
+        return number != null;
+    }
+
+    int number(T entity) {
+        return number.applyAsInt(entity);
+    }
+
+    boolean equalTo(T entity, String value) {
+        if (text != null) {
+            return value.equals(text.apply(entity));
+        }
+        for (String each : texts.apply(entity)) {
+            if (value.equals(each)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean startsWith(T entity, String prefix) {
+        if (text != null) {
+            return text.apply(entity).startsWith(prefix);
+        }
+        for (String each : texts.apply(entity)) {
+            if (each.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compare two entities by the value of a single valued field, in the order of its index.
+     */
+    int compare(T a, T b) {
+        return number != null ? Integer.compare(number.applyAsInt(a), number.applyAsInt(b)) : text.apply(a).compareTo(text.apply(b));
+    }
+
+    /**
+     * @param lowerCaseText lower cased text
+     * @return whether any value of the field contains the text, ignoring case
+     */
+    boolean contains(T entity, String lowerCaseText) {
+        if (text != null) {
+            return text.apply(entity).toLowerCase(Locale.ROOT).contains(lowerCaseText);
+        }
+        for (String each : texts.apply(entity)) {
+            if (each.toLowerCase(Locale.ROOT).contains(lowerCaseText)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param size number of rows
+     * @param rows entity at each row
+     * @return index of the trigrams of the field over the rows
+     */
+    TrigramIndex trigrams(int size, IntFunction<T> rows) {
+        return TrigramIndex.build(size, row -> {
+            T entity = rows.apply(row);
+            return text != null ? new String[]{text.apply(entity)} : texts.apply(entity);
+        });
+    }
+
+    /**
+     * @param size number of rows
+     * @param rows entity at each row
+     * @return index of the field over the rows
+     */
+    SortedIndex index(int size, IntFunction<T> rows) {
+        if (number != null) {
+            int[] values = new int[size];
+            for (int row = 0; row < size; row++) {
+                values[row] = number.applyAsInt(rows.apply(row));
+            }
+            return SortedIndex.ofNumbers(values);
+        }
+        if (text != null) {
+            String[] values = new String[size];
+            int[] valueRows = new int[size];
+            for (int row = 0; row < size; row++) {
+                values[row] = text.apply(rows.apply(row));
+                valueRows[row] = row;
+            }
+            return SortedIndex.ofTexts(values, valueRows);
+        }
+        int entries = 0;
+        String[][] perRow = new String[size][];
+        for (int row = 0; row < size; row++) {
+            perRow[row] = texts.apply(rows.apply(row));
+            entries += perRow[row].length;
+        }
+        String[] values = new String[entries];
+        int[] valueRows = new int[entries];
+        int entry = 0;
+        for (int row = 0; row < size; row++) {
+            for (String value : perRow[row]) {
+                values[entry] = value;
+                valueRows[entry++] = row;
+            }
+        }
+        return SortedIndex.ofTexts(values, valueRows);
+    }
+}
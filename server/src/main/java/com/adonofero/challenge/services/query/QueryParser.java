@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Recursive descent parser of query expressions:
+ * <pre>
+ * expression := term ("OR" term)*
+ * term       := factor ("AND" factor)*
+ * factor     := "NOT" factor | "(" expression ")" | field operator value
+ * operator   := "=" | "!=" | "^=" | "~=" | "&lt;" | "&lt;=" | "&gt;" | "&gt;="
+ * value      := word | "quoted string"
+ * </pre>
+ * Keywords are case insensitive. "^=" matches values starting with the given prefix and "~=" values containing the
+ * given text, ignoring case; both are only allowed on text fields. "&lt;", "&lt;=", "&gt;" and "&gt;=" are only allowed on numeric fields. Quoted strings may contain spaces
+ * and use '\' to escape '"' and '\'.
+ *
+ * @param <T> entity queried
+ * @author Alexander Donofero
+ */
+final class QueryParser<T> {
+
+    private static final String RESERVED = "()=!<>^~\"";
+
+    private final String text;
+    private final Map<String, QueryField<T>> fields;
+    private int position;
+
+    private QueryParser(String text, Map<String, QueryField<T>> fields) {
+        this.text = text;
+        this.fields = fields;
+    }
+
+    /**
+     * @param text   query expression
+     * @param fields fields of the entity queried, keyed by lower case name
+     * @return parsed expression
+     * @throws InvalidQueryException if the expression is malformed or refers to unknown fields
+     */
+    static <T> Expression<T> parse(String text, Map<String, QueryField<T>> fields) throws InvalidQueryException {
+        QueryParser<T> parser = new QueryParser<>(text, fields);
+        if (parser.atEnd()) {
+            throw new InvalidQueryException("Query expression is empty");
+        }
+        Expression<T> expression = parser.expression();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected '%s'", parser.text.substring(parser.position));
+        }
+        return expression;
+    }
+
+    private Expression<T> expression() throws InvalidQueryException {
+        List<Expression<T>> operands = new ArrayList<>();
+        operands.add(term());
+        while (keyword("OR")) {
+            operands.add(term());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Expression.Or<>(operands);
+    }
+
+    private Expression<T> term() throws InvalidQueryException {
+        List<Expression<T>> operands = new ArrayList<>();
+        operands.add(factor());
+        while (keyword("AND")) {
+            operands.add(factor());
+        }
+        return operands.size() == 1 ? operands.get(0) : Expression.and(operands);
+    }
+
+    private Expression<T> factor() throws InvalidQueryException {
+        if (keyword("NOT")) {
+            return new Expression.Not<>(factor());
+        }
+        if (symbol("(")) {
+            Expression<T> expression = expression();
+            if (!symbol(")")) {
+                throw error("Expected ')'");
+            }
+            return expression;
+        }
+        return comparison();
+    }
+
+    private Expression<T> comparison() throws InvalidQueryException {
+        String name = word();
+        if (name == null) {
+            throw error("Expected a field name");
+        }
+        QueryField<T> field = fields.get(name.toLowerCase(Locale.ROOT));
+        if (field == null) {
+            throw new InvalidQueryException(String.format("Unknown field '%s'. Expected one of %s", name, String.join(", ", fields.keySet())));
+        }
+        String operator = operator();
+        if (operator == null) {
+            throw error("Expected an operator after '%s'", name);
+        }
+        String value = value();
+        if (value == null) {
+            throw error("Expected a value after '%s %s'", name, operator);
+        }
+        switch (operator) {
+            case "=":
+                return equalTo(field, value);
+            case "!=":
+                return new Expression.Not<>(equalTo(field, value));
+            case "^=":
+                if (field.isNumeric()) {
+                    throw new InvalidQueryException(String.format("Operator ^= requires a text field. Field '%s' is numeric", name));
+                }
+                return new Expression.Prefix<>(field, value);
+            case "~=":
+                if (field.isNumeric()) {
+                    throw new InvalidQueryException(String.format("Operator ~= requires a text field. Field '%s' is numeric", name));
+                }
+                return new Expression.Contains<>(field, value);
+            case "<":
+                return new Expression.Range<>(field, Long.MIN_VALUE, number(field, operator, value) - 1);
+            case "<=":
+                return new Expression.Range<>(field, Long.MIN_VALUE, number(field, operator, value));
+            case ">":
+                return new Expression.Range<>(field, number(field, operator, value) + 1, Long.MAX_VALUE);
+            case ">=":
+            default:
+                return new Expression.Range<>(field, number(field, operator, value), Long.MAX_VALUE);
+        }
+    }
+
+    private Expression<T> equalTo(QueryField<T> field, String value) throws InvalidQueryException {
+        if (field.isNumeric()) {
+            long number = number(field, "=", value);
+            return new Expression.Range<>(field, number, number);
+        }
+        return new Expression.Equals<>(field, value);
+    }
+
+    private long number(QueryField<T> field, String operator, String value) throws InvalidQueryException {
+        if (!field.isNumeric()) {
+            throw new InvalidQueryException(String.format("Operator %s requires a numeric field. Field '%s' is text", operator, field.getName()));
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new InvalidQueryException(String.format("Expected a number for field '%s'. Found '%s'", field.getName(), value));
+        }
+    }
+
+    private String operator() {
+        skipSpace();
+        for (String operator : new String[]{"!=", "^=", "~=", "<=", ">=", "=", "<", ">"}) {
+            if (text.startsWith(operator, position)) {
+                position += operator.length();
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    private String value() throws InvalidQueryException {
+        skipSpace();
+        if (position >= text.length() || text.charAt(position) != '"') {
+            return word();
+        }
+        StringBuilder value = new StringBuilder();
+        for (position++; position < text.length(); position++) {
+            char c = text.charAt(position);
+            if (c == '"') {
+                position++;
+                return value.toString();
+            }
+            if (c == '\\' && position + 1 < text.length()) {
+                c = text.charAt(++position);
+            }
+            value.append(c);
+        }
+        throw error("Unterminated quoted string");
+    }
+
+    private String word() {
+        skipSpace();
+        int start = position;
+        while (position < text.length() && !Character.isWhitespace(text.charAt(position)) && RESERVED.indexOf(text.charAt(position)) < 0) {
+            position++;
+        }
+        return position == start ? null : text.substring(start, position);
+    }
+
+    private boolean keyword(String keyword) {
+        skipSpace();
+        int end = position + keyword.length();
+        if (!text.regionMatches(true, position, keyword, 0, keyword.length())) {
+            return false;
+        }
+        if (end < text.length() && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '(') {
+            return false;
+        }
+        position = end;
+        return true;
+    }
+
+    private boolean symbol(String symbol) {
+        skipSpace();
+        if (!text.startsWith(symbol, position)) {
+            return false;
+        }
+        position += symbol.length();
+        return true;
+    }
+
+    private boolean atEnd() {
+        skipSpace();
+        return position >= text.length();
+    }
+
+    private void skipSpace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private InvalidQueryException error(String format, Object... args) {
+        return new InvalidQueryException(String.format(format, args) + String.format(" at position %d of query expression", position));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache of query results, keyed by the normalized parameters of a query and the version of the store it
+ * ran against.
+ * <p>
+ * DESIGN NOTE:
+ * Keys carry the version of the store, so a reload makes every earlier entry unreachable without flushing anything;
+ * those entries are no longer hit and age out as the least recently used. The cache is bounded both in entries and in
+ * an estimate of the bytes the results pin, as a single query matching most of the directory can outweigh thousands
+ * of point queries. Results heavier than the whole budget are not cached at all. Concurrent misses on the same key
+ * each run the query and the last one to finish wins, which is cheaper than making every reader wait on a lock held
+ * for the duration of a query.
+ *
+ * @param <T> entity returned by the queries
+ * @author Alexander Donofero
+ */
+public class QueryResultCache<T> {
+
+    /**
+     * Approximate overhead of an entry of the map and of the list holding the results, in bytes.
+     */
+    private static final long ENTRY_OVERHEAD = 96;
+    private static final long REFERENCE_BYTES = 8;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ToLongFunction<T> weigher;
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries maximum number of results kept
+     * @param maxBytes   maximum estimated bytes of the results kept
+     * @param weigher    estimated bytes of an entity
+     */
+    public QueryResultCache(int maxEntries, long maxBytes, ToLongFunction<T> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Build an unambiguous key from the parameters of a query. Null parameters are told apart from empty ones, and
+     * values cannot run into each other whatever characters they hold.
+     *
+     * @param version version of the store queried
+     * @param parts   normalized parameters of the query, in a fixed order
+     * @return key of the query
+     */
+    public static String key(long version, Object... parts) {
+        StringBuilder key = new StringBuilder().append(version);
+        for (Object part : parts) {
+            if (part == null) {
+                key.append("|-");
+            } else {
+                String value = part.toString();
+                key.append('|').append(value.length()).append(':').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key key of a query
+     * @return results of the query, or null if they are not cached
+     */
+    public synchronized List<T> get(String key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.results;
+    }
+
+    /**
+     * Cache the results of a query, evicting the least recently used results beyond the bounds.
+     *
+     * @param key     key of the query
+     * @param results results of the query
+     * @return results as cached, which callers must not modify
+     */
+    public List<T> put(String key, List<T> results) {
+        long weight = ENTRY_OVERHEAD + 2L * key.length() + REFERENCE_BYTES * results.size();
+        for (T result : results) {
+            weight += weigher.applyAsLong(result);
+        }
+        List<T> cached = Collections.unmodifiableList(results);
+        if (weight > maxBytes || maxEntries <= 0) {
+            return cached;
+        }
+        synchronized (this) {
+            Entry<T> replaced = entries.put(key, new Entry<>(cached, weight));
+            bytes += weight - (replaced == null ? 0 : replaced.weight);
+            Iterator<Map.Entry<String, Entry<T>>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().getValue().weight;
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups not answered from the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of results evicted to stay within the bounds
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of results cached
+     */
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated bytes of the results cached
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static final class Entry<T> {
+        final List<T> results;
+        final long weight;
+
+        Entry(List<T> results, long weight) {
+            this.results = results;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import java.util.Arrays;
+
+/**
+ * Rows of a store ordered by the value of one field, answering equality, prefix and range lookups with two binary
+ * searches.
+ * <p>
+ * Rows sharing a value are kept in row order. A multi-valued field, such as the members of a group, holds one entry
+ * per value, so a row may appear several times.
+ *
+ * @author Alexander Donofero
+ */
+final class SortedIndex {
+
+    private final int[] rows;
+    private final int[] numbers;
+    private final String[] texts;
+
+    private SortedIndex(int[] rows, int[] numbers, String[] texts) {
+        this.rows = rows;
+        this.numbers = numbers;
+        this.texts = texts;
+    }
+
+    /**
+     * @param values value of the field at each row
+     * @return index of a numeric field
+     */
+    static SortedIndex ofNumbers(int[] values) {
+        // Sorting value and row packed into a long keeps rows sharing a value in row order without boxing
+        long[] entries = new long[values.length];
+        for (int row = 0; row < values.length; row++) {
+            entries[row] = ((long) values[row] << 32) | row;
+        }
+        Arrays.sort(entries);
+        int[] rows = new int[entries.length];
+        int[] numbers = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            rows[i] = (int) entries[i];
+            numbers[i] = (int) (entries[i] >> 32);
+        }
+        return new SortedIndex(rows, numbers, null);
+    }
+
+    /**
+     * @param values value of each entry
+     * @param rows   row of each entry, in ascending order
+     * @return index of a text field
+     */
+    static SortedIndex ofTexts(String[] values, int[] rows) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Stable, so entries sharing a value stay in row order
+        Arrays.sort(order, (a, b) -> values[a].compareTo(values[b]));
+        int[] sortedRows = new int[order.length];
+        String[] texts = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedRows[i] = rows[order[i]];
+            texts[i] = values[order[i]];
+        }
+        return new SortedIndex(sortedRows, null, texts);
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return rows.length;
+    }
+
+    /**
+     * @param position position in value order
+     * @return row of the entry at the position
+     */
+    int rowAt(int position) {
+        return rows[position];
+    }
+
+    /**
+     * @return first position holding a value of at least min, for a numeric index
+     */
+    int lowerBound(long min) {
+        int low = 0;
+        int high = numbers.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (numbers[mid] < min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first position holding a value greater than max, for a numeric index
+     */
+    int upperBound(long max) {
+        int low = 0;
+        int high = numbers.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (numbers[mid] <= max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first position holding a value not less than the value, for a text index
+     */
+    int lowerBound(String value) {
+        int low = 0;
+        int high = texts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (texts[mid].compareTo(value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first position after the values equal to the value, for a text index
+     */
+    int upperBound(String value) {
+        int low = 0;
+        int high = texts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (texts[mid].compareTo(value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first position after the values starting with the prefix, for a text index
+     */
+    int prefixEnd(String prefix) {
+        // Values starting with the prefix follow every value less than it, and precede every other greater value
+        int low = lowerBound(prefix);
+        int high = texts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (texts[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return rows of the entries between two positions
+     */
+    int[] rows(int from, int to) {
+        return Arrays.copyOfRange(rows, from, to);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first k entities offered in a given order, in O(log k) per entity offered.
+ * <p>
+ * DESIGN NOTE:
+ * Entities comparing equal are ordered by row, so the results of ascending and descending orders are exact reverses
+ * of each other and agree with reading the index of the field forwards or backwards.
+ *
+ * @param <T> entity ordered
+ * @author Alexander Donofero
+ */
+final class TopK<T> {
+
+    private final Comparator<Ranked<T>> order;
+    private final PriorityQueue<Ranked<T>> heap;
+    private final int k;
+
+    /**
+     * @param comparator ascending order of the entities
+     * @param descending whether to keep the last entities of the order instead of the first
+     * @param k          number of entities kept
+     */
+    TopK(Comparator<T> comparator, boolean descending, int k) {
+        Comparator<Ranked<T>> ascending = (a, b) -> {
+            int compared = comparator.compare(a.entity, b.entity);
+            return compared != 0 ? compared : Integer.compare(a.row, b.row);
+        };
+        this.order = descending ? ascending.reversed() : ascending;
+        // The head of the heap is the entity kept which comes last, so it is the one to drop for a better entity
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), order.reversed());
+        this.k = k;
+    }
+
+    void offer(T entity, int row) {
+        if (heap.size() < k) {
+            heap.add(new Ranked<>(entity, row));
+            return;
+        }
+        if (k > 0) {
+            Ranked<T> ranked = new Ranked<>(entity, row);
+            if (order.compare(ranked, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(ranked);
+            }
+        }
+    }
+
+    /**
+     * @return entities kept, in order
+     */
+    List<T> toList() {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        List<T> entities = new ArrayList<>(ranked.size());
+        for (Ranked<T> each : ranked) {
+            entities.add(each.entity);
+        }
+        return entities;
+    }
+
+    private static final class Ranked<T> {
+        final T entity;
+        final int row;
+
+        Ranked(T entity, int row) {
+            this.entity = entity;
+            this.row = row;
+        }
+    }
+}
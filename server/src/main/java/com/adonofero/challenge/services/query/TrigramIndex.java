@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import com.adonofero.challenge.services.directory.IntArrayBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+/**
+ * Inverted index from every sequence of three characters to the rows whose value contains it, narrowing substring
+ * searches down to the rows containing every trigram of the searched text.
+ * <p>
+ * DESIGN NOTE:
+ * Values are lower cased, as substring searches are case insensitive. Trigrams are packed into a long and mapped to
+ * their posting list through an open addressing table, and the posting lists are laid out back to back in a single
+ * array in row order. A search intersects the posting lists of its trigrams starting from the shortest, so its cost
+ * follows the rarest trigram rather than the number of rows. The candidates still have to be verified, since holding
+ * every trigram of a text does not imply holding the text itself.
+ *
+ * @author Alexander Donofero
+ */
+final class TrigramIndex {
+
+    private static final long EMPTY = -1L;
+
+    private final long[] slots;
+    private final int[] ids;
+    private final int[] offsets;
+    private final int[] postings;
+
+    private TrigramIndex(long[] slots, int[] ids, int[] offsets, int[] postings) {
+        this.slots = slots;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.postings = postings;
+    }
+
+    /**
+     * @param size   number of rows
+     * @param values values of the rows, each of which may hold several values
+     * @return index of the trigrams of the values
+     */
+    static TrigramIndex build(int size, IntFunction<String[]> values) {
+        long[] slots = new long[1024];
+        int[] ids = new int[slots.length];
+        Arrays.fill(slots, EMPTY);
+        List<IntArrayBuilder> lists = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (String value : values.apply(row)) {
+                String text = value.toLowerCase(Locale.ROOT);
+                for (int i = 0; i + 3 <= text.length(); i++) {
+                    long trigram = trigram(text, i);
+                    int slot = slot(slots, trigram);
+                    IntArrayBuilder list;
+                    if (slots[slot] == EMPTY) {
+                        slots[slot] = trigram;
+                        ids[slot] = lists.size();
+                        list = new IntArrayBuilder(4);
+                        lists.add(list);
+                        if (lists.size() * 2 > slots.length) {
+                            long[] grownSlots = new long[slots.length * 2];
+                            int[] grownIds = new int[grownSlots.length];
+                            Arrays.fill(grownSlots, EMPTY);
+                            for (int j = 0; j < slots.length; j++) {
+                                if (slots[j] != EMPTY) {
+                                    int grownSlot = slot(grownSlots, slots[j]);
+                                    grownSlots[grownSlot] = slots[j];
+                                    grownIds[grownSlot] = ids[j];
+                                }
+                            }
+                            slots = grownSlots;
+                            ids = grownIds;
+                        }
+                    } else {
+                        list = lists.get(ids[slot]);
+                    }
+                    // Rows are visited in order, so a trigram repeated within a row is always the last row listed
+                    if (list.size() == 0 || list.get(list.size() - 1) != row) {
+                        list.add(row);
+                    }
+                }
+            }
+        }
+        int[] offsets = new int[lists.size() + 1];
+        for (int id = 0; id < lists.size(); id++) {
+            offsets[id + 1] = offsets[id] + lists.get(id).size();
+        }
+        int[] postings = new int[offsets[lists.size()]];
+        for (int id = 0; id < lists.size(); id++) {
+            IntArrayBuilder list = lists.get(id);
+            for (int i = 0; i < list.size(); i++) {
+                postings[offsets[id] + i] = list.get(i);
+            }
+        }
+        return new TrigramIndex(slots, ids, offsets, postings);
+    }
+
+    /**
+     * @param text lower cased text searched for, of at least three characters
+     * @return number of rows holding the rarest trigram of the text, an upper bound of the candidates
+     */
+    int estimate(String text) {
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            int id = idOf(trigram(text, i));
+            estimate = Math.min(estimate, id < 0 ? 0 : offsets[id + 1] - offsets[id]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @param text lower cased text searched for, of at least three characters
+     * @return rows holding every trigram of the text, in row order
+     */
+    int[] candidates(String text) {
+        int count = text.length() - 2;
+        int[] lists = new int[count];
+        for (int i = 0; i < count; i++) {
+            lists[i] = idOf(trigram(text, i));
+            if (lists[i] < 0) {
+                return new int[0];
+            }
+        }
+        // Start from the shortest list, so every later step only probes the surviving candidates
+        int shortest = 0;
+        for (int i = 1; i < count; i++) {
+            if (length(lists[i]) < length(lists[shortest])) {
+                shortest = i;
+            }
+        }
+        int[] candidates = Arrays.copyOfRange(postings, offsets[lists[shortest]], offsets[lists[shortest] + 1]);
+        int remaining = candidates.length;
+        for (int i = 0; i < count && remaining > 0; i++) {
+            if (i == shortest || lists[i] == lists[shortest]) {
+                continue;
+            }
+            int from = offsets[lists[i]];
+            int to = offsets[lists[i] + 1];
+            int kept = 0;
+            for (int j = 0; j < remaining; j++) {
+                int found = Arrays.binarySearch(postings, from, to, candidates[j]);
+                if (found >= 0) {
+                    candidates[kept++] = candidates[j];
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            remaining = kept;
+        }
+        return Arrays.copyOf(candidates, remaining);
+    }
+
+    private int length(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    private int idOf(long trigram) {
+        int slot = slot(slots, trigram);
+        return slots[slot] == EMPTY ? -1 : ids[slot];
+    }
+
+    /**
+     * @return slot holding the trigram, or the empty slot where it belongs
+     */
+    private static int slot(long[] slots, long trigram) {
+        int mask = slots.length - 1;
+        int slot = (int) (trigram * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (slots[slot] != EMPTY && slots[slot] != trigram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+}
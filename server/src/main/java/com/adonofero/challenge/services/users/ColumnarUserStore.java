@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.IntArrayBuilder;
+import com.adonofero.challenge.services.directory.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link UserStore} that keeps every field of the {@link User}s in its own primitive column.
+ * <p>
+ * uid and gid are stored as plain int columns. String fields are dictionary coded: each row holds the id of its value
+ * in a {@link StringDictionary} shared by all columns. Home directories are split into a parent and a leaf
+ * ("/home/" and "alice") so the common prefix is stored once and the leaf shares the entry of the user name.
+ * <p>
+ * Filters compare ids, resolving each string criterion against the dictionary once per query, and {@link User}
+ * objects are only created for rows that end up in a response.
+ *
+ * @author Alexander Donofero
+ */
+public class ColumnarUserStore implements UserStore {
+
+    private final StringDictionary dictionary;
+    private final int[] uids;
+    private final int[] gids;
+    private final int[] names;
+    private final int[] comments;
+    private final int[] homeParents;
+    private final int[] homeLeaves;
+    private final int[] shells;
+    /**
+     * First row holding each name, indexed by dictionary id. Ids that are not used as a name map to {@link #NO_ROW}.
+     */
+    private final int[] rowsByNameId;
+
+    private ColumnarUserStore(StringDictionary dictionary, int[] uids, int[] gids, int[] names, int[] comments,
+                              int[] homeParents, int[] homeLeaves, int[] shells) {
+        this.dictionary = dictionary;
+        this.uids = uids;
+        this.gids = gids;
+        this.names = names;
+        this.comments = comments;
+        this.homeParents = homeParents;
+        this.homeLeaves = homeLeaves;
+        this.shells = shells;
+        this.rowsByNameId = new int[dictionary.size()];
+        Arrays.fill(rowsByNameId, NO_ROW);
+        for (int row = names.length - 1; row >= 0; row--) {
+            rowsByNameId[names[row]] = row;
+        }
+    }
+
+    /**
+     * @return builder for a {@link ColumnarUserStore}
+     */
+    public static Builder builder() {
+        return new Builder() {
+            private final StringDictionary dictionary = new StringDictionary();
+            private final IntArrayBuilder uids = new IntArrayBuilder();
+            private final IntArrayBuilder gids = new IntArrayBuilder();
+            private final IntArrayBuilder names = new IntArrayBuilder();
+            private final IntArrayBuilder comments = new IntArrayBuilder();
+            private final IntArrayBuilder homeParents = new IntArrayBuilder();
+            private final IntArrayBuilder homeLeaves = new IntArrayBuilder();
+            private final IntArrayBuilder shells = new IntArrayBuilder();
+
+            @Override
+            public void add(String name, int uid, int gid, String comment, String home, String shell) {
+                int split = homeSplit(home);
+                uids.add(uid);
+                gids.add(gid);
+                names.add(dictionary.idOf(name));
+                comments.add(dictionary.idOf(comment));
+                homeParents.add(dictionary.idOf(home.substring(0, split)));
+                homeLeaves.add(dictionary.idOf(home.substring(split)));
+                shells.add(dictionary.idOf(shell));
+            }
+
+            @Override
+            public UserStore build() {
+                return new ColumnarUserStore(dictionary, uids.toArray(), gids.toArray(), names.toArray(), comments.toArray(),
+                        homeParents.toArray(), homeLeaves.toArray(), shells.toArray());
+            }
+        };
+    }
+
+    /**
+     * @return index at which a home directory is split into its parent (including the trailing '/') and its leaf
+     */
+    private static int homeSplit(String home) {
+        return home.lastIndexOf('/') + 1;
+    }
+
+    @Override
+    public int size() {
+        return uids.length;
+    }
+
+    @Override
+    public User getUser(int row) {
+        User user = new User();
+        user.setName(dictionary.get(names[row]));
+        user.setUid(uids[row]);
+        user.setGid(gids[row]);
+        user.setComment(dictionary.get(comments[row]));
+        user.setHome(dictionary.get(homeParents[row]).concat(dictionary.get(homeLeaves[row])));
+        user.setShell(dictionary.get(shells[row]));
+        return user;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        List<User> users = new ArrayList<>(size());
+        for (int row = 0; row < size(); row++) {
+            users.add(getUser(row));
+        }
+        return users;
+    }
+
+    @Override
+    public int findRowByUid(int uid) {
+        for (int row = 0; row < uids.length; row++) {
+            if (uids[row] == uid) {
+                return row;
+            }
+        }
+        return NO_ROW;
+    }
+
+    @Override
+    public int findRowByName(String name) {
+        int nameId = dictionary.lookup(name);
+        return nameId == StringDictionary.NOT_FOUND ? NO_ROW : rowsByNameId[nameId];
+    }
+
+    @Override
+    public List<User> queryUsers(String name, Integer uid, Integer gid, String comment, String home, String shell) {
+        List<User> matchedUsers = new ArrayList<>();
+        // Resolve each string criterion to its dictionary id once. A value missing from the dictionary cannot match any row.
+        int nameId = resolve(name);
+        int commentId = resolve(comment);
+        int shellId = resolve(shell);
+        int homeParentId = home == null ? StringDictionary.NOT_FOUND : resolve(home.substring(0, homeSplit(home)));
+        int homeLeafId = home == null ? StringDictionary.NOT_FOUND : resolve(home.substring(homeSplit(home)));
+        if ((name != null && nameId == StringDictionary.NOT_FOUND) || (comment != null && commentId == StringDictionary.NOT_FOUND)
+                || (shell != null && shellId == StringDictionary.NOT_FOUND)
+                || (home != null && (homeParentId == StringDictionary.NOT_FOUND || homeLeafId == StringDictionary.NOT_FOUND))) {
+            return matchedUsers;
+        }
+        int uidValue = uid == null ? 0 : uid;
+        int gidValue = gid == null ? 0 : gid;
+        for (int row = 0; row < uids.length; row++) {
+            if ((uid == null || uids[row] == uidValue)
+                    && (gid == null || gids[row] == gidValue)
+                    && (name == null || names[row] == nameId)
+                    && (comment == null || comments[row] == commentId)
+                    && (shell == null || shells[row] == shellId)
+                    && (home == null || (homeLeaves[row] == homeLeafId && homeParents[row] == homeParentId))) {
+                matchedUsers.add(getUser(row));
+            }
+        }
+        return matchedUsers;
+    }
+
+    private int resolve(String value) {
+        return value == null ? StringDictionary.NOT_FOUND : dictionary.lookup(value);
+    }
+}
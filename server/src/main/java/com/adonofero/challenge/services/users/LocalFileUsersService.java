@@ -0,0 +1,276 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.ChangeSet;
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.RenderedJson;
+import com.adonofero.challenge.entity.Stats;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.Buckets;
+import com.adonofero.challenge.services.directory.DirectorySnapshot;
+import com.adonofero.challenge.services.directory.JsonRecords;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.RenderMode;
+import com.adonofero.challenge.services.query.QueryResultCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link UsersService} that retrieves {@link User}s from a local file.
+ * <p>
+ * DESIGN NOTE:
+ * Reading and caching the users file is delegated to a {@link LocalFileDirectory} shared with the groups service, so
+ * that requests spanning users and groups are answered from one consistent {@link DirectorySnapshot}. Changes since a
+ * version are answered from the history of the {@link ChangeLog} listening to that directory. Query results are
+ * cached under the version of the users they were read from, so a reload of the users file invalidates them while a
+ * reload of the groups file alone does not.
+ *
+ * @author Alexander Donofero
+ */
+public class LocalFileUsersService implements UsersService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileUsersService.class);
+
+    private final LocalFileDirectory directory;
+    private final ChangeLog changeLog;
+    private final UserQueryEngine queryEngine = new UserQueryEngine(1024);
+    private final QueryResultCache<User> resultCache;
+
+    /**
+     * @param resultCache cache of the results of queries, keyed by their normalized parameters and the version of the
+     *                    users
+     */
+    public LocalFileUsersService(LocalFileDirectory directory, ChangeLog changeLog, QueryResultCache<User> resultCache) {
+        this.directory = directory;
+        this.changeLog = changeLog;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public List<User> getAllUsers() throws UpdateFailureException {
+        return getCurrentUsers().getAllUsers();
+    }
+
+    @Override
+    public Versioned<List<User>> getVersionedUsers(String sort, Integer limit) throws UpdateFailureException, InvalidQueryException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        if (sort == null && limit == null) {
+            return new Versioned<>(snapshot.getVersion(), snapshot.getUsers().getAllUsers());
+        }
+        return new Versioned<>(snapshot.getVersion(), queryEngine.query(null, snapshot.getUsers(), sort, limit));
+    }
+
+    @Override
+    public boolean isPrerendered() {
+        return directory.getRenderMode() == RenderMode.PRERENDERED;
+    }
+
+    @Override
+    public Versioned<RenderedJson> getRenderedUsers() throws UpdateFailureException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        return new Versioned<>(snapshot.getVersion(), renderedUsers(snapshot).getAll());
+    }
+
+    @Override
+    public long getEpoch() {
+        return directory.getEpoch();
+    }
+
+    @Override
+    public Delta<User> getUsersSince(Long epoch, long version) throws UpdateFailureException, ResyncRequiredException {
+        long current = directory.getUsersSnapshot().getVersion();
+        // A version of another epoch was handed out by an earlier instance, and says nothing about this one's history
+        boolean known = (epoch == null || epoch == directory.getEpoch()) && version <= current;
+        Delta<User> delta = known ? changeLog.deltaSince(version, ChangeSet::getUsers, User::getName) : null;
+        if (delta == null) {
+            throw new ResyncRequiredException(version, directory.getEpoch(), current);
+        }
+        return delta;
+    }
+
+    @Override
+    public List<User> queryUsers(String name, Integer uid, Integer gid, String comment, String home, String shell, String sort, Integer limit)
+            throws UpdateFailureException, InvalidQueryException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        String key = QueryResultCache.key(snapshot.getUsersVersion(), "fields", name, uid, gid, comment, home, shell,
+                sort == null ? null : queryEngine.normalizeSort(sort), limit);
+        List<User> users = resultCache.get(key);
+        if (users == null) {
+            if (sort == null) {
+                users = queryEngine.limit(snapshot.getUsers().queryUsers(name, uid, gid, comment, home, shell), limit);
+            } else {
+                // Planned as an expression, so that the order is read from the index of the sort field
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("name", name);
+                values.put("uid", uid);
+                values.put("gid", gid);
+                values.put("comment", comment);
+                values.put("home", home);
+                values.put("shell", shell);
+                users = queryEngine.match(values, snapshot.getUsers(), sort, limit);
+            }
+            users = resultCache.put(key, users);
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> queryUsers(String expression, String sort, Integer limit) throws UpdateFailureException, InvalidQueryException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        String key = QueryResultCache.key(snapshot.getUsersVersion(), "expression", queryEngine.normalize(expression),
+                sort == null ? null : queryEngine.normalizeSort(sort), limit);
+        List<User> users = resultCache.get(key);
+        if (users == null) {
+            users = resultCache.put(key, queryEngine.query(expression, snapshot.getUsers(), sort, limit));
+        }
+        return users;
+    }
+
+    @Override
+    public Stats getUserStats(String groupBy) throws UpdateFailureException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        Buckets buckets;
+        switch (groupBy) {
+            case "shell":
+                buckets = snapshot.getUsersByShell();
+                break;
+            case "gid":
+                buckets = snapshot.getUsersByGid();
+                break;
+            case "home":
+                buckets = snapshot.getUsersByHome();
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot group users by " + groupBy);
+        }
+        return new Stats(snapshot.getVersion(), groupBy, buckets.getTotal(), buckets.getCounts());
+    }
+
+    @Override
+    public User getUserById(int uid) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        return snapshot.getUsers().getUser(findRowByUid(snapshot, uid));
+    }
+
+    @Override
+    public Tagged<User> getTaggedUserById(int uid) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        int row = findRowByUid(snapshot, uid);
+        return new Tagged<>(snapshot.getUserTag(row), snapshot.getUsers().getUser(row));
+    }
+
+    @Override
+    public Tagged<RenderedJson> getRenderedUserById(int uid) throws UpdateFailureException, EntityNotFoundException {
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+        int row = findRowByUid(snapshot, uid);
+        return new Tagged<>(snapshot.getUserTag(row), renderedUsers(snapshot).get(row));
+    }
+
+    @Override
+    public User getUserByName(String name) throws UpdateFailureException, EntityNotFoundException {
+        UserStore currentUsers = getCurrentUsers();
+        int row = currentUsers.findRowByName(name);
+        if (row == UserStore.NO_ROW) {
+            throw new EntityNotFoundException("user", "name", name);
+        }
+        return currentUsers.getUser(row);
+    }
+
+    @Override
+    public List<Group> getGroupsOfUser(int uid) throws UpdateFailureException, EntityNotFoundException {
+        // Resolve the user before touching the groups file so an unknown uid is reported as such
+        findRowByUid(directory.getUsersSnapshot(), uid);
+        DirectorySnapshot snapshot = directory.getSnapshot();
+        int row = findRowByUid(snapshot, uid);
+        logger.debug("Matched row {} to uid {}", row, uid);
+        return snapshot.getGroupsOfUser(row);
+    }
+
+    @Override
+    public int[] getGroupListByName(String name) throws UpdateFailureException, EntityNotFoundException {
+        // Resolve the user before touching the groups file so an unknown name is reported as such
+        findRowByName(directory.getUsersSnapshot(), name);
+        DirectorySnapshot snapshot = directory.getSnapshot();
+        int row = findRowByName(snapshot, name);
+        List<Group> groups = snapshot.getGroupsOfUser(row);
+        int[] gids = new int[groups.size() + 1];
+        gids[0] = snapshot.getUsers().getGid(row);
+        int count = 1;
+        for (Group group : groups) {
+            if (!contains(gids, count, group.getGid())) {
+                gids[count++] = group.getGid();
+            }
+        }
+        return count == gids.length ? gids : Arrays.copyOf(gids, count);
+    }
+
+    private static boolean contains(int[] gids, int count, int gid) {
+        for (int i = 0; i < count; i++) {
+            if (gids[i] == gid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static JsonRecords renderedUsers(DirectorySnapshot snapshot) {
+        JsonRecords rendered = snapshot.getUserJson();
+        if (rendered == null) {
+            throw new IllegalStateException("Users are only rendered ahead of requests in prerendered render mode");
+        }
+        return rendered;
+    }
+
+    private static int findRowByName(DirectorySnapshot snapshot, String name) throws EntityNotFoundException {
+        int row = snapshot.getUsers().findRowByName(name);
+        if (row == UserStore.NO_ROW) {
+            throw new EntityNotFoundException("user", "name", name);
+        }
+        return row;
+    }
+
+    private int findRowByUid(DirectorySnapshot snapshot, int uid) throws EntityNotFoundException {
+        // Unknown uids are turned away by the filter of the snapshot without searching the users
+        int row = snapshot.mightHaveUid(uid) ? snapshot.getUsers().findRowByUid(uid) : UserStore.NO_ROW;
+        if (row == UserStore.NO_ROW) {
+            throw new EntityNotFoundException("user", "uid", uid);
+        }
+        return row;
+    }
+
+    /**
+     * Private helper method to retrieve the current system users from the configured location
+     *
+     * @return All users currently on the system
+     */
+    private UserStore getCurrentUsers() throws UpdateFailureException {
+        return directory.getUsersSnapshot().getUsers();
+    }
+}
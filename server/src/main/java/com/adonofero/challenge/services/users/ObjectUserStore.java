@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link UserStore} that keeps one {@link User} POJO per row.
+ *
+ * @author Alexander Donofero
+ */
+public class ObjectUserStore implements UserStore {
+
+    private final List<User> users;
+    private final Map<String, Integer> rowsByName;
+
+    private ObjectUserStore(List<User> users, Map<String, Integer> rowsByName) {
+        this.users = Collections.unmodifiableList(users);
+        this.rowsByName = rowsByName;
+    }
+
+    /**
+     * @return builder for an {@link ObjectUserStore}
+     */
+    public static Builder builder() {
+        return new Builder() {
+            private final List<User> users = new ArrayList<>();
+            private final Map<String, Integer> rowsByName = new HashMap<>();
+            // Repeated values (shells, homes, comments) share a single instance for the lifetime of this snapshot
+            private final StringDictionary dictionary = new StringDictionary();
+
+            @Override
+            public void add(String name, int uid, int gid, String comment, String home, String shell) {
+                User user = new User();
+                user.setName(dictionary.intern(name));
+                user.setUid(uid);
+                user.setGid(gid);
+                user.setComment(dictionary.intern(comment));
+                user.setHome(dictionary.intern(home));
+                user.setShell(dictionary.intern(shell));
+                rowsByName.putIfAbsent(user.getName(), users.size());
+                users.add(user);
+            }
+
+            @Override
+            public UserStore build() {
+                return new ObjectUserStore(users, rowsByName);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public User getUser(int row) {
+        return users.get(row);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return new ArrayList<>(users);
+    }
+
+    @Override
+    public int findRowByUid(int uid) {
+        // As uid should be unique, I can assume that I only need to find the first user matching the uid
+        for (int row = 0; row < users.size(); row++) {
+            if (users.get(row).getUid() == uid) {
+                return row;
+            }
+        }
+        return NO_ROW;
+    }
+
+    @Override
+    public int findRowByName(String name) {
+        Integer row = rowsByName.get(name);
+        return row == null ? NO_ROW : row;
+    }
+
+    @Override
+    public List<User> queryUsers(String name, Integer uid, Integer gid, String comment, String home, String shell) {
+        List<User> users = getAllUsers();
+        // For each search parameter specified, filter out the list of users
+        if (name != null) {
+            List<User> matchedUsers = new ArrayList<>();
+            for (User user : users) {
+                if (user.getName().equals(name)) {
+                    matchedUsers.add(user);
+                }
+            }
+            users.retainAll(matchedUsers);
+        }
+        if (uid != null) {
+            List<User> matchedUsers = new ArrayList<User>();
+            for (User user : users) {
+                if (user.getUid() == uid) {
+                    matchedUsers.add(user);
+                }
+            }
+            users.retainAll(matchedUsers);
+        }
+        if (gid != null) {
+            List<User> matchedUsers = new ArrayList<User>();
+            for (User user : users) {
+                if (user.getGid() == gid) {
+                    matchedUsers.add(user);
+                }
+            }
+            users.retainAll(matchedUsers);
+        }
+        if (comment != null) {
+            List<User> matchedUsers = new ArrayList<User>();
+            for (User user : users) {
+                if (user.getComment().equals(comment)) {
+                    matchedUsers.add(user);
+                }
+            }
+            users.retainAll(matchedUsers);
+        }
+        if (home != null) {
+            List<User> matchedUsers = new ArrayList<User>();
+            for (User user : users) {
+                if (user.getHome().equals(home)) {
+                    matchedUsers.add(user);
+                }
+            }
+            users.retainAll(matchedUsers);
+        }
+        if (shell != null) {
+            List<User> matchedUsers = new ArrayList<User>();
+            for (User user : users) {
+                if (user.getShell().equals(shell)) {
+                    matchedUsers.add(user);
+                }
+            }
+            users.retainAll(matchedUsers);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.EntityTags;
+import com.adonofero.challenge.services.directory.IntArrayBuilder;
+import com.adonofero.challenge.services.directory.OffHeapArena;
+import com.adonofero.challenge.services.directory.OffHeapHashIndex;
+import com.adonofero.challenge.services.directory.OffHeapLongList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link UserStore} that keeps the {@link User}s and their indexes in direct memory so the heap footprint does not
+ * grow with the size of the directory.
+ * <p>
+ * Each user is packed into an {@link OffHeapArena} as uid, gid, name, comment, home and shell. Row to record
+ * addresses and the uid, gid and name indexes live in direct memory as well. {@link User} objects are only decoded
+ * for rows that end up in a response; single fields and entity tags are read from the arena in place.
+ *
+ * @author Alexander Donofero
+ */
+public class OffHeapUserStore implements UserStore {
+
+    private static final int UID_OFFSET = 0;
+    private static final int GID_OFFSET = 4;
+    private static final int NAME_OFFSET = 8;
+
+    private final OffHeapArena arena;
+    private final OffHeapLongList addresses;
+    private final OffHeapHashIndex uidIndex;
+    private final OffHeapHashIndex gidIndex;
+    private final OffHeapHashIndex nameIndex;
+
+    private OffHeapUserStore(OffHeapArena arena, OffHeapLongList addresses) {
+        this.arena = arena;
+        this.addresses = addresses;
+        this.uidIndex = new OffHeapHashIndex(addresses.size());
+        this.gidIndex = new OffHeapHashIndex(addresses.size());
+        this.nameIndex = new OffHeapHashIndex(addresses.size());
+        for (int row = 0; row < addresses.size(); row++) {
+            long address = addresses.get(row);
+            uidIndex.put(arena.getInt(address + UID_OFFSET), row);
+            gidIndex.put(arena.getInt(address + GID_OFFSET), row);
+            nameIndex.put(arena.stringHash(address + NAME_OFFSET), row);
+        }
+    }
+
+    /**
+     * @return builder for an {@link OffHeapUserStore}
+     */
+    public static Builder builder() {
+        return new Builder() {
+            private final OffHeapArena arena = new OffHeapArena();
+            private final OffHeapLongList addresses = new OffHeapLongList();
+
+            @Override
+            public void add(String name, int uid, int gid, String comment, String home, String shell) {
+                byte[] encodedName = OffHeapArena.encode(name);
+                byte[] encodedComment = OffHeapArena.encode(comment);
+                byte[] encodedHome = OffHeapArena.encode(home);
+                byte[] encodedShell = OffHeapArena.encode(shell);
+                long address = arena.allocate(NAME_OFFSET + OffHeapArena.encodedSize(encodedName) + OffHeapArena.encodedSize(encodedComment)
+                        + OffHeapArena.encodedSize(encodedHome) + OffHeapArena.encodedSize(encodedShell));
+                arena.putInt(address + UID_OFFSET, uid);
+                arena.putInt(address + GID_OFFSET, gid);
+                long next = arena.putString(address + NAME_OFFSET, encodedName);
+                next = arena.putString(next, encodedComment);
+                next = arena.putString(next, encodedHome);
+                arena.putString(next, encodedShell);
+                addresses.add(address);
+            }
+
+            @Override
+            public UserStore build() {
+                return new OffHeapUserStore(arena, addresses);
+            }
+        };
+    }
+
+    /**
+     * @return number of bytes of direct memory held by this store
+     */
+    public long offHeapBytes() {
+        return arena.capacity() + addresses.capacity() + uidIndex.capacity() + gidIndex.capacity() + nameIndex.capacity();
+    }
+
+    @Override
+    public int size() {
+        return addresses.size();
+    }
+
+    @Override
+    public User getUser(int row) {
+        long address = addresses.get(row);
+        User user = new User();
+        user.setUid(arena.getInt(address + UID_OFFSET));
+        user.setGid(arena.getInt(address + GID_OFFSET));
+        long next = address + NAME_OFFSET;
+        user.setName(arena.getString(next));
+        next = arena.skipString(next);
+        user.setComment(arena.getString(next));
+        next = arena.skipString(next);
+        user.setHome(arena.getString(next));
+        next = arena.skipString(next);
+        user.setShell(arena.getString(next));
+        return user;
+    }
+
+    @Override
+    public int getUid(int row) {
+        return arena.getInt(addresses.get(row) + UID_OFFSET);
+    }
+
+    @Override
+    public int getGid(int row) {
+        return arena.getInt(addresses.get(row) + GID_OFFSET);
+    }
+
+    @Override
+    public String getHome(int row) {
+        return arena.getString(homeAddress(addresses.get(row)));
+    }
+
+    @Override
+    public String getShell(int row) {
+        return arena.getString(arena.skipString(homeAddress(addresses.get(row))));
+    }
+
+    @Override
+    public long getTag(int row) {
+        long address = addresses.get(row);
+        long next = address + NAME_OFFSET;
+        long tag = EntityTags.mix(EntityTags.start(), arena, next);
+        tag = EntityTags.mix(tag, arena.getInt(address + UID_OFFSET));
+        tag = EntityTags.mix(tag, arena.getInt(address + GID_OFFSET));
+        next = arena.skipString(next);
+        tag = EntityTags.mix(tag, arena, next);
+        next = arena.skipString(next);
+        tag = EntityTags.mix(tag, arena, next);
+        return EntityTags.mix(tag, arena, arena.skipString(next));
+    }
+
+    private long homeAddress(long address) {
+        return arena.skipString(arena.skipString(address + NAME_OFFSET));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        List<User> users = new ArrayList<>(size());
+        for (int row = 0; row < size(); row++) {
+            users.add(getUser(row));
+        }
+        return users;
+    }
+
+    @Override
+    public int findRowByUid(int uid) {
+        // As uid should be unique, I can assume that I only need to find the first user matching the uid
+        return uidIndex.findFirst(uid, row -> true);
+    }
+
+    @Override
+    public int findRowByName(String name) {
+        byte[] encodedName = OffHeapArena.encode(name);
+        return nameIndex.findFirst(OffHeapArena.hash(encodedName), row -> arena.stringEquals(addresses.get(row) + NAME_OFFSET, encodedName));
+    }
+
+    @Override
+    public List<User> queryUsers(String name, Integer uid, Integer gid, String comment, String home, String shell) {
+        UserCriteria criteria = new UserCriteria(name, uid, gid, comment, home, shell);
+        // Use the most selective index available to produce candidate rows, falling back to a scan of every row
+        IntArrayBuilder candidates = new IntArrayBuilder();
+        if (uid != null) {
+            uidIndex.forEach(uid, candidates::add);
+        } else if (name != null) {
+            nameIndex.forEach(OffHeapArena.hash(criteria.name), candidates::add);
+        } else if (gid != null) {
+            gidIndex.forEach(gid, candidates::add);
+        } else {
+            for (int row = 0; row < size(); row++) {
+                candidates.add(row);
+            }
+        }
+        List<User> matchedUsers = new ArrayList<>();
+        for (int row : candidates.toArray()) {
+            if (criteria.matches(addresses.get(row))) {
+                matchedUsers.add(getUser(row));
+            }
+        }
+        return matchedUsers;
+    }
+
+    /**
+     * Query criteria with every string pre-encoded so rows can be compared in place.
+     */
+    private class UserCriteria {
+        private final byte[] name;
+        private final Integer uid;
+        private final Integer gid;
+        private final byte[] comment;
+        private final byte[] home;
+        private final byte[] shell;
+
+        UserCriteria(String name, Integer uid, Integer gid, String comment, String home, String shell) {
+            this.name = name == null ? null : OffHeapArena.encode(name);
+            this.uid = uid;
+            this.gid = gid;
+            this.comment = comment == null ? null : OffHeapArena.encode(comment);
+            this.home = home == null ? null : OffHeapArena.encode(home);
+            this.shell = shell == null ? null : OffHeapArena.encode(shell);
+        }
+
+        boolean matches(long address) {
+            if ((uid != null && arena.getInt(address + UID_OFFSET) != uid) || (gid != null && arena.getInt(address + GID_OFFSET) != gid)) {
+                return false;
+            }
+            long next = address + NAME_OFFSET;
+            if (name != null && !arena.stringEquals(next, name)) {
+                return false;
+            }
+            next = arena.skipString(next);
+            if (comment != null && !arena.stringEquals(next, comment)) {
+                return false;
+            }
+            next = arena.skipString(next);
+            if (home != null && !arena.stringEquals(next, home)) {
+                return false;
+            }
+            next = arena.skipString(next);
+            return shell == null || arena.stringEquals(next, shell);
+        }
+    }
+}
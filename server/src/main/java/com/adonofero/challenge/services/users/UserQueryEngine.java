@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.query.QueryEngine;
+import com.adonofero.challenge.services.query.QueryField;
+
+import java.util.Arrays;
+
+/**
+ * {@link QueryEngine} over the fields of the {@link User}s in a {@link UserStore}. name, uid and gid are indexed, and
+ * substring searches on comment and home are narrowed down through the trigrams of their values.
+ *
+ * @author Alexander Donofero
+ */
+public class UserQueryEngine extends QueryEngine<User, UserStore> {
+
+    /**
+     * @param cacheSize maximum number of parsed expressions kept
+     */
+    public UserQueryEngine(int cacheSize) {
+        super(Arrays.asList(
+                QueryField.text("name", User::getName, true),
+                QueryField.number("uid", User::getUid, true),
+                QueryField.number("gid", User::getGid, true),
+                QueryField.text("comment", User::getComment, false, true),
+                QueryField.text("home", User::getHome, false, true),
+                QueryField.text("shell", User::getShell, false)), cacheSize);
+    }
+
+    @Override
+    protected int size(UserStore store) {
+        return store.size();
+    }
+
+    @Override
+    protected User get(UserStore store, int row) {
+        return store.getUser(row);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.EntityTags;
+
+import java.util.List;
+
+/**
+ * Storage engine holding a single parsed snapshot of the {@link User}s on the system.
+ * <p>
+ * Rows are addressed by their position in the users file. A store is immutable once built and may be read by any
+ * number of threads.
+ *
+ * @author Alexander Donofero
+ */
+public interface UserStore {
+
+    /**
+     * Row returned by lookups that do not match any {@link User}.
+     */
+    int NO_ROW = -1;
+
+    /**
+     * @return number of {@link User}s in the store
+     */
+    int size();
+
+    /**
+     * Materialize the {@link User} stored at a row.
+     *
+     * @param row row of the {@link User}
+     * @return {@link User} stored at the row
+     */
+    User getUser(int row);
+
+    /**
+     * @param row row of a {@link User}
+     * @return uid of the {@link User} stored at the row
+     */
+    default int getUid(int row) {
+        return getUser(row).getUid();
+    }
+
+    /**
+     * @param row row of a {@link User}
+     * @return primary gid of the {@link User} stored at the row
+     */
+    default int getGid(int row) {
+        return getUser(row).getGid();
+    }
+
+    /**
+     * @param row row of a {@link User}
+     * @return home directory of the {@link User} stored at the row
+     */
+    default String getHome(int row) {
+        return getUser(row).getHome();
+    }
+
+    /**
+     * @param row row of a {@link User}
+     * @return shell of the {@link User} stored at the row
+     */
+    default String getShell(int row) {
+        return getUser(row).getShell();
+    }
+
+    /**
+     * @param row row of a {@link User}
+     * @return {@link EntityTags entity tag} of the {@link User} stored at the row
+     */
+    default long getTag(int row) {
+        return EntityTags.of(getUser(row));
+    }
+
+    /**
+     * Materialize every {@link User} in file order.
+     *
+     * @return list of all {@link User}s
+     */
+    List<User> getAllUsers();
+
+    /**
+     * Find the first row holding a {@link User} with the provided uid.
+     *
+     * @param uid id of {@link User}
+     * @return matching row or {@link #NO_ROW}
+     */
+    int findRowByUid(int uid);
+
+    /**
+     * Find the first row holding a {@link User} with the provided name.
+     *
+     * @param name name of {@link User}
+     * @return matching row or {@link #NO_ROW}
+     */
+    int findRowByName(String name);
+
+    /**
+     * Query for {@link User}s matching all non-null criteria. See {@link UsersService#queryUsers}.
+     *
+     * @return List of {@link User}s matching all specified criteria
+     */
+    List<User> queryUsers(String name, Integer uid, Integer gid, String comment, String home, String shell);
+
+    /**
+     * Incrementally assembles a {@link UserStore} from the lines of a users file.
+     */
+    interface Builder {
+
+        /**
+         * Append a {@link User} to the store being built.
+         */
+        void add(String name, int uid, int gid, String comment, String home, String shell);
+
+        /**
+         * @return immutable store holding every {@link User} added so far
+         */
+        UserStore build();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.Delta;
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.RenderedJson;
+import com.adonofero.challenge.entity.Stats;
+import com.adonofero.challenge.entity.Tagged;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.entity.Versioned;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import com.adonofero.challenge.exceptions.service.ResyncRequiredException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+
+import java.util.List;
+
+/**
+ * Interface for the Service level for {@link User}s.
+ *
+ * @author Alexander Donofero
+ */
+public interface UsersService {
+
+    /**
+     * Retrieves the current list of {@link User}s.
+     *
+     * @return current list of {@link User}s
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     */
+    List<User> getAllUsers() throws UpdateFailureException;
+
+    /**
+     * Retrieves the current list of {@link User}s along with the version of the directory it was read from.
+     *
+     * @param sort  field to order the {@link User}s by, optionally followed by ",asc" or ",desc", or null for users file
+     *              order
+     * @param limit maximum number of {@link User}s returned, or null for all of them; required when sorting on a field
+     *              other than name, uid or gid
+     * @return current list of {@link User}s and its version
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     * @throws InvalidQueryException  if the sort is malformed or refers to an unknown field
+     */
+    Versioned<List<User>> getVersionedUsers(String sort, Integer limit) throws UpdateFailureException, InvalidQueryException;
+
+    /**
+     * @return whether the JSON of the {@link User}s is rendered ahead of requests and available through
+     * {@link #getRenderedUsers()} and {@link #getRenderedUserById(int)}
+     */
+    boolean isPrerendered();
+
+    /**
+     * Retrieves the JSON of the current list of {@link User}s, rendered when the users were loaded, along with the
+     * version of the directory it was read from.
+     *
+     * @return JSON array of the current {@link User}s, in users file order, and its version
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     * @throws IllegalStateException  unless {@link #isPrerendered()}
+     */
+    Versioned<RenderedJson> getRenderedUsers() throws UpdateFailureException;
+
+    /**
+     * @return epoch of the versions handed out, drawn anew by every instance of the service: versions are only
+     * comparable within one epoch
+     */
+    long getEpoch();
+
+    /**
+     * Retrieves the {@link User}s added, modified and removed since a version of the directory.
+     *
+     * @param epoch   epoch the client holds the version in, or null if unknown to the client
+     * @param version version the client holds
+     * @return net changes since the version
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws ResyncRequiredException if the changes since the version are no longer available, or the version is of
+     *                                 another epoch
+     */
+    Delta<User> getUsersSince(Long epoch, long version) throws UpdateFailureException, ResyncRequiredException;
+
+    /**
+     * Query for users matching the input criteria. Pass 'null' for parameters to exclude them from the query.
+     * Excluding all parameters results in all current users being returned. Passing multiple parameters is the equivalent
+     * of an "AND" query in that a {@link User} must match ALL criteria in order to be returned.
+     *
+     * @param name    name of {@link User}
+     * @param uid     id of {@link User}
+     * @param gid     group id of {@link User}
+     * @param comment comment field for {@link User}
+     * @param home    home directory of {@link User}
+     * @param shell   shell for {@link User}
+     * @param sort    field to order the {@link User}s by, optionally followed by ",asc" or ",desc", or null for users
+     *                file order
+     * @param limit   maximum number of {@link User}s returned, or null for all of them; required when sorting on a
+     *                field other than name, uid or gid
+     * @return List of {@link User}s matching all specified criteria
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     * @throws InvalidQueryException  if the sort is malformed or refers to an unknown field
+     */
+    List<User> queryUsers(String name, Integer uid, Integer gid, String comment, String home, String shell, String sort, Integer limit)
+            throws UpdateFailureException, InvalidQueryException;
+
+    /**
+     * Query for users matching a boolean expression over their fields, e.g.
+     * {@code shell = /bin/bash AND (uid >= 1000 OR name ^= svc-)}.
+     *
+     * @param expression query expression combining clauses on name, uid, gid, comment, home and shell
+     * @param sort       field to order the {@link User}s by, optionally followed by ",asc" or ",desc", or null for users
+     *                   file order
+     * @param limit      maximum number of {@link User}s returned, or null for all of them; required when sorting on a
+     *                   field other than name, uid or gid
+     * @return List of {@link User}s matching the expression
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     * @throws InvalidQueryException  if the expression or the sort is malformed or refers to unknown fields
+     */
+    List<User> queryUsers(String expression, String sort, Integer limit) throws UpdateFailureException, InvalidQueryException;
+
+    /**
+     * Count the current {@link User}s per value of a field. Counts are kept with each version of the directory, so this
+     * costs the number of distinct values rather than the number of users.
+     *
+     * @param groupBy shell, gid for the primary gid, or home for the directory holding the home directory
+     * @return number of {@link User}s per value, from the most to the least common value
+     * @throws UpdateFailureException if the current list of users cannot be retrieved
+     */
+    Stats getUserStats(String groupBy) throws UpdateFailureException;
+
+    /**
+     * Retrieve {@link User} based on uid.
+     *
+     * @param uid id of {@link User}
+     * @return {@link User} matching provided uid
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws EntityNotFoundException if no user matches the provided uid
+     */
+    User getUserById(int uid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve {@link User} based on uid, along with its ETag.
+     *
+     * @param uid id of {@link User}
+     * @return {@link User} matching provided uid and its ETag
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws EntityNotFoundException if no user matches the provided uid
+     */
+    Tagged<User> getTaggedUserById(int uid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve the JSON of a {@link User} based on uid, rendered when the users were loaded, along with its ETag.
+     *
+     * @param uid id of {@link User}
+     * @return JSON of the {@link User} matching provided uid and its ETag
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws EntityNotFoundException if no user matches the provided uid
+     * @throws IllegalStateException   unless {@link #isPrerendered()}
+     */
+    Tagged<RenderedJson> getRenderedUserById(int uid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieve {@link User} based on name.
+     *
+     * @param name name of {@link User}
+     * @return first {@link User} matching provided name
+     * @throws UpdateFailureException  if the current list of users cannot be retrieved
+     * @throws EntityNotFoundException if no user matches the provided name
+     */
+    User getUserByName(String name) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieves all groups associated with the given uid.
+     *
+     * @param uid id of user to find groups associated with
+     * @return list of {@link Group}s associated with provided uid
+     * @throws UpdateFailureException  if the current list of {@link Group}s cannot be retrieved
+     * @throws EntityNotFoundException if the uid doesn't match any current user
+     */
+    List<Group> getGroupsOfUser(int uid) throws UpdateFailureException, EntityNotFoundException;
+
+    /**
+     * Retrieves the gids of the groups of a user, as returned by getgrouplist(3): the primary gid first, then the gids
+     * of the groups listing the user as a member, each gid once. The user and the groups are read from the same
+     * versions of the users and groups files.
+     *
+     * @param name name of user to find groups associated with
+     * @return gids of the groups of the first user matching provided name
+     * @throws UpdateFailureException  if the current list of {@link Group}s cannot be retrieved
+     * @throws EntityNotFoundException if the name doesn't match any current user
+     */
+    int[] getGroupListByName(String name) throws UpdateFailureException, EntityNotFoundException;
+
+}
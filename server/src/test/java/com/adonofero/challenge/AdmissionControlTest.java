@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.File;
+
+/**
+ * Runs requests against a service whose bulk endpoints have no concurrency budget at all.
+ *
+ * @author Alexander Donofero
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ContextConfiguration(classes = {PasswdApplication.class})
+@TestPropertySource(properties = {"passwd.admission.bulk.max-concurrent=0", "passwd.admission.bulk.max-queue-ms=0", "passwd.admission.retry-after-seconds=5"})
+public class AdmissionControlTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    File defaultUserFile = new File("src/test/resources/usersfiles/defaultUsersFile.txt");
+    File passwdFile = new File("target/test/passwd.txt");
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.copyFile(defaultUserFile, passwdFile);
+        passwdFile.setReadable(true);
+    }
+
+    @Test
+    public void admissionControl_WithBulkBudgetExhausted_ShouldShedBulkRequest() throws Exception {
+        // Act & Assert
+        mvc.perform(MockMvcRequestBuilders.get("/users"))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "5"));
+    }
+
+    @Test
+    public void admissionControl_WithBulkBudgetExhausted_ShouldStillServePointLookup() throws Exception {
+        // Act & Assert
+        mvc.perform(MockMvcRequestBuilders.get("/users/0"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Server-Timing", Matchers.startsWith("queue;dur=")));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge;
+
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.File;
+
+/**
+ * @author Alexander Donofero
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ContextConfiguration(classes = {PasswdApplication.class})
+public class ChangesControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private LocalFileDirectory directory;
+
+    File defaultUserFile = new File("src/test/resources/usersfiles/defaultUsersFile.txt");
+    File updatedUserFile = new File("src/test/resources/usersfiles/updatedUsersFile.txt");
+    File defaultGroupFile = new File("src/test/resources/groupfiles/defaultGroupsFile.txt");
+    File passwdFile = new File("target/test/passwd.txt");
+    File groupFile = new File("target/test/group");
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.copyFile(defaultUserFile, passwdFile);
+        FileUtils.copyFile(defaultGroupFile, groupFile);
+        passwdFile.setReadable(true);
+        groupFile.setReadable(true);
+    }
+
+    @Test
+    public void changesController_WithChangesEndpoint_WithUsersFileChanged_ShouldStreamChange() throws Exception {
+        // Arrange
+        long version = awaitChangeLog();
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/changes?since=" + version))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+        // Act
+        FileUtils.copyFile(updatedUserFile, passwdFile);
+        mvc.perform(MockMvcRequestBuilders.get("/users")).andExpect(MockMvcResultMatchers.status().isOk());
+        String events = awaitContent(result, "event:change");
+
+        // Assert
+        Assert.assertTrue(events, events.contains("id:" + directory.getEpoch() + ":" + (version + 1)));
+        Assert.assertTrue(events.contains("\"fromVersion\":" + version));
+        Assert.assertTrue(events.contains("adonofero"));
+    }
+
+    @Test
+    public void changesController_WithChangesEndpoint_WithEvictedVersion_ShouldAskForResync() throws Exception {
+        // Arrange
+        awaitChangeLog();
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/changes?since=-1"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+        String events = awaitContent(result, "event:resync");
+
+        // Assert
+        Assert.assertTrue(events, events.contains("\"version\":" + changeLog.getLatestVersion()));
+    }
+
+    @Test
+    public void usersController_WithSinceParameter_WithUsersFileChanged_ShouldReturnDelta() throws Exception {
+        // Arrange
+        long version = awaitChangeLog();
+        FileUtils.copyFile(updatedUserFile, passwdFile);
+        mvc.perform(MockMvcRequestBuilders.get("/users"))
+                .andExpect(MockMvcResultMatchers.header().string("X-Snapshot-Version", String.valueOf(version + 1)));
+        awaitChangeLog();
+
+        // Act & Assert
+        mvc.perform(MockMvcRequestBuilders.get("/users?since=" + version + "&epoch=" + directory.getEpoch()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Snapshot-Version", String.valueOf(version + 1)))
+                .andExpect(MockMvcResultMatchers.header().string("X-Snapshot-Epoch", String.valueOf(directory.getEpoch())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.fromVersion").value(version))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.added[2].name").value("adonofero"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.modified").isEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.removed[0].name").value("root"));
+    }
+
+    @Test
+    public void groupsController_WithSinceParameter_WithEvictedVersion_ShouldReturnGone() throws Exception {
+        // Arrange
+        long version = awaitChangeLog();
+
+        // Act & Assert
+        mvc.perform(MockMvcRequestBuilders.get("/groups?since=-1"))
+                .andExpect(MockMvcResultMatchers.status().isGone())
+                .andExpect(MockMvcResultMatchers.header().string("X-Snapshot-Version", String.valueOf(version)));
+    }
+
+    @Test
+    public void usersController_WithSinceParameter_WithOtherEpoch_ShouldReturnGone() throws Exception {
+        // Arrange
+        long version = awaitChangeLog();
+
+        // Act & Assert
+        mvc.perform(MockMvcRequestBuilders.get("/users?since=" + version + "&epoch=" + (directory.getEpoch() + 1)))
+                .andExpect(MockMvcResultMatchers.status().isGone())
+                .andExpect(MockMvcResultMatchers.header().string("X-Snapshot-Version", String.valueOf(version)))
+                .andExpect(MockMvcResultMatchers.header().string("X-Snapshot-Epoch", String.valueOf(directory.getEpoch())));
+    }
+
+    @Test
+    public void changesController_WithChangesEndpoint_WithLastEventIdOfOtherEpoch_ShouldAskForResync() throws Exception {
+        // Arrange
+        long version = awaitChangeLog();
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/changes").header("Last-Event-ID", (directory.getEpoch() + 1) + ":" + version))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+        String events = awaitContent(result, "event:resync");
+
+        // Assert
+        Assert.assertTrue(events, events.contains("id:" + directory.getEpoch() + ":" + version));
+    }
+
+    /**
+     * Load both files and wait for the change log to record the resulting snapshot.
+     */
+    private long awaitChangeLog() throws Exception {
+        long version = directory.getSnapshot().getVersion();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (changeLog.getLatestVersion() != version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(version, changeLog.getLatestVersion());
+        return version;
+    }
+
+    private String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        // Events are written in parts; wait for the blank line ending the event
+        while (!(content.contains(expected) && content.endsWith("\n\n")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        Assert.assertTrue("Expected " + expected + " in " + content, content.contains(expected));
+        return content;
+    }
+}
@@ -16,6 +16,8 @@
 package com.adonofero.challenge;
 
 import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
@@ -33,6 +35,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -54,6 +57,8 @@ public class GroupsControllerTest {
     File queryGroupFile = new File(testDataDir, "queryGroupsFile.txt");
     File malformedGroupFile = new File(testDataDir, "malformedGroupsFile.txt");
     File groupFile = new File("target/test/group");
+    File queryUserFile = new File("src/test/resources/usersfiles/queryUsersFile.txt");
+    File passwdFile = new File("target/test/passwd.txt");
 
     @Before
     public void setup() throws Exception {
@@ -121,6 +126,20 @@ public class GroupsControllerTest {
         Assert.assertEquals(expectedGroup, foundGroup);
     }
 
+    @Test
+    public void groupsController_WithGetGroupByGidEndpoint_WithCurrentETag_ShouldReturn_NotModified() throws Exception {
+        // Arrange
+        String tag = mvc.perform(MockMvcRequestBuilders.get("/groups/118")).andReturn().getResponse().getHeader("ETag");
+
+        // Act and Assert
+        Assert.assertNotNull(tag);
+        mvc.perform(MockMvcRequestBuilders.get("/groups/118").header("If-None-Match", tag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        mvc.perform(MockMvcRequestBuilders.get("/groups/118").header("If-None-Match", "\"0\""))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
     @Test
     public void groupsController_WithGetGroupByGidEndpoint_WithInvalidGid_ShouldReturn_NotFound() throws Exception {
         // Arrange
@@ -129,6 +148,140 @@ public class GroupsControllerTest {
         mvc.perform(MockMvcRequestBuilders.get("/groups/9999")).andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
+    @Test
+    public void groupsController_WithGetUsersOfGroupEndpoint_WithValidGid_ShouldReturn_PrimaryAndSupplementaryMembers() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        FileUtils.copyFile(queryGroupFile, groupFile);
+        Map<String, List<User>> testURIsWithExpectedUsers = new HashMap<>();
+        // Supplementary members listed in the groups file
+        List<User> testUsers = new ArrayList<>();
+        testUsers.add(createUser("sys", 3, 3, "sys", "/dev", "/usr/sbin/nologin"));
+        testURIsWithExpectedUsers.put("/groups/1000/users", testUsers);
+        // Primary members sharing a gid
+        testUsers = new ArrayList<>();
+        testUsers.add(createUser("daemon", 1, 1, "daemon", "/usr/sbin", "/usr/sbin/nologin"));
+        testUsers.add(createUser("sameGroup", 4, 1, "sameGroup", "/usr/sbin", "/bin/bash"));
+        testURIsWithExpectedUsers.put("/groups/1/users", testUsers);
+        // Group whose members are not users on the system
+        testURIsWithExpectedUsers.put("/groups/1001/users", new ArrayList<>());
+        for (String testURI : testURIsWithExpectedUsers.keySet()) {
+            List<User> expectedUsers = testURIsWithExpectedUsers.get(testURI);
+
+            // Act
+            MvcResult result = mvc.perform(MockMvcRequestBuilders.get(testURI)).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+            // Assert
+            String responseContent = result.getResponse().getContentAsString();
+            User[] foundUsers = mapper.readValue(responseContent, User[].class);
+            Assert.assertEquals(expectedUsers, Arrays.asList(foundUsers));
+            Assert.assertEquals(String.valueOf(expectedUsers.size()), result.getResponse().getHeader("X-Total-Count"));
+        }
+    }
+
+    @Test
+    public void groupsController_WithGetUsersOfGroupEndpoint_WithPagination_ShouldReturn_RequestedPage() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        FileUtils.copyFile(queryGroupFile, groupFile);
+        User expectedUser = createUser("sameGroup", 4, 1, "sameGroup", "/usr/sbin", "/bin/bash");
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/groups/1/users?offset=1&limit=1")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        String responseContent = result.getResponse().getContentAsString();
+        User[] foundUsers = mapper.readValue(responseContent, User[].class);
+        Assert.assertEquals(Collections.singletonList(expectedUser), Arrays.asList(foundUsers));
+        Assert.assertEquals("2", result.getResponse().getHeader("X-Total-Count"));
+    }
+
+    @Test
+    public void groupsController_WithGetUsersOfGroupEndpoint_WithInvalidPagination_ShouldReturn_BadRequest() throws Exception {
+        // Arrange
+
+        // Act and Assert
+        mvc.perform(MockMvcRequestBuilders.get("/groups/118/users?limit=0")).andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().string("offset must be non-negative and limit between 1 and 10000 on getUsersOfGroup endpoint"));
+    }
+
+    @Test
+    public void groupsController_WithGetUsersOfGroupEndpoint_WithInvalidGid_ShouldReturn_NotFound() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+
+        // Act and Assert
+        mvc.perform(MockMvcRequestBuilders.get("/groups/9999/users")).andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void groupsController_WithGetGroupStatsEndpoint_ShouldReturn_NumberOfUsersOfEachGroup() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        FileUtils.copyFile(queryGroupFile, groupFile);
+        Map<String, Integer> expectedCounts = new LinkedHashMap<>();
+        expectedCounts.put("1000", 1);
+        expectedCounts.put("118", 1);
+        expectedCounts.put("1001", 0);
+        expectedCounts.put("1002", 0);
+        expectedCounts.put("1003", 0);
+        expectedCounts.put("119", 0);
+        expectedCounts.put("120", 0);
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/groups/stats")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        JsonNode stats = mapper.readTree(result.getResponse().getContentAsString());
+        Map<String, Integer> foundCounts = new LinkedHashMap<>();
+        stats.get("counts").fields().forEachRemaining(entry -> foundCounts.put(entry.getKey(), entry.getValue().asInt()));
+        Assert.assertEquals(expectedCounts, foundCounts);
+        Assert.assertEquals(7, stats.get("total").asInt());
+    }
+
+    @Test
+    public void groupsController_WithGetGroupStatsEndpoint_WithSharedNamesAndGids_ShouldCountEachGidOnce() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        FileUtils.writeStringToFile(groupFile, "sys:x:1000:sys\nsys:x:118:\nalias:x:1000:\n", StandardCharsets.UTF_8);
+        Map<String, Integer> expectedCounts = new LinkedHashMap<>();
+        expectedCounts.put("1000", 1);
+        expectedCounts.put("118", 0);
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/groups/stats")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        JsonNode stats = mapper.readTree(result.getResponse().getContentAsString());
+        Map<String, Integer> foundCounts = new LinkedHashMap<>();
+        stats.get("counts").fields().forEachRemaining(entry -> foundCounts.put(entry.getKey(), entry.getValue().asInt()));
+        Assert.assertEquals(expectedCounts, foundCounts);
+        Assert.assertEquals("gid", stats.get("groupBy").asText());
+        Assert.assertEquals(2, stats.get("total").asInt());
+    }
+
+    @Test
+    public void groupsController_WithGetGroupByNameEndpoint_WithValidName_ShouldReturn_AssociatedGroup() throws Exception {
+        // Arrange
+        Group expectedGroup = createGroup("scanner", 120, new String[]{"saned"});
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/groups/by-name/scanner")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        String responseContent = result.getResponse().getContentAsString();
+        Group foundGroup = mapper.readValue(responseContent, Group.class);
+        Assert.assertEquals(expectedGroup, foundGroup);
+    }
+
+    @Test
+    public void groupsController_WithGetGroupByNameEndpoint_WithInvalidName_ShouldReturn_NotFound() throws Exception {
+        // Arrange
+
+        // Act and Assert
+        mvc.perform(MockMvcRequestBuilders.get("/groups/by-name/nogroup")).andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
     @Test
     public void groupsController_WithQueryGroupsEndpoint_WithSingleAttribute_ShouldReturn_AllGroups_MatchingAttribute() throws Exception {
         // Arrange
@@ -200,6 +353,17 @@ public class GroupsControllerTest {
         }
     }
 
+    private User createUser(String name, int uid, int gid, String comment, String home, String shell) {
+        User user = new User();
+        user.setName(name);
+        user.setUid(uid);
+        user.setGid(gid);
+        user.setComment(comment);
+        user.setHome(home);
+        user.setShell(shell);
+        return user;
+    }
+
     private Group createGroup(String name, int gid, String[] members) {
         Group group = new Group();
         group.setName(name);
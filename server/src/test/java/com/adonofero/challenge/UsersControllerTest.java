@@ -176,6 +176,24 @@ public class UsersControllerTest {
         Assert.assertEquals(expectedUser, foundUser);
     }
 
+    @Test
+    public void usersController_WithGetUserByUIDEndpoint_WithIfNoneMatch_ShouldReturn_NotModifiedUntilUserChanges() throws Exception {
+        // Arrange
+        String rootTag = mvc.perform(MockMvcRequestBuilders.get("/users/0")).andReturn().getResponse().getHeader("ETag");
+        String sysTag = mvc.perform(MockMvcRequestBuilders.get("/users/3")).andReturn().getResponse().getHeader("ETag");
+        String users = FileUtils.readFileToString(defaultUserFile, "UTF-8");
+        FileUtils.writeStringToFile(passwdFile, users.replace("root:/root:/bin/bash", "root:/root:/bin/zsh"), "UTF-8");
+
+        // Act and Assert
+        mvc.perform(MockMvcRequestBuilders.get("/users/3").header("If-None-Match", sysTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", sysTag));
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/0").header("If-None-Match", rootTag))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+        Assert.assertNotEquals(rootTag, result.getResponse().getHeader("ETag"));
+        Assert.assertEquals("/bin/zsh", mapper.readValue(result.getResponse().getContentAsString(), User.class).getShell());
+    }
+
     @Test
     public void usersController_WithGetUserByUIDEndpoint_WithUIDThatDoesNotExist_ShouldReturn_404NotFound() throws Exception {
         // Arrange
@@ -196,6 +214,29 @@ public class UsersControllerTest {
 
     }
 
+    @Test
+    public void usersController_WithGetUserByNameEndpoint_WithValidName_ShouldReturn_SpecifiedUser() throws Exception {
+        // Arrange
+        User expectedUser = createUser("daemon", 1, 1, "daemon", "/usr/sbin", "/usr/sbin/nologin");
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/by-name/daemon")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        String responseContent = result.getResponse().getContentAsString();
+        User foundUser = mapper.readValue(responseContent, User.class);
+        Assert.assertEquals(expectedUser, foundUser);
+    }
+
+    @Test
+    public void usersController_WithGetUserByNameEndpoint_WithNameThatDoesNotExist_ShouldReturn_404NotFound() throws Exception {
+        // Arrange
+        // N/A
+
+        // Act and Assert
+        mvc.perform(MockMvcRequestBuilders.get("/users/by-name/nobody")).andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
     @Test
     public void queryUsersEndpoint_WithSingleAttribute_ShouldReturn_AllUsers_MatchingAttribute() throws Exception {
         // Arrange
@@ -276,6 +317,85 @@ public class UsersControllerTest {
         }
     }
 
+    @Test
+    public void queryUsersEndpoint_WithQueryExpression_ShouldReturn_UsersMatchingExpression() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        List<User> expectedUsers = new ArrayList<>();
+        expectedUsers.add(createUser("root", 0, 0, "root", "/root", "/bin/bash"));
+        expectedUsers.add(createUser("sys2", 5, 5, "sys", "/dev", "/bin/tcsh"));
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/query")
+                .param("q", "(shell = /bin/bash AND NOT uid > 3) OR (name ^= sys AND gid >= 4)"))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+        MvcResult invalid = mvc.perform(MockMvcRequestBuilders.get("/users/query").param("q", "shell ^= /bin AND uid ^= 1"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()).andReturn();
+
+        // Assert
+        User[] foundUsers = mapper.readValue(result.getResponse().getContentAsString(), User[].class);
+        Assert.assertEquals(expectedUsers, Arrays.asList(foundUsers));
+        Assert.assertEquals("Operator ^= requires a text field. Field 'uid' is numeric", invalid.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void usersController_WithGetUsersEndpoint_WithSortAndLimit_ShouldReturn_FirstUsersInOrder() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        List<User> expectedUsers = new ArrayList<>();
+        expectedUsers.add(createUser("sys2", 5, 5, "sys", "/dev", "/bin/tcsh"));
+        expectedUsers.add(createUser("sameGroup", 4, 1, "sameGroup", "/usr/sbin", "/bin/bash"));
+        List<User> expectedQueriedUsers = new ArrayList<>();
+        expectedQueriedUsers.add(createUser("daemon", 1, 1, "daemon", "/usr/sbin", "/usr/sbin/nologin"));
+        expectedQueriedUsers.add(createUser("sys", 3, 3, "sys", "/dev", "/usr/sbin/nologin"));
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users").param("sort", "uid,desc").param("limit", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+        MvcResult queried = mvc.perform(MockMvcRequestBuilders.get("/users/query").param("shell", "/usr/sbin/nologin")
+                .param("sort", "home,desc").param("limit", "2")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+        MvcResult unbounded = mvc.perform(MockMvcRequestBuilders.get("/users").param("sort", "shell"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()).andReturn();
+
+        // Assert
+        Assert.assertEquals(expectedUsers, Arrays.asList(mapper.readValue(result.getResponse().getContentAsString(), User[].class)));
+        Assert.assertEquals(expectedQueriedUsers, Arrays.asList(mapper.readValue(queried.getResponse().getContentAsString(), User[].class)));
+        Assert.assertEquals("Sorting on field 'shell' requires a limit", unbounded.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void usersController_WithGetUserStatsEndpoint_ShouldReturn_CountsOfCurrentUsers() throws Exception {
+        // Arrange
+        Map<String, Integer> expectedShells = new LinkedHashMap<>();
+        expectedShells.put("/usr/sbin/nologin", 3);
+        expectedShells.put("/bin/bash", 1);
+        Map<String, Integer> expectedHomes = new LinkedHashMap<>();
+        expectedHomes.put("/", 3);
+        expectedHomes.put("/usr", 1);
+        Map<String, Integer> expectedReloadedShells = new LinkedHashMap<>();
+        expectedReloadedShells.put("/usr/sbin/nologin", 3);
+        expectedReloadedShells.put("/bin/bash", 2);
+        expectedReloadedShells.put("/bin/tcsh", 1);
+
+        // Act
+        MvcResult shells = mvc.perform(MockMvcRequestBuilders.get("/users/stats").param("groupBy", "shell"))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+        MvcResult homes = mvc.perform(MockMvcRequestBuilders.get("/users/stats").param("groupBy", "home"))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+        MvcResult invalid = mvc.perform(MockMvcRequestBuilders.get("/users/stats").param("groupBy", "password"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()).andReturn();
+        FileUtils.copyFile(queryUserFile, passwdFile);
+        MvcResult reloaded = mvc.perform(MockMvcRequestBuilders.get("/users/stats").param("groupBy", "shell"))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        Assert.assertEquals(expectedShells, countsOf(shells));
+        Assert.assertEquals(expectedHomes, countsOf(homes));
+        Assert.assertEquals("groupBy must be one of shell, gid or home on getUserStats endpoint", invalid.getResponse().getContentAsString());
+        Assert.assertEquals(expectedReloadedShells, countsOf(reloaded));
+        Assert.assertEquals(6, mapper.readTree(reloaded.getResponse().getContentAsString()).get("total").asInt());
+    }
+
     @Test
     public void usersController_WithGetGroupsForUserEndpoint_WithValidUID_ShouldReturn_AllGroupsForUser() throws Exception {
         // Arrange
@@ -294,6 +414,26 @@ public class UsersControllerTest {
         Assert.assertTrue(expectedGroups.containsAll(Arrays.asList(foundGroups)));
     }
 
+    @Test
+    public void usersController_WithGetGroupsForUserEndpoint_WithChangesToUsersFile_ShouldReturn_GroupsOfUpdatedUser() throws Exception {
+        // Arrange
+        FileUtils.copyFile(queryGroupFile, groupFile);
+        mvc.perform(MockMvcRequestBuilders.get("/users/3/groups")).andExpect(MockMvcResultMatchers.status().isOk());
+        FileUtils.copyFile(updatedUserFile, passwdFile);
+        List<Group> expectedGroups = new ArrayList<>();
+        expectedGroups.add(createGroup("multigroup", 1001, new String[]{"adonofero", "tester"}));
+        expectedGroups.add(createGroup("adonofero", 1003, new String[]{"adonofero"}));
+
+        // Act
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/1000/groups")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+
+        // Assert
+        String responseContent = result.getResponse().getContentAsString();
+        Group[] foundGroups = mapper.readValue(responseContent, Group[].class);
+        Assert.assertTrue(expectedGroups.size() == foundGroups.length);
+        Assert.assertTrue(expectedGroups.containsAll(Arrays.asList(foundGroups)));
+    }
+
     @Test
     public void usersController_WithGetGroupsForUserEndpoint_WithInvalidUID_ShouldReturn_NotFound() throws Exception {
         // Arrange
@@ -313,6 +453,13 @@ public class UsersControllerTest {
         return user;
     }
 
+    private Map<String, Integer> countsOf(MvcResult result) throws Exception {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        mapper.readTree(result.getResponse().getContentAsString()).get("counts").fields()
+                .forEachRemaining(entry -> counts.put(entry.getKey(), entry.getValue().asInt()));
+        return counts;
+    }
+
     private Group createGroup(String name, int gid, String[] members) {
         Group group = new Group();
         group.setName(name);
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.lite;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @author Alexander Donofero
+ */
+public class LitePasswdServerTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    File passwdFile = new File("target/test/lite/passwd.txt");
+    File groupFile = new File("target/test/lite/group.txt");
+
+    private LitePasswdServer server;
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/defaultUsersFile.txt"), passwdFile);
+        FileUtils.copyFile(new File("src/test/resources/groupfiles/queryGroupsFile.txt"), groupFile);
+        server = new LitePasswdServer(LitePasswdServer.settings("--server.port=0", "--passwd.users.filepath=" + passwdFile.getPath(),
+                "--passwd.groups.filepath=" + groupFile.getPath()));
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void litePasswdServer_WithGetUserByIdEndpoint_ShouldReturnSameJsonAsControllers() throws Exception {
+        // Act
+        HttpURLConnection connection = get("/users/1");
+
+        // Assert
+        Assert.assertEquals(200, connection.getResponseCode());
+        User user = mapper.readValue(connection.getInputStream(), User.class);
+        Assert.assertEquals("daemon", user.getName());
+        Assert.assertEquals(1, user.getUid());
+        Assert.assertNotNull(connection.getHeaderField("Server-Timing"));
+    }
+
+    @Test
+    public void litePasswdServer_WithPrerenderedJson_ShouldReturnSameBytesAsJackson() throws Exception {
+        // Arrange
+        LitePasswdServer prerendered = new LitePasswdServer(LitePasswdServer.settings("--server.port=0", "--passwd.users.filepath=" + passwdFile.getPath(),
+                "--passwd.groups.filepath=" + groupFile.getPath(), "--passwd.render.mode=prerendered"));
+        prerendered.start();
+        try {
+            for (String path : Arrays.asList("/users", "/users/1", "/groups")) {
+                // Act
+                HttpURLConnection expected = get(path);
+                HttpURLConnection actual = (HttpURLConnection) new URL("http://localhost:" + prerendered.getPort() + path).openConnection();
+
+                // Assert
+                Assert.assertEquals(200, actual.getResponseCode());
+                Assert.assertEquals(expected.getContentType(), actual.getContentType());
+                Assert.assertEquals(expected.getHeaderField("ETag"), actual.getHeaderField("ETag"));
+                Assert.assertArrayEquals(IOUtils.toByteArray(expected.getInputStream()), IOUtils.toByteArray(actual.getInputStream()));
+            }
+        } finally {
+            prerendered.stop();
+        }
+    }
+
+    @Test
+    public void litePasswdServer_WithQueryGroupsEndpoint_ShouldReturnMatchingGroups() throws Exception {
+        // Act
+        HttpURLConnection connection = get("/groups/query?member=sys");
+
+        // Assert
+        Assert.assertEquals(200, connection.getResponseCode());
+        Group[] groups = mapper.readValue(connection.getInputStream(), Group[].class);
+        Assert.assertTrue(groups.length > 0);
+        for (Group group : groups) {
+            Assert.assertTrue(Arrays.asList(group.getMembers()).contains("sys"));
+        }
+    }
+
+    @Test
+    public void litePasswdServer_WithUnknownUid_ShouldReturnNotFound() throws Exception {
+        // Act
+        HttpURLConnection connection = get("/users/9999");
+
+        // Assert
+        Assert.assertEquals(404, connection.getResponseCode());
+        Assert.assertEquals("Requested user was not found.", IOUtils.toString(connection.getErrorStream(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void litePasswdServer_WithNonNumericUid_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        Assert.assertEquals(400, get("/users/DONTDOTHIS").getResponseCode());
+    }
+
+    @Test
+    public void litePasswdServer_WithByNameEndpointsWithoutName_ShouldReturnNotFound() throws Exception {
+        // Act & Assert
+        Assert.assertEquals(404, get("/users/by-name").getResponseCode());
+        Assert.assertEquals(404, get("/groups/by-name").getResponseCode());
+    }
+
+    @Test
+    public void litePasswdServer_WithChangesEndpoint_WithUsersFileChanged_ShouldStreamChange() throws Exception {
+        // Arrange
+        HttpURLConnection users = get("/users");
+        Assert.assertEquals(200, users.getResponseCode());
+        HttpURLConnection stream = get("/changes?since=" + users.getHeaderField("X-Snapshot-Version") + "&epoch=" + users.getHeaderField("X-Snapshot-Epoch"));
+        stream.setReadTimeout(5000);
+        Assert.assertEquals(200, stream.getResponseCode());
+        Assert.assertEquals("text/event-stream;charset=UTF-8", stream.getContentType());
+
+        // Act
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/updatedUsersFile.txt"), passwdFile);
+        Assert.assertEquals(200, get("/users").getResponseCode());
+
+        // Assert
+        try (BufferedReader events = new BufferedReader(new InputStreamReader(stream.getInputStream(), StandardCharsets.UTF_8))) {
+            String event = null;
+            String line;
+            while ((line = events.readLine()) != null) {
+                if (line.startsWith("event:")) {
+                    event = line;
+                } else if (line.startsWith("data:") && line.contains("adonofero")) {
+                    break;
+                }
+            }
+            Assert.assertEquals("event:change", event);
+            Assert.assertNotNull(line);
+        }
+    }
+
+    @Test
+    public void litePasswdServer_WithChangesEndpoint_WithEvictedVersion_ShouldAskForResyncAndClose() throws Exception {
+        // Act
+        HttpURLConnection stream = get("/changes?since=-1");
+        stream.setReadTimeout(5000);
+
+        // Assert
+        Assert.assertEquals(200, stream.getResponseCode());
+        String events = IOUtils.toString(stream.getInputStream(), StandardCharsets.UTF_8);
+        Assert.assertTrue(events, events.contains("event:resync"));
+        Assert.assertTrue(events, events.contains("data:{\"version\":"));
+    }
+
+    private HttpURLConnection get(String path) throws Exception {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.lite;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.services.directory.SnapshotCodec;
+import com.adonofero.challenge.services.directory.StorageMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Runs a publisher and a follower on localhost.
+ *
+ * @author Alexander Donofero
+ */
+public class PeerSnapshotTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    File passwdFile = new File("target/test/peer/passwd.txt");
+    File groupFile = new File("target/test/peer/group.txt");
+
+    private LitePasswdServer publisher;
+    private LitePasswdServer follower;
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/defaultUsersFile.txt"), passwdFile);
+        FileUtils.copyFile(new File("src/test/resources/groupfiles/queryGroupsFile.txt"), groupFile);
+        publisher = new LitePasswdServer(LitePasswdServer.settings("--server.port=0", "--passwd.users.filepath=" + passwdFile.getPath(),
+                "--passwd.groups.filepath=" + groupFile.getPath()));
+        publisher.start();
+        // The follower never reads these files
+        follower = new LitePasswdServer(LitePasswdServer.settings("--server.port=0", "--passwd.users.filepath=target/test/peer/missing",
+                "--passwd.groups.filepath=target/test/peer/missing", "--passwd.storage.mode=off-heap",
+                "--passwd.peer.url=http://localhost:" + publisher.getPort(), "--passwd.refresh.interval-ms=20"));
+        follower.start();
+    }
+
+    @After
+    public void teardown() {
+        follower.stop();
+        publisher.stop();
+    }
+
+    @Test
+    public void follower_WithPublisherFiles_ShouldServeSameUsersAndGroups() throws Exception {
+        // Act
+        User[] expectedUsers = mapper.readValue(get(publisher, "/users").getInputStream(), User[].class);
+        User[] users = mapper.readValue(get(follower, "/users").getInputStream(), User[].class);
+        Group[] expectedGroups = mapper.readValue(get(publisher, "/groups").getInputStream(), Group[].class);
+        Group[] groups = mapper.readValue(get(follower, "/groups").getInputStream(), Group[].class);
+
+        // Assert
+        Assert.assertArrayEquals(expectedUsers, users);
+        Assert.assertArrayEquals(expectedGroups, groups);
+    }
+
+    @Test
+    public void follower_WithEditedPublisherGroupsFile_ShouldOnlyBeSentGroups() throws Exception {
+        // Arrange
+        HttpURLConnection snapshot = get(publisher, "/snapshot");
+        SnapshotCodec.Frame full = SnapshotCodec.decode(snapshot.getInputStream(), snapshot.getContentLengthLong(), StorageMode.OBJECT);
+        String query = "/snapshot?epoch=" + full.getEpoch() + "&since=" + full.getVersion();
+        FileUtils.writeStringToFile(groupFile, "\npeers:x:4242:root,daemon", StandardCharsets.UTF_8, true);
+
+        // Act
+        HttpURLConnection changed = get(publisher, query);
+        SnapshotCodec.Frame incremental = SnapshotCodec.decode(changed.getInputStream(), changed.getContentLengthLong(), StorageMode.OBJECT);
+        HttpURLConnection unchanged = get(publisher, "/snapshot?epoch=" + incremental.getEpoch() + "&since=" + incremental.getVersion());
+
+        // Assert
+        Assert.assertNull(incremental.getUsers());
+        Assert.assertEquals("peers", incremental.getGroups().getGroup(incremental.getGroups().size() - 1).getName());
+        Assert.assertEquals(304, unchanged.getResponseCode());
+        Group group = null;
+        for (int attempt = 0; attempt < 100 && group == null; attempt++) {
+            HttpURLConnection connection = get(follower, "/groups/4242");
+            if (connection.getResponseCode() == 200) {
+                group = mapper.readValue(connection.getInputStream(), Group.class);
+            } else {
+                Thread.sleep(20);
+            }
+        }
+        Assert.assertNotNull("Follower never loaded the edited groups", group);
+        Assert.assertEquals(Arrays.asList("root", "daemon"), Arrays.asList(group.getMembers()));
+    }
+
+    private static HttpURLConnection get(LitePasswdServer server, String path) throws Exception {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.lite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Compares the allocation rate of the {@link LitePasswdServer} serving uid lookups and full lists of users with each
+ * render mode. Bytes allocated are summed over every thread but the one issuing the requests, so they cover the
+ * server alone. Not run as part of the tests:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(cat classpath.txt) com.adonofero.challenge.lite.RenderBenchmark \
+ *     /path/to/passwd /path/to/group [maxUid] [seconds]
+ * </pre>
+ *
+ * @author Alexander Donofero
+ */
+public class RenderBenchmark {
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int maxUid = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 10;
+        String[] renderModes = {"jackson", "prerendered"};
+        LitePasswdServer[] servers = new LitePasswdServer[renderModes.length];
+        for (int i = 0; i < renderModes.length; i++) {
+            servers[i] = new LitePasswdServer(LitePasswdServer.settings("--server.port=0", "--passwd.render.mode=" + renderModes[i],
+                    "--passwd.users.filepath=" + args[0], "--passwd.groups.filepath=" + args[1]));
+            servers[i].start();
+        }
+        try {
+            for (int round = 0; round < 2; round++) {
+                // The first round warms up the JIT, for the client as much as for the servers, and loads the files
+                for (int i = 0; i < renderModes.length; i++) {
+                    String label = (round == 0 ? "warm-up " : "") + renderModes[i];
+                    run(label + " getpwuid", servers[i].getPort(), () -> "/users/" + ThreadLocalRandom.current().nextInt(maxUid), seconds);
+                    run(label + " all users", servers[i].getPort(), () -> "/users", seconds);
+                }
+            }
+        } finally {
+            for (LitePasswdServer server : servers) {
+                server.stop();
+            }
+        }
+    }
+
+    private static void run(String label, int port, Supplier<String> paths, long seconds) throws IOException {
+        byte[] discard = new byte[65536];
+        long allocatedBefore = serverAllocatedBytes();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        long requests = 0;
+        while (System.nanoTime() < deadline) {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + paths.get()).openConnection();
+            // Draining the body, found or not, lets the connection be kept alive for the next request
+            try (InputStream in = connection.getResponseCode() == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+                while (in.read(discard) >= 0) {
+                    // discard
+                }
+            }
+            requests++;
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long allocated = serverAllocatedBytes() - allocatedBefore;
+        System.out.println(String.format(Locale.ROOT, "%-32s %10.0f requests/s %12.1f KB/request %10.1f MB/s allocated", label,
+                requests / elapsedSeconds, allocated / 1024.0 / requests, allocated / 1024.0 / 1024.0 / elapsedSeconds));
+    }
+
+    /**
+     * @return bytes allocated so far by every live thread but the current one
+     */
+    private static long serverAllocatedBytes() {
+        long client = Thread.currentThread().getId();
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            long allocated = id == client ? -1 : threads.getThreadAllocatedBytes(id);
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+}
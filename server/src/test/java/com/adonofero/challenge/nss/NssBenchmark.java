@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.nss;
+
+import com.adonofero.challenge.lite.LitePasswdServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares uid lookups over REST with the same lookups over the {@link NssProtocol}, one at a time and pipelined,
+ * against a {@link LitePasswdServer} serving both. Not run as part of the tests:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(cat classpath.txt) com.adonofero.challenge.nss.NssBenchmark \
+ *     /path/to/passwd /path/to/group [maxUid] [seconds]
+ * </pre>
+ *
+ * @author Alexander Donofero
+ */
+public class NssBenchmark {
+
+    private static final int PIPELINE_DEPTH = 64;
+
+    public static void main(String[] args) throws Exception {
+        int maxUid = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 10;
+        LitePasswdServer server = new LitePasswdServer(LitePasswdServer.settings("--server.port=0", "--passwd.nss.port=0",
+                "--passwd.users.filepath=" + args[0], "--passwd.groups.filepath=" + args[1]));
+        server.start();
+        try {
+            for (int round = 0; round < 2; round++) {
+                // The first round warms up the JIT and loads the files
+                String label = round == 0 ? "warm-up " : "";
+                report(label + "REST getpwuid", rest(server.getPort(), maxUid, seconds), seconds);
+                report(label + "NSS getpwuid", nss(server.getNssPort(), maxUid, seconds, 1), seconds);
+                report(label + "NSS getpwuid pipelined x" + PIPELINE_DEPTH, nss(server.getNssPort(), maxUid, seconds, PIPELINE_DEPTH), seconds);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long rest(int port, int maxUid, long seconds) throws IOException {
+        byte[] discard = new byte[8192];
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long lookups = 0;
+        while (System.nanoTime() < deadline) {
+            int uid = ThreadLocalRandom.current().nextInt(maxUid);
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/users/" + uid).openConnection();
+            // Draining the body, found or not, lets the connection be kept alive for the next lookup
+            try (InputStream in = connection.getResponseCode() == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+                while (in.read(discard) >= 0) {
+                    // discard
+                }
+            }
+            lookups++;
+        }
+        return lookups;
+    }
+
+    private static long nss(int port, int maxUid, long seconds, int depth) throws IOException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long lookups = 0;
+        try (NssClient client = new NssClient("localhost", port)) {
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < depth; i++) {
+                    client.send(i, NssProtocol.GETPWUID, ThreadLocalRandom.current().nextInt(maxUid));
+                }
+                client.flush();
+                for (int i = 0; i < depth; i++) {
+                    client.receive();
+                }
+                lookups += depth;
+            }
+        }
+        return lookups;
+    }
+
+    private static void report(String label, long lookups, long seconds) {
+        System.out.println(String.format(Locale.ROOT, "%-40s %10.0f lookups/s %8.2f us/lookup", label,
+                lookups / (double) seconds, seconds * 1_000_000.0 / lookups));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.nss;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking client of the {@link NssProtocol}. Requests are buffered until {@link #flush()}, so that several can be
+ * pipelined before their responses are read.
+ *
+ * @author Alexander Donofero
+ */
+class NssClient implements Closeable {
+
+    /**
+     * A response frame.
+     */
+    static final class Response {
+        final int requestId;
+        final byte status;
+        final ByteBuffer result;
+
+        Response(int requestId, byte status, ByteBuffer result) {
+            this.requestId = requestId;
+            this.status = status;
+            this.result = result;
+        }
+    }
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+
+    NssClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    void send(int requestId, byte operation, int id) throws IOException {
+        out.writeInt(NssProtocol.HEADER_SIZE + Integer.BYTES);
+        out.writeInt(requestId);
+        out.writeByte(operation);
+        out.writeInt(id);
+    }
+
+    void send(int requestId, byte operation, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(NssProtocol.HEADER_SIZE + bytes.length);
+        out.writeInt(requestId);
+        out.writeByte(operation);
+        out.write(bytes);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    Response receive() throws IOException {
+        int length = in.readInt();
+        int requestId = in.readInt();
+        byte status = in.readByte();
+        byte[] result = new byte[length - NssProtocol.HEADER_SIZE];
+        in.readFully(result);
+        return new Response(requestId, status, ByteBuffer.wrap(result));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.nss;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.exceptions.service.EntityNotFoundException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.changes.ChangeLog;
+import com.adonofero.challenge.services.directory.LocalFileDirectory;
+import com.adonofero.challenge.services.directory.StorageMode;
+import com.adonofero.challenge.services.groups.LocalFileGroupsService;
+import com.adonofero.challenge.services.query.EntitySizes;
+import com.adonofero.challenge.services.query.QueryResultCache;
+import com.adonofero.challenge.services.users.LocalFileUsersService;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @author Alexander Donofero
+ */
+public class NssServerTest {
+
+    File passwdFile = new File("target/test/nss/passwd.txt");
+    File groupFile = new File("target/test/nss/group.txt");
+
+    private LocalFileDirectory directory;
+    private ChangeLog changeLog;
+    private NssServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/defaultUsersFile.txt"), passwdFile);
+        FileUtils.copyFile(new File("src/test/resources/groupfiles/queryGroupsFile.txt"), groupFile);
+        directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT);
+        changeLog = new ChangeLog(16, 1000);
+        server = new NssServer(new LocalFileUsersService(directory, changeLog, new QueryResultCache<>(16, 1 << 20, EntitySizes::of)),
+                new LocalFileGroupsService(directory, changeLog, new QueryResultCache<>(16, 1 << 20, EntitySizes::of)), 0);
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+        changeLog.close();
+        directory.close();
+    }
+
+    @Test
+    public void nssServer_WithPipelinedRequests_ShouldAnswerEachInOrder() throws Exception {
+        try (NssClient client = new NssClient("localhost", server.getPort())) {
+            // Act
+            client.send(1, NssProtocol.GETPWUID, 3);
+            client.send(2, NssProtocol.GETPWNAM, "daemon");
+            client.send(3, NssProtocol.GETGRGID, 118);
+            client.send(4, NssProtocol.GETGRNAM, "multigroup");
+            client.send(5, NssProtocol.GETGROUPLIST, "sys");
+            client.flush();
+
+            // Assert
+            NssClient.Response response = client.receive();
+            Assert.assertEquals(1, response.requestId);
+            Assert.assertEquals(NssProtocol.STATUS_OK, response.status);
+            User sys = NssProtocol.getUser(response.result);
+            Assert.assertEquals("sys", sys.getName());
+            Assert.assertEquals("/usr/sbin/nologin", sys.getShell());
+
+            response = client.receive();
+            Assert.assertEquals(2, response.requestId);
+            Assert.assertEquals(1, NssProtocol.getUser(response.result).getUid());
+
+            response = client.receive();
+            Assert.assertEquals(3, response.requestId);
+            Group lpadmin = NssProtocol.getGroup(response.result);
+            Assert.assertEquals("lpadmin", lpadmin.getName());
+            Assert.assertArrayEquals(new String[]{"sys"}, lpadmin.getMembers());
+
+            response = client.receive();
+            Assert.assertEquals(4, response.requestId);
+            Assert.assertArrayEquals(new String[]{"adonofero", "tester"}, NssProtocol.getGroup(response.result).getMembers());
+
+            response = client.receive();
+            Assert.assertEquals(5, response.requestId);
+            Assert.assertArrayEquals(new int[]{3, 118, 1000}, NssProtocol.getGroupList(response.result));
+        }
+    }
+
+    @Test
+    public void nssServer_WithUnknownUidAndOperation_ShouldAnswerWithStatusAndKeepConnection() throws Exception {
+        try (NssClient client = new NssClient("localhost", server.getPort())) {
+            // Act
+            client.send(1, NssProtocol.GETPWUID, 9999);
+            client.send(2, (byte) 42, 0);
+            client.send(3, NssProtocol.GETPWUID, 0);
+            client.flush();
+
+            // Assert
+            Assert.assertEquals(NssProtocol.STATUS_NOT_FOUND, client.receive().status);
+            Assert.assertEquals(NssProtocol.STATUS_BAD_REQUEST, client.receive().status);
+            NssClient.Response response = client.receive();
+            Assert.assertEquals(NssProtocol.STATUS_OK, response.status);
+            Assert.assertEquals("root", NssProtocol.getUser(response.result).getName());
+        }
+    }
+
+    @Test
+    public void nssServer_WithGroupListOfUnknownUser_ShouldAnswerNotFound() throws Exception {
+        try (NssClient client = new NssClient("localhost", server.getPort())) {
+            // Act
+            client.send(1, NssProtocol.GETGROUPLIST, "nobody");
+            client.send(2, NssProtocol.GETGROUPLIST, "root");
+            client.flush();
+
+            // Assert
+            Assert.assertEquals(NssProtocol.STATUS_NOT_FOUND, client.receive().status);
+            NssClient.Response response = client.receive();
+            Assert.assertEquals(NssProtocol.STATUS_OK, response.status);
+            Assert.assertArrayEquals(new int[]{0}, NssProtocol.getGroupList(response.result));
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void nssServer_WithOversizedFrame_ShouldCloseConnection() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            // Act
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(NssProtocol.MAX_REQUEST_LENGTH + 1);
+            out.flush();
+
+            // Assert
+            new DataInputStream(socket.getInputStream()).readInt();
+        }
+    }
+
+    @Test
+    public void nssServer_WithFailingLookup_ShouldAnswerWithErrorAndKeepServing() throws Exception {
+        // Arrange
+        NssServer failing = new NssServer(new TestUsersService(), new LocalFileGroupsService(directory, changeLog,
+                new QueryResultCache<>(16, 1 << 20, EntitySizes::of)), 0, 2);
+        failing.start();
+
+        try (NssClient client = new NssClient("localhost", failing.getPort())) {
+            // Act
+            client.send(1, NssProtocol.GETPWUID, 7);
+            client.send(2, NssProtocol.GETPWUID, 0);
+            client.flush();
+
+            // Assert
+            Assert.assertEquals(NssProtocol.STATUS_ERROR, client.receive().status);
+            NssClient.Response response = client.receive();
+            Assert.assertEquals(NssProtocol.STATUS_OK, response.status);
+            Assert.assertEquals("root", NssProtocol.getUser(response.result).getName());
+        } finally {
+            failing.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void nssServer_WithBlockedLookup_ShouldKeepAnsweringOtherConnections() throws Exception {
+        // Arrange
+        NssServer blocking = new NssServer(new TestUsersService(), new LocalFileGroupsService(directory, changeLog,
+                new QueryResultCache<>(16, 1 << 20, EntitySizes::of)), 0, 2);
+        blocking.start();
+
+        try (NssClient blocked = new NssClient("localhost", blocking.getPort());
+             NssClient other = new NssClient("localhost", blocking.getPort())) {
+            blocked.send(1, NssProtocol.GETPWUID, 8);
+            blocked.flush();
+
+            // Act
+            other.send(2, NssProtocol.GETPWUID, 0);
+            other.flush();
+            NssClient.Response response = other.receive();
+
+            // Assert
+            Assert.assertEquals(NssProtocol.STATUS_OK, response.status);
+            Assert.assertEquals("root", NssProtocol.getUser(response.result).getName());
+            release.countDown();
+            Assert.assertEquals(NssProtocol.STATUS_OK, blocked.receive().status);
+        } finally {
+            release.countDown();
+            blocking.stop();
+        }
+    }
+
+    /**
+     * Users service failing the lookups of uid 7, and holding those of uid 8 until the test releases them.
+     */
+    private class TestUsersService extends LocalFileUsersService {
+
+        TestUsersService() {
+            super(directory, changeLog, new QueryResultCache<>(16, 1 << 20, EntitySizes::of));
+        }
+
+        @Override
+        public User getUserById(int uid) throws UpdateFailureException, EntityNotFoundException {
+            if (uid == 7) {
+                throw new IllegalStateException("Simulated failure");
+            }
+            if (uid == 8) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getUserById(0);
+            }
+            return super.getUserById(uid);
+        }
+    }
+}
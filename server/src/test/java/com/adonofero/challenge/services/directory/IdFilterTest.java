@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Alexander Donofero
+ */
+public class IdFilterTest {
+
+    @Test
+    public void idFilter_WithClusteredIds_ShouldAnswerExactly() {
+        // Arrange
+        IdFilter filter = IdFilter.of(new int[]{0, 1, 2, 3, 1000, 65534});
+
+        // Act & Assert
+        Assert.assertTrue(filter.mightContain(0));
+        Assert.assertTrue(filter.mightContain(1000));
+        Assert.assertTrue(filter.mightContain(65534));
+        Assert.assertFalse(filter.mightContain(4));
+        Assert.assertFalse(filter.mightContain(-1));
+        Assert.assertFalse(filter.mightContain(65535));
+        Assert.assertFalse(filter.mightContain(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void idFilter_WithSparseIds_ShouldContainEveryIdAndRejectMostOthers() {
+        // Arrange
+        int[] ids = new int[10000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 1000003;
+        }
+        IdFilter filter = IdFilter.of(ids);
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(i * 1000003 + 1)) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        for (int id : ids) {
+            Assert.assertTrue(filter.mightContain(id));
+        }
+        Assert.assertTrue("False positive rate too high: " + falsePositives, falsePositives < 2000);
+    }
+
+    @Test
+    public void idFilter_WithNoIds_ShouldRejectEveryId() {
+        // Act & Assert
+        Assert.assertFalse(IdFilter.of(new int[0]).mightContain(0));
+    }
+}
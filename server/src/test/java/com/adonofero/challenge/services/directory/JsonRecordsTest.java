@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.entity.Group;
+import com.adonofero.challenge.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Alexander Donofero
+ */
+public class JsonRecordsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void jsonRecords_WithEscapedAndNonAsciiFields_ShouldMatchJackson() throws Exception {
+        // Arrange
+        List<User> users = Arrays.asList(
+                user("root", 0, 0, "root", "/root", "/bin/bash"),
+                user("quote\"back\\slash", -1, Integer.MAX_VALUE, "tab\tnew\nline\r\u0001\u001f\u007f", "/home/caf\u00e9", "/bin/\u4e2d\ud83d\ude00\ud800"),
+                user("nobody", 65534, Integer.MIN_VALUE, "", null, "/usr/sbin/nologin"));
+        JsonRecords.Writer writer = new JsonRecords.Writer(users.size());
+        for (User user : users) {
+            writer.add(user);
+        }
+
+        // Act
+        JsonRecords records = writer.build();
+
+        // Assert
+        for (int row = 0; row < users.size(); row++) {
+            Assert.assertArrayEquals(mapper.writeValueAsBytes(users.get(row)), bytesOf(records, row));
+        }
+        Assert.assertArrayEquals(mapper.writeValueAsBytes(users), bytesOf(records, -1));
+    }
+
+    @Test
+    public void jsonRecords_WithGroups_ShouldMatchJackson() throws Exception {
+        // Arrange
+        List<Group> groups = Arrays.asList(group("wheel", 10, "root", "\u00e9lise"), group("empty", 100));
+        JsonRecords.Writer writer = new JsonRecords.Writer(groups.size());
+        for (Group group : groups) {
+            writer.add(group);
+        }
+
+        // Act
+        JsonRecords records = writer.build();
+
+        // Assert
+        Assert.assertArrayEquals(mapper.writeValueAsBytes(groups.get(0)), bytesOf(records, 0));
+        Assert.assertArrayEquals(mapper.writeValueAsBytes(groups.get(1)), bytesOf(records, 1));
+        Assert.assertArrayEquals(mapper.writeValueAsBytes(groups), bytesOf(records, -1));
+        Assert.assertEquals("[]", new JsonRecords.Writer(0).build().getAll().toString());
+    }
+
+    /**
+     * @return bytes written for a row, or for every row when negative
+     */
+    private static byte[] bytesOf(JsonRecords records, int row) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        (row < 0 ? records.getAll() : records.get(row)).writeTo(out);
+        Assert.assertEquals(out.size(), (row < 0 ? records.getAll() : records.get(row)).getLength());
+        return out.toByteArray();
+    }
+
+    private static User user(String name, int uid, int gid, String comment, String home, String shell) {
+        User user = new User();
+        user.setName(name);
+        user.setUid(uid);
+        user.setGid(gid);
+        user.setComment(comment);
+        user.setHome(home);
+        user.setShell(shell);
+        return user;
+    }
+
+    private static Group group(String name, int gid, String... members) {
+        Group group = new Group();
+        group.setName(name);
+        group.setGid(gid);
+        group.setMembers(members);
+        return group;
+    }
+}
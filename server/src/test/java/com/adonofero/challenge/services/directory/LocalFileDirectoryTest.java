@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.exceptions.service.StaleDataException;
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Alexander Donofero
+ */
+public class LocalFileDirectoryTest {
+
+    File defaultUserFile = new File("src/test/resources/usersfiles/defaultUsersFile.txt");
+    File defaultGroupFile = new File("src/test/resources/groupfiles/defaultGroupsFile.txt");
+    File passwdFile = new File("target/test/directory/passwd.txt");
+    File groupFile = new File("target/test/directory/group.txt");
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.copyFile(defaultUserFile, passwdFile);
+        FileUtils.copyFile(defaultGroupFile, groupFile);
+    }
+
+    @Test
+    public void localFileDirectory_WithConcurrentRequests_ShouldRebuildSnapshotOnce() throws Exception {
+        // Arrange
+        int requests = 16;
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DirectorySnapshot>> snapshots = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < requests; i++) {
+            snapshots.add(executor.submit(() -> {
+                start.await();
+                return directory.getSnapshot();
+            }));
+        }
+        start.countDown();
+        List<Long> versions = new ArrayList<>();
+        for (Future<DirectorySnapshot> snapshot : snapshots) {
+            versions.add(snapshot.get().getVersion());
+        }
+        executor.shutdown();
+
+        // Assert
+        Assert.assertEquals(1, directory.getMetrics().getRebuilds());
+        for (Long version : versions) {
+            Assert.assertEquals(Long.valueOf(1), version);
+        }
+    }
+
+    @Test
+    public void localFileDirectory_WithChangedFile_ShouldPublishNextVersion() throws Exception {
+        // Arrange
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT, true, ParseMode.FAIL);
+        long initialVersion = directory.getSnapshot().getVersion();
+
+        // Act
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/updatedUsersFile.txt"), passwdFile);
+        DirectorySnapshot updated = directory.getSnapshot();
+
+        // Assert
+        Assert.assertEquals(initialVersion + 1, updated.getVersion());
+        Assert.assertEquals(2, directory.getMetrics().getRebuilds());
+        Assert.assertEquals(0, directory.getMetrics().getFailedRebuilds());
+    }
+
+    @Test
+    public void localFileDirectory_WithScheduledRefresh_ShouldPickUpChangedFileInBackground() throws Exception {
+        // Arrange
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT);
+        directory.scheduleRefresh(10, 60000, StalePolicy.ERROR);
+        long initialVersion = directory.getSnapshot().getVersion();
+
+        // Act
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/updatedUsersFile.txt"), passwdFile);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (directory.getSnapshot().getVersion() == initialVersion && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        directory.close();
+
+        // Assert
+        Assert.assertEquals(initialVersion + 1, directory.getSnapshot().getVersion());
+        Assert.assertEquals(0, directory.getMetrics().getStalenessExceeded());
+    }
+
+    @Test(expected = StaleDataException.class)
+    public void localFileDirectory_WithScheduledRefresh_WithStaleSnapshot_ShouldRefuseRequest() throws Exception {
+        // Arrange
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT);
+        directory.scheduleRefresh(3600000, 1, StalePolicy.ERROR);
+        directory.getSnapshot();
+
+        // Act
+        Thread.sleep(20);
+        try {
+            directory.getSnapshot();
+        } finally {
+            directory.close();
+        }
+    }
+
+    @Test
+    public void localFileDirectory_WithMalformedFile_ShouldParseRejectedVersionOnce() throws Exception {
+        // Arrange
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/malformedUsersFile.txt"), passwdFile);
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            try {
+                directory.getUsersSnapshot();
+                Assert.fail("Expected malformed users file to be rejected");
+            } catch (UpdateFailureException ex) {
+                // Expected
+            }
+        }
+
+        // Assert
+        Assert.assertEquals(1, directory.getMetrics().getRejectedVersions());
+        Assert.assertNotNull(directory.getUsersRejection());
+    }
+
+    @Test
+    public void localFileDirectory_WithStrictParseMode_WithMalformedFile_ShouldServeLastGoodVersion() throws Exception {
+        // Arrange
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT, false, ParseMode.STRICT);
+        DirectorySnapshot lastGood = directory.getUsersSnapshot();
+
+        // Act
+        FileUtils.copyFile(new File("src/test/resources/usersfiles/malformedUsersFile.txt"), passwdFile);
+        DirectorySnapshot first = directory.getUsersSnapshot();
+        DirectorySnapshot second = directory.getUsersSnapshot();
+
+        // Assert
+        Assert.assertSame(lastGood, first);
+        Assert.assertSame(lastGood, second);
+        Assert.assertEquals(1, directory.getMetrics().getRejectedVersions());
+    }
+
+    @Test
+    public void localFileDirectory_WithTolerantParseMode_WithMalformedLines_ShouldDropThem() throws Exception {
+        // Arrange
+        FileUtils.writeStringToFile(passwdFile, FileUtils.readFileToString(defaultUserFile, StandardCharsets.UTF_8)
+                + "\nbroken:x:notanumber:0:broken:/:/bin/false\ntoo:few:fields\n", StandardCharsets.UTF_8);
+        LocalFileDirectory directory = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT, false, ParseMode.TOLERANT);
+
+        // Act
+        DirectorySnapshot snapshot = directory.getUsersSnapshot();
+
+        // Assert
+        Assert.assertEquals(4, snapshot.getUsers().size());
+        Assert.assertEquals(2, directory.getUsersParseReport().getMalformedLines());
+        Assert.assertArrayEquals(new int[]{5, 6}, directory.getUsersParseReport().getMalformedLineNumbers());
+    }
+
+    @Test
+    public void localFileDirectory_WithOffHeapStorage_ShouldTagAndCountAsObjectStorage() throws Exception {
+        // Arrange
+        FileUtils.writeStringToFile(passwdFile, FileUtils.readFileToString(defaultUserFile, StandardCharsets.UTF_8)
+                + "\nren\u00e9e:x:1000:1000:Ren\u00e9e \ud83d\ude00:/home/ren\u00e9e:/bin/zsh\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(groupFile, FileUtils.readFileToString(defaultGroupFile, StandardCharsets.UTF_8)
+                + "\nren\u00e9e:x:1000:ren\u00e9e,root\n", StandardCharsets.UTF_8);
+        DirectorySnapshot expected = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OBJECT).getSnapshot();
+
+        // Act
+        DirectorySnapshot actual = new LocalFileDirectory(passwdFile, groupFile, StorageMode.OFF_HEAP).getSnapshot();
+
+        // Assert
+        Assert.assertEquals(expected.getUsers().size(), actual.getUsers().size());
+        for (int row = 0; row < expected.getUsers().size(); row++) {
+            Assert.assertEquals(expected.getUserTag(row), actual.getUserTag(row));
+        }
+        Assert.assertEquals(expected.getGroups().size(), actual.getGroups().size());
+        for (int row = 0; row < expected.getGroups().size(); row++) {
+            Assert.assertEquals(expected.getGroupTag(row), actual.getGroupTag(row));
+        }
+        Assert.assertEquals(expected.getUsersByShell().getCounts(), actual.getUsersByShell().getCounts());
+        Assert.assertEquals(expected.getUsersByGid().getCounts(), actual.getUsersByGid().getCounts());
+        Assert.assertEquals(expected.getUsersByHome().getCounts(), actual.getUsersByHome().getCounts());
+        Assert.assertEquals(expected.getGroupSizes().getCounts(), actual.getGroupSizes().getCounts());
+        Assert.assertTrue(actual.mightHaveUid(1000));
+        Assert.assertTrue(actual.mightHaveGroupGid(1000));
+    }
+
+    @Test
+    public void localFileDirectory_WithRebuildPublishedAfterSnapshotRead_ShouldRebuildOnPublishedSnapshot() throws Exception {
+        // Arrange
+        GatedFile users = new GatedFile(passwdFile);
+        GatedFile groups = new GatedFile(groupFile);
+        LocalFileDirectory directory = new LocalFileDirectory(users, groups, StorageMode.OBJECT);
+        DirectorySnapshot first = directory.getSnapshot();
+        List<DirectorySnapshot> replaced = new CopyOnWriteArrayList<>();
+        directory.addListener((previous, next) -> replaced.add(previous));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        FileUtils.writeStringToFile(groupFile, FileUtils.readFileToString(defaultGroupFile, StandardCharsets.UTF_8)
+                + "\nstaff:x:50:root\n", StandardCharsets.UTF_8);
+        // The groups rebuild stops while opening the groups file to parse it, before publishing
+        Gate groupsParse = groups.gate(groups.isDirectoryGate);
+        Future<DirectorySnapshot> groupsRebuild = executor.submit(directory::getSnapshot);
+        groupsParse.reached.await();
+        FileUtils.writeStringToFile(passwdFile, FileUtils.readFileToString(defaultUserFile, StandardCharsets.UTF_8)
+                + "\nstaff:x:1000:50:staff:/home/staff:/bin/sh\n", StandardCharsets.UTF_8);
+        // The users refresh stops while taking the fingerprint of the users file, after reading the in-flight rebuild
+        // and the snapshot
+        Gate usersFingerprint = users.gate(users.existsGate);
+        Future<DirectorySnapshot> usersRebuild = executor.submit(directory::getUsersSnapshot);
+        usersFingerprint.reached.await();
+
+        // Act
+        groupsParse.release.countDown();
+        DirectorySnapshot second = groupsRebuild.get();
+        usersFingerprint.release.countDown();
+        DirectorySnapshot third = usersRebuild.get();
+        executor.shutdown();
+
+        // Assert
+        Assert.assertEquals(2, second.getVersion());
+        Assert.assertEquals(3, third.getVersion());
+        Assert.assertEquals(5, third.getUsers().size());
+        Assert.assertSame(second.getGroups(), third.getGroups());
+        Assert.assertEquals(2, replaced.size());
+        Assert.assertSame(first, replaced.get(0));
+        Assert.assertSame(second, replaced.get(1));
+    }
+
+    /**
+     * Pause of the first thread reaching a point, until released.
+     */
+    private static class Gate {
+        private final CountDownLatch reached = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private void pass() {
+            reached.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * File pausing the directory when it checks whether the file exists, as it does before taking a fingerprint, or
+     * whether it is a directory, as it does before parsing it.
+     */
+    private static class GatedFile extends File {
+        private final AtomicReference<Gate> existsGate = new AtomicReference<>();
+        private final AtomicReference<Gate> isDirectoryGate = new AtomicReference<>();
+
+        private GatedFile(File file) {
+            super(file.getPath());
+        }
+
+        private Gate gate(AtomicReference<Gate> point) {
+            Gate gate = new Gate();
+            point.set(gate);
+            return gate;
+        }
+
+        @Override
+        public boolean exists() {
+            pass(existsGate);
+            return super.exists();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            pass(isDirectoryGate);
+            return super.isDirectory();
+        }
+
+        private void pass(AtomicReference<Gate> point) {
+            Gate gate = point.getAndSet(null);
+            if (gate != null) {
+                gate.pass();
+            }
+        }
+    }
+}
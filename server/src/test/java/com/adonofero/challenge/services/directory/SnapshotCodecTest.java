@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import com.adonofero.challenge.exceptions.service.UpdateFailureException;
+import com.adonofero.challenge.services.groups.GroupStore;
+import com.adonofero.challenge.services.users.UserStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Alexander Donofero
+ */
+public class SnapshotCodecTest {
+
+    @Test
+    public void snapshotCodec_WithEncodedFrame_ShouldDecodeSameUsersAndGroups() throws Exception {
+        // Arrange
+        UserStore.Builder users = StorageMode.OBJECT.newUserStoreBuilder();
+        users.add("root", 0, 0, "root", "/root", "/bin/bash");
+        users.add("nobody", -2, -2, "Unprivileged User", "/var/empty", "/usr/bin/false");
+        users.add("ren\u00e9e", 70000, 20, "Ren\u00e9e \u00dcn\u00efcode \ud83d\ude00", "/home/ren\u00e9e", "/bin/bash");
+        GroupStore.Builder groups = StorageMode.OBJECT.newGroupStoreBuilder();
+        groups.add("wheel", 0, new String[]{"root", "ren\u00e9e"});
+        groups.add("nogroup", -1, new String[]{});
+        UserStore expectedUsers = users.build();
+        GroupStore expectedGroups = groups.build();
+
+        // Act
+        byte[] frame = write(SnapshotCodec.encode(42, 7, SnapshotCodec.encodeUsers(expectedUsers), SnapshotCodec.encodeGroups(expectedGroups)));
+        SnapshotCodec.Frame decoded = SnapshotCodec.decode(new ByteArrayInputStream(frame), frame.length, StorageMode.OFF_HEAP);
+
+        // Assert
+        Assert.assertEquals(42, decoded.getEpoch());
+        Assert.assertEquals(7, decoded.getVersion());
+        Assert.assertEquals(expectedUsers.size(), decoded.getUsers().size());
+        for (int row = 0; row < expectedUsers.size(); row++) {
+            Assert.assertEquals(expectedUsers.getUser(row), decoded.getUsers().getUser(row));
+        }
+        Assert.assertEquals(expectedGroups.size(), decoded.getGroups().size());
+        for (int row = 0; row < expectedGroups.size(); row++) {
+            Assert.assertEquals(expectedGroups.getGroup(row), decoded.getGroups().getGroup(row));
+        }
+    }
+
+    @Test
+    public void snapshotCodec_WithCorruptFrame_ShouldFailChecksum() throws Exception {
+        // Arrange
+        GroupStore.Builder groups = StorageMode.OBJECT.newGroupStoreBuilder();
+        groups.add("wheel", 0, new String[]{"root"});
+        byte[] frame = write(SnapshotCodec.encode(1, 1, null, SnapshotCodec.encodeGroups(groups.build())));
+        frame[frame.length / 2] ^= 1;
+
+        // Act & Assert
+        try {
+            SnapshotCodec.decode(new ByteArrayInputStream(frame), frame.length, StorageMode.OBJECT);
+            Assert.fail("Expected a corrupt frame to be rejected");
+        } catch (UpdateFailureException ex) {
+            Assert.assertEquals("Snapshot frame failed its checksum", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void snapshotCodec_WithFrameSpanningChunksAndReadInPieces_ShouldDecodeSameUsers() throws Exception {
+        // Arrange
+        UserStore.Builder users = StorageMode.OBJECT.newUserStoreBuilder();
+        for (int uid = 0; uid < 5000; uid++) {
+            users.add("user" + uid, uid, uid % 7, "User number " + uid + " of the test directory", "/home/user" + uid, "/bin/sh" + uid % 3);
+        }
+        UserStore expectedUsers = users.build();
+        SnapshotCodec.EncodedFrame encoded = SnapshotCodec.encode(3, 9, SnapshotCodec.encodeUsers(expectedUsers), null);
+        byte[] frame = write(encoded);
+
+        // Act
+        SnapshotCodec.Frame decoded = SnapshotCodec.decode(new TrickleInputStream(new ByteArrayInputStream(frame)), frame.length, StorageMode.OBJECT);
+
+        // Assert
+        Assert.assertEquals(encoded.getLength(), frame.length);
+        Assert.assertTrue("Expected a frame larger than one chunk", frame.length > 1 << 16);
+        Assert.assertNull(decoded.getGroups());
+        Assert.assertEquals(expectedUsers.size(), decoded.getUsers().size());
+        for (int row = 0; row < expectedUsers.size(); row++) {
+            Assert.assertEquals(expectedUsers.getUser(row), decoded.getUsers().getUser(row));
+        }
+    }
+
+    @Test
+    public void snapshotCodec_WithTruncatedFrame_ShouldFail() throws Exception {
+        // Arrange
+        GroupStore.Builder groups = StorageMode.OBJECT.newGroupStoreBuilder();
+        groups.add("wheel", 0, new String[]{"root"});
+        byte[] frame = write(SnapshotCodec.encode(1, 1, null, SnapshotCodec.encodeGroups(groups.build())));
+
+        // Act & Assert
+        try {
+            SnapshotCodec.decode(new ByteArrayInputStream(frame, 0, frame.length - 3), frame.length, StorageMode.OBJECT);
+            Assert.fail("Expected a truncated frame to be rejected");
+        } catch (UpdateFailureException ex) {
+            Assert.assertEquals(String.format("Snapshot frame of %d bytes is truncated", frame.length), ex.getMessage());
+        }
+    }
+
+    private static byte[] write(SnapshotCodec.EncodedFrame frame) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        frame.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Hands out at most a few bytes per read, as a slow connection may.
+     */
+    private static final class TrickleInputStream extends FilterInputStream {
+
+        private TrickleInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+}
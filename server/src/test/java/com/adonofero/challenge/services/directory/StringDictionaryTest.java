@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.directory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Alexander Donofero
+ */
+public class StringDictionaryTest {
+
+    @Test
+    public void stringDictionary_WithRepeatedValues_ShouldReturnSharedInstanceAndSameId() {
+        // Arrange
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("/usr/sbin/nologin");
+        String second = new String("/usr/sbin/nologin");
+
+        // Act
+        String interned = dictionary.intern(first);
+
+        // Assert
+        Assert.assertSame(first, interned);
+        Assert.assertSame(first, dictionary.intern(second));
+        Assert.assertEquals(dictionary.idOf(first), dictionary.idOf(second));
+        Assert.assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void stringDictionary_WithManyValues_ShouldAssignDenseIdsAcrossGrowth() {
+        // Arrange
+        StringDictionary dictionary = new StringDictionary();
+
+        // Act
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals(i, dictionary.idOf("value" + i));
+        }
+
+        // Assert
+        Assert.assertEquals(10000, dictionary.size());
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals(i, dictionary.lookup("value" + i));
+            Assert.assertEquals("value" + i, dictionary.get(i));
+        }
+    }
+
+    @Test
+    public void stringDictionary_WithMissingValue_ShouldReturnNotFoundWithoutAddingIt() {
+        // Arrange
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 100; i++) {
+            dictionary.idOf("value" + i);
+        }
+
+        // Act & Assert
+        Assert.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup("missing"));
+        Assert.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup(""));
+        Assert.assertEquals(100, dictionary.size());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.query;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Alexander Donofero
+ */
+public class QueryResultCacheTest {
+
+    @Test
+    public void queryResultCache_BeyondItsBounds_ShouldEvictLeastRecentlyUsedResults() {
+        // Arrange
+        QueryResultCache<String> cache = new QueryResultCache<>(2, 10_000, value -> 1000);
+        cache.put("a", Collections.singletonList("a"));
+        cache.put("b", Collections.singletonList("b"));
+        cache.get("a");
+
+        // Act
+        cache.put("c", Collections.singletonList("c"));
+        cache.put("heavy", Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9", "10"));
+        List<String> a = cache.get("a");
+        List<String> b = cache.get("b");
+        cache.put("d", Arrays.asList("d", "d", "d", "d", "d", "d", "d", "d"));
+
+        // Assert
+        Assert.assertEquals(Collections.singletonList("a"), a);
+        Assert.assertNull(b);
+        Assert.assertNull(cache.get("heavy"));
+        Assert.assertNull(cache.get("c"));
+        Assert.assertEquals(2, cache.getEntries());
+        Assert.assertTrue(cache.getBytes() <= 10_000);
+        Assert.assertEquals(2, cache.getEvictions());
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void queryResultCache_Key_ShouldTellApartParametersAndVersions() {
+        // Act & Assert
+        Assert.assertNotEquals(QueryResultCache.key(1, "a|1:b", null), QueryResultCache.key(1, "a", "b"));
+        Assert.assertNotEquals(QueryResultCache.key(1, ""), QueryResultCache.key(1, (Object) null));
+        Assert.assertNotEquals(QueryResultCache.key(1, "x"), QueryResultCache.key(2, "x"));
+        Assert.assertEquals(QueryResultCache.key(3, "x", 7), QueryResultCache.key(3, "x", "7"));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Alexander Donofero
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adonofero.challenge.services.users;
+
+import com.adonofero.challenge.entity.User;
+import com.adonofero.challenge.exceptions.service.InvalidQueryException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * @author Alexander Donofero
+ */
+public class UserQueryEngineTest {
+
+    @Test
+    public void userQueryEngine_WithIndexedAndScannedExpressions_ShouldMatchSameUsersAsPredicates() throws Exception {
+        // Arrange
+        UserStore.Builder builder = ColumnarUserStore.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add((i % 7 == 0 ? "svc-" : "user") + i, i, i % 50, "User " + i, "/home/user" + i, i % 3 == 0 ? "/bin/zsh" : "/bin/bash");
+        }
+        UserStore users = builder.build();
+        Map<String, Predicate<User>> expressions = new LinkedHashMap<>();
+        expressions.put("uid = 42", user -> user.getUid() == 42);
+        expressions.put("uid >= 1000 AND uid < 1010 AND shell = /bin/zsh",
+                user -> user.getUid() >= 1000 && user.getUid() < 1010 && user.getShell().equals("/bin/zsh"));
+        expressions.put("name ^= svc-49 OR gid = 7", user -> user.getName().startsWith("svc-49") || user.getGid() == 7);
+        expressions.put("NOT shell = /bin/bash AND gid != 0", user -> !user.getShell().equals("/bin/bash") && user.getGid() != 0);
+        expressions.put("comment = \"User 17\"", user -> user.getComment().equals("User 17"));
+        expressions.put("uid > 10 AND uid < 5", user -> false);
+        expressions.put("comment ~= \"ER 49\"", user -> user.getComment().toLowerCase().contains("er 49"));
+        expressions.put("home ~= r12 AND shell = /bin/zsh", user -> user.getHome().contains("r12") && user.getShell().equals("/bin/zsh"));
+        expressions.put("comment ~= 9 OR home ~= xyz", user -> user.getComment().contains("9"));
+        UserQueryEngine engine = new UserQueryEngine(16);
+
+        for (Map.Entry<String, Predicate<User>> expression : expressions.entrySet()) {
+            List<User> expected = new ArrayList<>();
+            for (int row = 0; row < users.size(); row++) {
+                if (expression.getValue().test(users.getUser(row))) {
+                    expected.add(users.getUser(row));
+                }
+            }
+
+            // Act
+            List<User> matched = engine.query(expression.getKey(), users);
+
+            // Assert
+            Assert.assertEquals(expression.getKey(), expected, matched);
+        }
+    }
+
+    @Test
+    public void userQueryEngine_WithSortAndLimit_ShouldReturnFirstUsersInOrder() throws Exception {
+        // Arrange
+        UserStore.Builder builder = ColumnarUserStore.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add("user" + (i * 7919 % 5000), i * 31 % 5000, i % 50, "User " + i, "/home/user" + i, i % 3 == 0 ? "/bin/zsh" : "/bin/bash");
+        }
+        UserStore users = builder.build();
+        Map<String, Comparator<User>> orders = new LinkedHashMap<>();
+        orders.put("uid,desc", Comparator.comparingInt(User::getUid));
+        orders.put("name", Comparator.comparing(User::getName));
+        orders.put("gid,desc", Comparator.comparingInt(User::getGid));
+        orders.put("home,asc", Comparator.comparing(User::getHome));
+        Map<String, Predicate<User>> expressions = new LinkedHashMap<>();
+        expressions.put(null, user -> true);
+        expressions.put("shell = /bin/zsh", user -> user.getShell().equals("/bin/zsh"));
+        expressions.put("uid < 40", user -> user.getUid() < 40);
+        UserQueryEngine engine = new UserQueryEngine(16);
+
+        for (Map.Entry<String, Comparator<User>> order : orders.entrySet()) {
+            for (Map.Entry<String, Predicate<User>> expression : expressions.entrySet()) {
+                List<Integer> matchedRows = new ArrayList<>();
+                for (int row = 0; row < users.size(); row++) {
+                    if (expression.getValue().test(users.getUser(row))) {
+                        matchedRows.add(row);
+                    }
+                }
+                // Ties are ordered by row, and descending orders are the exact reverse of ascending ones
+                Comparator<Integer> byRow = Comparator.comparing(users::getUser, order.getValue());
+                byRow = byRow.thenComparing(Comparator.naturalOrder());
+                matchedRows.sort(order.getKey().endsWith(",desc") ? byRow.reversed() : byRow);
+                List<User> expected = new ArrayList<>();
+                for (int row : matchedRows.subList(0, Math.min(25, matchedRows.size()))) {
+                    expected.add(users.getUser(row));
+                }
+
+                // Act
+                List<User> sorted = engine.query(expression.getKey(), users, order.getKey(), 25);
+
+                // Assert
+                Assert.assertEquals(order.getKey() + " of " + expression.getKey(), expected, sorted);
+            }
+        }
+    }
+
+    @Test
+    public void userQueryEngine_WithFieldValuesAndSort_ShouldReturnStoreMatchesInOrder() throws Exception {
+        // Arrange
+        UserStore.Builder builder = ColumnarUserStore.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add("user" + i, i * 31 % 5000, i % 50, "User " + i, "/home/user" + i, i % 3 == 0 ? "/bin/zsh" : "/bin/bash");
+        }
+        UserStore users = builder.build();
+        List<User> expected = new ArrayList<>(users.queryUsers(null, null, 7, null, null, "/bin/zsh"));
+        expected.sort(Comparator.comparingInt(User::getUid).reversed());
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("name", null);
+        values.put("gid", 7);
+        values.put("shell", "/bin/zsh");
+        UserQueryEngine engine = new UserQueryEngine(16);
+
+        // Act
+        List<User> sorted = engine.match(values, users, "uid,desc", null);
+
+        // Assert
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, sorted);
+    }
+
+    @Test
+    public void userQueryEngine_WithMalformedSorts_ShouldThrowInvalidQueryException() {
+        // Arrange
+        UserStore users = ObjectUserStore.builder().build();
+        Map<String, String> sorts = new LinkedHashMap<>();
+        sorts.put("password", "Cannot sort on 'password'. Expected one of name, uid, gid, comment, home, shell");
+        sorts.put("uid,sideways", "Expected asc or desc as the sort direction. Found 'sideways'");
+        sorts.put("shell,desc", "Sorting on field 'shell' requires a limit");
+        UserQueryEngine engine = new UserQueryEngine(16);
+
+        for (Map.Entry<String, String> sort : sorts.entrySet()) {
+            // Act & Assert
+            try {
+                engine.query(null, users, sort.getKey(), null);
+                Assert.fail("Expected " + sort.getKey() + " to be rejected");
+            } catch (InvalidQueryException ex) {
+                Assert.assertEquals(sort.getValue(), ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void userQueryEngine_WithMalformedExpressions_ShouldThrowInvalidQueryException() {
+        // Arrange
+        UserStore users = ObjectUserStore.builder().build();
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put("", "Query expression is empty");
+        expressions.put("password = x", "Unknown field 'password'. Expected one of name, uid, gid, comment, home, shell");
+        expressions.put("uid >= abc", "Expected a number for field 'uid'. Found 'abc'");
+        expressions.put("shell < 3", "Operator < requires a numeric field. Field 'shell' is text");
+        expressions.put("uid ~= 3", "Operator ~= requires a text field. Field 'uid' is numeric");
+        expressions.put("(uid = 1", "Expected ')' at position 8 of query expression");
+        expressions.put("name = \"open", "Unterminated quoted string at position 12 of query expression");
+        UserQueryEngine engine = new UserQueryEngine(16);
+
+        for (Map.Entry<String, String> expression : expressions.entrySet()) {
+            // Act & Assert
+            try {
+                engine.query(expression.getKey(), users);
+                Assert.fail("Expected " + expression.getKey() + " to be rejected");
+            } catch (InvalidQueryException ex) {
+                Assert.assertEquals(expression.getValue(), ex.getMessage());
+            }
+        }
+    }
+}